@@ -0,0 +1,106 @@
+package benchmark;
+
+import com.google.inject.Guice;
+import knn.api.BackwardSearchApproximation;
+import knn.api.KnowledgeNode;
+import knn.api.KnowledgeNodeNetwork;
+import knn.api.KnowledgeNodeNetworkEngine;
+import knn.api.KnowledgeNodeNetworkFactory;
+import knn.guice.KnowledgeNodeNetworkModule;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import tags.Tag;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares approximate backward search, through the MinHash signatures of the KN output Tags, with exact backward
+ * search on a copy of the KNN. The queries are the output Tags of sampled KNs, so that each matches at least its KN.
+ * Searches run in sessions, so that they all start from the same activation.
+ * <p>
+ * Before each iteration, the recall of the approximation, i.e., the ratio of the Tags activated by exact search which
+ * approximate search activates too, is measured over the queries and printed. Only the DEFAULT, COMPILED and SHARDED
+ * engines approximate backward search, e.g. {@code -p engine=DEFAULT,COMPILED,SHARDED}.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ApproximateBackwardSearchBenchmark extends KnowledgeNodeNetworkState {
+    private static final int QUERIES = 256;
+
+    @Param({"16", "64"})
+    private int bands;
+
+    @Param({"1", "2"})
+    private int rows;
+
+    @Param({"true", "false"})
+    private boolean verified;
+
+    @Param({"0.5", "1"})
+    private double backwardSearchMatchRatio;
+
+    private KnowledgeNodeNetwork exactKnn;
+    private List<Set<Tag>> queries;
+    private int nextQuery;
+
+    @Override
+    protected BackwardSearchApproximation createBackwardSearchApproximation() {
+        return new BackwardSearchApproximation(bands, rows, verified);
+    }
+
+    @Setup(Level.Iteration)
+    public void setUpQueries() {
+        getKnn().setBackwardSearchMatchRatio(backwardSearchMatchRatio);
+        exactKnn = Guice.createInjector(new KnowledgeNodeNetworkModule(KnowledgeNodeNetworkEngine.DEFAULT))
+                .getInstance(KnowledgeNodeNetworkFactory.class)
+                .create(new HashMap<>(), new HashSet<>(), backwardSearchMatchRatio, Long.MAX_VALUE);
+        final Set<KnowledgeNode> kns = getKnn().getKnowledgeNodes();
+        final int step = Math.max(1, kns.size() / QUERIES);
+        queries = new ArrayList<>(QUERIES);
+        int i = 0;
+        for (final KnowledgeNode kn : kns) {
+            exactKnn.addKnowledgeNode(kn);
+            if (i++ % step == 0 && queries.size() < QUERIES) {
+                queries.add(kn.getOutputTags());
+            }
+        }
+        long found = 0;
+        long expected = 0;
+        for (final Set<Tag> query : queries) {
+            final Set<Tag> approximate = getKnn().openSession().backwardSearch(query, 1);
+            for (final Tag t : exactKnn.openSession().backwardSearch(query, 1)) {
+                if (approximate.contains(t)) {
+                    found++;
+                }
+                expected++;
+            }
+        }
+        System.out.printf("%nRecall of approximate backward search: %.3f (%d of %d Tags)%n",
+                (double) found / Math.max(1, expected), found, expected);
+    }
+
+    private Set<Tag> nextQuery() {
+        nextQuery = (nextQuery + 1) % queries.size();
+        return queries.get(nextQuery);
+    }
+
+    @Benchmark
+    public Set<Tag> approximateBackwardSearch() {
+        return getKnn().openSession().backwardSearch(nextQuery(), 1);
+    }
+
+    @Benchmark
+    public Set<Tag> exactBackwardSearch() {
+        return exactKnn.openSession().backwardSearch(nextQuery(), 1);
+    }
+}
@@ -0,0 +1,77 @@
+package benchmark;
+
+import async.AsyncExecutors;
+import knn.api.AsyncKnowledgeNodeNetwork;
+import knn.api.AsyncKnowledgeNodeNetworkFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.TearDown;
+import tags.Tag;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares blocking backward search with asynchronous backward search on the default executor (virtual threads on
+ * Java 21 and later), waiting for one search at a time and for many searches in flight.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class AsyncSearchBenchmark extends KnowledgeNodeNetworkState {
+    @Param({"1"})
+    private int ply;
+
+    @Param({"1000"})
+    private int inFlight;
+
+    private ExecutorService executor;
+    private AsyncKnowledgeNodeNetwork asyncKnn;
+
+    @Override
+    protected boolean isAsyncSearch() {
+        return true;
+    }
+
+    @Setup(Level.Trial)
+    public void setUpAsync() {
+        executor = AsyncExecutors.newDefaultExecutor();
+        asyncKnn = getInjector().getInstance(AsyncKnowledgeNodeNetworkFactory.class).create(getKnn(), executor);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDownAsync() {
+        executor.shutdownNow();
+    }
+
+    @Benchmark
+    public Set<Tag> backwardSearch() {
+        return getKnn().backwardSearch(nextInputTags(), ply);
+    }
+
+    @Benchmark
+    public Set<Tag> backwardSearchAsync() {
+        return asyncKnn.backwardSearchAsync(nextInputTags(), ply).join();
+    }
+
+    @Benchmark
+    public List<Set<Tag>> backwardSearchAsyncInFlight() {
+        final List<CompletableFuture<Set<Tag>>> futures = new ArrayList<>(inFlight);
+        for (int i = 0; i < inFlight; i++) {
+            futures.add(asyncKnn.backwardSearchAsync(nextInputTags(), ply));
+        }
+        final List<Set<Tag>> results = new ArrayList<>(inFlight);
+        for (final CompletableFuture<Set<Tag>> future : futures) {
+            results.add(future.join());
+        }
+        return results;
+    }
+}
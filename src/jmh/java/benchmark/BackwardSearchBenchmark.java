@@ -0,0 +1,41 @@
+package benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import tags.Tag;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks backward and lambda search. A match ratio of 0 matches every KN, i.e., scans the whole KNN.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class BackwardSearchBenchmark extends KnowledgeNodeNetworkState {
+    @Param({"1", "3", "0"})
+    private int ply;
+
+    @Param({"0", "0.5", "1"})
+    private double backwardSearchMatchRatio;
+
+    @Setup(Level.Iteration)
+    public void setUpMatchRatio() {
+        getKnn().setBackwardSearchMatchRatio(backwardSearchMatchRatio);
+    }
+
+    @Benchmark
+    public Set<Tag> backwardSearch() {
+        return getKnn().backwardSearch(nextInputTags(), ply);
+    }
+
+    @Benchmark
+    public Set<Tag> lambdaSearch() {
+        return getKnn().lambdaSearch(nextInputTags(), ply);
+    }
+}
@@ -0,0 +1,62 @@
+package benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import tags.Tag;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares searching a batch of queries in one pass with searching them one by one, which gives the same results.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class BatchSearchBenchmark extends KnowledgeNodeNetworkState {
+    @Param({"64"})
+    private int batchSize;
+
+    @Param({"3"})
+    private int ply;
+
+    private List<Set<Tag>> nextBatch() {
+        final List<Set<Tag>> batch = new ArrayList<>(batchSize);
+        for (int i = 0; i < batchSize; i++) {
+            batch.add(nextInputTags());
+        }
+        return batch;
+    }
+
+    @Benchmark
+    public List<Set<Tag>> forwardSearchBatch() {
+        return getKnn().forwardSearchBatch(nextBatch(), ply);
+    }
+
+    @Benchmark
+    public List<Set<Tag>> forwardSearchOneByOne() {
+        final List<Set<Tag>> results = new ArrayList<>(batchSize);
+        for (final Set<Tag> inputTags : nextBatch()) {
+            results.add(getKnn().forwardSearch(inputTags, ply));
+        }
+        return results;
+    }
+
+    @Benchmark
+    public List<Set<Tag>> backwardSearchBatch() {
+        return getKnn().backwardSearchBatch(nextBatch(), ply);
+    }
+
+    @Benchmark
+    public List<Set<Tag>> backwardSearchOneByOne() {
+        final List<Set<Tag>> results = new ArrayList<>(batchSize);
+        for (final Set<Tag> inputTags : nextBatch()) {
+            results.add(getKnn().backwardSearch(inputTags, ply));
+        }
+        return results;
+    }
+}
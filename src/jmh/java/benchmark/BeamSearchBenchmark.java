@@ -0,0 +1,34 @@
+package benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import tags.Tag;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks beam search against unbounded forward search, with the same plies.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class BeamSearchBenchmark extends KnowledgeNodeNetworkState {
+    @Param({"3", "0"})
+    private int ply;
+
+    @Param({"8", "64"})
+    private int beamWidth;
+
+    @Benchmark
+    public Set<Tag> beamSearch() {
+        return getKnn().forwardSearch(nextInputTags(), ply, beamWidth);
+    }
+
+    @Benchmark
+    public Set<Tag> lambdaBeamSearch() {
+        return getKnn().lambdaSearch(nextInputTags(), ply, beamWidth);
+    }
+}
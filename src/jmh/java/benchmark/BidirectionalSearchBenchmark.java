@@ -0,0 +1,35 @@
+package benchmark;
+
+import knn.api.BidirectionalSearchResult;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import tags.Tag;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks bidirectional search between random Tags against lambda search from the same input Tags, with the same
+ * plies.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class BidirectionalSearchBenchmark extends KnowledgeNodeNetworkState {
+    @Param({"3", "6"})
+    private int ply;
+
+    @Benchmark
+    public BidirectionalSearchResult bidirectionalSearch() {
+        final Set<Tag> goalTags = Collections.singleton(nextInputTags().iterator().next());
+        return getKnn().bidirectionalSearch(nextInputTags(), goalTags, ply, 0);
+    }
+
+    @Benchmark
+    public Set<Tag> lambdaSearch() {
+        return getKnn().lambdaSearch(nextInputTags(), ply);
+    }
+}
@@ -0,0 +1,82 @@
+package benchmark;
+
+import com.google.inject.Guice;
+import knn.api.KnowledgeNode;
+import knn.api.KnowledgeNodeNetwork;
+import knn.api.KnowledgeNodeNetworkEngine;
+import knn.api.KnowledgeNodeNetworkFactory;
+import knn.guice.KnowledgeNodeNetworkModule;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import tags.Tag;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the throughput of the concurrent KNN engine when searched from an increasing number of threads. The KNN
+ * is shared by all the threads, and each search starts from a random KN input Tag of the animal data.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ConcurrentSearchBenchmark {
+    private static final String ANIMAL_DATA_PATH = "data/animalData.txt";
+    private KnowledgeNodeNetwork knn;
+    private List<Tag> inputTags;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        knn = Guice.createInjector(new KnowledgeNodeNetworkModule(KnowledgeNodeNetworkEngine.CONCURRENT))
+                .getInstance(KnowledgeNodeNetworkFactory.class)
+                .create(new HashMap<>(), new HashSet<>(), 1, Long.MAX_VALUE);
+        knn.loadData(ANIMAL_DATA_PATH);
+        inputTags = new ArrayList<>();
+        for (KnowledgeNode kn : knn.getKnowledgeNodes()) {
+            inputTags.add(kn.getInputTag());
+        }
+    }
+
+    private Set<Tag> search() {
+        final Tag tag = inputTags.get(ThreadLocalRandom.current().nextInt(inputTags.size()));
+        knn.directSearch(tag);
+        return knn.forwardSearch(Collections.singleton(tag), 1);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Set<Tag> search1Thread() {
+        return search();
+    }
+
+    @Benchmark
+    @Threads(2)
+    public Set<Tag> search2Threads() {
+        return search();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Set<Tag> search4Threads() {
+        return search();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public Set<Tag> search8Threads() {
+        return search();
+    }
+}
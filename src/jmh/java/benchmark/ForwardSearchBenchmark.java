@@ -0,0 +1,31 @@
+package benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import tags.Tag;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks direct and forward search.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ForwardSearchBenchmark extends KnowledgeNodeNetworkState {
+    @Param({"1", "3", "0"})
+    private int ply;
+
+    @Benchmark
+    public Set<Tag> directSearch() {
+        return getKnn().directSearch(nextInputTags().iterator().next());
+    }
+
+    @Benchmark
+    public Set<Tag> forwardSearch() {
+        return getKnn().forwardSearch(nextInputTags(), ply);
+    }
+}
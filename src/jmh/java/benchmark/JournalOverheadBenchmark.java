@@ -0,0 +1,67 @@
+package benchmark;
+
+import knn.api.JournalSyncPolicy;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.TearDown;
+import tags.Tag;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the overhead of the journal on forward search, which records the state of every excited KN and every
+ * activated Tag. {@code OFF} runs without a journal. The journal is opened on a snapshot of the KNs before each
+ * iteration, and closed after it, so the time of the final commit is not measured.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class JournalOverheadBenchmark extends KnowledgeNodeNetworkState {
+    private static final long COMMIT_INTERVAL_MILLIS = 10;
+
+    @Param({"OFF", "NONE", "COMMIT"})
+    private String journal;
+
+    @Param({"3"})
+    private int ply;
+
+    private File directory;
+
+    @Setup(Level.Iteration)
+    public void openJournal() throws IOException {
+        if ("OFF".equals(journal)) {
+            return;
+        }
+        directory = Files.createTempDirectory("knn").toFile();
+        final String db = new File(directory, "knn.db").getPath();
+        getKnn().save(db);
+        getKnn().openJournal(db, new File(directory, "knn.journal").getPath(), JournalSyncPolicy.valueOf(journal),
+                COMMIT_INTERVAL_MILLIS);
+    }
+
+    @TearDown(Level.Iteration)
+    public void closeJournal() {
+        if (directory == null) {
+            return;
+        }
+        getKnn().closeJournal();
+        for (final File file : directory.listFiles()) {
+            file.delete();
+        }
+        directory.delete();
+        directory = null;
+    }
+
+    @Benchmark
+    public Set<Tag> forwardSearch() {
+        return getKnn().forwardSearch(nextInputTags(), ply);
+    }
+}
@@ -0,0 +1,62 @@
+package benchmark;
+
+import knn.api.CoarseKnowledgeNodeClock;
+import knn.api.KnowledgeNodeClock;
+import knn.api.LogicalKnowledgeNodeClock;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.TearDown;
+import tags.Tag;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the clocks aging the KNs. The clock is read once per search, so they should all perform the same; a
+ * difference would show a clock read left in a per-KN loop. Backward search with a zero match ratio visits every KN
+ * within the age limit, and forward search excites every KN it reaches.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class KnowledgeNodeClockBenchmark extends KnowledgeNodeNetworkState {
+    @Param({"SYSTEM", "COARSE", "LOGICAL"})
+    private String clock;
+
+    @Param({"3"})
+    private int ply;
+
+    private CoarseKnowledgeNodeClock coarseClock;
+
+    @Override
+    protected KnowledgeNodeClock createClock() {
+        if ("COARSE".equals(clock)) {
+            coarseClock = new CoarseKnowledgeNodeClock();
+            return coarseClock;
+        } else if ("LOGICAL".equals(clock)) {
+            return new LogicalKnowledgeNodeClock();
+        }
+        return KnowledgeNodeClock.SYSTEM;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDownClock() {
+        if (coarseClock != null) {
+            coarseClock.close();
+        }
+    }
+
+    @Benchmark
+    public Set<Tag> forwardSearch() {
+        return getKnn().forwardSearch(nextInputTags(), ply);
+    }
+
+    @Benchmark
+    public Set<Tag> backwardSearchAll() {
+        getKnn().setBackwardSearchMatchRatio(0);
+        return getKnn().backwardSearch(nextInputTags(), 1);
+    }
+}
@@ -0,0 +1,168 @@
+package benchmark;
+
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import knn.api.BackwardSearchApproximation;
+import knn.api.KnowledgeNode;
+import knn.api.KnowledgeNodeClock;
+import knn.api.KnowledgeNodeNetwork;
+import knn.api.KnowledgeNodeNetworkEngine;
+import knn.api.KnowledgeNodeNetworkFactory;
+import knn.api.SearchListener;
+import knn.guice.KnowledgeNodeNetworkModule;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import tags.Fact;
+import tags.Tag;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Random KNN shared by the search benchmarks. KN {@code i} has the input Tag {@code N(i)} and {@code fanOut} random
+ * output Tags among the input Tags of the other KNs, so searches cascade through the KNN.
+ * <p>
+ * Since a KN only fires once, the KNs are recreated before each iteration. Within an iteration, more and more KNs
+ * have fired, which is the steady state of a long-running KNN; use {@code -bm ss} to measure single searches on a
+ * fresh KNN. The largest KNNs need a large heap, e.g. {@code -jvmArgsAppend -Xmx32g}, or can be skipped with
+ * {@code -p networkSize=1000,100000}.
+ */
+@State(Scope.Benchmark)
+public abstract class KnowledgeNodeNetworkState {
+    private static final long SEED = 42;
+    private static final int INPUT_SIZE = 8;
+    private static final int INPUT_SAMPLES = 1024;
+
+    @Param({"DEFAULT", "COMPILED", "CONCURRENT", "OFF_HEAP", "SHARDED"})
+    private KnowledgeNodeNetworkEngine engine;
+
+    @Param({"1000", "100000", "10000000"})
+    private int networkSize;
+
+    @Param({"2", "8"})
+    private int fanOut;
+
+    private Tag[] tags;
+    private Set<Tag>[] outputTags;
+    private Set<Tag>[] inputSamples;
+    private int nextSample;
+    private Injector injector;
+    private KnowledgeNodeNetwork knn;
+
+    @Setup(Level.Trial)
+    @SuppressWarnings("unchecked")
+    public void setUpNetwork() {
+        final Random random = new Random(SEED);
+        tags = new Tag[networkSize];
+        for (int i = 0; i < networkSize; i++) {
+            tags[i] = new Fact("N(" + i + ")");
+        }
+        outputTags = new Set[networkSize];
+        for (int i = 0; i < networkSize; i++) {
+            outputTags[i] = new HashSet<>();
+            while (outputTags[i].size() < Math.min(fanOut, networkSize - 1)) {
+                final int j = random.nextInt(networkSize);
+                if (j != i) {
+                    outputTags[i].add(tags[j]);
+                }
+            }
+        }
+        inputSamples = new Set[INPUT_SAMPLES];
+        for (int i = 0; i < INPUT_SAMPLES; i++) {
+            inputSamples[i] = new HashSet<>();
+            for (int j = 0; j < INPUT_SIZE; j++) {
+                inputSamples[i].add(tags[random.nextInt(networkSize)]);
+            }
+        }
+        injector = Guice.createInjector(KnowledgeNodeNetworkModule.builder()
+                .engine(engine)
+                .searchPool(createSearchPool())
+                .shards(createShards())
+                .searchListener(createSearchListener())
+                .clock(createClock())
+                .backwardSearchApproximation(createBackwardSearchApproximation())
+                .asyncSearch(isAsyncSearch())
+                .build());
+        knn = injector.getInstance(KnowledgeNodeNetworkFactory.class)
+                .create(new HashMap<>(), new HashSet<>(), 1, Long.MAX_VALUE);
+    }
+
+    @Setup(Level.Iteration)
+    public void setUpKnowledgeNodes() {
+        knn.resetEmpty();
+        for (int i = 0; i < networkSize; i++) {
+            knn.addKnowledgeNode(new KnowledgeNode(tags[i], outputTags[i], 1));
+        }
+    }
+
+    /**
+     * @return the pool running the parallel searches of the KNN, the common pool by default
+     */
+    protected ForkJoinPool createSearchPool() {
+        return ForkJoinPool.commonPool();
+    }
+
+    /**
+     * @return the number of shards of the SHARDED engine, one per available processor by default
+     */
+    protected int createShards() {
+        return Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * @return the listener of the searches of the KNN, none by default
+     */
+    protected SearchListener createSearchListener() {
+        return SearchListener.NONE;
+    }
+
+    /**
+     * @return the clock aging the KNs of the KNN, the wall clock by default
+     */
+    protected KnowledgeNodeClock createClock() {
+        return KnowledgeNodeClock.SYSTEM;
+    }
+
+    /**
+     * @return the settings of the approximate backward search of the KNN, exact by default
+     */
+    protected BackwardSearchApproximation createBackwardSearchApproximation() {
+        return BackwardSearchApproximation.EXACT;
+    }
+
+    /**
+     * @return whether the module binds the asynchronous searches of the KNN, which makes every search cancellable,
+     * false by default
+     */
+    protected boolean isAsyncSearch() {
+        return false;
+    }
+
+    /**
+     * @return the injector which created the KNN
+     */
+    protected Injector getInjector() {
+        return injector;
+    }
+
+    /**
+     * @return the KNN
+     */
+    protected KnowledgeNodeNetwork getKnn() {
+        return knn;
+    }
+
+    /**
+     * @return the next input Tags, cycling through samples of random Tags
+     */
+    protected Set<Tag> nextInputTags() {
+        nextSample = (nextSample + 1) % INPUT_SAMPLES;
+        return inputSamples[nextSample];
+    }
+}
@@ -0,0 +1,86 @@
+package benchmark;
+
+import com.google.inject.Guice;
+import knn.api.KnowledgeNode;
+import knn.api.KnowledgeNodeNetwork;
+import knn.api.KnowledgeNodeNetworkEngine;
+import knn.api.KnowledgeNodeNetworkFactory;
+import knn.guice.KnowledgeNodeNetworkModule;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import tags.Fact;
+import tags.Tag;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares serial and parallel forward search by the size of the ply frontier. The KNN is a root KN activating
+ * {@code frontierSize} Tags, each of which activates a leaf Tag, so the second ply has {@code frontierSize} input
+ * Tags. Both searchers run on the concurrent engine; the serial one never splits a ply.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ParallelForwardSearchBenchmark {
+    private static final int PARALLEL_SPLIT_THRESHOLD = 256;
+    private static final Fact ROOT = new Fact("root(x)");
+
+    @Param({"100", "1000", "10000", "100000"})
+    private int frontierSize;
+
+    @Param({"serial", "parallel"})
+    private String searcher;
+
+    private KnowledgeNodeNetwork knn;
+    private List<Fact> frontier;
+    private List<Fact> leaves;
+
+    @Setup(Level.Trial)
+    public void setUpKnn() {
+        final int splitThreshold = "parallel".equals(searcher) ? PARALLEL_SPLIT_THRESHOLD : Integer.MAX_VALUE;
+        knn = Guice.createInjector(KnowledgeNodeNetworkModule.builder()
+                .engine(KnowledgeNodeNetworkEngine.CONCURRENT)
+                .searchPool(ForkJoinPool.commonPool())
+                .searchSplitThreshold(splitThreshold)
+                .build())
+                .getInstance(KnowledgeNodeNetworkFactory.class)
+                .create(new HashMap<>(), new HashSet<>(), 1, Long.MAX_VALUE);
+        frontier = new ArrayList<>();
+        leaves = new ArrayList<>();
+        for (int i = 0; i < frontierSize; i++) {
+            frontier.add(new Fact("T(" + i + ")"));
+            leaves.add(new Fact("L(" + i + ")"));
+        }
+    }
+
+    /**
+     * Adds fresh KNs before each search, since a KN only fires once.
+     */
+    @Setup(Level.Invocation)
+    public void setUpKnowledgeNodes() {
+        knn.resetEmpty();
+        knn.addKnowledgeNode(new KnowledgeNode(ROOT, new HashSet<>(frontier), 1));
+        for (int i = 0; i < frontierSize; i++) {
+            knn.addKnowledgeNode(new KnowledgeNode(frontier.get(i), Collections.singleton(leaves.get(i)), 1));
+        }
+    }
+
+    @Benchmark
+    public Set<Tag> forwardSearch() {
+        return knn.forwardSearch(Collections.singleton(ROOT), 2);
+    }
+}
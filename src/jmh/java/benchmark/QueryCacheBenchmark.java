@@ -0,0 +1,49 @@
+package benchmark;
+
+import knn.api.QueryCache;
+import knn.api.QueryCacheFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import tags.Tag;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares read-only forward searches through a query cache with the same searches in a new session each. The input
+ * Tags cycle through 1024 samples, which all fit in the larger cache, while the smaller cache mostly rejects them
+ * and only measures the overhead of the cache on misses.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class QueryCacheBenchmark extends KnowledgeNodeNetworkState {
+    private static final long MAX_BYTES = 64L << 20;
+
+    @Param({"64", "1024"})
+    private int maxEntries;
+
+    @Param({"3"})
+    private int ply;
+
+    private QueryCache cache;
+
+    @Setup(Level.Iteration)
+    public void setUpCache() {
+        cache = getInjector().getInstance(QueryCacheFactory.class).create(getKnn(), maxEntries, MAX_BYTES);
+    }
+
+    @Benchmark
+    public Set<Tag> cachedForwardSearch() {
+        return cache.forwardSearch(nextInputTags(), ply);
+    }
+
+    @Benchmark
+    public Set<Tag> sessionForwardSearch() {
+        return getKnn().openSession().forwardSearch(nextInputTags(), ply);
+    }
+}
@@ -0,0 +1,45 @@
+package benchmark;
+
+import knn.api.SearchCounters;
+import knn.api.SearchListener;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import tags.Tag;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the overhead of listening to searches. {@code NONE} is the default listener, whose no-op trace should
+ * cost nothing once inlined, and {@code COUNTERS} counts every event of every search.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SearchListenerBenchmark extends KnowledgeNodeNetworkState {
+    @Param({"NONE", "COUNTERS"})
+    private String listener;
+
+    @Param({"3"})
+    private int ply;
+
+    @Override
+    protected SearchListener createSearchListener() {
+        if ("COUNTERS".equals(listener)) {
+            return new SearchCounters();
+        }
+        return SearchListener.NONE;
+    }
+
+    @Benchmark
+    public Set<Tag> forwardSearch() {
+        return getKnn().forwardSearch(nextInputTags(), ply);
+    }
+
+    @Benchmark
+    public Set<Tag> backwardSearch() {
+        return getKnn().backwardSearch(nextInputTags(), ply);
+    }
+}
@@ -0,0 +1,41 @@
+package benchmark;
+
+import knn.api.SearchSession;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Threads;
+import tags.Tag;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks search sessions on the shared KNN: opening a session, which should not depend on the size of the KNN,
+ * and one forward search per session, from one and from several threads. Unlike searches of the KNN itself, every
+ * session starts from unfired KNs, so the KNN stays fresh across iterations.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SearchSessionBenchmark extends KnowledgeNodeNetworkState {
+    @Param({"1", "3"})
+    private int ply;
+
+    @Benchmark
+    public SearchSession openSession() {
+        return getKnn().openSession();
+    }
+
+    @Benchmark
+    public Set<Tag> sessionForwardSearch() {
+        return getKnn().openSession().forwardSearch(nextInputTags(), ply);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Set<Tag> sessionForwardSearch4Threads() {
+        return getKnn().openSession().forwardSearch(nextInputTags(), ply);
+    }
+}
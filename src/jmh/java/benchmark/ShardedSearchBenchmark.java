@@ -0,0 +1,48 @@
+package benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import tags.Tag;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how the throughput of the searches scales with the number of shards of the SHARDED engine, each run by its
+ * own worker thread, e.g. {@code -p engine=DEFAULT,SHARDED}; the DEFAULT engine searches on the calling thread only,
+ * and is the baseline. Forward search runs in sessions, so that every search fires fresh KNs.
+ * Backward search matches every KN within the age limit, since the match ratio is 0, i.e., scans all the shards.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ShardedSearchBenchmark extends KnowledgeNodeNetworkState {
+    private static final int PLY = 3;
+
+    @Param({"1", "2", "4", "8"})
+    private int shards;
+
+    @Override
+    protected int createShards() {
+        return shards;
+    }
+
+    @Setup(Level.Iteration)
+    public void setUpMatchRatio() {
+        getKnn().setBackwardSearchMatchRatio(0);
+    }
+
+    @Benchmark
+    public Set<Tag> sessionForwardSearch() {
+        return getKnn().openSession().forwardSearch(nextInputTags(), PLY);
+    }
+
+    @Benchmark
+    public Set<Tag> sessionBackwardSearch() {
+        return getKnn().openSession().backwardSearch(nextInputTags(), 1);
+    }
+}
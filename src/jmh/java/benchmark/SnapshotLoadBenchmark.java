@@ -0,0 +1,86 @@
+package benchmark;
+
+import com.google.inject.Guice;
+import datagen.DegreeDistribution;
+import datagen.KnowledgeNodeDataGenerator;
+import datagen.TagMix;
+import knn.api.KnowledgeNodeNetwork;
+import knn.api.KnowledgeNodeNetworkFactory;
+import knn.api.LoadReport;
+import knn.guice.KnowledgeNodeNetworkModule;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import tags.TagPool;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares loading a generated data file with {@link KnowledgeNodeNetwork#loadData(String)} and restoring the same
+ * KNN from a snapshot with {@link KnowledgeNodeNetwork#reset(String)}. The KNN is emptied and garbage collected before
+ * each load, so that its Tags leave the Tag pool and every Tag is built again, as when a KNN is first loaded.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class SnapshotLoadBenchmark {
+    private static final long SEED = 42;
+
+    @Param({"10000", "100000", "1000000"})
+    private long nodeCount;
+
+    private File dataFile;
+    private File snapshotFile;
+    private KnowledgeNodeNetwork knn;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        dataFile = File.createTempFile("knn", ".txt");
+        snapshotFile = File.createTempFile("knn", ".knn");
+        new KnowledgeNodeDataGenerator(nodeCount, DegreeDistribution.powerLaw(1, 50, 2.5), TagMix.DEFAULT, 0.05,
+                SEED).write(dataFile.getPath());
+        knn = Guice.createInjector(new KnowledgeNodeNetworkModule())
+                .getInstance(KnowledgeNodeNetworkFactory.class)
+                .create(new HashMap<>(), new HashSet<>(), 1, Long.MAX_VALUE);
+        knn.loadData(dataFile.getPath());
+        knn.save(snapshotFile.getPath());
+    }
+
+    /**
+     * Drops the KNs of the previous invocation, so that their Tags are
+     * collected from the {@link TagPool} and parsed again.
+     */
+    @Setup(Level.Invocation)
+    public void dropTags() {
+        knn.resetEmpty();
+        System.gc();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        dataFile.delete();
+        snapshotFile.delete();
+    }
+
+    @Benchmark
+    public LoadReport loadData() {
+        return knn.loadData(dataFile.getPath());
+    }
+
+    @Benchmark
+    public KnowledgeNodeNetwork reset() {
+        knn.reset(snapshotFile.getPath());
+        return knn;
+    }
+}
@@ -0,0 +1,79 @@
+package async;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executors running the asynchronous tasks of the components.
+ */
+public final class AsyncExecutors {
+    private static final String THREAD_NAME_PREFIX = "prometheus-async-";
+    private static final Executor SHARED_EXECUTOR =
+            task -> SharedExecutor.INSTANCE.execute(task);
+
+    private AsyncExecutors() {
+    }
+
+    /**
+     * Returns the executor shared by the components which are not given one.
+     * It runs the tasks on a default executor, created when the first task
+     * is run, whose threads are virtual or daemon threads, so that it is
+     * never shut down.
+     *
+     * @return the shared executor
+     */
+    public static Executor getSharedExecutor() {
+        return SHARED_EXECUTOR;
+    }
+
+    /**
+     * Creates the default executor of the asynchronous tasks, which starts a
+     * virtual thread per task when the runtime supports them (Java 21 and
+     * later), so that many thousands of tasks may be in flight without a
+     * platform thread each. On older runtimes, the tasks run on a cached
+     * pool of daemon platform threads.
+     *
+     * @return the default executor
+     */
+    public static ExecutorService newDefaultExecutor() {
+        try {
+            return (ExecutorService) Executors.class
+                    .getMethod("newVirtualThreadPerTaskExecutor")
+                    .invoke(null);
+        } catch (final NoSuchMethodException | IllegalAccessException
+                | InvocationTargetException e) {
+            return Executors.newCachedThreadPool(new DaemonThreadFactory());
+        }
+    }
+
+    /**
+     * Holder of the default executor running the tasks of the shared
+     * executor, so that it is only created when the first task is run.
+     */
+    private static final class SharedExecutor {
+        private static final Executor INSTANCE = newDefaultExecutor();
+
+        private SharedExecutor() {
+        }
+    }
+
+    /**
+     * Creates the daemon platform threads of the fallback executor, so that
+     * idle threads never keep the JVM alive.
+     */
+    private static final class DaemonThreadFactory implements ThreadFactory {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(final Runnable r) {
+            final Thread thread = new Thread(r,
+                    THREAD_NAME_PREFIX + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
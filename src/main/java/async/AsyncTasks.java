@@ -0,0 +1,100 @@
+package async;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Runs blocking tasks asynchronously, with cooperative cancellation.
+ * <p>
+ * Cancelling a {@link CompletableFuture} does not stop the task computing
+ * it, so the tasks run here are given a cancellation token, which tells
+ * whether their future is cancelled. The long-running tasks, e.g., the KNN
+ * searches and the ES thinking, check it between their steps, and thus stop
+ * at the next step. A task cancelled before it starts is not run. Only
+ * cancelling the returned future itself cancels the task, not cancelling
+ * the stages depending on it.
+ */
+public final class AsyncTasks {
+    private AsyncTasks() {
+    }
+
+    /**
+     * Runs a cancellable task asynchronously.
+     *
+     * @param task     the task, computing the result of the future from the
+     *                 cancellation token, which returns true once the future
+     *                 is cancelled
+     * @param executor the executor running the task, e.g., a
+     *                 {@link SerialExecutor} to serialize the tasks on a
+     *                 component which is not thread-safe
+     * @param <T>      the type of the result
+     * @return the future result of the task
+     */
+    public static <T> CompletableFuture<T> supplyAsync(
+            final Function<BooleanSupplier, T> task, final Executor executor) {
+        final CancellableTask<T> cancellableTask = new CancellableTask<>(task);
+        try {
+            executor.execute(cancellableTask);
+        } catch (final RejectedExecutionException e) {
+            cancellableTask.reject(e);
+        }
+        return cancellableTask.future;
+    }
+
+    /**
+     * Runs a task asynchronously, which is only cancelled if it has not
+     * started yet.
+     *
+     * @param task     the task, computing the result of the future
+     * @param executor the executor running the task
+     * @param <T>      the type of the result
+     * @return the future result of the task
+     */
+    public static <T> CompletableFuture<T> supplyAsync(
+            final Supplier<T> task, final Executor executor) {
+        return supplyAsync(cancelled -> task.get(), executor);
+    }
+
+    /**
+     * A task completing a future, which is given the cancellation of the
+     * future as its cancellation token.
+     *
+     * @param <T> the type of the result
+     */
+    private static final class CancellableTask<T>
+            implements SerialExecutor.RejectableTask {
+        private final Function<BooleanSupplier, T> task;
+        private final CompletableFuture<T> future;
+
+        /**
+         * Creates a cancellable task.
+         *
+         * @param task the task, computing the result of the future
+         */
+        CancellableTask(final Function<BooleanSupplier, T> task) {
+            this.task = task;
+            this.future = new CompletableFuture<>();
+        }
+
+        @Override
+        public void run() {
+            if (future.isDone()) {
+                return;
+            }
+            try {
+                future.complete(task.apply(future::isCancelled));
+            } catch (final RuntimeException | Error e) {
+                future.completeExceptionally(e);
+            }
+        }
+
+        @Override
+        public void reject(final RejectedExecutionException e) {
+            future.completeExceptionally(e);
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package async;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Executor running its tasks one at a time, in the order they are
+ * submitted, on another executor, e.g., to serialize the asynchronous tasks
+ * on a component which is not thread-safe.
+ * <p>
+ * The queued tasks do not hold a thread of the other executor: each task is
+ * only submitted to it when the previous one has run. A task ends its turn
+ * when it returns, so a cancelled task which is still running keeps the next
+ * one waiting until it stops.
+ * <p>
+ * If the other executor rejects a task, {@link #execute(Runnable)} throws
+ * when the task is submitted directly. When it is submitted as the next
+ * task, after the previous one, it is rejected with the tasks queued after
+ * it, if they are {@link RejectableTask}s, and dropped otherwise.
+ */
+public final class SerialExecutor implements Executor {
+    private final Executor executor;
+    private final Queue<Runnable> tasks;
+    private boolean running;
+
+    /**
+     * Creates a serial executor.
+     *
+     * @param executor the executor running the tasks
+     */
+    public SerialExecutor(final Executor executor) {
+        this.executor = executor;
+        this.tasks = new ArrayDeque<>();
+    }
+
+    @Override
+    public void execute(final Runnable task) {
+        synchronized (this) {
+            tasks.add(task);
+            if (running) {
+                return;
+            }
+            running = true;
+        }
+        try {
+            submitNext();
+        } catch (final RejectedExecutionException e) {
+            synchronized (this) {
+                tasks.remove(task);
+            }
+            rejectAll(e);
+            throw e;
+        }
+    }
+
+    /**
+     * Submits the next task to the other executor, the serial executor
+     * being marked as running.
+     */
+    private void submitNext() {
+        final Runnable task;
+        synchronized (this) {
+            task = tasks.peek();
+            if (task == null) {
+                running = false;
+                return;
+            }
+        }
+        executor.execute(() -> {
+            try {
+                task.run();
+            } finally {
+                synchronized (this) {
+                    tasks.remove();
+                }
+                try {
+                    submitNext();
+                } catch (final RejectedExecutionException e) {
+                    rejectAll(e);
+                }
+            }
+        });
+    }
+
+    /**
+     * Rejects the queued tasks, the other executor having rejected the task
+     * before them.
+     *
+     * @param e the rejection of the next task
+     */
+    private void rejectAll(final RejectedExecutionException e) {
+        final Runnable[] rejected;
+        synchronized (this) {
+            rejected = tasks.toArray(new Runnable[0]);
+            tasks.clear();
+            running = false;
+        }
+        for (final Runnable task : rejected) {
+            if (task instanceof RejectableTask) {
+                ((RejectableTask) task).reject(e);
+            }
+        }
+    }
+
+    /**
+     * A task which is told when it is rejected after being queued.
+     */
+    interface RejectableTask extends Runnable {
+        /**
+         * Called when the task is rejected by the other executor.
+         *
+         * @param e the rejection
+         */
+        void reject(RejectedExecutionException e);
+    }
+}
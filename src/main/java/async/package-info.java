@@ -0,0 +1,6 @@
+/**
+ * Asynchronous execution of the blocking searches and thinking of the
+ * components, with cooperative cancellation.
+ */
+
+package async;
@@ -0,0 +1,46 @@
+package datagen;
+
+import java.util.SplittableRandom;
+
+/**
+ * Distribution of the number of output Tags of the generated KNs.
+ */
+public interface DegreeDistribution {
+    /**
+     * Samples a degree.
+     *
+     * @param random the source of randomness
+     * @return the sampled degree
+     */
+    int sample(SplittableRandom random);
+
+    /**
+     * Creates a uniform distribution.
+     *
+     * @param min the minimum degree, inclusive
+     * @param max the maximum degree, inclusive
+     * @return the uniform distribution
+     */
+    static DegreeDistribution uniform(final int min, final int max) {
+        return random -> random.nextInt(min, max + 1);
+    }
+
+    /**
+     * Creates a power-law distribution, in which the probability of a degree
+     * {@code d} is proportional to {@code d^-exponent}: most KNs have few
+     * output Tags, and a few hubs have many. Sampled by inverting the
+     * continuous Pareto distribution, capped at the maximum degree.
+     *
+     * @param min      the minimum degree, at least 1
+     * @param max      the maximum degree, inclusive
+     * @param exponent the exponent, greater than 1 (typically between 2 and 3)
+     * @return the power-law distribution
+     */
+    static DegreeDistribution powerLaw(
+            final int min, final int max, final double exponent) {
+        final double inverseExponent = -1 / (exponent - 1);
+        return random -> (int) Math.min(max,
+                Math.floor(min * Math.pow(1 - random.nextDouble(),
+                        inverseExponent)));
+    }
+}
@@ -0,0 +1,267 @@
+package datagen;
+
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.SplittableRandom;
+
+/**
+ * Generator of synthetic KNN data files, in the format read by
+ * {@link knn.api.KnowledgeNode#KnowledgeNode(String[])} and
+ * {@link knn.api.KnowledgeNodeNetwork#loadData(String)}: one KN per line, made
+ * of its input Tag, its threshold, and its output Tags each followed by a
+ * confidence value, separated by {@code "; "}.
+ * <p>
+ * The KN at index {@code i} has a Fact or Recommendation input Tag named
+ * {@code Pi}. Its output Tags are the input Tags of other KNs, so that
+ * searches cascade through the KNN, or Rules made of the input Tags of other
+ * KNs. Each KN is generated from a random generator seeded by the seed and
+ * the index of the KN, so the data is reproducible, any KN can be generated
+ * on its own, and files of any size are streamed without being held in
+ * memory.
+ */
+public final class KnowledgeNodeDataGenerator {
+    private static final String SEPARATOR = "; ";
+    private static final int MAX_THRESHOLD = 200;
+    private static final int MAX_CONFIDENCE = 100;
+    private static final int MAX_ARGUMENTS = 3;
+    private static final int MAX_NUMERIC_VALUE = 100;
+    private static final int MAX_STRING_VALUE = 1000;
+    private static final int MIN_RULE_INPUTS = 2;
+    private static final int MAX_RULE_INPUTS = 3;
+    private static final String[] COMPARISONS = {"=", ">", "<"};
+    private static final long INDEX_MULTIPLIER = 0x9E3779B97F4A7C15L;
+    private static final int DEFAULT_MIN_DEGREE = 1;
+    private static final int DEFAULT_MAX_DEGREE = 1000;
+    private static final double DEFAULT_EXPONENT = 2.5;
+    private static final double DEFAULT_RULE_DENSITY = 0.05;
+    private static final int FILENAME_ARG = 0;
+    private static final int NODE_COUNT_ARG = 1;
+    private static final int SEED_ARG = 2;
+
+    private final long nodeCount;
+    private final DegreeDistribution degreeDistribution;
+    private final TagMix tagMix;
+    private final double ruleDensity;
+    private final long seed;
+
+    /**
+     * Creates a generator.
+     *
+     * @param nodeCount          the number of KNs
+     * @param degreeDistribution the distribution of the number of output Tags
+     *                           of the KNs
+     * @param tagMix             the proportions of the kinds of Tags and
+     *                           arguments
+     * @param ruleDensity        the ratio of Rules among the output Tags
+     * @param seed               the random seed
+     */
+    public KnowledgeNodeDataGenerator(
+            final long nodeCount,
+            final DegreeDistribution degreeDistribution,
+            final TagMix tagMix,
+            final double ruleDensity,
+            final long seed) {
+        this.nodeCount = nodeCount;
+        this.degreeDistribution = degreeDistribution;
+        this.tagMix = tagMix;
+        this.ruleDensity = ruleDensity;
+        this.seed = seed;
+    }
+
+    /**
+     * Generates a KNN data file, with a power-law degree distribution and the
+     * default Tag mix.
+     *
+     * @param args the file name, the number of KNs and an optional seed
+     * @throws IOException if writing the file fails
+     */
+    public static void main(final String[] args) throws IOException {
+        long seed = 0;
+        if (args.length > SEED_ARG) {
+            seed = Long.parseLong(args[SEED_ARG]);
+        }
+        new KnowledgeNodeDataGenerator(
+                Long.parseLong(args[NODE_COUNT_ARG]),
+                DegreeDistribution.powerLaw(DEFAULT_MIN_DEGREE,
+                        DEFAULT_MAX_DEGREE, DEFAULT_EXPONENT),
+                TagMix.DEFAULT, DEFAULT_RULE_DENSITY, seed)
+                .write(args[FILENAME_ARG]);
+    }
+
+    /**
+     * Writes the KNs to the given file.
+     *
+     * @param filename the file name
+     * @throws IOException if writing the file fails
+     */
+    public void write(final String filename) throws IOException {
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(
+                new FileOutputStream(filename), StandardCharsets.UTF_8))) {
+            write(writer);
+        }
+    }
+
+    /**
+     * Writes the KNs to the given writer, one per line.
+     *
+     * @param writer the writer
+     * @throws IOException if writing fails
+     */
+    public void write(final Writer writer) throws IOException {
+        final StringBuilder sb = new StringBuilder();
+        for (long i = 0; i < nodeCount; i++) {
+            sb.setLength(0);
+            appendKnowledgeNode(sb, i);
+            sb.append('\n');
+            writer.append(sb);
+        }
+    }
+
+    /**
+     * Generates a KN.
+     *
+     * @param index the index of the KN
+     * @return the line of the KN
+     */
+    public String knowledgeNode(final long index) {
+        final StringBuilder sb = new StringBuilder();
+        appendKnowledgeNode(sb, index);
+        return sb.toString();
+    }
+
+    /**
+     * Generates the input Tag of a KN.
+     *
+     * @param index the index of the KN
+     * @return the input Tag of the KN
+     */
+    public String inputTag(final long index) {
+        final StringBuilder sb = new StringBuilder();
+        appendInputTag(sb, index, false);
+        return sb.toString();
+    }
+
+    /**
+     * Appends a KN.
+     *
+     * @param sb    the builder to append to
+     * @param index the index of the KN
+     */
+    private void appendKnowledgeNode(final StringBuilder sb, final long index) {
+        final SplittableRandom random = random(index);
+        appendInputTag(sb, index, false);
+        sb.append(SEPARATOR).append(1 + random.nextInt(MAX_THRESHOLD));
+        final int degree = degreeDistribution.sample(random);
+        for (int i = 0; i < degree; i++) {
+            sb.append(SEPARATOR);
+            if (random.nextDouble() < ruleDensity) {
+                appendRule(sb, random);
+            } else {
+                appendInputTag(sb, otherIndex(random, index), false);
+            }
+            sb.append(SEPARATOR).append(1 + random.nextInt(MAX_CONFIDENCE));
+        }
+    }
+
+    /**
+     * Appends a Rule whose input Facts and output predicate are the input Tags
+     * of random KNs.
+     *
+     * @param sb     the builder to append to
+     * @param random the random generator of the KN
+     */
+    private void appendRule(final StringBuilder sb,
+                            final SplittableRandom random) {
+        final int inputs =
+                random.nextInt(MIN_RULE_INPUTS, MAX_RULE_INPUTS + 1);
+        for (int i = 0; i < inputs; i++) {
+            appendInputTag(sb, random.nextLong(nodeCount), true);
+            sb.append(' ');
+        }
+        sb.append("-> ");
+        appendInputTag(sb, random.nextLong(nodeCount), false);
+    }
+
+    /**
+     * Appends the input Tag of a KN.
+     *
+     * @param sb     the builder to append to
+     * @param index  the index of the KN
+     * @param asFact true to append the Tag as a Fact even if it is a
+     *               Recommendation, e.g. in the inputs of a Rule
+     */
+    private void appendInputTag(final StringBuilder sb, final long index,
+                                final boolean asFact) {
+        // Not the random generator of the KN, since the input Tag of a KN is
+        // generated each time it is the output Tag of another one
+        final SplittableRandom random = random(~index);
+        if (random.nextDouble() < tagMix.getRecommendationRatio()
+                && !asFact) {
+            sb.append('@');
+        }
+        sb.append('P').append(index).append('(');
+        final int arguments = 1 + random.nextInt(MAX_ARGUMENTS);
+        for (int i = 0; i < arguments; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            appendArgument(sb, random, i);
+        }
+        sb.append(')');
+    }
+
+    /**
+     * Appends a random argument.
+     *
+     * @param sb       the builder to append to
+     * @param random   the random generator of the Tag
+     * @param position the position of the argument
+     */
+    private void appendArgument(final StringBuilder sb,
+                                final SplittableRandom random,
+                                final int position) {
+        final double kind = random.nextDouble();
+        if (kind < tagMix.getNumericArgumentRatio()) {
+            sb.append('a').append(position)
+                    .append(COMPARISONS[random.nextInt(COMPARISONS.length)])
+                    .append(random.nextInt(MAX_NUMERIC_VALUE));
+        } else if (kind < tagMix.getNumericArgumentRatio()
+                + tagMix.getVariableArgumentRatio()) {
+            sb.append("&x").append(position);
+        } else {
+            sb.append('s').append(random.nextInt(MAX_STRING_VALUE));
+        }
+    }
+
+    /**
+     * Picks the index of a random KN other than the given one.
+     *
+     * @param random the random generator
+     * @param index  the index of the KN to exclude
+     * @return the index of another KN, or the given index if it is the only KN
+     */
+    private long otherIndex(final SplittableRandom random, final long index) {
+        if (nodeCount == 1) {
+            return index;
+        }
+        final long other = random.nextLong(nodeCount - 1);
+        if (other >= index) {
+            return other + 1;
+        }
+        return other;
+    }
+
+    /**
+     * Creates the random generator of a KN or Tag.
+     *
+     * @param index the index of the KN or Tag
+     * @return the random generator
+     */
+    private SplittableRandom random(final long index) {
+        return new SplittableRandom(seed + index * INDEX_MULTIPLIER);
+    }
+}
@@ -0,0 +1,56 @@
+package datagen;
+
+/**
+ * Proportions of the kinds of Tags and arguments in the generated KNs.
+ */
+public final class TagMix {
+    /**
+     * The default mix: a fifth of Recommendations, and a quarter each of
+     * numeric and variable arguments.
+     */
+    public static final TagMix DEFAULT = new TagMix(0.2, 0.25, 0.25);
+    private final double recommendationRatio;
+    private final double numericArgumentRatio;
+    private final double variableArgumentRatio;
+
+    /**
+     * Creates a Tag mix. The arguments which are neither numeric nor variable
+     * are strings.
+     *
+     * @param recommendationRatio   the ratio of Recommendations among the
+     *                              predicates, the others being Facts
+     * @param numericArgumentRatio  the ratio of numeric arguments, e.g.
+     *                              {@code a>5}
+     * @param variableArgumentRatio the ratio of variable arguments, e.g.
+     *                              {@code &x}
+     */
+    public TagMix(
+            final double recommendationRatio,
+            final double numericArgumentRatio,
+            final double variableArgumentRatio) {
+        this.recommendationRatio = recommendationRatio;
+        this.numericArgumentRatio = numericArgumentRatio;
+        this.variableArgumentRatio = variableArgumentRatio;
+    }
+
+    /**
+     * @return the ratio of Recommendations among the predicates
+     */
+    public double getRecommendationRatio() {
+        return recommendationRatio;
+    }
+
+    /**
+     * @return the ratio of numeric arguments
+     */
+    public double getNumericArgumentRatio() {
+        return numericArgumentRatio;
+    }
+
+    /**
+     * @return the ratio of variable arguments
+     */
+    public double getVariableArgumentRatio() {
+        return variableArgumentRatio;
+    }
+}
@@ -0,0 +1,5 @@
+/**
+ * Generators of synthetic data, to test the KNN and the ES at scale.
+ */
+
+package datagen;
@@ -0,0 +1,56 @@
+package es.api;
+
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import tags.Recommendation;
+
+/**
+ * Asynchronous thinking of an ES, run as tasks on an executor, see
+ * {@link AsyncExpertSystemFactory}.
+ * <p>
+ * The ES thinks one task at a time, in no particular order. Cancelling a
+ * returned future stops its thinking at the next cycle, with a
+ * {@link java.util.concurrent.CancellationException}; the Rules activated by
+ * the completed cycles stay active, and no Rule is generated. The ES must
+ * not be used synchronously while asynchronous thinking is in flight.
+ */
+public interface AsyncExpertSystem {
+
+    /**
+     * @return the ES thinking
+     */
+    ExpertSystem getExpertSystem();
+
+    /**
+     * Makes the ES think asynchronously.
+     *
+     * @return the future Set of Recommendations activated as a result of
+     * thinking
+     * @see ExpertSystem#think()
+     */
+    CompletableFuture<Set<Recommendation>> thinkAsync();
+
+    /**
+     * Makes the ES think asynchronously, until natural quiescence.
+     *
+     * @param generateRule if true generates the new rule proven by a think
+     *                     cycle
+     * @return the future Set of Recommendations activated as a result of
+     * thinking
+     * @see ExpertSystem#think(boolean)
+     */
+    CompletableFuture<Set<Recommendation>> thinkAsync(boolean generateRule);
+
+    /**
+     * Makes the ES think asynchronously, for a fixed number of cycles.
+     *
+     * @param generateRule   if true generates the new rule proven by a think
+     *                       cycle
+     * @param numberOfCycles the number of cycles to think for
+     * @return the future Set of Recommendations activated as a result of
+     * thinking
+     * @see ExpertSystem#think(boolean, int)
+     */
+    CompletableFuture<Set<Recommendation>> thinkAsync(boolean generateRule,
+                                                      int numberOfCycles);
+}
@@ -0,0 +1,22 @@
+package es.api;
+
+import java.util.concurrent.Executor;
+import com.google.inject.Inject;
+import com.google.inject.assistedinject.Assisted;
+
+/**
+ * Factory to create the asynchronous thinking of an ES.
+ */
+public interface AsyncExpertSystemFactory {
+    /**
+     * Creates the asynchronous thinking of an ES.
+     *
+     * @param es       the ES thinking
+     * @param executor the executor running the thinking, e.g.,
+     *                 {@link async.AsyncExecutors#newDefaultExecutor()}
+     * @return the asynchronous thinking of the ES
+     */
+    @Inject
+    AsyncExpertSystem create(@Assisted ExpertSystem es,
+                             @Assisted Executor executor);
+}
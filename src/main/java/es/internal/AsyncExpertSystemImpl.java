@@ -0,0 +1,72 @@
+package es.internal;
+
+import javax.inject.Inject;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import async.AsyncTasks;
+import async.SerialExecutor;
+import com.google.inject.assistedinject.Assisted;
+import es.api.AsyncExpertSystem;
+import es.api.ExpertSystem;
+import tags.Recommendation;
+
+/**
+ * Implementation of the asynchronous thinking of an ES, running each think
+ * as a cancellable task, see {@link AsyncTasks}, which stops at its next
+ * cycle once cancelled. The thinks are queued on a {@link SerialExecutor} of
+ * the ES, so that they run one at a time.
+ */
+class AsyncExpertSystemImpl implements AsyncExpertSystem {
+    private final ExpertSystem es;
+    private final Executor executor;
+
+    @Inject
+    AsyncExpertSystemImpl(@Assisted final ExpertSystem es,
+                          @Assisted final Executor executor) {
+        this.es = es;
+        this.executor = new SerialExecutor(executor);
+    }
+
+    @Override
+    public ExpertSystem getExpertSystem() {
+        return es;
+    }
+
+    @Override
+    public CompletableFuture<Set<Recommendation>> thinkAsync() {
+        return submit(false, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public CompletableFuture<Set<Recommendation>> thinkAsync(
+            final boolean generateRule) {
+        return submit(generateRule, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public CompletableFuture<Set<Recommendation>> thinkAsync(
+            final boolean generateRule, final int numberOfCycles) {
+        return submit(generateRule, numberOfCycles);
+    }
+
+    /**
+     * Runs a think on the executor, as a cancellable think of the ES. An ES
+     * of another implementation is only cancelled before it starts thinking.
+     *
+     * @param generateRule   if true generates the new rule proven by a think
+     *                       cycle
+     * @param numberOfCycles the number of cycles to think for
+     * @return the future activated Recommendations
+     */
+    private CompletableFuture<Set<Recommendation>> submit(
+            final boolean generateRule, final int numberOfCycles) {
+        if (es instanceof ExpertSystemImpl) {
+            final ExpertSystemImpl esImpl = (ExpertSystemImpl) es;
+            return AsyncTasks.supplyAsync(cancelled -> esImpl.think(
+                    generateRule, numberOfCycles, cancelled), executor);
+        }
+        return AsyncTasks.supplyAsync(
+                () -> es.think(generateRule, numberOfCycles), executor);
+    }
+}
@@ -3,6 +3,7 @@ package es.internal;
 import javax.inject.Inject;
 import java.util.Collections;
 import java.util.Set;
+import java.util.function.BooleanSupplier;
 import com.google.inject.assistedinject.Assisted;
 import es.api.ExpertSystem;
 import tags.Fact;
@@ -44,18 +45,38 @@ class ExpertSystemImpl implements ExpertSystem {
 
     @Override
     public Set<Recommendation> think() {
-        return thinker.think(false, Integer.MAX_VALUE);
+        return think(false, Integer.MAX_VALUE);
     }
 
     @Override
     public Set<Recommendation> think(final boolean generateRule) {
-        return thinker.think(generateRule, Integer.MAX_VALUE);
+        return think(generateRule, Integer.MAX_VALUE);
     }
 
     @Override
     public Set<Recommendation> think(final boolean generateRule,
                                      final int numberOfCycles) {
-        return thinker.think(generateRule, numberOfCycles);
+        return thinker.think(generateRule, numberOfCycles,
+                Thinker.NOT_CANCELLED);
+    }
+
+    /**
+     * Makes the ES think as {@link #think(boolean, int)}, stopping at the
+     * next cycle once cancelled.
+     *
+     * @param generateRule   if true generates the new rule proven by a think
+     *                       cycle
+     * @param numberOfCycles the number of cycles to think for
+     * @param cancelled      the cancellation token, which returns true once
+     *                       the thinking is cancelled
+     * @return the activated Recommendations as a result of thinking
+     * @throws java.util.concurrent.CancellationException if the thinking is
+     *                                                    cancelled
+     */
+    Set<Recommendation> think(final boolean generateRule,
+                              final int numberOfCycles,
+                              final BooleanSupplier cancelled) {
+        return thinker.think(generateRule, numberOfCycles, cancelled);
     }
 
     @Override
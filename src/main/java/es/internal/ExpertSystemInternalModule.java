@@ -2,6 +2,8 @@ package es.internal;
 
 import com.google.inject.AbstractModule;
 import com.google.inject.assistedinject.FactoryModuleBuilder;
+import es.api.AsyncExpertSystem;
+import es.api.AsyncExpertSystemFactory;
 import es.api.ExpertSystem;
 import es.api.ExpertSystemFactory;
 
@@ -14,6 +16,10 @@ public final class ExpertSystemInternalModule extends AbstractModule {
         install(new FactoryModuleBuilder()
                 .implement(ExpertSystem.class, ExpertSystemImpl.class)
                 .build(ExpertSystemFactory.class));
+        install(new FactoryModuleBuilder()
+                .implement(AsyncExpertSystem.class,
+                        AsyncExpertSystemImpl.class)
+                .build(AsyncExpertSystemFactory.class));
         install(new FactoryModuleBuilder()
                 .build(ThinkCycleExecutorFactory.class));
         install(new FactoryModuleBuilder()
@@ -3,6 +3,8 @@ package es.internal;
 import javax.inject.Inject;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.function.BooleanSupplier;
 import com.google.inject.assistedinject.Assisted;
 import tags.Fact;
 import tags.Predicate;
@@ -13,6 +15,12 @@ import tags.Rule;
  * Thinker which executes thinking cycles.
  */
 class Thinker {
+    /**
+     * The cancellation token of the thinking which is never cancelled.
+     */
+    static final BooleanSupplier NOT_CANCELLED = () -> false;
+    private static final String CANCELLED = "The thinking was cancelled.";
+
     private final ThinkCycleExecutor thinkCycleExecutor;
     private final Set<Rule> readyRules;
     private final Set<Fact> facts;
@@ -43,14 +51,21 @@ class Thinker {
      * @param generateRule   if true generates the new rule proven by a think
      *                       cycle
      * @param numberOfCycles the number of cycles to think for
+     * @param cancelled      the cancellation token, checked before each
+     *                       cycle, see {@link #NOT_CANCELLED}
      * @return the activated Recommendations as a result of thinking
+     * @throws CancellationException if the thinking is cancelled
      */
     Set<Recommendation> think(final boolean generateRule,
-                              final int numberOfCycles) {
+                              final int numberOfCycles,
+                              final BooleanSupplier cancelled) {
         final Set<Predicate> allActivatedPredicates = new HashSet<>();
         Set<Predicate> activatedPredicates;
         final Set<Fact> inputFacts = new HashSet<>(facts);
         for (int i = 0; i < numberOfCycles; i++) {
+            if (cancelled.getAsBoolean()) {
+                throw new CancellationException(CANCELLED);
+            }
             activatedPredicates = thinkCycleExecutor.thinkCycle();
             if (activatedPredicates.isEmpty()) {
                 break;
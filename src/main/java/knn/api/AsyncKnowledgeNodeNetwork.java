@@ -0,0 +1,101 @@
+package knn.api;
+
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import tags.Tag;
+
+/**
+ * Asynchronous searches of a KNN, each run as a task on an executor, see
+ * {@link AsyncKnowledgeNodeNetworkFactory}.
+ * <p>
+ * Cancelling a returned future stops its search at the next ply, with a
+ * {@link java.util.concurrent.CancellationException}; the KNs fired by the
+ * completed plies stay fired. The searches of a
+ * {@link KnowledgeNodeNetworkEngine#CONCURRENT} KNN run in parallel, while
+ * the searches of the other engines run one at a time, in no particular
+ * order. The KNN must not be searched or modified synchronously while
+ * asynchronous searches are in flight, unless it is
+ * {@link KnowledgeNodeNetworkEngine#CONCURRENT}.
+ */
+public interface AsyncKnowledgeNodeNetwork {
+
+    /**
+     * @return the KNN searched
+     */
+    KnowledgeNodeNetwork getKnowledgeNodeNetwork();
+
+    /**
+     * Performs direct search asynchronously.
+     *
+     * @param inputTag the input Tag of the search
+     * @return the future Set of activated Tags resulting from searching
+     * @see KnowledgeNodeNetwork#directSearch(Tag)
+     */
+    CompletableFuture<Set<Tag>> directSearchAsync(Tag inputTag);
+
+    /**
+     * Performs forward search asynchronously.
+     *
+     * @param inputTags the input Tags of the search
+     * @param ply       the ply of the search. If set to 0, the search continues
+     *                  until quiescence.
+     * @return the future Set of activated Tags resulting from searching
+     * @see KnowledgeNodeNetwork#forwardSearch(Set, int)
+     */
+    CompletableFuture<Set<Tag>> forwardSearchAsync(Set<Tag> inputTags,
+                                                   int ply);
+
+    /**
+     * Performs beam search asynchronously.
+     *
+     * @param inputTags the input Tags of the search
+     * @param ply       the ply of the search. If set to 0, the search continues
+     *                  until quiescence.
+     * @param beamWidth the maximum number of Tags activated by each ply
+     * @return the future Set of activated Tags resulting from searching
+     * @see KnowledgeNodeNetwork#forwardSearch(Set, int, int)
+     */
+    CompletableFuture<Set<Tag>> forwardSearchAsync(Set<Tag> inputTags,
+                                                   int ply, int beamWidth);
+
+    /**
+     * Performs backward search asynchronously.
+     *
+     * @param inputTags the input Tags of the search
+     * @param ply       the ply of the search. If set to 0, the search continues
+     *                  until quiescence.
+     * @return the future Set of activated Tags resulting from searching
+     * @see KnowledgeNodeNetwork#backwardSearch(Set, int)
+     */
+    CompletableFuture<Set<Tag>> backwardSearchAsync(Set<Tag> inputTags,
+                                                    int ply);
+
+    /**
+     * Performs lambda search asynchronously.
+     *
+     * @param inputTags the input Tags of the search
+     * @param ply       the ply of the search. If set to 0, the search continues
+     *                  until quiescence.
+     * @return the future Set of activated Tags resulting from searching
+     * @see KnowledgeNodeNetwork#lambdaSearch(Set, int)
+     */
+    CompletableFuture<Set<Tag>> lambdaSearchAsync(Set<Tag> inputTags,
+                                                  int ply);
+
+    /**
+     * Performs bidirectional search asynchronously.
+     *
+     * @param inputTags the input Tags of the search
+     * @param goalTags  the goal Tags of the search
+     * @param ply       the total number of plies, on both sides. If set to 0,
+     *                  the search continues until the two sides meet or
+     *                  quiescence.
+     * @param budget    the maximum number of Tags to search from, on both
+     *                  sides. If set to 0, there is no limit.
+     * @return the future Tags reached on each side, and the Tags connecting
+     * them
+     * @see KnowledgeNodeNetwork#bidirectionalSearch(Set, Set, int, int)
+     */
+    CompletableFuture<BidirectionalSearchResult> bidirectionalSearchAsync(
+            Set<Tag> inputTags, Set<Tag> goalTags, int ply, int budget);
+}
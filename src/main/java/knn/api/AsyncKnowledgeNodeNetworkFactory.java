@@ -0,0 +1,25 @@
+package knn.api;
+
+import java.util.concurrent.Executor;
+import com.google.inject.Inject;
+import com.google.inject.assistedinject.Assisted;
+
+/**
+ * Guice factory to create the asynchronous searches of a KNN, bound once
+ * they are enabled, see
+ * {@link knn.guice.KnowledgeNodeNetworkModule.Builder#asyncSearch(boolean)}.
+ */
+public interface AsyncKnowledgeNodeNetworkFactory {
+    /**
+     * Creates the asynchronous searches of a KNN.
+     *
+     * @param knn      the KNN searched
+     * @param executor the executor running the searches, e.g.,
+     *                 {@link async.AsyncExecutors#newDefaultExecutor()}
+     * @return the asynchronous searches of the KNN
+     */
+    @Inject
+    AsyncKnowledgeNodeNetwork create(
+            @Assisted KnowledgeNodeNetwork knn,
+            @Assisted Executor executor);
+}
@@ -0,0 +1,119 @@
+package knn.api;
+
+/**
+ * Settings of the approximate backward search, which finds the KNs matching
+ * the input Tags of a ply through MinHash signatures of the output Tags of
+ * the KNs, bucketed by locality-sensitive hashing (LSH), rather than by
+ * counting the input Tags output by every KN sharing one of them.
+ * <p>
+ * The signature of a set of Tags is made of {@code bands * rows} MinHash
+ * values, and a KN is a candidate for a ply if its signature agrees with the
+ * signature of the input Tags on all the rows of at least one band. A KN
+ * whose output Tags have a Jaccard similarity {@code s} with the input Tags
+ * is thus a candidate with probability {@code 1 - (1 - s^rows)^bands}:
+ * more bands raise the recall, more rows cut the candidates, and so the
+ * latency. The similarity at which a KN is as likely as not a candidate is
+ * about {@link #getThreshold()}.
+ * <p>
+ * The candidates are either verified, i.e., matched exactly as by the exact
+ * backward search, so that the approximation may only miss KNs, or accepted
+ * if the number of input Tags they output, estimated from their
+ * signatures, is at least the required number of matches, so that the
+ * approximation may also activate KNs which do not quite match.
+ * <p>
+ * See {@link knn.guice.KnowledgeNodeNetworkModule} to approximate the
+ * backward search of a KNN.
+ */
+public final class BackwardSearchApproximation {
+    /**
+     * No approximation: backward search matches every KN which outputs at
+     * least one of the input Tags of a ply.
+     */
+    public static final BackwardSearchApproximation EXACT =
+            new BackwardSearchApproximation();
+
+    private final int bands;
+    private final int rows;
+    private final boolean verified;
+
+    /**
+     * Creates the settings of an approximate backward search.
+     *
+     * @param bands    the number of LSH bands
+     * @param rows     the number of MinHash values per band
+     * @param verified whether to match the candidate KNs exactly, rather
+     *                 than by their estimated number of matches
+     * @throws IllegalArgumentException if the number of bands or rows is not
+     *                                  positive
+     */
+    public BackwardSearchApproximation(final int bands, final int rows,
+                                       final boolean verified) {
+        if (bands <= 0 || rows <= 0) {
+            throw new IllegalArgumentException(
+                    "The numbers of bands and rows must be positive.");
+        }
+        this.bands = bands;
+        this.rows = rows;
+        this.verified = verified;
+    }
+
+    /**
+     * Creates the settings of the exact backward search.
+     */
+    private BackwardSearchApproximation() {
+        this.bands = 0;
+        this.rows = 0;
+        this.verified = true;
+    }
+
+    /**
+     * @return true if backward search is exact
+     */
+    public boolean isExact() {
+        return bands == 0;
+    }
+
+    /**
+     * @return the number of LSH bands, 0 if backward search is exact
+     */
+    public int getBands() {
+        return bands;
+    }
+
+    /**
+     * @return the number of MinHash values per band, 0 if backward search is
+     * exact
+     */
+    public int getRows() {
+        return rows;
+    }
+
+    /**
+     * @return true if the candidate KNs are matched exactly, false if they
+     * are matched by their estimated number of matches
+     */
+    public boolean isVerified() {
+        return verified;
+    }
+
+    /**
+     * @return the Jaccard similarity between the output Tags of a KN and
+     * the input Tags of a ply at which the KN is about as likely as not a
+     * candidate, {@code (1 / bands)^(1 / rows)}, or 0 if backward search is
+     * exact
+     */
+    public double getThreshold() {
+        if (isExact()) {
+            return 0;
+        }
+        return Math.pow(1.0 / bands, 1.0 / rows);
+    }
+
+    @Override
+    public String toString() {
+        return "BackwardSearchApproximation{bands=" + bands
+                + ", rows=" + rows
+                + ", verified=" + verified
+                + '}';
+    }
+}
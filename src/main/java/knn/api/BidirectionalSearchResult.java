@@ -0,0 +1,79 @@
+package knn.api;
+
+import java.util.Collections;
+import java.util.Set;
+import tags.Tag;
+
+/**
+ * Result of a bidirectional search, see
+ * {@link KnowledgeNodeNetwork#bidirectionalSearch(Set, Set, int, int)}.
+ */
+public final class BidirectionalSearchResult {
+    private final Set<Tag> forwardTags;
+    private final Set<Tag> backwardTags;
+    private final Set<Tag> connectingTags;
+    private final int exploredTags;
+
+    /**
+     * Creates a result.
+     *
+     * @param forwardTags    the Tags reached forward from the input Tags
+     * @param backwardTags   the Tags reached backward from the goal Tags
+     * @param connectingTags the Tags reached from both sides
+     * @param exploredTags   the number of Tags searched
+     */
+    public BidirectionalSearchResult(final Set<Tag> forwardTags,
+                                     final Set<Tag> backwardTags,
+                                     final Set<Tag> connectingTags,
+                                     final int exploredTags) {
+        this.forwardTags = Collections.unmodifiableSet(forwardTags);
+        this.backwardTags = Collections.unmodifiableSet(backwardTags);
+        this.connectingTags = Collections.unmodifiableSet(connectingTags);
+        this.exploredTags = exploredTags;
+    }
+
+    /**
+     * @return the Tags activated by searching forward from the input Tags
+     * (excluding the input Tags)
+     */
+    public Set<Tag> getForwardTags() {
+        return forwardTags;
+    }
+
+    /**
+     * @return the Tags activated by searching backward from the goal Tags
+     * (excluding the goal Tags)
+     */
+    public Set<Tag> getBackwardTags() {
+        return backwardTags;
+    }
+
+    /**
+     * @return the Tags reached from both the input Tags and the goal Tags,
+     * i.e., where the two searches met, empty if they did not
+     */
+    public Set<Tag> getConnectingTags() {
+        return connectingTags;
+    }
+
+    /**
+     * @return true if the input Tags are connected to the goal Tags
+     */
+    public boolean isConnected() {
+        return !connectingTags.isEmpty();
+    }
+
+    /**
+     * @return the number of Tags searched from, forward or backward, which
+     * is what the budget of the search bounds
+     */
+    public int getExploredTags() {
+        return exploredTags;
+    }
+
+    @Override
+    public String toString() {
+        return "connecting " + connectingTags + " after exploring "
+                + exploredTags + " Tags";
+    }
+}
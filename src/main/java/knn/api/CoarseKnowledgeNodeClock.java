@@ -0,0 +1,74 @@
+package knn.api;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Clock which caches the wall clock, updated by a ticker thread at a fixed
+ * resolution, so that reading it is a mere volatile read. The KNs age in
+ * steps of the resolution, which is negligible next to
+ * {@link KnowledgeNode#AGE_THRESHOLD}.
+ * <p>
+ * The ticker thread is a daemon thread, stopped by {@link #close()}, after
+ * which the clock stays at the last time it read. Thread-safe.
+ */
+public final class CoarseKnowledgeNodeClock
+        implements KnowledgeNodeClock, AutoCloseable {
+    /**
+     * The default resolution of the clock, in milliseconds.
+     */
+    public static final long DEFAULT_RESOLUTION_MILLIS = 10;
+
+    private final ScheduledExecutorService ticker;
+    private volatile long time;
+
+    /**
+     * Creates a clock with the default resolution, and starts its ticker.
+     */
+    public CoarseKnowledgeNodeClock() {
+        this(DEFAULT_RESOLUTION_MILLIS);
+    }
+
+    /**
+     * Creates a clock, and starts its ticker.
+     *
+     * @param resolutionMillis the interval between the updates of the
+     *                         clock, in milliseconds
+     * @throws IllegalArgumentException if the resolution is not positive
+     */
+    public CoarseKnowledgeNodeClock(final long resolutionMillis) {
+        if (resolutionMillis <= 0) {
+            throw new IllegalArgumentException(
+                    "The clock resolution must be positive.");
+        }
+        this.time = System.currentTimeMillis();
+        this.ticker = Executors.newSingleThreadScheduledExecutor(r -> {
+            final Thread thread = new Thread(r, "prometheus-clock");
+            thread.setDaemon(true);
+            return thread;
+        });
+        ticker.scheduleAtFixedRate(this::tick, resolutionMillis,
+                resolutionMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Updates the clock to the wall clock.
+     */
+    private void tick() {
+        time = System.currentTimeMillis();
+    }
+
+    @Override
+    public long currentTime() {
+        return time;
+    }
+
+    /**
+     * Stops the ticker thread.
+     */
+    @Override
+    public void close() {
+        ticker.shutdownNow();
+    }
+}
@@ -0,0 +1,19 @@
+package knn.api;
+
+/**
+ * When the journal of a KNN forces its writes to the storage device. See
+ * {@link KnowledgeNodeNetwork#openJournal(String, String, JournalSyncPolicy,
+ * long)}.
+ */
+public enum JournalSyncPolicy {
+    /**
+     * Never forces the writes: the committed mutations survive a crash of the
+     * process, but may be lost if the operating system crashes.
+     */
+    NONE,
+    /**
+     * Forces the writes once per group commit, so that the committed
+     * mutations survive a crash of the operating system.
+     */
+    COMMIT
+}
@@ -4,25 +4,35 @@ import java.text.MessageFormat;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 import com.google.inject.Inject;
 import com.google.inject.assistedinject.Assisted;
 import org.apache.commons.lang3.StringUtils;
-import org.apache.commons.lang3.builder.CompareToBuilder;
 import org.apache.commons.lang3.builder.EqualsBuilder;
 import org.apache.commons.lang3.builder.HashCodeBuilder;
 import org.apache.commons.lang3.builder.ToStringBuilder;
 import org.apache.commons.lang3.builder.ToStringStyle;
-import tags.Fact;
-import tags.Recommendation;
-import tags.Rule;
 import tags.Tag;
+import tags.TagPool;
 
 /**
  * The Knowledge Node.
+ * <p>
+ * The activation and age of a KN are updated atomically, without locking, so
+ * that a KN may be excited concurrently by several threads.
  */
 public final class KnowledgeNode implements Comparable<KnowledgeNode> {
-    private static final long AGE_THRESHOLD = 1_000_000;
-    private static final int ACTIVATION_INCREMENT = 100;
+    private static final AtomicReferenceFieldUpdater<KnowledgeNode, State>
+            STATE_UPDATER = AtomicReferenceFieldUpdater.newUpdater(
+            KnowledgeNode.class, State.class, "state");
+    /**
+     * The age above which a KN expires when it is excited.
+     */
+    public static final long AGE_THRESHOLD = 1_000_000;
+    /**
+     * The increment of the activation of a KN when it is excited.
+     */
+    public static final int ACTIVATION_INCREMENT = 100;
     private static final int DEFAULT_THRESHOLD = 100;
     private static final int DEFAULT_BELIEF = 0;
     private static final int DEFAULT_STRENGTH = 1;
@@ -32,17 +42,17 @@ public final class KnowledgeNode implements Comparable<KnowledgeNode> {
     private final int threshold;
     private final double belief;
     private final int strength;
-
     /**
-     * Age timestamp. Set to current UNIX time when node is newly formed.
+     * Hash code of the input and output Tags, which never change.
      */
-    private long age = 0;
-    private long initialAgeTimeStamp = System.currentTimeMillis();
-    private double activation = 0;
+    private final int tagsHashCode;
+
     /**
-     * true when the KN has exceeded its age threshold.
+     * Activation and age of the KN, replaced as a whole on every excitation.
+     * A new KN is stamped with the wall clock until it is added to a KNN,
+     * see {@link #stampCreation(long)}.
      */
-    private boolean isExpired = false;
+    private volatile State state = State.created(System.currentTimeMillis());
 
     /**
      * Creates a Knowledge Node from Strings.
@@ -56,17 +66,7 @@ public final class KnowledgeNode implements Comparable<KnowledgeNode> {
             @Assisted("data") final String[] data)
             throws KnowledgeNodeParseException {
         this.outputTags = new HashSet<>();
-
-        if (data[0].charAt(0) == '@') {
-            this.inputTag = new Recommendation(data[0]);
-        } else if (data[0].contains("->")) {
-            this.inputTag = new Rule(data[0]);
-        } else if (data[0].matches(".*\\(.*\\).*")) {
-            this.inputTag = new Fact(data[0]);
-        } else {
-            throw new KnowledgeNodeParseException(MessageFormat.format(
-                    "Invalid input tag: {0}.", data[0]));
-        }
+        this.inputTag = parseTag(data[0], "input");
 
         int startOutputIndex = 1;
         if (data.length > 1 && StringUtils.isNumeric(data[1])) {
@@ -77,19 +77,11 @@ public final class KnowledgeNode implements Comparable<KnowledgeNode> {
         }
 
         for (int i = startOutputIndex; i < data.length; i += startOutputIndex) {
-            if (data[i].charAt(0) == '@') {
-                this.outputTags.add(new Recommendation(data[i]));
-            } else if (data[i].contains("->")) {
-                this.outputTags.add(new Rule(data[i]));
-            } else if (data[i].matches(".*\\(.*\\).*")) {
-                this.outputTags.add(new Fact(data[i]));
-            } else {
-                throw new KnowledgeNodeParseException(MessageFormat.format(
-                        "Invalid output tag: {0}.", data[i]));
-            }
+            this.outputTags.add(parseTag(data[i], "output"));
         }
         this.belief = DEFAULT_BELIEF;
         this.strength = DEFAULT_STRENGTH;
+        this.tagsHashCode = hashTags(inputTag, outputTags);
     }
 
     public KnowledgeNode(final String data) throws KnowledgeNodeParseException {
@@ -101,10 +93,11 @@ public final class KnowledgeNode implements Comparable<KnowledgeNode> {
             final Set<Tag> outputTags,
             final int threshold) {
         this.inputTag = inputTag;
-        this.outputTags = outputTags;
+        this.outputTags = new HashSet<>(outputTags);
         this.threshold = threshold;
         this.belief = DEFAULT_BELIEF;
         this.strength = DEFAULT_STRENGTH;
+        this.tagsHashCode = hashTags(inputTag, this.outputTags);
     }
 
     public KnowledgeNode(
@@ -114,17 +107,124 @@ public final class KnowledgeNode implements Comparable<KnowledgeNode> {
             final double belief,
             final int strength) {
         this.inputTag = inputTag;
-        this.outputTags = outputTags;
+        this.outputTags = new HashSet<>(outputTags);
         this.threshold = threshold;
         this.belief = belief;
         this.strength = strength;
+        this.tagsHashCode = hashTags(inputTag, this.outputTags);
+    }
+
+    /**
+     * Restores a KN with the given activation and age, e.g., from a snapshot
+     * of the KNN.
+     *
+     * @param inputTag     the input Tag
+     * @param outputTags   the output Tags
+     * @param threshold    the activation threshold
+     * @param belief       the belief
+     * @param strength     the strength
+     * @param activation   the activation
+     * @param age          the time between the last two excitations
+     * @param ageTimeStamp the time of the last excitation, or of the creation
+     * @param expired      true if the KN is expired
+     * @see #getActivation()
+     * @see #getAge()
+     * @see #getAgeTimeStamp()
+     */
+    public KnowledgeNode(
+            final Tag inputTag,
+            final Set<Tag> outputTags,
+            final int threshold,
+            final double belief,
+            final int strength,
+            final double activation,
+            final long age,
+            final long ageTimeStamp,
+            final boolean expired) {
+        this(inputTag, outputTags, threshold, belief, strength);
+        this.state = new State(age, ageTimeStamp, activation, expired);
+    }
+
+    /**
+     * Copies a KN, sharing its immutable output Tags.
+     *
+     * @param kn the KN to copy
+     */
+    private KnowledgeNode(final KnowledgeNode kn) {
+        this.inputTag = kn.inputTag;
+        this.outputTags = kn.outputTags;
+        this.threshold = kn.threshold;
+        this.belief = kn.belief;
+        this.strength = kn.strength;
+        this.tagsHashCode = kn.tagsHashCode;
+        this.state = kn.state;
+    }
+
+    /**
+     * Parses a Tag of a KN.
+     *
+     * @param data the Tag String
+     * @param kind the kind of Tag, for error messages
+     * @return the canonical Tag
+     * @throws KnowledgeNodeParseException if the String is not a Tag
+     */
+    private static Tag parseTag(final String data, final String kind)
+            throws KnowledgeNodeParseException {
+        if (data.isEmpty()) {
+            throw new KnowledgeNodeParseException(MessageFormat.format(
+                    "Empty {0} tag.", kind));
+        } else if (data.charAt(0) == '@') {
+            return TagPool.recommendation(data);
+        } else if (data.contains("->")) {
+            return TagPool.rule(data);
+        } else if (isPredicate(data)) {
+            return TagPool.fact(data);
+        }
+        throw new KnowledgeNodeParseException(MessageFormat.format(
+                "Invalid {0} tag: {1}.", kind, data));
     }
 
     /**
-     * @return the current age of the KN
+     * Checks if the given String looks like a predicate, i.e., has an opening
+     * parenthesis followed by a closing one, without the cost of matching a
+     * regular expression.
+     *
+     * @param data the String
+     * @return true if the String looks like a predicate
+     */
+    private static boolean isPredicate(final String data) {
+        final int open = data.indexOf('(');
+        return open != -1 && data.indexOf(')', open + 1) != -1;
+    }
+
+    /**
+     * Computes the hash code of the input and output Tags of a KN.
+     *
+     * @param inputTag   the input Tag
+     * @param outputTags the output Tags
+     * @return the hash code of the Tags
+     */
+    private static int hashTags(final Tag inputTag,
+                                final Set<Tag> outputTags) {
+        return new HashCodeBuilder()
+                .append(inputTag)
+                .append(outputTags)
+                .toHashCode();
+    }
+
+    /**
+     * @return the current age of the KN, by the wall clock
      */
     public long getCurrentAge() {
-        return System.currentTimeMillis() - initialAgeTimeStamp;
+        return getCurrentAge(System.currentTimeMillis());
+    }
+
+    /**
+     * @param now the current time, see {@link KnowledgeNodeClock}
+     * @return the age of the KN at the given time
+     */
+    public long getCurrentAge(final long now) {
+        return now - state.initialAgeTimeStamp;
     }
 
     /**
@@ -135,34 +235,107 @@ public final class KnowledgeNode implements Comparable<KnowledgeNode> {
     }
 
     /**
+     * @return the activation threshold of the KN
+     */
+    public int getThreshold() {
+        return threshold;
+    }
+
+    /**
+     * @return the strength of the KN
+     */
+    public int getStrength() {
+        return strength;
+    }
+
+    /**
+     * @return the activation of the KN
+     */
+    public double getActivation() {
+        return state.activation;
+    }
+
+    /**
+     * @return the time between the last two excitations of the KN
+     */
+    public long getAge() {
+        return state.age;
+    }
+
+    /**
+     * @return the time of the last excitation of the KN, or of its creation
+     */
+    public long getAgeTimeStamp() {
+        return state.initialAgeTimeStamp;
+    }
+
+    /**
+     * Stamps a new KN with the time it is added to a KNN, by the clock of
+     * the KNN, in place of the wall clock time it was created at. A KN which
+     * has been excited or stamped already, or restored with its age, keeps
+     * its age timestamp.
+     *
+     * @param now the current time, see {@link KnowledgeNodeClock}
+     */
+    public void stampCreation(final long now) {
+        final State current = state;
+        if (current.isNew) {
+            STATE_UPDATER.compareAndSet(this, current, current.stamp(now));
+        }
+    }
+
+    /**
+     * Excites the KN atomically, at the wall clock time.
+     *
      * @return true if the KN has been newly fired, i.e., it was not fired
      * before this excitation
+     * @see #excite(long)
      */
     public boolean excite() {
-        if (age > AGE_THRESHOLD) {
-            isExpired = true;
-            return false;
-        } else {
-            updateAge();
-            final double oldActivation = activation;
-            activation += ACTIVATION_INCREMENT;
-            return oldActivation < threshold && isFired();
+        return excite(System.currentTimeMillis());
+    }
+
+    /**
+     * Excites the KN atomically, at the given time. When several threads
+     * excite the KN concurrently, at most one of them sees it newly fired.
+     *
+     * @param now the current time, see {@link KnowledgeNodeClock}
+     * @return true if the KN has been newly fired, i.e., it was not fired
+     * before this excitation
+     */
+    public boolean excite(final long now) {
+        while (true) {
+            final State current = state;
+            if (current.age > AGE_THRESHOLD) {
+                if (current.isExpired || STATE_UPDATER.compareAndSet(
+                        this, current, current.expire())) {
+                    return false;
+                }
+            } else {
+                final State excited = current.excite(now);
+                if (STATE_UPDATER.compareAndSet(this, current, excited)) {
+                    return current.activation < threshold
+                            && excited.activation >= threshold;
+                }
+            }
         }
     }
 
     /**
-     * Ages the current Knowledge Node.
+     * Copies the KN in constant time. The copy starts with the current
+     * activation and age of the KN, and is then excited independently of it.
+     *
+     * @return the copy of the KN
      */
-    private void updateAge() {
-        age = System.currentTimeMillis() - initialAgeTimeStamp;
-        initialAgeTimeStamp = System.currentTimeMillis();
+    public KnowledgeNode copy() {
+        return new KnowledgeNode(this);
     }
 
     /**
      * @return true if the KN is fired
      */
     public boolean isFired() {
-        return activation >= threshold;
+        return state.activation >= threshold;
     }
 
     /**
@@ -183,7 +356,7 @@ public final class KnowledgeNode implements Comparable<KnowledgeNode> {
      * @return true if the KN is expired
      */
     public boolean isExpired() {
-        return isExpired;
+        return state.isExpired;
     }
 
     @Override
@@ -206,12 +379,18 @@ public final class KnowledgeNode implements Comparable<KnowledgeNode> {
 
         final KnowledgeNode that = (KnowledgeNode) o;
 
+        if (tagsHashCode != that.tagsHashCode) {
+            return false;
+        }
+        final State thisState = state;
+        final State thatState = that.state;
+
         return new EqualsBuilder()
                 .append(threshold, that.threshold)
                 .append(strength, that.strength)
-                .append(age, that.age)
+                .append(thisState.age, thatState.age)
                 .append(belief, that.belief)
-                .append(activation, that.activation)
+                .append(thisState.activation, thatState.activation)
                 .append(inputTag, that.inputTag)
                 .append(outputTags, that.outputTags)
                 .isEquals();
@@ -219,23 +398,119 @@ public final class KnowledgeNode implements Comparable<KnowledgeNode> {
 
     @Override
     public int hashCode() {
+        final State current = state;
         return new HashCodeBuilder()
-                .append(inputTag)
-                .append(outputTags)
+                .append(tagsHashCode)
                 .append(threshold)
                 .append(strength)
-                .append(age)
+                .append(current.age)
                 .append(belief)
-                .append(activation)
+                .append(current.activation)
                 .toHashCode();
     }
 
+    /**
+     * Compares KNs by age. Note that this ordering is inconsistent with
+     * equals, and that the age of a KN changes when it is excited.
+     *
+     * @param o the KN to compare to
+     * @return the comparison of the ages of the KNs
+     */
     @Override
     public int compareTo(final KnowledgeNode o) {
-        return new CompareToBuilder()
-                .append(this.age, o.age)
-                .append(this.hashCode(), o.hashCode())
-                .toComparison();
+        return Long.compare(this.state.age, o.state.age);
+    }
 
+    /**
+     * Immutable activation and age of a KN.
+     */
+    private static final class State {
+        /**
+         * Time between the last two excitations of the KN.
+         */
+        private final long age;
+        /**
+         * Time of the last excitation of the KN, or of its creation.
+         */
+        private final long initialAgeTimeStamp;
+        private final double activation;
+        /**
+         * true when the KN has exceeded its age threshold.
+         */
+        private final boolean isExpired;
+        /**
+         * true when the KN is new, and stamped with the wall clock.
+         */
+        private final boolean isNew;
+
+        /**
+         * Creates a state.
+         *
+         * @param age                 the age
+         * @param initialAgeTimeStamp the age timestamp
+         * @param activation          the activation
+         * @param isExpired           true if the KN is expired
+         */
+        private State(
+                final long age,
+                final long initialAgeTimeStamp,
+                final double activation,
+                final boolean isExpired) {
+            this(age, initialAgeTimeStamp, activation, isExpired, false);
+        }
+
+        /**
+         * Creates a state.
+         *
+         * @param age                 the age
+         * @param initialAgeTimeStamp the age timestamp
+         * @param activation          the activation
+         * @param isExpired           true if the KN is expired
+         * @param isNew               true if the KN is new
+         */
+        private State(
+                final long age,
+                final long initialAgeTimeStamp,
+                final double activation,
+                final boolean isExpired,
+                final boolean isNew) {
+            this.age = age;
+            this.initialAgeTimeStamp = initialAgeTimeStamp;
+            this.activation = activation;
+            this.isExpired = isExpired;
+            this.isNew = isNew;
+        }
+
+        /**
+         * @param now the wall clock time
+         * @return the state of a new KN created at the given time
+         */
+        private static State created(final long now) {
+            return new State(0, now, 0, false, true);
+        }
+
+        /**
+         * @param now the time the new KN is added to a KNN
+         * @return the state of the new KN stamped at the given time
+         */
+        private State stamp(final long now) {
+            return new State(age, now, activation, isExpired);
+        }
+
+        /**
+         * @param now the time of the excitation
+         * @return the state after an excitation at the given time
+         */
+        private State excite(final long now) {
+            return new State(now - initialAgeTimeStamp, now,
+                    activation + ACTIVATION_INCREMENT, false);
+        }
+
+        /**
+         * @return the expired state
+         */
+        private State expire() {
+            return new State(age, initialAgeTimeStamp, activation, true);
+        }
     }
 }
@@ -0,0 +1,37 @@
+package knn.api;
+
+/**
+ * Time source aging the KNs of a KNN, given to the
+ * {@link knn.guice.KnowledgeNodeNetworkModule}. The ages of the KNs, their
+ * expiry and the age limit of backward search are all measured with it.
+ * <p>
+ * The clock is read once when a search starts, and that time is used for
+ * all the KNs the search excites or visits, so that the clock is never read
+ * per KN. Implementations must be thread-safe if the KNN is searched from
+ * several threads.
+ *
+ * @see CoarseKnowledgeNodeClock
+ * @see LogicalKnowledgeNodeClock
+ */
+@FunctionalInterface
+public interface KnowledgeNodeClock {
+    /**
+     * The wall clock, in milliseconds, used by default.
+     */
+    KnowledgeNodeClock SYSTEM = System::currentTimeMillis;
+
+    /**
+     * @return the current time, in milliseconds or in the units of the clock
+     */
+    long currentTime();
+
+    /**
+     * Called once when a search starts. The wall clock simply returns the
+     * current time.
+     *
+     * @return the time of the search, used for all the KNs it touches
+     */
+    default long searchStarted() {
+        return currentTime();
+    }
+}
@@ -0,0 +1,28 @@
+package knn.api;
+
+import java.io.IOException;
+
+/**
+ * Bulk loader of KNN data files, as used by
+ * {@link KnowledgeNodeNetwork#loadData(String)}, which may also be polled for
+ * its progress. The file is memory-mapped and parsed in parallel, and each KN
+ * is added to the KNN as soon as it is parsed. Malformed lines are skipped and
+ * reported, instead of aborting the load.
+ */
+public interface KnowledgeNodeLoader {
+    /**
+     * Adds the KNs of the given data file to the given KNN. The KNs are added
+     * in the order of the file, so a KN replaces the KNs with the same input
+     * Tag on previous lines.
+     *
+     * @param knn      the KNN
+     * @param filename the data file, in the format of
+     *                 {@link KnowledgeNodeNetwork#loadData(String)}
+     * @param progress the progress of the load, which may be polled from
+     *                 other threads
+     * @return the report of the load
+     * @throws IOException if reading the file fails
+     */
+    LoadReport load(KnowledgeNodeNetwork knn, String filename,
+                    LoadProgress progress) throws IOException;
+}
@@ -28,7 +28,12 @@ public interface KnowledgeNodeNetwork {
 
     /**
      * Deletes expired KNs from the KNN, i.e., ones who have aged beyond their
-     * age threshold.
+     * age threshold: the KNs found expired when excited, and the KNs not
+     * excited for longer than {@link KnowledgeNode#AGE_THRESHOLD}. The expiry
+     * of the KNs is scheduled as they are added, so that the work done is
+     * proportional to the number of expired KNs rather than to the size of
+     * the KNN, except for the {@link KnowledgeNodeNetworkEngine#OFF_HEAP}
+     * engine, which sweeps its KNs.
      */
     void deleteExpiredKnowledgeNodes();
 
@@ -96,6 +101,39 @@ public interface KnowledgeNodeNetwork {
      */
     Set<Tag> forwardSearch(Set<Tag> inputTags, int ply);
 
+    /**
+     * Performs beam search in the KNN: forward search keeping only the best
+     * Tags activated by each ply. A Tag activated by a KN is ranked by the
+     * belief times the strength of the KN, plus the confidence of the Tag.
+     * The Tags out of the beam are neither activated nor searched further,
+     * which bounds the cost and the result of the search on dense KNNs.
+     *
+     * @param inputTags the input Tags of the search
+     * @param ply       the ply of the search. If set to 0, the search continues
+     *                  until quiescence.
+     * @param beamWidth the maximum number of Tags activated by each ply
+     * @return the Set of activated Tags resulting from searching (excluding the
+     * input Tags)
+     * @throws IllegalArgumentException if the beam width is not positive
+     */
+    Set<Tag> forwardSearch(Set<Tag> inputTags, int ply, int beamWidth);
+
+    /**
+     * Performs forward search for several independent queries in one pass.
+     * The results, and the activation of the KNs, are the same as forward
+     * searching the queries one by one, in order, but the queries advance
+     * one ply at a time together. A query which reaches a KN not fired yet
+     * waits for the earlier queries to be done, so that the KN fires for the
+     * same query as when searching one by one.
+     *
+     * @param inputs the input Tags of each query
+     * @param ply    the ply of each query. If set to 0, each query continues
+     *               until quiescence.
+     * @return the Set of activated Tags resulting from searching each query
+     * (excluding its input Tags), in the order of the queries
+     */
+    List<Set<Tag>> forwardSearchBatch(List<Set<Tag>> inputs, int ply);
+
     /**
      * Performs forward thinking in the KNN. Note that this is equivalent to
      * forward searching with all the currently active Tags as input.
@@ -118,6 +156,20 @@ public interface KnowledgeNodeNetwork {
      */
     Set<Tag> backwardSearch(Set<Tag> inputTags, int ply);
 
+    /**
+     * Performs backward search for several independent queries in one pass,
+     * with the same results as backward searching the queries one by one,
+     * in order. Each distinct Set of Tags searched by the plies of the
+     * queries is matched against the KNs once.
+     *
+     * @param inputs the input Tags of each query
+     * @param ply    the ply of each query. If set to 0, each query continues
+     *               until quiescence.
+     * @return the Set of activated Tags resulting from searching each query
+     * (excluding its input Tags), in the order of the queries
+     */
+    List<Set<Tag>> backwardSearchBatch(List<Set<Tag>> inputs, int ply);
+
     /**
      * Performs backward thinking in the KNN. Note that this is equivalent to
      * backward searching with all the currently active Tags as input.
@@ -150,6 +202,21 @@ public interface KnowledgeNodeNetwork {
      */
     Set<Tag> lambdaSearch(Set<Tag> inputTags, int ply);
 
+    /**
+     * Performs lambda search in the KNN, with beam search as the forward
+     * search, see {@link #forwardSearch(Set, int, int)}.
+     *
+     * @param inputTags the input Tags of the search
+     * @param ply       the ply of the search. If set to 0, the search continues
+     *                  until quiescence.
+     * @param beamWidth the maximum number of Tags activated by each ply of
+     *                  the forward search
+     * @return the Set of activated Tags resulting from searching (excluding the
+     * input Tags)
+     * @throws IllegalArgumentException if the beam width is not positive
+     */
+    Set<Tag> lambdaSearch(Set<Tag> inputTags, int ply, int beamWidth);
+
     /**
      * Performs lambda thinking in the KNN. Note that this is equivalent to
      * lambda searching with all the currently active Tags as input.
@@ -162,24 +229,121 @@ public interface KnowledgeNodeNetwork {
     Set<Tag> lambdaThink(int ply);
 
     /**
-     * Loads the data in the file with the given name into the KNN.
+     * Performs bidirectional search in the KNN: forward search from the input
+     * Tags and backward search from the goal Tags, alternately one ply at a
+     * time, which stops as soon as a Tag is reached from both sides. Each
+     * ply expands the side with fewer newly reached Tags, and each Tag is
+     * searched from at most once per side, so that connecting Tags through
+     * wide KNNs explores far fewer Tags than a lambda search does.
+     * <p>
+     * The Tags reached forward are activated as by forward search, and the
+     * Tags reached backward as by backward search.
+     *
+     * @param inputTags the input Tags of the search
+     * @param goalTags  the goal Tags of the search
+     * @param ply       the total number of plies, on both sides. If set to 0,
+     *                  the search continues until the two sides meet or
+     *                  quiescence.
+     * @param budget    the maximum number of Tags to search from, on both
+     *                  sides. The search stops before the ply which would
+     *                  exceed it. If set to 0, there is no limit.
+     * @return the Tags reached on each side, and the Tags connecting them
+     * @throws IllegalArgumentException if the budget is negative
+     */
+    BidirectionalSearchResult bidirectionalSearch(
+            Set<Tag> inputTags, Set<Tag> goalTags, int ply, int budget);
+
+    /**
+     * Gets the version of the KNN, which changes whenever the KNN is
+     * modified: when KNs are added, deleted, expired or excited by a search,
+     * and when the backward search match ratio is set. The active Tags are
+     * not part of the version. Results computed from the KNN at a version,
+     * without exciting its KNs, remain valid as long as the version is
+     * unchanged; see {@link QueryCache}.
+     *
+     * @return the version of the KNN
+     */
+    long getVersion();
+
+    /**
+     * Opens a search session on the KNN, which searches the KNs of the KNN
+     * with its own active Tags and activation, without changing the KNN.
+     * Opening a session takes constant time, whatever the size of the KNN,
+     * and the session is simply discarded when no longer used.
+     *
+     * @return the new search session, with no active Tags
+     */
+    SearchSession openSession();
+
+    /**
+     * Resets the KNN to the KNs of the data file with the given name. The file
+     * is read by a {@link KnowledgeNodeLoader}, so each KN is added as soon as
+     * it is parsed, and the malformed lines are skipped and reported.
      *
      * @param filename the name of the file with the KNN data to load
-     * @return a List of Knowledge Nodes extracted from the data file
+     * @return the report of the load
+     * @throws java.io.UncheckedIOException if reading the file fails
      */
-    List<KnowledgeNode> loadData(String filename);
+    LoadReport loadData(String filename);
 
     /**
-     * Resets the KNN to a state from a database.
+     * Resets the KNN to a state from a database, i.e., a snapshot written by
+     * {@link #save(String)}. The KNs are restored with their activation, age
+     * and recency, along with the active Tags. The KNN is left unchanged if
+     * reading the snapshot fails.
      *
      * @param dbFilename the filename of the database to be read from
+     * @throws java.io.UncheckedIOException if reading the database fails
      */
     void reset(String dbFilename);
 
     /**
-     * Saves the current state of the KNN to a database.
+     * Saves the current state of the KNN to a database, as a compact binary
+     * snapshot. The KNN must not be searched or modified concurrently.
      *
      * @param dbFilename the filename of the database
+     * @throws java.io.UncheckedIOException if writing the database fails
      */
     void save(String dbFilename);
+
+    /**
+     * Opens a write-ahead journal of the mutations of the KNN: added, deleted
+     * and excited KNs, and added and removed active Tags.
+     * <p>
+     * The KNN is first reset to the given database, if it exists, and the
+     * mutations in the journal are replayed on top of it, which recovers the
+     * state of the KNN when it was last journaled. The subsequent mutations
+     * are appended to the journal, in batches committed by a background
+     * thread every given interval, and the recovered state is compacted into
+     * the database in the background.
+     *
+     * @param dbFilename           the filename of the database
+     * @param journalFilename      the base filename of the journal segments
+     * @param syncPolicy           when the journal forces its writes
+     * @param commitIntervalMillis the interval between group commits, in
+     *                             milliseconds
+     * @throws java.io.UncheckedIOException if recovering the KNN or opening
+     *                                      the journal fails
+     * @throws IllegalStateException        if a journal is already open
+     */
+    void openJournal(String dbFilename, String journalFilename,
+                     JournalSyncPolicy syncPolicy, long commitIntervalMillis);
+
+    /**
+     * Compacts the journal in the background: the current state of the KNN
+     * is saved to the database, and the journal segments it contains are
+     * deleted. The journal keeps recording the mutations meanwhile.
+     *
+     * @throws IllegalStateException if no journal is open
+     */
+    void compactJournal();
+
+    /**
+     * Commits the pending mutations and closes the journal, after waiting
+     * for the compaction in progress, if any.
+     *
+     * @throws java.io.UncheckedIOException if the journal or its compaction
+     *                                      failed
+     */
+    void closeJournal();
 }
@@ -0,0 +1,41 @@
+package knn.api;
+
+/**
+ * The engines available to implement the KNN. See
+ * {@link knn.guice.KnowledgeNodeNetworkModule} to select the engine.
+ */
+public enum KnowledgeNodeNetworkEngine {
+    /**
+     * Searches the KNN through its Tag to KN mapping.
+     */
+    DEFAULT,
+    /**
+     * Searches the KNN through a compiled representation, where Tags are given
+     * integer ids and the KN outputs are stored in integer arrays. The
+     * compiled representation is rebuilt lazily when KNs are added or
+     * deleted, so this engine is best suited for read-mostly KNNs.
+     */
+    COMPILED,
+    /**
+     * Same as {@link #DEFAULT}, but thread-safe: searches and updates may run
+     * concurrently from several threads, without global locking.
+     */
+    CONCURRENT,
+    /**
+     * Stores the KNs outside of the Java heap, indexed by integer Tag ids, so
+     * that the heap does not grow with the number of KNs, and materializes
+     * the KNs as short-lived copies when they are searched or returned.
+     * Suited for KNNs larger than the heap, given enough direct memory
+     * ({@code -XX:MaxDirectMemorySize}).
+     */
+    OFF_HEAP,
+    /**
+     * Partitions the KNs and the active Tags into shards by the hash of their
+     * Tags, each owned by a worker thread, and searches them by exchanging
+     * batches of Tags between the shards, one round per ply, so that the
+     * shards share no mutable state. The number of shards is a setting of
+     * {@link knn.guice.KnowledgeNodeNetworkModule.Builder#shards(int)}, one
+     * per available processor by default.
+     */
+    SHARDED
+}
@@ -0,0 +1,124 @@
+package knn.api;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Progress and throughput counters of a {@link KnowledgeNodeLoader}, updated
+ * during the load. Thread-safe, so that the progress of a load may be polled
+ * from other threads.
+ */
+public final class LoadProgress {
+    private final AtomicLong totalBytes = new AtomicLong();
+    private final AtomicLong parsedBytes = new AtomicLong();
+    private final AtomicLong lines = new AtomicLong();
+    private final AtomicLong knowledgeNodes = new AtomicLong();
+    private final AtomicLong malformedLines = new AtomicLong();
+    private volatile long startNanos = System.nanoTime();
+    private volatile long endNanos;
+
+    /**
+     * Starts the load. Called by the loader, as are the other update methods.
+     *
+     * @param fileBytes the size of the loaded file, in bytes
+     */
+    public void start(final long fileBytes) {
+        totalBytes.set(fileBytes);
+        startNanos = System.nanoTime();
+    }
+
+    /**
+     * Ends the load.
+     */
+    public void end() {
+        endNanos = System.nanoTime();
+    }
+
+    /**
+     * Counts parsed bytes.
+     *
+     * @param bytes the number of bytes parsed
+     */
+    public void addParsedBytes(final long bytes) {
+        parsedBytes.addAndGet(bytes);
+    }
+
+    /**
+     * Counts added lines.
+     *
+     * @param lineCount      the number of lines
+     * @param nodeCount      the number of KNs added from the lines
+     * @param malformedCount the number of malformed lines
+     */
+    public void addLines(final long lineCount, final long nodeCount,
+                         final long malformedCount) {
+        lines.addAndGet(lineCount);
+        knowledgeNodes.addAndGet(nodeCount);
+        malformedLines.addAndGet(malformedCount);
+    }
+
+    /**
+     * @return the size of the loaded file, in bytes
+     */
+    public long getTotalBytes() {
+        return totalBytes.get();
+    }
+
+    /**
+     * @return the number of bytes parsed so far
+     */
+    public long getParsedBytes() {
+        return parsedBytes.get();
+    }
+
+    /**
+     * @return the number of lines added to the KNN so far, including blank
+     * and malformed lines
+     */
+    public long getLines() {
+        return lines.get();
+    }
+
+    /**
+     * @return the number of KNs added to the KNN so far
+     */
+    public long getKnowledgeNodes() {
+        return knowledgeNodes.get();
+    }
+
+    /**
+     * @return the number of malformed lines so far
+     */
+    public long getMalformedLines() {
+        return malformedLines.get();
+    }
+
+    /**
+     * @return the time elapsed since the start of the load, or the duration
+     * of the load if it has ended, in milliseconds
+     */
+    public long getElapsedMillis() {
+        long end = endNanos;
+        if (end == 0) {
+            end = System.nanoTime();
+        }
+        return TimeUnit.NANOSECONDS.toMillis(end - startNanos);
+    }
+
+    /**
+     * @return the number of lines added per second
+     */
+    public double getLinesPerSecond() {
+        final long millis = Math.max(1, getElapsedMillis());
+        return lines.get() * (double) TimeUnit.SECONDS.toMillis(1) / millis;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+                "%d/%d bytes, %d lines, %d KNs, %d malformed, %.0f lines/s",
+                getParsedBytes(), getTotalBytes(), getLines(),
+                getKnowledgeNodes(), getMalformedLines(),
+                getLinesPerSecond());
+    }
+}
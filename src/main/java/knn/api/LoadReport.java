@@ -0,0 +1,93 @@
+package knn.api;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Report of a load by a {@link KnowledgeNodeLoader}.
+ */
+public final class LoadReport {
+    private final LoadProgress progress;
+    private final List<MalformedLine> malformedLines;
+
+    /**
+     * Creates a report.
+     *
+     * @param progress       the final progress of the load
+     * @param malformedLines the first malformed lines, in order
+     */
+    public LoadReport(final LoadProgress progress,
+                      final List<MalformedLine> malformedLines) {
+        this.progress = progress;
+        this.malformedLines = Collections.unmodifiableList(malformedLines);
+    }
+
+    /**
+     * @return the final progress of the load, with its counters
+     */
+    public LoadProgress getProgress() {
+        return progress;
+    }
+
+    /**
+     * @return the first malformed lines, in order. Their total number is given
+     * by {@link LoadProgress#getMalformedLines()}.
+     */
+    public List<MalformedLine> getMalformedLines() {
+        return malformedLines;
+    }
+
+    @Override
+    public String toString() {
+        return progress.toString();
+    }
+
+    /**
+     * Line of a data file which could not be parsed as a KN.
+     */
+    public static final class MalformedLine {
+        private final long lineNumber;
+        private final String line;
+        private final String message;
+
+        /**
+         * Creates a malformed line.
+         *
+         * @param lineNumber the line number, starting from 1
+         * @param line       the line
+         * @param message    the parse error
+         */
+        public MalformedLine(final long lineNumber, final String line,
+                             final String message) {
+            this.lineNumber = lineNumber;
+            this.line = line;
+            this.message = message;
+        }
+
+        /**
+         * @return the line number, starting from 1
+         */
+        public long getLineNumber() {
+            return lineNumber;
+        }
+
+        /**
+         * @return the line
+         */
+        public String getLine() {
+            return line;
+        }
+
+        /**
+         * @return the parse error
+         */
+        public String getMessage() {
+            return message;
+        }
+
+        @Override
+        public String toString() {
+            return lineNumber + ": " + message;
+        }
+    }
+}
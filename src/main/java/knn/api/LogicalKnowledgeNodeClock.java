@@ -0,0 +1,65 @@
+package knn.api;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Clock counting logical ticks: it advances by one tick whenever a search
+ * starts, and only then, or when it is explicitly advanced. The KNs thus age
+ * by the number of searches since their last excitation, and
+ * {@link KnowledgeNode#AGE_THRESHOLD} and the age limit of backward search
+ * count searches, which makes aging deterministic, e.g., in tests.
+ * <p>
+ * New KNs are stamped with the clock when they are added to a KNN, but the
+ * KNs restored with their ages keep their timestamps, e.g., by the wall
+ * clock, so the clock starts at the wall clock time by default; start it at
+ * a fixed time to restore KNs with ages in ticks. Thread-safe.
+ */
+public final class LogicalKnowledgeNodeClock implements KnowledgeNodeClock {
+    private final AtomicLong ticks;
+
+    /**
+     * Creates a clock starting at the current wall clock time.
+     */
+    public LogicalKnowledgeNodeClock() {
+        this(System.currentTimeMillis());
+    }
+
+    /**
+     * Creates a clock starting at the given time.
+     *
+     * @param start the initial time of the clock, in ticks
+     */
+    public LogicalKnowledgeNodeClock(final long start) {
+        this.ticks = new AtomicLong(start);
+    }
+
+    @Override
+    public long currentTime() {
+        return ticks.get();
+    }
+
+    /**
+     * Advances the clock by one tick.
+     *
+     * @return the time of the search
+     */
+    @Override
+    public long searchStarted() {
+        return ticks.incrementAndGet();
+    }
+
+    /**
+     * Advances the clock by the given number of ticks.
+     *
+     * @param delta the number of ticks
+     * @return the new time of the clock
+     * @throws IllegalArgumentException if the number of ticks is negative
+     */
+    public long advance(final long delta) {
+        if (delta < 0) {
+            throw new IllegalArgumentException(
+                    "The clock cannot go backward.");
+        }
+        return ticks.addAndGet(delta);
+    }
+}
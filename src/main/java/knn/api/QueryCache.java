@@ -0,0 +1,80 @@
+package knn.api;
+
+import java.util.Set;
+import tags.Tag;
+
+/**
+ * Cache of the results of read-only queries of a KNN, see
+ * {@link QueryCacheFactory}.
+ * <p>
+ * A query is searched in a new search session of the KNN, see
+ * {@link KnowledgeNodeNetwork#openSession()}: it starts from the activation
+ * of the KNs of the KNN, with no active Tags, and never excites the KNs of
+ * the KNN. Callers which need the searches to excite the KNs search the KNN
+ * itself. The results are cached by query type, input Tags and ply, and are
+ * valid as long as the version of the KNN is unchanged, see
+ * {@link KnowledgeNodeNetwork#getVersion()}: the cache is emptied when it
+ * finds the version changed, and a result is only cached if the version did
+ * not change while it was searched.
+ * <p>
+ * The cache is bounded both by a number of entries and by an estimate of
+ * their size in bytes. When it is full, the least recently used entry is
+ * evicted to admit a new result, but only if the new query was requested
+ * more often than the evicted one, as estimated by a TinyLFU sketch of the
+ * recent queries; otherwise the new result is rejected. Thread-safe, but the
+ * queries may only run concurrently with each other, and with searches and
+ * modifications of the KNN, as its search sessions may.
+ */
+public interface QueryCache {
+
+    /**
+     * @return the KNN queried
+     */
+    KnowledgeNodeNetwork getKnowledgeNodeNetwork();
+
+    /**
+     * Performs read-only forward search, or returns its cached result.
+     *
+     * @param inputTags the input Tags of the search
+     * @param ply       the ply of the search. If set to 0, the search continues
+     *                  until quiescence.
+     * @return the unmodifiable Set of activated Tags resulting from searching
+     * (excluding the input Tags)
+     * @see SearchSession#forwardSearch(Set, int)
+     */
+    Set<Tag> forwardSearch(Set<Tag> inputTags, int ply);
+
+    /**
+     * Performs read-only backward search, or returns its cached result.
+     *
+     * @param inputTags the input Tags of the search
+     * @param ply       the ply of the search. If set to 0, the search continues
+     *                  until quiescence.
+     * @return the unmodifiable Set of activated Tags resulting from searching
+     * (excluding the input Tags)
+     * @see SearchSession#backwardSearch(Set, int)
+     */
+    Set<Tag> backwardSearch(Set<Tag> inputTags, int ply);
+
+    /**
+     * Performs read-only lambda search, or returns its cached result.
+     *
+     * @param inputTags the input Tags of the search
+     * @param ply       the ply of the search. If set to 0, the search continues
+     *                  until quiescence.
+     * @return the unmodifiable Set of activated Tags resulting from searching
+     * (excluding the input Tags)
+     * @see SearchSession#lambdaSearch(Set, int)
+     */
+    Set<Tag> lambdaSearch(Set<Tag> inputTags, int ply);
+
+    /**
+     * Discards all the cached results.
+     */
+    void invalidateAll();
+
+    /**
+     * @return the statistics of the cache since it was created
+     */
+    QueryCacheStats getStats();
+}
@@ -0,0 +1,25 @@
+package knn.api;
+
+import com.google.inject.Inject;
+import com.google.inject.assistedinject.Assisted;
+
+/**
+ * Guice factory to create the query caches of a KNN.
+ */
+public interface QueryCacheFactory {
+    /**
+     * Creates an empty query cache of a KNN.
+     *
+     * @param knn        the KNN queried
+     * @param maxEntries the maximum number of cached results
+     * @param maxBytes   the maximum estimated size of the cached results, in
+     *                   bytes
+     * @return the query cache of the KNN
+     * @throws IllegalArgumentException if a bound is not positive
+     */
+    @Inject
+    QueryCache create(
+            @Assisted KnowledgeNodeNetwork knn,
+            @Assisted int maxEntries,
+            @Assisted long maxBytes);
+}
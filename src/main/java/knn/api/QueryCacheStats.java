@@ -0,0 +1,115 @@
+package knn.api;
+
+/**
+ * Statistics of a {@link QueryCache}.
+ */
+public final class QueryCacheStats {
+    private final long hits;
+    private final long misses;
+    private final long evictions;
+    private final long rejections;
+    private final long invalidations;
+    private final int entries;
+    private final long bytes;
+
+    /**
+     * Creates statistics.
+     *
+     * @param hits          the number of queries answered from the cache
+     * @param misses        the number of queries searched
+     * @param evictions     the number of results evicted to admit others
+     * @param rejections    the number of results not admitted
+     * @param invalidations the number of results discarded as outdated or
+     *                      invalidated
+     * @param entries       the number of cached results
+     * @param bytes         the estimated size of the cached results, in bytes
+     */
+    public QueryCacheStats(final long hits, final long misses,
+                           final long evictions, final long rejections,
+                           final long invalidations, final int entries,
+                           final long bytes) {
+        this.hits = hits;
+        this.misses = misses;
+        this.evictions = evictions;
+        this.rejections = rejections;
+        this.invalidations = invalidations;
+        this.entries = entries;
+        this.bytes = bytes;
+    }
+
+    /**
+     * @return the number of queries answered from the cache
+     */
+    public long getHits() {
+        return hits;
+    }
+
+    /**
+     * @return the number of queries searched, since their result was not
+     * cached
+     */
+    public long getMisses() {
+        return misses;
+    }
+
+    /**
+     * @return the number of results evicted to admit others
+     */
+    public long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * @return the number of results not admitted, since they were requested
+     * less often than the results they would have evicted, or were too
+     * large for the cache
+     */
+    public long getRejections() {
+        return rejections;
+    }
+
+    /**
+     * @return the number of results discarded since the version of the KNN
+     * changed, or by {@link QueryCache#invalidateAll()}
+     */
+    public long getInvalidations() {
+        return invalidations;
+    }
+
+    /**
+     * @return the number of cached results
+     */
+    public int getEntries() {
+        return entries;
+    }
+
+    /**
+     * @return the estimated size of the cached results, in bytes
+     */
+    public long getBytes() {
+        return bytes;
+    }
+
+    /**
+     * @return the ratio of the queries answered from the cache
+     */
+    public double getHitRate() {
+        final long requests = hits + misses;
+        if (requests == 0) {
+            return 0;
+        }
+        return (double) hits / requests;
+    }
+
+    @Override
+    public String toString() {
+        return "QueryCacheStats{hits=" + hits
+                + ", misses=" + misses
+                + ", evictions=" + evictions
+                + ", rejections=" + rejections
+                + ", invalidations=" + invalidations
+                + ", entries=" + entries
+                + ", bytes=" + bytes
+                + '}';
+    }
+}
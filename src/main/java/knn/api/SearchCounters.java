@@ -0,0 +1,151 @@
+package knn.api;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import tags.Tag;
+
+/**
+ * Search listener which counts the events of each search, and adds them up
+ * over all the searches, e.g., to size KNNs or to spot pathological queries.
+ * <p>
+ * The statistics of each search are passed to a consumer when the search
+ * ends, on the searching thread, and are included in the totals returned by
+ * {@link #getTotals()}. Thread-safe.
+ */
+public final class SearchCounters implements SearchListener {
+    private final Consumer<SearchStats> searchConsumer;
+    private long searches;
+    private long plies;
+    private long[] visitedPerPly;
+    private long visited;
+    private long fired;
+    private long expired;
+    private long activatedTags;
+    private long elapsedNanos;
+
+    /**
+     * Creates counters which only keep the totals.
+     */
+    public SearchCounters() {
+        this(stats -> {
+        });
+    }
+
+    /**
+     * Creates counters which also pass the statistics of each search to the
+     * given consumer.
+     *
+     * @param searchConsumer the consumer of the statistics of each search
+     */
+    public SearchCounters(final Consumer<SearchStats> searchConsumer) {
+        this.searchConsumer = searchConsumer;
+        this.visitedPerPly = new long[0];
+    }
+
+    @Override
+    public SearchTrace searchStarted(final SearchType type) {
+        return new Trace(type);
+    }
+
+    /**
+     * @return the statistics of all the searches ended so far
+     */
+    public synchronized SearchStats getTotals() {
+        return new SearchStats(null, searches, plies, visitedPerPly, visited,
+                fired, expired, activatedTags, elapsedNanos);
+    }
+
+    /**
+     * Adds the statistics of a search to the totals.
+     *
+     * @param stats the statistics of the search
+     * @param ply   the number of plies of the search
+     */
+    private synchronized void add(final SearchStats stats, final int ply) {
+        searches += stats.getSearches();
+        plies += stats.getPlies();
+        if (visitedPerPly.length < ply) {
+            visitedPerPly = Arrays.copyOf(visitedPerPly, ply);
+        }
+        for (int i = 0; i < ply; i++) {
+            visitedPerPly[i] += stats.getVisited(i);
+        }
+        visited += stats.getVisited();
+        fired += stats.getFired();
+        expired += stats.getExpired();
+        activatedTags += stats.getActivatedTags();
+        elapsedNanos += stats.getElapsedNanos();
+    }
+
+    /**
+     * The counters of a search. The KN and activation events may come from
+     * several threads, and are counted by adders.
+     */
+    private final class Trace implements SearchTrace {
+        private final SearchType type;
+        private final long startNanos;
+        private final LongAdder visitedAdder = new LongAdder();
+        private final LongAdder firedAdder = new LongAdder();
+        private final LongAdder expiredAdder = new LongAdder();
+        private final LongAdder activatedAdder = new LongAdder();
+        private final List<Long> plyVisited = new ArrayList<>();
+        private long plyStartVisited;
+
+        /**
+         * Starts counting a search.
+         *
+         * @param type the type of the search
+         */
+        private Trace(final SearchType type) {
+            this.type = type;
+            this.startNanos = System.nanoTime();
+        }
+
+        @Override
+        public void plyStarted(final int ply, final int inputTags) {
+            plyStartVisited = visitedAdder.sum();
+        }
+
+        @Override
+        public void knowledgeNodeVisited(final Tag inputTag) {
+            visitedAdder.increment();
+        }
+
+        @Override
+        public void knowledgeNodeFired(final Tag inputTag) {
+            firedAdder.increment();
+        }
+
+        @Override
+        public void knowledgeNodeExpired(final Tag inputTag) {
+            expiredAdder.increment();
+        }
+
+        @Override
+        public void tagsActivated(final int count) {
+            activatedAdder.add(count);
+        }
+
+        @Override
+        public void plyEnded(final int ply, final int activatedTags) {
+            plyVisited.add(visitedAdder.sum() - plyStartVisited);
+        }
+
+        @Override
+        public void searchEnded() {
+            final long[] visitedPerPly = new long[plyVisited.size()];
+            for (int i = 0; i < visitedPerPly.length; i++) {
+                visitedPerPly[i] = plyVisited.get(i);
+            }
+            final SearchStats stats = new SearchStats(type, 1,
+                    visitedPerPly.length, visitedPerPly, visitedAdder.sum(),
+                    firedAdder.sum(), expiredAdder.sum(),
+                    activatedAdder.sum(), System.nanoTime() - startNanos);
+            add(stats, visitedPerPly.length);
+            searchConsumer.accept(stats);
+        }
+    }
+}
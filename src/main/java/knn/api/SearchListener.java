@@ -0,0 +1,31 @@
+package knn.api;
+
+/**
+ * Listener of the searches of a KNN, e.g., to measure them. The listener is
+ * given to the {@link knn.guice.KnowledgeNodeNetworkModule}, and is notified
+ * of every search of the KNNs and search sessions created by the module.
+ * <p>
+ * The listener is called when a search starts, and returns the trace which
+ * is then called with the events of that search only, so that concurrent
+ * searches never share a trace. The listener itself must be thread-safe if
+ * the KNN is searched from several threads.
+ *
+ * @see SearchCounters
+ */
+@FunctionalInterface
+public interface SearchListener {
+    /**
+     * The listener which ignores all searches, used by default. Its trace
+     * does nothing, so that the searchers' calls to it are eliminated by the
+     * JIT compiler.
+     */
+    SearchListener NONE = type -> SearchTrace.NONE;
+
+    /**
+     * Called on the searching thread when a search starts.
+     *
+     * @param type the type of the search
+     * @return the trace of the events of the search
+     */
+    SearchTrace searchStarted(SearchType type);
+}
@@ -0,0 +1,217 @@
+package knn.api;
+
+import java.util.List;
+import java.util.Set;
+import tags.Tag;
+
+/**
+ * A search session on a KNN: a lightweight handle with its own active Tags
+ * and its own activation of the KNs, on top of the KNs of the KNN.
+ * <p>
+ * A KN is copied the first time the session accesses it, and only the copy
+ * is excited, so the searches of a session never change the KNN, and the
+ * sessions of a KNN never see each other's activations. The KNs which expire
+ * in a session are only deleted from the session. The sessions of a KNN may
+ * be searched concurrently, but not while the KNN itself is modified or
+ * searched, unless the KNN is {@link KnowledgeNodeNetworkEngine#CONCURRENT},
+ * or {@link KnowledgeNodeNetworkEngine#SHARDED}, whose sessions are searched
+ * by the shard threads of the KNN.
+ *
+ * @see KnowledgeNodeNetwork#openSession()
+ */
+public interface SearchSession {
+
+    /**
+     * Deactivates all the active Tags of the session.
+     */
+    void clearActiveTags();
+
+    /**
+     * Adds an active Tag to the session.
+     *
+     * @param tag the active Tag to be added
+     */
+    void addActiveTag(Tag tag);
+
+    /**
+     * Adds multiple active Tags to the session.
+     *
+     * @param tags the Tags to be added
+     */
+    void addActiveTags(Tag... tags);
+
+    /**
+     * Gets the currently active Tags of the session.
+     *
+     * @return the currently active Tags
+     */
+    Set<Tag> getActiveTags();
+
+    /**
+     * Gets the KN associated with the given input Tag, as seen by the
+     * session, i.e., with its activation in the session if the session has
+     * excited it.
+     *
+     * @param tag the KN input Tag
+     * @return the KN associated with the Tag, or null if there is none
+     */
+    KnowledgeNode getKnowledgeNode(Tag tag);
+
+    /**
+     * Performs direct search in the session.
+     *
+     * @param inputTag the input Tag of the search
+     * @return the Set of activated Tags resulting from searching (excluding the
+     * input Tag)
+     * @see KnowledgeNodeNetwork#directSearch(Tag)
+     */
+    Set<Tag> directSearch(Tag inputTag);
+
+    /**
+     * Performs forward search in the session.
+     *
+     * @param inputTags the input Tags of the search
+     * @param ply       the ply of the search. If set to 0, the search continues
+     *                  until quiescence.
+     * @return the Set of activated Tags resulting from searching (excluding the
+     * input Tags)
+     * @see KnowledgeNodeNetwork#forwardSearch(Set, int)
+     */
+    Set<Tag> forwardSearch(Set<Tag> inputTags, int ply);
+
+    /**
+     * Performs beam search in the session.
+     *
+     * @param inputTags the input Tags of the search
+     * @param ply       the ply of the search. If set to 0, the search continues
+     *                  until quiescence.
+     * @param beamWidth the maximum number of Tags activated by each ply
+     * @return the Set of activated Tags resulting from searching (excluding the
+     * input Tags)
+     * @throws IllegalArgumentException if the beam width is not positive
+     * @see KnowledgeNodeNetwork#forwardSearch(Set, int, int)
+     */
+    Set<Tag> forwardSearch(Set<Tag> inputTags, int ply, int beamWidth);
+
+    /**
+     * Performs forward search for several independent queries in the
+     * session, in one pass.
+     *
+     * @param inputs the input Tags of each query
+     * @param ply    the ply of each query. If set to 0, each query continues
+     *               until quiescence.
+     * @return the Set of activated Tags resulting from searching each query
+     * (excluding its input Tags), in the order of the queries
+     * @see KnowledgeNodeNetwork#forwardSearchBatch(List, int)
+     */
+    List<Set<Tag>> forwardSearchBatch(List<Set<Tag>> inputs, int ply);
+
+    /**
+     * Performs forward thinking with the active Tags of the session.
+     *
+     * @param ply the ply of the search. If set to 0, the search continues until
+     *            quiescence.
+     * @return the Set of activated Tags resulting from searching (excluding the
+     * input Tags)
+     */
+    Set<Tag> forwardThink(int ply);
+
+    /**
+     * Performs backward search in the session.
+     *
+     * @param inputTags the input Tags of the search
+     * @param ply       the ply of the search. If set to 0, the search continues
+     *                  until quiescence.
+     * @return the Set of activated Tags resulting from searching (excluding the
+     * input Tags)
+     * @see KnowledgeNodeNetwork#backwardSearch(Set, int)
+     */
+    Set<Tag> backwardSearch(Set<Tag> inputTags, int ply);
+
+    /**
+     * Performs backward search for several independent queries in the
+     * session, in one pass.
+     *
+     * @param inputs the input Tags of each query
+     * @param ply    the ply of each query. If set to 0, each query continues
+     *               until quiescence.
+     * @return the Set of activated Tags resulting from searching each query
+     * (excluding its input Tags), in the order of the queries
+     * @see KnowledgeNodeNetwork#backwardSearchBatch(List, int)
+     */
+    List<Set<Tag>> backwardSearchBatch(List<Set<Tag>> inputs, int ply);
+
+    /**
+     * Performs backward thinking with the active Tags of the session.
+     *
+     * @param ply the ply of the search. If set to 0, the search continues until
+     *            quiescence.
+     * @return the Set of activated Tags resulting from searching (excluding the
+     * input Tags)
+     */
+    Set<Tag> backwardThink(int ply);
+
+    /**
+     * Sets the search matching ratio for the backward searches of the
+     * session, which starts with the ratio of the KNN.
+     *
+     * @param ratio the backward search match ratio
+     * @see KnowledgeNodeNetwork#setBackwardSearchMatchRatio(double)
+     */
+    void setBackwardSearchMatchRatio(double ratio);
+
+    /**
+     * Performs lambda search in the session.
+     *
+     * @param inputTags the input Tags of the search
+     * @param ply       the ply of the search. If set to 0, the search continues
+     *                  until quiescence.
+     * @return the Set of activated Tags resulting from searching (excluding the
+     * input Tags)
+     * @see KnowledgeNodeNetwork#lambdaSearch(Set, int)
+     */
+    Set<Tag> lambdaSearch(Set<Tag> inputTags, int ply);
+
+    /**
+     * Performs lambda search in the session, with beam search as the forward
+     * search.
+     *
+     * @param inputTags the input Tags of the search
+     * @param ply       the ply of the search. If set to 0, the search continues
+     *                  until quiescence.
+     * @param beamWidth the maximum number of Tags activated by each ply of
+     *                  the forward search
+     * @return the Set of activated Tags resulting from searching (excluding the
+     * input Tags)
+     * @throws IllegalArgumentException if the beam width is not positive
+     * @see KnowledgeNodeNetwork#lambdaSearch(Set, int, int)
+     */
+    Set<Tag> lambdaSearch(Set<Tag> inputTags, int ply, int beamWidth);
+
+    /**
+     * Performs lambda thinking with the active Tags of the session.
+     *
+     * @param ply the ply of the search. If set to 0, the search continues until
+     *            quiescence.
+     * @return the Set of activated Tags resulting from searching (excluding the
+     * input Tags)
+     */
+    Set<Tag> lambdaThink(int ply);
+
+    /**
+     * Performs bidirectional search in the session.
+     *
+     * @param inputTags the input Tags of the search
+     * @param goalTags  the goal Tags of the search
+     * @param ply       the total number of plies, on both sides. If set to 0,
+     *                  the search continues until the two sides meet or
+     *                  quiescence.
+     * @param budget    the maximum number of Tags to search from, on both
+     *                  sides. If set to 0, there is no limit.
+     * @return the Tags reached on each side, and the Tags connecting them
+     * @throws IllegalArgumentException if the budget is negative
+     * @see KnowledgeNodeNetwork#bidirectionalSearch(Set, Set, int, int)
+     */
+    BidirectionalSearchResult bidirectionalSearch(
+            Set<Tag> inputTags, Set<Tag> goalTags, int ply, int budget);
+}
@@ -0,0 +1,152 @@
+package knn.api;
+
+import java.util.Arrays;
+
+/**
+ * Statistics of a search, or of all the searches of a KNN, measured by
+ * {@link SearchCounters}.
+ */
+public final class SearchStats {
+    private final SearchType type;
+    private final long searches;
+    private final long plies;
+    private final long[] visitedPerPly;
+    private final long visited;
+    private final long fired;
+    private final long expired;
+    private final long activatedTags;
+    private final long elapsedNanos;
+
+    /**
+     * Creates statistics.
+     *
+     * @param type          the type of the search, or null for several
+     *                      searches
+     * @param searches      the number of searches
+     * @param plies         the number of plies
+     * @param visitedPerPly the number of KNs visited by each ply, by index
+     * @param visited       the number of KNs visited
+     * @param fired         the number of KNs fired
+     * @param expired       the number of KNs expired
+     * @param activatedTags the number of activated Tags
+     * @param elapsedNanos  the time spent searching, in nanoseconds
+     */
+    public SearchStats(final SearchType type, final long searches,
+                       final long plies, final long[] visitedPerPly,
+                       final long visited, final long fired,
+                       final long expired, final long activatedTags,
+                       final long elapsedNanos) {
+        this.type = type;
+        this.searches = searches;
+        this.plies = plies;
+        this.visitedPerPly = visitedPerPly.clone();
+        this.visited = visited;
+        this.fired = fired;
+        this.expired = expired;
+        this.activatedTags = activatedTags;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    /**
+     * @return the type of the search, or null for the statistics of several
+     * searches
+     */
+    public SearchType getType() {
+        return type;
+    }
+
+    /**
+     * @return the number of searches
+     */
+    public long getSearches() {
+        return searches;
+    }
+
+    /**
+     * @return the number of plies searched
+     */
+    public long getPlies() {
+        return plies;
+    }
+
+    /**
+     * @param ply the index of a ply, from 0
+     * @return the number of KNs visited by the ply, summed over the searches
+     */
+    public long getVisited(final int ply) {
+        if (ply < visitedPerPly.length) {
+            return visitedPerPly[ply];
+        }
+        return 0;
+    }
+
+    /**
+     * @return the number of KNs visited, including by direct searches, which
+     * have no plies
+     */
+    public long getVisited() {
+        return visited;
+    }
+
+    /**
+     * @return the number of KNs fired, or matched in backward search
+     */
+    public long getFired() {
+        return fired;
+    }
+
+    /**
+     * @return the number of expired KNs deleted
+     */
+    public long getExpired() {
+        return expired;
+    }
+
+    /**
+     * @return the number of activated Tags
+     */
+    public long getActivatedTags() {
+        return activatedTags;
+    }
+
+    /**
+     * @return the time spent searching, in nanoseconds
+     */
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * @return the mean number of Tags activated per fired KN
+     */
+    public double getFanOut() {
+        if (fired == 0) {
+            return 0;
+        }
+        return (double) activatedTags / fired;
+    }
+
+    /**
+     * @return the ratio of the visited KNs which fired
+     */
+    public double getHitRate() {
+        if (visited == 0) {
+            return 0;
+        }
+        return (double) fired / visited;
+    }
+
+    @Override
+    public String toString() {
+        return "SearchStats{type=" + type
+                + ", searches=" + searches
+                + ", plies=" + plies
+                + ", visitedPerPly=" + Arrays.toString(visitedPerPly)
+                + ", visited=" + visited
+                + ", fired=" + fired
+                + ", expired=" + expired
+                + ", activatedTags=" + activatedTags
+                + ", elapsedNanos=" + elapsedNanos
+                + '}';
+    }
+}
@@ -0,0 +1,81 @@
+package knn.api;
+
+import tags.Tag;
+
+/**
+ * The events of a single search, see {@link SearchListener}. All the events
+ * are ignored by default.
+ * <p>
+ * The ply and search events are called by the searching thread. The KN and
+ * activation events may be called concurrently by the threads of a parallel
+ * ply, e.g., in the {@link KnowledgeNodeNetworkEngine#CONCURRENT} engine.
+ */
+public interface SearchTrace {
+    /**
+     * The trace which ignores all events.
+     */
+    SearchTrace NONE = new SearchTrace() {
+    };
+
+    /**
+     * Called when a ply of a forward, backward or bidirectional search
+     * starts.
+     *
+     * @param ply       the index of the ply in the search, from 0
+     * @param inputTags the number of input Tags of the ply
+     */
+    default void plyStarted(final int ply, final int inputTags) {
+    }
+
+    /**
+     * Called when a KN is visited: excited in forward search, or matched
+     * against the input Tags in backward search.
+     *
+     * @param inputTag the input Tag of the KN
+     */
+    default void knowledgeNodeVisited(final Tag inputTag) {
+    }
+
+    /**
+     * Called when a visited KN fires in forward search, or matches the input
+     * Tags in backward search.
+     *
+     * @param inputTag the input Tag of the KN
+     */
+    default void knowledgeNodeFired(final Tag inputTag) {
+    }
+
+    /**
+     * Called when a visited KN is deleted from the KNN as expired.
+     *
+     * @param inputTag the input Tag of the KN
+     */
+    default void knowledgeNodeExpired(final Tag inputTag) {
+    }
+
+    /**
+     * Called when Tags are activated: the output Tags of a fired KN in
+     * forward search, or the input Tags of the KNs matched by a ply in
+     * backward search.
+     *
+     * @param count the number of Tags
+     */
+    default void tagsActivated(final int count) {
+    }
+
+    /**
+     * Called when a ply ends.
+     *
+     * @param ply           the index of the ply in the search, from 0
+     * @param activatedTags the number of Tags activated by the ply
+     */
+    default void plyEnded(final int ply, final int activatedTags) {
+    }
+
+    /**
+     * Called on the searching thread when the search ends. A trace which
+     * needs the elapsed time of the search measures it from its creation.
+     */
+    default void searchEnded() {
+    }
+}
@@ -0,0 +1,26 @@
+package knn.api;
+
+/**
+ * The types of searches reported to a {@link SearchListener}. Lambda search
+ * is reported as a backward search followed by a forward search, and beam
+ * search as a forward search.
+ */
+public enum SearchType {
+    /**
+     * Direct search, see {@link KnowledgeNodeNetwork#directSearch}.
+     */
+    DIRECT,
+    /**
+     * Forward search, see {@link KnowledgeNodeNetwork#forwardSearch}.
+     */
+    FORWARD,
+    /**
+     * Backward search, see {@link KnowledgeNodeNetwork#backwardSearch}.
+     */
+    BACKWARD,
+    /**
+     * Bidirectional search, see
+     * {@link KnowledgeNodeNetwork#bidirectionalSearch}.
+     */
+    BIDIRECTIONAL
+}
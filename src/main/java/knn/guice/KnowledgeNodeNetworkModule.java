@@ -1,14 +1,224 @@
 package knn.guice;
 
+import java.util.concurrent.ForkJoinPool;
 import com.google.inject.AbstractModule;
+import knn.api.BackwardSearchApproximation;
+import knn.api.KnowledgeNodeClock;
+import knn.api.KnowledgeNodeNetworkEngine;
+import knn.api.SearchListener;
 import knn.internal.KnowledgeNodeNetworkInternalModule;
 
 /**
- * Public Guice module for the KNN.
+ * Public Guice module for the KNN. The settings other than the engine are
+ * given to a {@link Builder}, see {@link #builder()}.
  */
 public final class KnowledgeNodeNetworkModule extends AbstractModule {
+    private final KnowledgeNodeNetworkEngine engine;
+    private final ForkJoinPool searchPool;
+    private final int searchSplitThreshold;
+    private final int shards;
+    private final SearchListener searchListener;
+    private final KnowledgeNodeClock clock;
+    private final BackwardSearchApproximation backwardSearchApproximation;
+    private final boolean asyncSearch;
+
+    /**
+     * Creates the KNN module with the default engine and settings.
+     */
+    public KnowledgeNodeNetworkModule() {
+        this(KnowledgeNodeNetworkEngine.DEFAULT);
+    }
+
+    /**
+     * Creates the KNN module with the given engine and the default settings.
+     *
+     * @param engine the engine implementing the KNN
+     */
+    public KnowledgeNodeNetworkModule(
+            final KnowledgeNodeNetworkEngine engine) {
+        this(builder().engine(engine));
+    }
+
+    /**
+     * Creates the KNN module with the settings of the given builder.
+     *
+     * @param builder the builder
+     */
+    private KnowledgeNodeNetworkModule(final Builder builder) {
+        this.engine = builder.engine;
+        this.searchPool = builder.searchPool;
+        this.searchSplitThreshold = builder.searchSplitThreshold;
+        this.shards = builder.shards;
+        this.searchListener = builder.searchListener;
+        this.clock = builder.clock;
+        this.backwardSearchApproximation =
+                builder.backwardSearchApproximation;
+        this.asyncSearch = builder.asyncSearch;
+    }
+
+    /**
+     * @return a builder of the KNN module, with the default engine and
+     * settings
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
     @Override
     protected void configure() {
-        install(new KnowledgeNodeNetworkInternalModule());
+        install(new KnowledgeNodeNetworkInternalModule(engine,
+                searchPool, searchSplitThreshold, shards, searchListener,
+                clock, backwardSearchApproximation, asyncSearch));
+    }
+
+    /**
+     * Builder of the KNN module. Each setting is optional, and defaults to
+     * the value documented by its setter.
+     */
+    public static final class Builder {
+        private KnowledgeNodeNetworkEngine engine =
+                KnowledgeNodeNetworkEngine.DEFAULT;
+        private ForkJoinPool searchPool;
+        private int searchSplitThreshold = KnowledgeNodeNetworkInternalModule
+                .DEFAULT_SEARCH_SPLIT_THRESHOLD;
+        private int shards =
+                KnowledgeNodeNetworkInternalModule.AVAILABLE_PROCESSORS;
+        private SearchListener searchListener = SearchListener.NONE;
+        private KnowledgeNodeClock clock = KnowledgeNodeClock.SYSTEM;
+        private BackwardSearchApproximation backwardSearchApproximation =
+                BackwardSearchApproximation.EXACT;
+        private boolean asyncSearch;
+
+        /**
+         * Creates a builder with the default engine and settings.
+         */
+        private Builder() {
+        }
+
+        /**
+         * Sets the engine, {@link KnowledgeNodeNetworkEngine#DEFAULT} by
+         * default.
+         *
+         * @param knnEngine the engine implementing the KNN
+         * @return this builder
+         */
+        public Builder engine(final KnowledgeNodeNetworkEngine knnEngine) {
+            this.engine = knnEngine;
+            return this;
+        }
+
+        /**
+         * Sets the pool running parallel search, none by default. Backward
+         * search is run in parallel on the given pool by all the engines,
+         * and forward search only by the
+         * {@link KnowledgeNodeNetworkEngine#CONCURRENT} engine, which also
+         * searches in parallel on the common pool when no pool is given. The
+         * {@link KnowledgeNodeNetworkEngine#SHARDED} engine runs both on its
+         * own shard threads instead, see {@link #shards(int)}.
+         *
+         * @param pool the pool running parallel search, or null to search
+         *             serially unless the engine is thread-safe
+         * @return this builder
+         */
+        public Builder searchPool(final ForkJoinPool pool) {
+            this.searchPool = pool;
+            return this;
+        }
+
+        /**
+         * Sets the number of input Tags or KNs of a ply below which the ply
+         * is not split across threads, {@link
+         * KnowledgeNodeNetworkInternalModule#DEFAULT_SEARCH_SPLIT_THRESHOLD}
+         * by default.
+         *
+         * @param threshold the split threshold
+         * @return this builder
+         */
+        public Builder searchSplitThreshold(final int threshold) {
+            this.searchSplitThreshold = threshold;
+            return this;
+        }
+
+        /**
+         * Sets the number of shards of the
+         * {@link KnowledgeNodeNetworkEngine#SHARDED} engine, each run by its
+         * own thread, one per available processor by default.
+         *
+         * @param count the number of shards
+         * @return this builder
+         * @throws IllegalArgumentException if the number of shards is not
+         *                                  positive
+         */
+        public Builder shards(final int count) {
+            if (count <= 0) {
+                throw new IllegalArgumentException(
+                        "The number of shards must be positive.");
+            }
+            this.shards = count;
+            return this;
+        }
+
+        /**
+         * Sets the listener of the searches, {@link SearchListener#NONE} by
+         * default.
+         *
+         * @param listener the listener of the searches
+         * @return this builder
+         */
+        public Builder searchListener(final SearchListener listener) {
+            this.searchListener = listener;
+            return this;
+        }
+
+        /**
+         * Sets the clock aging the KNs, {@link KnowledgeNodeClock#SYSTEM} by
+         * default.
+         *
+         * @param knowledgeNodeClock the clock aging the KNs
+         * @return this builder
+         */
+        public Builder clock(final KnowledgeNodeClock knowledgeNodeClock) {
+            this.clock = knowledgeNodeClock;
+            return this;
+        }
+
+        /**
+         * Sets the settings of the approximate backward search,
+         * {@link BackwardSearchApproximation#EXACT} by default. Only the
+         * {@link KnowledgeNodeNetworkEngine#DEFAULT},
+         * {@link KnowledgeNodeNetworkEngine#COMPILED} and
+         * {@link KnowledgeNodeNetworkEngine#SHARDED} engines support the
+         * approximation; the other engines ignore it.
+         *
+         * @param approximation the settings of the approximate backward
+         *                      search
+         * @return this builder
+         */
+        public Builder backwardSearchApproximation(
+                final BackwardSearchApproximation approximation) {
+            this.backwardSearchApproximation = approximation;
+            return this;
+        }
+
+        /**
+         * Sets whether the KNNs may be searched asynchronously, through the
+         * bound {@link knn.api.AsyncKnowledgeNodeNetworkFactory}, false by
+         * default. The searches are then cancellable, at the cost of a
+         * thread-local lookup as each search starts, asynchronous or not.
+         *
+         * @param enabled true to bind the asynchronous searches
+         * @return this builder
+         */
+        public Builder asyncSearch(final boolean enabled) {
+            this.asyncSearch = enabled;
+            return this;
+        }
+
+        /**
+         * @return the KNN module with the settings of this builder
+         */
+        public KnowledgeNodeNetworkModule build() {
+            return new KnowledgeNodeNetworkModule(this);
+        }
     }
 }
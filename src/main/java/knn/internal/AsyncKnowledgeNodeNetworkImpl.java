@@ -0,0 +1,111 @@
+package knn.internal;
+
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+import async.AsyncTasks;
+import async.SerialExecutor;
+import com.google.inject.Inject;
+import com.google.inject.assistedinject.Assisted;
+import com.google.inject.name.Named;
+import knn.api.AsyncKnowledgeNodeNetwork;
+import knn.api.BidirectionalSearchResult;
+import knn.api.KnowledgeNodeNetwork;
+import tags.Tag;
+
+/**
+ * Implementation of the asynchronous searches of a KNN, running each search
+ * as a cancellable task, see {@link AsyncTasks}, which stops at its next ply
+ * once cancelled, see {@link CancellableSearchListener}. Unless the engine
+ * is thread-safe, the searches are queued on a {@link SerialExecutor} of the
+ * KNN, so that they run one at a time, without holding a thread while they
+ * wait.
+ */
+final class AsyncKnowledgeNodeNetworkImpl
+        implements AsyncKnowledgeNodeNetwork {
+    private final KnowledgeNodeNetwork knn;
+    private final Executor executor;
+    private final CancellableSearchListener searchListener;
+
+    @Inject
+    AsyncKnowledgeNodeNetworkImpl(
+            @Assisted final KnowledgeNodeNetwork knn,
+            @Assisted final Executor executor,
+            @Named("serialSearch") final boolean serialSearch,
+            final CancellableSearchListener searchListener) {
+        this.knn = knn;
+        this.executor = getExecutor(executor, serialSearch);
+        this.searchListener = searchListener;
+    }
+
+    /**
+     * @param executor     the executor running the searches
+     * @param serialSearch true if the searches must run one at a time
+     * @return the executor running the searches, one at a time if needed
+     */
+    private static Executor getExecutor(final Executor executor,
+                                        final boolean serialSearch) {
+        if (serialSearch) {
+            return new SerialExecutor(executor);
+        }
+        return executor;
+    }
+
+    @Override
+    public KnowledgeNodeNetwork getKnowledgeNodeNetwork() {
+        return knn;
+    }
+
+    @Override
+    public CompletableFuture<Set<Tag>> directSearchAsync(final Tag inputTag) {
+        return submit(() -> knn.directSearch(inputTag));
+    }
+
+    @Override
+    public CompletableFuture<Set<Tag>> forwardSearchAsync(
+            final Set<Tag> inputTags, final int ply) {
+        return submit(() -> knn.forwardSearch(inputTags, ply));
+    }
+
+    @Override
+    public CompletableFuture<Set<Tag>> forwardSearchAsync(
+            final Set<Tag> inputTags, final int ply, final int beamWidth) {
+        return submit(() -> knn.forwardSearch(inputTags, ply, beamWidth));
+    }
+
+    @Override
+    public CompletableFuture<Set<Tag>> backwardSearchAsync(
+            final Set<Tag> inputTags, final int ply) {
+        return submit(() -> knn.backwardSearch(inputTags, ply));
+    }
+
+    @Override
+    public CompletableFuture<Set<Tag>> lambdaSearchAsync(
+            final Set<Tag> inputTags, final int ply) {
+        return submit(() -> knn.lambdaSearch(inputTags, ply));
+    }
+
+    @Override
+    public CompletableFuture<BidirectionalSearchResult>
+            bidirectionalSearchAsync(
+                    final Set<Tag> inputTags, final Set<Tag> goalTags,
+                    final int ply, final int budget) {
+        return submit(() ->
+                knn.bidirectionalSearch(inputTags, goalTags, ply, budget));
+    }
+
+    /**
+     * Runs a search on the executor, as a cancellable search of the KNN. A
+     * KNN of another module is only cancelled before the search starts.
+     *
+     * @param search the search
+     * @param <T>    the type of the search result
+     * @return the future result of the search
+     */
+    private <T> CompletableFuture<T> submit(final Supplier<T> search) {
+        return AsyncTasks.supplyAsync(
+                cancelled -> searchListener.search(search, cancelled),
+                executor);
+    }
+}
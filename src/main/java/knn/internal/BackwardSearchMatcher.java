@@ -2,14 +2,39 @@ package knn.internal;
 
 import java.util.Optional;
 import java.util.Set;
+import com.google.inject.Inject;
+import knn.api.BackwardSearchApproximation;
 import knn.api.KnowledgeNode;
 import tags.Tag;
 
 /**
  * Matcher which checks if a given KN matches a set of input Tags. Used during
  * backward search in the KNN.
+ * <p>
+ * If backward search is approximate and does not verify its candidates, the
+ * KNs to match have already been estimated to match by a
+ * {@link MinHashIndex}, and are trusted.
  */
 class BackwardSearchMatcher {
+    private final boolean verified;
+
+    /**
+     * Creates a matcher for the exact backward search.
+     */
+    BackwardSearchMatcher() {
+        this(BackwardSearchApproximation.EXACT);
+    }
+
+    /**
+     * Creates a matcher.
+     *
+     * @param approximation the settings of the approximate backward search
+     */
+    @Inject
+    BackwardSearchMatcher(final BackwardSearchApproximation approximation) {
+        this.verified = approximation.isVerified();
+    }
+
     /**
      * Checks if the given KN's output Tags match the given input Tags,
      * according to the given number of required matches.
@@ -23,6 +48,9 @@ class BackwardSearchMatcher {
      */
     public Optional<Tag> match(final Set<Tag> inputTags, final KnowledgeNode kn,
                                final int numRequiredMatches) {
+        if (!verified) {
+            return Optional.of(kn.getInputTag());
+        }
         int matchCount = 0;
         for (final Tag t : inputTags) {
             if (kn.getOutputTags().contains(t)) {
@@ -1,12 +1,20 @@
 package knn.internal;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
-import java.util.TreeSet;
 import com.google.inject.Inject;
 import com.google.inject.assistedinject.Assisted;
 import knn.api.KnowledgeNode;
+import knn.api.KnowledgeNodeClock;
+import knn.api.SearchListener;
+import knn.api.SearchTrace;
+import knn.api.SearchType;
 import tags.Tag;
 
 /**
@@ -15,22 +23,80 @@ import tags.Tag;
 class BackwardSearcher extends Searcher<Set<Tag>> {
     private final Set<Tag> activeTags;
     private final BackwardSearchMatcher backwardSearchMatcher;
-    private final TreeSet<KnowledgeNode> ageSortedKNs;
+    private final KnowledgeNodeIndex knowledgeNodeIndex;
+    private final SearchListener searchListener;
+    private final KnowledgeNodeClock clock;
     private double partialMatchRatio;
     private long ageLimit;
 
     @Inject
     BackwardSearcher(
             @Assisted("activeTags") final Set<Tag> activeTags,
-            @Assisted("ageSortedKNs") final TreeSet<KnowledgeNode> ageSortedKNs,
+            @Assisted("knowledgeNodeIndex")
+            final KnowledgeNodeIndex knowledgeNodeIndex,
             @Assisted("partialMatchRatio") final double partialMatchRatio,
             @Assisted("ageLimit") final long ageLimit,
-            final BackwardSearchMatcher backwardSearchMatcher) {
+            final BackwardSearchMatcher backwardSearchMatcher,
+            final SearchListener searchListener,
+            final KnowledgeNodeClock clock) {
         this.activeTags = activeTags;
         this.partialMatchRatio = partialMatchRatio;
         this.ageLimit = ageLimit;
         this.backwardSearchMatcher = backwardSearchMatcher;
-        this.ageSortedKNs = ageSortedKNs;
+        this.knowledgeNodeIndex = knowledgeNodeIndex;
+        this.searchListener = searchListener;
+        this.clock = clock;
+    }
+
+    /**
+     * Creates a backward searcher like this one, with its current partial
+     * match ratio and age limit, on other KNs and active Tags.
+     *
+     * @param otherActiveTags         the active tags
+     * @param otherKnowledgeNodeIndex the indexes of the KNs
+     * @return the new backward searcher
+     */
+    BackwardSearcher withKnowledgeNodes(
+            final Set<Tag> otherActiveTags,
+            final KnowledgeNodeIndex otherKnowledgeNodeIndex) {
+        return new BackwardSearcher(otherActiveTags, otherKnowledgeNodeIndex,
+                partialMatchRatio, ageLimit, backwardSearchMatcher,
+                searchListener, clock);
+    }
+
+    /**
+     * @return the partial match ratio
+     */
+    final double getPartialMatchRatio() {
+        return partialMatchRatio;
+    }
+
+    /**
+     * @return the KN age limit
+     */
+    final long getAgeLimit() {
+        return ageLimit;
+    }
+
+    /**
+     * @return the matcher of the KNs
+     */
+    final BackwardSearchMatcher getBackwardSearchMatcher() {
+        return backwardSearchMatcher;
+    }
+
+    /**
+     * @return the listener of the searches
+     */
+    final SearchListener getSearchListener() {
+        return searchListener;
+    }
+
+    /**
+     * @return the clock aging the KNs
+     */
+    final KnowledgeNodeClock getClock() {
+        return clock;
     }
 
     /**
@@ -52,27 +118,226 @@ class BackwardSearcher extends Searcher<Set<Tag>> {
     }
 
     @Override
-    public Set<Tag> searchInternal(final Set<Tag> inputTags, final double ply) {
-        final Set<Tag> allActivatedTags = new HashSet<>();
+    SearchTrace startSearch() {
+        return searchListener.searchStarted(SearchType.BACKWARD);
+    }
+
+    @Override
+    public Set<Tag> searchInternal(final Set<Tag> inputTags, final double ply,
+                                   final SearchTrace trace) {
+        final long now = clock.searchStarted();
+        final Set<Tag> allActivatedTags = TagBitSet.newSetLike(activeTags);
         Set<Tag> currentPlyInputTags = new HashSet<>(inputTags);
         for (int i = 0; i < ply && !currentPlyInputTags.isEmpty(); i++) {
-            final int numRequiredMatches =
-                    (int) (partialMatchRatio * currentPlyInputTags.size());
-            final Set<Tag> activatedTags = new HashSet<>();
-            // Iterate over the KNs in order of increasing age
-            for (final KnowledgeNode kn : ageSortedKNs) {
-                if (kn.getCurrentAge() > ageLimit) { // Age limit reached.
-                    break;
-                }
-                backwardSearchMatcher
-                        .match(currentPlyInputTags, kn, numRequiredMatches)
-                        .ifPresent(activatedTags::add);
-            }
+            trace.plyStarted(i, currentPlyInputTags.size());
+            final Set<Tag> activatedTags =
+                    searchPly(currentPlyInputTags, trace, now);
+            trace.plyEnded(i, activatedTags.size());
             allActivatedTags.addAll(activatedTags);
             currentPlyInputTags = activatedTags;
         }
-        allActivatedTags.removeIf(this.activeTags::contains);
+        allActivatedTags.removeAll(this.activeTags);
         this.activeTags.addAll(allActivatedTags);
         return Collections.unmodifiableSet(allActivatedTags);
     }
+
+    /**
+     * Performs backward search for several independent queries in one pass,
+     * with the same results as searching them one by one, in order.
+     * <p>
+     * Backward search only reads the KNs, so the Tags matched by a ply only
+     * depend on its input Tags: each distinct Set of input Tags is matched
+     * once across the plies of the batch, and when no matches are required,
+     * the KNs within the age limit are collected once for the whole batch.
+     * The Tags activated by each query are then activated in order, so that
+     * the results of a query exclude the Tags activated by the earlier ones.
+     * The clock is read once for the whole batch, so that the matches of a
+     * Set of input Tags are the same for every query.
+     *
+     * @param inputs the input Tags of each query
+     * @param ply    the ply of each query, 0 to search until quiescence
+     * @return the Tags activated by each query, in the order of the queries
+     */
+    List<Set<Tag>> searchBatch(final List<Set<Tag>> inputs, final int ply) {
+        final double maxPly = maxPly(ply);
+        final long now = clock.searchStarted();
+        final Map<Set<Tag>, Set<Tag>> matches = new HashMap<>();
+        final List<Set<Tag>> results = new ArrayList<>(inputs.size());
+        for (final Set<Tag> inputTags : inputs) {
+            final SearchTrace trace = startSearch();
+            final Set<Tag> allActivatedTags =
+                    TagBitSet.newSetLike(activeTags);
+            Set<Tag> currentPlyInputTags = new HashSet<>(inputTags);
+            for (int i = 0;
+                 i < maxPly && !currentPlyInputTags.isEmpty(); i++) {
+                trace.plyStarted(i, currentPlyInputTags.size());
+                final Set<Tag> activatedTags =
+                        searchPly(currentPlyInputTags, matches, trace, now);
+                trace.plyEnded(i, activatedTags.size());
+                allActivatedTags.addAll(activatedTags);
+                currentPlyInputTags = activatedTags;
+            }
+            allActivatedTags.removeAll(this.activeTags);
+            this.activeTags.addAll(allActivatedTags);
+            trace.searchEnded();
+            results.add(Collections.unmodifiableSet(allActivatedTags));
+        }
+        return results;
+    }
+
+    /**
+     * Matches the KNs against the input Tags of a ply of a batch, unless
+     * the same Tags have already been matched by the batch.
+     *
+     * @param plyInputTags the input Tags of the ply
+     * @param matches      the Tags matched by the batch, by input Tags; the
+     *                     empty Set stands for all the input Tags which
+     *                     require no matches
+     * @param trace        the trace of the search events
+     * @param now          the time of the batch
+     * @return the input Tags of the matching KNs
+     */
+    private Set<Tag> searchPly(final Set<Tag> plyInputTags,
+                               final Map<Set<Tag>, Set<Tag>> matches,
+                               final SearchTrace trace, final long now) {
+        Set<Tag> key = plyInputTags;
+        if ((int) (partialMatchRatio * plyInputTags.size()) == 0) {
+            key = Collections.emptySet();
+        }
+        Set<Tag> activatedTags = matches.get(key);
+        if (activatedTags == null) {
+            activatedTags = searchPly(plyInputTags, trace, now);
+            matches.put(key, activatedTags);
+        }
+        return activatedTags;
+    }
+
+    /**
+     * Matches the KNs against the input Tags of a ply, without activating
+     * the Tags of the matching KNs.
+     *
+     * @param plyInputTags the input Tags of the ply
+     * @param trace        the trace of the search events
+     * @param now          the time of the search, from which the ages of
+     *                     the KNs are measured
+     * @return the input Tags of the matching KNs
+     */
+    Set<Tag> searchPly(final Set<Tag> plyInputTags, final SearchTrace trace,
+                       final long now) {
+        final int numRequiredMatches =
+                (int) (partialMatchRatio * plyInputTags.size());
+        final Set<Tag> activatedTags;
+        if (numRequiredMatches > 0) {
+            activatedTags = matchCandidates(plyInputTags,
+                    knowledgeNodeIndex.getCandidates(
+                            plyInputTags, numRequiredMatches),
+                    numRequiredMatches, trace, now);
+        } else {
+            activatedTags = matchAll(plyInputTags, trace, now);
+        }
+        for (final Tag t : activatedTags) {
+            trace.knowledgeNodeFired(t);
+        }
+        trace.tagsActivated(activatedTags.size());
+        return activatedTags;
+    }
+
+    /**
+     * Activates Tags found by the searcher.
+     *
+     * @param tags the Tags to activate
+     */
+    void activate(final Set<Tag> tags) {
+        activeTags.addAll(tags);
+    }
+
+    /**
+     * Matches the given candidate KNs, i.e., the KNs which output at least one
+     * of the input Tags, against the input Tags.
+     *
+     * @param inputTags          the input Tags
+     * @param candidates         the candidate KNs
+     * @param numRequiredMatches the number of required matches
+     * @param trace              the trace of the search events
+     * @param now                the time of the search
+     * @return the activated input Tags of the matching KNs
+     */
+    private Set<Tag> matchCandidates(
+            final Set<Tag> inputTags,
+            final Collection<KnowledgeNode> candidates,
+            final int numRequiredMatches,
+            final SearchTrace trace,
+            final long now) {
+        final List<KnowledgeNode> kns = new ArrayList<>(candidates.size());
+        for (final KnowledgeNode kn : candidates) {
+            if (kn.getCurrentAge(now) <= ageLimit) {
+                trace.knowledgeNodeVisited(kn.getInputTag());
+                kns.add(kn);
+            }
+        }
+        return match(inputTags, kns, numRequiredMatches);
+    }
+
+    /**
+     * Matches all the KNs against the input Tags. Only needed when no matches
+     * are required, since every KN within the age limit then matches.
+     *
+     * @param inputTags the input Tags
+     * @param trace     the trace of the search events
+     * @param now       the time of the search
+     * @return the activated input Tags of the matching KNs
+     */
+    private Set<Tag> matchAll(final Set<Tag> inputTags,
+                              final SearchTrace trace, final long now) {
+        final List<KnowledgeNode> kns = new ArrayList<>();
+        // Iterate over the KNs in order of increasing age
+        for (final KnowledgeNode kn
+                : knowledgeNodeIndex.getKnowledgeNodes()) {
+            if (kn.getCurrentAge(now) > ageLimit) { // Age limit reached.
+                break;
+            }
+            trace.knowledgeNodeVisited(kn.getInputTag());
+            kns.add(kn);
+        }
+        return match(inputTags, kns, 0);
+    }
+
+    /**
+     * Matches the given KNs, which are within the age limit, against the
+     * input Tags.
+     *
+     * @param inputTags          the input Tags
+     * @param kns                the KNs
+     * @param numRequiredMatches the number of required matches
+     * @return the activated input Tags of the matching KNs
+     */
+    Set<Tag> match(
+            final Set<Tag> inputTags,
+            final List<KnowledgeNode> kns,
+            final int numRequiredMatches) {
+        final Set<Tag> activatedTags = new HashSet<>();
+        for (final KnowledgeNode kn : kns) {
+            match(inputTags, kn, numRequiredMatches, activatedTags);
+        }
+        return activatedTags;
+    }
+
+    /**
+     * Matches a KN against the input Tags.
+     *
+     * @param inputTags          the input Tags
+     * @param kn                 the KN
+     * @param numRequiredMatches the number of required matches
+     * @param activatedTags      the activated Tags, to which the input Tag of
+     *                           the KN is added if it matches
+     */
+    final void match(
+            final Set<Tag> inputTags,
+            final KnowledgeNode kn,
+            final int numRequiredMatches,
+            final Set<Tag> activatedTags) {
+        backwardSearchMatcher
+                .match(inputTags, kn, numRequiredMatches)
+                .ifPresent(activatedTags::add);
+    }
 }
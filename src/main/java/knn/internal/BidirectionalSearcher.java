@@ -0,0 +1,196 @@
+package knn.internal;
+
+import java.util.HashSet;
+import java.util.Set;
+import knn.api.BidirectionalSearchResult;
+import knn.api.KnowledgeNodeClock;
+import knn.api.SearchListener;
+import knn.api.SearchTrace;
+import knn.api.SearchType;
+import tags.Tag;
+
+/**
+ * Searcher which performs bidirectional search: forward search from the
+ * input Tags and backward search from the goal Tags, one ply at a time,
+ * until the two meet.
+ * <p>
+ * Each ply expands the smaller of the two frontiers, i.e., of the Tags newly
+ * reached on each side, alternating between them while they have the same
+ * size. Each side then only searches about half the depth between the input
+ * and goal Tags, instead of one side searching from everything the other
+ * reached. Each Tag is searched from at most once per side.
+ * <p>
+ * The search stops as soon as a Tag is reached from both sides, when both
+ * frontiers are empty, after the given number of plies in total, or before
+ * the ply which would search more Tags than the budget allows.
+ */
+abstract class BidirectionalSearcher {
+
+    /**
+     * @return the listener of the searches
+     */
+    abstract SearchListener getSearchListener();
+
+    /**
+     * @return the clock aging the KNs
+     */
+    abstract KnowledgeNodeClock getClock();
+
+    /**
+     * Searches forward from the Tags of a ply, activating the Tags reached.
+     *
+     * @param plyInputTags the input Tags of the ply
+     * @param trace        the trace of the search events
+     * @param now          the time of the search
+     * @return the Tags activated by the ply
+     */
+    abstract Set<Tag> searchForwardPly(Set<Tag> plyInputTags,
+                                       SearchTrace trace, long now);
+
+    /**
+     * Searches backward from the Tags of a ply, without activating the Tags
+     * reached.
+     *
+     * @param plyInputTags the input Tags of the ply
+     * @param trace        the trace of the search events
+     * @param now          the time of the search
+     * @return the input Tags of the KNs matching the Tags of the ply
+     */
+    abstract Set<Tag> searchBackwardPly(Set<Tag> plyInputTags,
+                                        SearchTrace trace, long now);
+
+    /**
+     * Activates the Tags reached by the backward search, once it is done.
+     *
+     * @param tags the Tags to activate
+     */
+    abstract void activate(Set<Tag> tags);
+
+    /**
+     * Checks the budget of a search.
+     *
+     * @param budget the budget
+     * @throws IllegalArgumentException if the budget is negative
+     */
+    static void checkBudget(final int budget) {
+        if (budget < 0) {
+            throw new IllegalArgumentException(
+                    "The search budget must not be negative.");
+        }
+    }
+
+    /**
+     * Performs bidirectional search.
+     *
+     * @param inputTags the input Tags of the search
+     * @param goalTags  the goal Tags of the search
+     * @param ply       the total number of plies, on both sides, 0 to search
+     *                  until the frontiers meet or are empty
+     * @param budget    the maximum number of Tags to search from, on both
+     *                  sides, 0 for no limit
+     * @return the result of the search
+     * @throws IllegalArgumentException if the budget is negative
+     */
+    BidirectionalSearchResult search(final Set<Tag> inputTags,
+                                     final Set<Tag> goalTags,
+                                     final double ply,
+                                     final int budget) {
+        checkBudget(budget);
+        final double maxPly = Searcher.maxPly(ply);
+        final SearchTrace trace =
+                getSearchListener().searchStarted(SearchType.BIDIRECTIONAL);
+        final long now = getClock().searchStarted();
+        long maxExplored = budget;
+        if (budget == 0) {
+            maxExplored = Long.MAX_VALUE;
+        }
+        final Set<Tag> forwardTags = new HashSet<>(inputTags);
+        final Set<Tag> backwardTags = new HashSet<>(goalTags);
+        final Set<Tag> connectingTags = new HashSet<>(inputTags);
+        connectingTags.retainAll(goalTags);
+        Set<Tag> forwardFrontier = new HashSet<>(inputTags);
+        Set<Tag> backwardFrontier = new HashSet<>(goalTags);
+        int explored = 0;
+        boolean forward = false;
+        for (int i = 0; i < maxPly && connectingTags.isEmpty()
+                && !(forwardFrontier.isEmpty()
+                && backwardFrontier.isEmpty()); i++) {
+            forward = isForward(forwardFrontier.size(),
+                    backwardFrontier.size(), forward);
+            Set<Tag> frontier = backwardFrontier;
+            if (forward) {
+                frontier = forwardFrontier;
+            }
+            if (explored + (long) frontier.size() > maxExplored) {
+                break;
+            }
+            explored += frontier.size();
+            trace.plyStarted(i, frontier.size());
+            final Set<Tag> activatedTags;
+            if (forward) {
+                activatedTags = searchForwardPly(frontier, trace, now);
+                forwardFrontier = advance(activatedTags,
+                        forwardTags, backwardTags, connectingTags);
+            } else {
+                activatedTags = searchBackwardPly(frontier, trace, now);
+                backwardFrontier = advance(activatedTags,
+                        backwardTags, forwardTags, connectingTags);
+            }
+            trace.plyEnded(i, activatedTags.size());
+        }
+        forwardTags.removeAll(inputTags);
+        backwardTags.removeAll(goalTags);
+        activate(backwardTags);
+        trace.searchEnded();
+        return new BidirectionalSearchResult(forwardTags, backwardTags,
+                connectingTags, explored);
+    }
+
+    /**
+     * Chooses the frontier to expand: the smaller non-empty one, or the one
+     * not expanded by the last ply if they have the same size.
+     *
+     * @param forwardSize  the size of the forward frontier
+     * @param backwardSize the size of the backward frontier
+     * @param lastForward  true if the last ply expanded the forward frontier
+     * @return true to expand the forward frontier
+     */
+    private static boolean isForward(final int forwardSize,
+                                     final int backwardSize,
+                                     final boolean lastForward) {
+        if (forwardSize == 0 || backwardSize == 0) {
+            return backwardSize == 0;
+        }
+        if (forwardSize == backwardSize) {
+            return !lastForward;
+        }
+        return forwardSize < backwardSize;
+    }
+
+    /**
+     * Advances a frontier to the Tags it newly reached.
+     *
+     * @param activatedTags  the Tags activated by the ply
+     * @param reachedTags    the Tags reached so far on the side of the
+     *                       frontier, to which the new Tags are added
+     * @param otherTags      the Tags reached so far on the other side
+     * @param connectingTags the Tags reached from both sides, to which the
+     *                       new Tags reached from the other side are added
+     * @return the new frontier
+     */
+    private static Set<Tag> advance(final Set<Tag> activatedTags,
+                                    final Set<Tag> reachedTags,
+                                    final Set<Tag> otherTags,
+                                    final Set<Tag> connectingTags) {
+        final Set<Tag> frontier = new HashSet<>();
+        for (final Tag t : activatedTags) {
+            if (reachedTags.add(t)) {
+                frontier.add(t);
+                if (otherTags.contains(t)) {
+                    connectingTags.add(t);
+                }
+            }
+        }
+        return frontier;
+    }
+}
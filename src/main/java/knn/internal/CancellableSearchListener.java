@@ -0,0 +1,134 @@
+package knn.internal;
+
+import java.util.concurrent.CancellationException;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+import knn.api.SearchListener;
+import knn.api.SearchTrace;
+import knn.api.SearchType;
+import tags.Tag;
+
+/**
+ * Listener of the searches of the KNNs of a module, which notifies the
+ * listener given to the module, and stops the searches run by
+ * {@link #search(Supplier, BooleanSupplier)} when they are cancelled.
+ * <p>
+ * The searchers call the trace of a search when each ply starts, so the
+ * trace of a cancellable search throws a {@link CancellationException}
+ * there once the search is cancelled. The other searches get the trace of
+ * the given listener, and are never checked.
+ */
+final class CancellableSearchListener implements SearchListener {
+    private static final String CANCELLED = "The search was cancelled.";
+
+    private final SearchListener searchListener;
+    /**
+     * The cancellation token of the search run by each thread, if it is
+     * cancellable.
+     */
+    private final ThreadLocal<BooleanSupplier> cancellation;
+
+    /**
+     * Creates a listener of cancellable searches.
+     *
+     * @param searchListener the listener of the searches
+     */
+    CancellableSearchListener(final SearchListener searchListener) {
+        this.searchListener = searchListener;
+        this.cancellation = new ThreadLocal<>();
+    }
+
+    /**
+     * Runs the searches of the given task on the calling thread, stopping
+     * them at their next ply once they are cancelled.
+     *
+     * @param task      the task running the searches
+     * @param cancelled the cancellation token of the task, which returns true
+     *                  once the task is cancelled
+     * @param <T>       the type of the result of the task
+     * @return the result of the task
+     * @throws CancellationException if the task is cancelled
+     */
+    <T> T search(final Supplier<T> task, final BooleanSupplier cancelled) {
+        final BooleanSupplier outer = cancellation.get();
+        cancellation.set(cancelled);
+        try {
+            return task.get();
+        } finally {
+            if (outer == null) {
+                cancellation.remove();
+            } else {
+                cancellation.set(outer);
+            }
+        }
+    }
+
+    @Override
+    public SearchTrace searchStarted(final SearchType type) {
+        final SearchTrace trace = searchListener.searchStarted(type);
+        final BooleanSupplier cancelled = cancellation.get();
+        if (cancelled == null) {
+            return trace;
+        }
+        return new CancellableTrace(trace, cancelled);
+    }
+
+    /**
+     * Trace of a cancellable search, checking for cancellation before each
+     * ply.
+     */
+    private static final class CancellableTrace implements SearchTrace {
+        private final SearchTrace trace;
+        private final BooleanSupplier cancelled;
+
+        /**
+         * Creates the trace of a cancellable search.
+         *
+         * @param trace     the trace of the search events
+         * @param cancelled the cancellation token of the search
+         */
+        private CancellableTrace(final SearchTrace trace,
+                                 final BooleanSupplier cancelled) {
+            this.trace = trace;
+            this.cancelled = cancelled;
+        }
+
+        @Override
+        public void plyStarted(final int ply, final int inputTags) {
+            if (cancelled.getAsBoolean()) {
+                throw new CancellationException(CANCELLED);
+            }
+            trace.plyStarted(ply, inputTags);
+        }
+
+        @Override
+        public void knowledgeNodeVisited(final Tag inputTag) {
+            trace.knowledgeNodeVisited(inputTag);
+        }
+
+        @Override
+        public void knowledgeNodeFired(final Tag inputTag) {
+            trace.knowledgeNodeFired(inputTag);
+        }
+
+        @Override
+        public void knowledgeNodeExpired(final Tag inputTag) {
+            trace.knowledgeNodeExpired(inputTag);
+        }
+
+        @Override
+        public void tagsActivated(final int count) {
+            trace.tagsActivated(count);
+        }
+
+        @Override
+        public void plyEnded(final int ply, final int activatedTags) {
+            trace.plyEnded(ply, activatedTags);
+        }
+
+        @Override
+        public void searchEnded() {
+            trace.searchEnded();
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package knn.internal;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Input stream buffering the bytes read from a channel. Unlike the buffered
+ * streams of java.io, it does not lock on every read, which matters when
+ * reading primitives one byte at a time through a
+ * {@link java.io.DataInputStream}. Not thread-safe.
+ */
+final class ChannelInputStream extends InputStream {
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final int BYTE_MASK = 0xFF;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+
+    /**
+     * Creates an input stream.
+     *
+     * @param channel the channel, closed with the stream
+     */
+    ChannelInputStream(final FileChannel channel) {
+        this.channel = channel;
+        this.buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        this.buffer.flip();
+    }
+
+    /**
+     * Refills the buffer if it is empty.
+     *
+     * @return false if the end of the channel is reached
+     * @throws IOException if reading fails
+     */
+    private boolean fill() throws IOException {
+        if (buffer.hasRemaining()) {
+            return true;
+        }
+        buffer.clear();
+        final int n = channel.read(buffer);
+        buffer.flip();
+        return n > 0;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!fill()) {
+            return -1;
+        }
+        return buffer.get() & BYTE_MASK;
+    }
+
+    @Override
+    public int read(final byte[] b, final int off, final int len)
+            throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (!fill()) {
+            return -1;
+        }
+        final int n = Math.min(len, buffer.remaining());
+        buffer.get(b, off, n);
+        return n;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,269 @@
+package knn.internal;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import knn.api.KnowledgeNode;
+import knn.api.KnowledgeNodeClock;
+import knn.api.SearchListener;
+import knn.api.SearchTrace;
+import knn.api.SearchType;
+import tags.Tag;
+
+/**
+ * Searcher which performs direct and forward search over a compiled
+ * representation of the KNN (see {@link CompiledNetwork}). Each ply is a walk
+ * over a frontier of integer Tag ids, and yields the same results as the
+ * {@link ForwardSearcher}.
+ */
+class CompiledForwardSearcher extends Searcher<Set<Tag>> {
+    private static final int INITIAL_FRONTIER_CAPACITY = 16;
+
+    private final Map<Tag, KnowledgeNode> mapKN;
+    private final Set<Tag> activeTags;
+    private final KnowledgeNodeIndex knowledgeNodeIndex;
+    private final SearchListener searchListener;
+    private final KnowledgeNodeClock clock;
+
+    private CompiledNetwork network;
+    /**
+     * Per Tag id, the generation in which the Tag was last added to a ply
+     * frontier.
+     */
+    private int[] plyStamps;
+    /**
+     * Per Tag id, the generation of the search in which the Tag was last
+     * activated.
+     */
+    private int[] searchStamps;
+    private int plyGeneration;
+    private int searchGeneration;
+    private int[] currentFrontier;
+    private int[] nextFrontier;
+    private int nextFrontierSize;
+    private int[] activatedIds;
+    private int numActivatedIds;
+
+    /**
+     * Creates a searcher over the given KNs. The network is compiled lazily,
+     * before the first search.
+     *
+     * @param mapKN              the mapping from tags to KNs
+     * @param activeTags         the active Tags
+     * @param knowledgeNodeIndex the indexes of the KNs
+     * @param searchListener     the listener of the searches
+     * @param clock              the clock aging the KNs
+     */
+    CompiledForwardSearcher(
+            final Map<Tag, KnowledgeNode> mapKN,
+            final Set<Tag> activeTags,
+            final KnowledgeNodeIndex knowledgeNodeIndex,
+            final SearchListener searchListener,
+            final KnowledgeNodeClock clock) {
+        this.mapKN = mapKN;
+        this.activeTags = activeTags;
+        this.knowledgeNodeIndex = knowledgeNodeIndex;
+        this.searchListener = searchListener;
+        this.clock = clock;
+        this.currentFrontier = new int[INITIAL_FRONTIER_CAPACITY];
+        this.nextFrontier = new int[INITIAL_FRONTIER_CAPACITY];
+        this.activatedIds = new int[INITIAL_FRONTIER_CAPACITY];
+    }
+
+    /**
+     * Invalidates the compiled network, which is recompiled before the next
+     * search. Must be called whenever KNs are added or deleted.
+     */
+    void invalidate() {
+        network = null;
+    }
+
+    /**
+     * Search for the given input Tag in the compiled network.
+     *
+     * @param inputTag the input Tag to search for
+     * @return the activated output tags (excluding the given input Tag)
+     */
+    Set<Tag> directSearch(final Tag inputTag) {
+        final SearchTrace trace =
+                searchListener.searchStarted(SearchType.DIRECT);
+        final CompiledNetwork compiled = compile();
+        nextPly();
+        nextSearch();
+        numActivatedIds = 0;
+        final int id = compiled.getId(inputTag);
+        if (id == TagDictionary.NO_ID) {
+            activeTags.add(inputTag);
+        } else {
+            expand(compiled, id, trace, clock.searchStarted());
+        }
+        nextFrontierSize = 0;
+        final Set<Tag> activatedTags = getActivatedTags(compiled);
+        trace.searchEnded();
+        return Collections.unmodifiableSet(activatedTags);
+    }
+
+    @Override
+    SearchTrace startSearch() {
+        return searchListener.searchStarted(SearchType.FORWARD);
+    }
+
+    @Override
+    Set<Tag> searchInternal(final Set<Tag> inputTags, final double ply,
+                            final SearchTrace trace) {
+        final CompiledNetwork compiled = compile();
+        final long now = clock.searchStarted();
+        nextPly();
+        nextSearch();
+        numActivatedIds = 0;
+        nextFrontierSize = 0;
+        for (final Tag t : inputTags) {
+            final int id = compiled.getId(t);
+            if (id == TagDictionary.NO_ID) {
+                activeTags.add(t);
+            } else {
+                addToNextFrontier(id);
+            }
+        }
+        for (int i = 0; i < ply && nextFrontierSize > 0; i++) {
+            final int[] frontier = nextFrontier;
+            final int frontierSize = nextFrontierSize;
+            nextFrontier = currentFrontier;
+            currentFrontier = frontier;
+            nextFrontierSize = 0;
+            nextPly();
+            trace.plyStarted(i, frontierSize);
+            for (int j = 0; j < frontierSize; j++) {
+                expand(compiled, frontier[j], trace, now);
+            }
+            trace.plyEnded(i, nextFrontierSize);
+        }
+        nextFrontierSize = 0;
+        return Collections.unmodifiableSet(getActivatedTags(compiled));
+    }
+
+    /**
+     * Excites the KN with the given input Tag id, adding its output Tag ids to
+     * the next frontier if it is fired.
+     *
+     * @param compiled the compiled network
+     * @param id       the input Tag id
+     * @param trace    the trace of the search events
+     * @param now      the time of the search
+     */
+    private void expand(final CompiledNetwork compiled, final int id,
+                        final SearchTrace trace, final long now) {
+        final Tag inputTag = compiled.getTag(id);
+        final KnowledgeNode kn = compiled.getKnowledgeNode(id);
+        if (kn != null) {
+            trace.knowledgeNodeVisited(inputTag);
+            final boolean fired = knowledgeNodeIndex.excite(kn, now);
+            if (fired) {
+                trace.knowledgeNodeFired(inputTag);
+                final int start = compiled.getOutputStart(id);
+                final int end = compiled.getOutputEnd(id);
+                for (int k = start; k < end; k++) {
+                    final int outputId = compiled.getOutputId(k);
+                    activeTags.add(compiled.getTag(outputId));
+                    addToNextFrontier(outputId);
+                    addToActivated(outputId);
+                }
+                trace.tagsActivated(end - start);
+            } else if (kn.isExpired()) {
+                trace.knowledgeNodeExpired(inputTag);
+                mapKN.remove(inputTag);
+                activeTags.remove(inputTag);
+                knowledgeNodeIndex.remove(kn);
+                compiled.removeKnowledgeNode(id);
+            }
+        }
+        activeTags.add(inputTag);
+    }
+
+    /**
+     * Adds the given Tag id to the next frontier, if it is not already in it.
+     *
+     * @param id the Tag id
+     */
+    private void addToNextFrontier(final int id) {
+        if (plyStamps[id] != plyGeneration) {
+            plyStamps[id] = plyGeneration;
+            if (nextFrontierSize == nextFrontier.length) {
+                nextFrontier =
+                        Arrays.copyOf(nextFrontier, nextFrontierSize * 2);
+            }
+            nextFrontier[nextFrontierSize++] = id;
+        }
+    }
+
+    /**
+     * Marks the given Tag id as activated by the current search.
+     *
+     * @param id the Tag id
+     */
+    private void addToActivated(final int id) {
+        if (searchStamps[id] != searchGeneration) {
+            searchStamps[id] = searchGeneration;
+            if (numActivatedIds == activatedIds.length) {
+                activatedIds =
+                        Arrays.copyOf(activatedIds, numActivatedIds * 2);
+            }
+            activatedIds[numActivatedIds++] = id;
+        }
+    }
+
+    /**
+     * Materializes the Tags activated by the current search.
+     *
+     * @param compiled the compiled network
+     * @return the activated Tags
+     */
+    private Set<Tag> getActivatedTags(final CompiledNetwork compiled) {
+        final Set<Tag> activatedTags = TagBitSet.newSetLike(activeTags);
+        for (int i = 0; i < numActivatedIds; i++) {
+            activatedTags.add(compiled.getTag(activatedIds[i]));
+        }
+        return activatedTags;
+    }
+
+    /**
+     * Starts a new ply generation, so that frontier stamps of previous plies
+     * are ignored.
+     */
+    private void nextPly() {
+        if (plyGeneration == Integer.MAX_VALUE) {
+            Arrays.fill(plyStamps, 0);
+            plyGeneration = 0;
+        }
+        plyGeneration++;
+    }
+
+    /**
+     * Starts a new search generation, so that activation stamps of previous
+     * searches are ignored.
+     */
+    private void nextSearch() {
+        if (searchGeneration == Integer.MAX_VALUE) {
+            Arrays.fill(searchStamps, 0);
+            searchGeneration = 0;
+        }
+        searchGeneration++;
+    }
+
+    /**
+     * Compiles the network if it has been invalidated.
+     *
+     * @return the compiled network
+     */
+    private CompiledNetwork compile() {
+        if (network == null) {
+            network = CompiledNetwork.compile(mapKN);
+            plyStamps = new int[network.size()];
+            searchStamps = new int[network.size()];
+            plyGeneration = 0;
+            searchGeneration = 0;
+        }
+        return network;
+    }
+}
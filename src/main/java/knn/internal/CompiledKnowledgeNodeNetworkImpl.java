@@ -0,0 +1,183 @@
+package knn.internal;
+
+import javax.inject.Inject;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import com.google.inject.assistedinject.Assisted;
+import knn.api.BidirectionalSearchResult;
+import knn.api.KnowledgeNode;
+import tags.Tag;
+
+/**
+ * Implementation of the KNN which performs direct, forward and lambda search
+ * over a compiled representation of the KNN (see {@link CompiledNetwork}).
+ * Backward search is the same as in {@link KnowledgeNodeNetworkImpl}.
+ */
+class CompiledKnowledgeNodeNetworkImpl extends KnowledgeNodeNetworkImpl {
+    private final Set<Tag> activeTags;
+    private final CompiledForwardSearcher compiledForwardSearcher;
+
+    @Inject
+    CompiledKnowledgeNodeNetworkImpl(
+            @Assisted("mapKN") final Map<Tag, KnowledgeNode> mapKN,
+            @Assisted("activeTags") final Set<Tag> activeTags,
+            @Assisted("backwardSearchMatchRatio") final
+            double backwardSearchMatchRatio,
+            @Assisted("backwardSearchAgeLimit")
+            final long backwardSearchAgeLimit,
+            final KnowledgeNodeIndex knowledgeNodeIndex,
+            final DirectSearcherFactory directSearcherFactory,
+            final ForwardSearcherFactory forwardSearcherFactory,
+            final BackwardSearcherFactory backwardSearcherFactory,
+            final LambdaSearcherFactory lambdaSearcherFactory) {
+        super(mapKN, activeTags, backwardSearchMatchRatio,
+                backwardSearchAgeLimit, knowledgeNodeIndex,
+                directSearcherFactory, forwardSearcherFactory,
+                backwardSearcherFactory, lambdaSearcherFactory);
+        this.activeTags = getMutableActiveTags();
+        this.compiledForwardSearcher = new CompiledForwardSearcher(
+                mapKN, this.activeTags, knowledgeNodeIndex,
+                getSearchListener(), getClock());
+    }
+
+    @Override
+    public void resetEmpty() {
+        super.resetEmpty();
+        compiledForwardSearcher.invalidate();
+    }
+
+    @Override
+    public void addKnowledgeNode(final KnowledgeNode kn) {
+        super.addKnowledgeNode(kn);
+        compiledForwardSearcher.invalidate();
+    }
+
+    @Override
+    public void deleteExpiredKnowledgeNodes() {
+        final int size = getKnowledgeNodes().size();
+        super.deleteExpiredKnowledgeNodes();
+        invalidateIfDeleted(size);
+    }
+
+    @Override
+    public void deleteKnowledgeNode(final Tag tag) {
+        super.deleteKnowledgeNode(tag);
+        compiledForwardSearcher.invalidate();
+    }
+
+    @Override
+    public Set<Tag> directSearch(final Tag inputTag) {
+        return compiledForwardSearcher.directSearch(inputTag);
+    }
+
+    @Override
+    public Set<Tag> forwardSearch(final Set<Tag> inputTags, final int ply) {
+        return compiledForwardSearcher.search(inputTags, ply);
+    }
+
+    @Override
+    public Set<Tag> forwardThink(final int ply) {
+        return compiledForwardSearcher.search(activeTags, ply);
+    }
+
+    /**
+     * Performs beam search with the heap searchers, which may delete expired
+     * KNs behind the compiled network.
+     *
+     * @param inputTags the input Tags of the search
+     * @param ply       the ply of the search
+     * @param beamWidth the maximum number of Tags activated by each ply
+     * @return the activated Tags
+     */
+    @Override
+    public Set<Tag> forwardSearch(final Set<Tag> inputTags, final int ply,
+                                  final int beamWidth) {
+        final int size = getKnowledgeNodes().size();
+        final Set<Tag> activatedTags =
+                super.forwardSearch(inputTags, ply, beamWidth);
+        invalidateIfDeleted(size);
+        return activatedTags;
+    }
+
+    /**
+     * Performs batch forward search with the heap searchers, which may
+     * delete expired KNs behind the compiled network.
+     *
+     * @param inputs the input Tags of each query
+     * @param ply    the ply of each query
+     * @return the activated Tags of each query
+     */
+    @Override
+    public List<Set<Tag>> forwardSearchBatch(final List<Set<Tag>> inputs,
+                                             final int ply) {
+        final int size = getKnowledgeNodes().size();
+        final List<Set<Tag>> activatedTags =
+                super.forwardSearchBatch(inputs, ply);
+        invalidateIfDeleted(size);
+        return activatedTags;
+    }
+
+    /**
+     * Performs lambda search with the heap searchers, which may delete
+     * expired KNs behind the compiled network.
+     *
+     * @param inputTags the input Tags of the search
+     * @param ply       the ply of the search
+     * @param beamWidth the maximum number of Tags activated by each ply of
+     *                  the forward search
+     * @return the activated Tags
+     */
+    @Override
+    public Set<Tag> lambdaSearch(final Set<Tag> inputTags, final int ply,
+                                 final int beamWidth) {
+        final int size = getKnowledgeNodes().size();
+        final Set<Tag> activatedTags =
+                super.lambdaSearch(inputTags, ply, beamWidth);
+        invalidateIfDeleted(size);
+        return activatedTags;
+    }
+
+    /**
+     * Performs bidirectional search with the heap searchers, which may delete
+     * expired KNs behind the compiled network.
+     *
+     * @param inputTags the input Tags of the search
+     * @param goalTags  the goal Tags of the search
+     * @param ply       the total number of plies
+     * @param budget    the maximum number of Tags to search from
+     * @return the result of the search
+     */
+    @Override
+    public BidirectionalSearchResult bidirectionalSearch(
+            final Set<Tag> inputTags, final Set<Tag> goalTags, final int ply,
+            final int budget) {
+        final int size = getKnowledgeNodes().size();
+        final BidirectionalSearchResult result =
+                super.bidirectionalSearch(inputTags, goalTags, ply, budget);
+        invalidateIfDeleted(size);
+        return result;
+    }
+
+    /**
+     * Invalidates the compiled network if KNs were deleted.
+     *
+     * @param size the number of KNs before
+     */
+    private void invalidateIfDeleted(final int size) {
+        if (getKnowledgeNodes().size() != size) {
+            compiledForwardSearcher.invalidate();
+        }
+    }
+
+    @Override
+    public Set<Tag> lambdaSearch(final Set<Tag> inputTags, final int ply) {
+        return compiledForwardSearcher
+                .search(backwardSearch(inputTags, ply), ply);
+    }
+
+    @Override
+    public Set<Tag> lambdaThink(final int ply) {
+        return lambdaSearch(activeTags, ply);
+    }
+}
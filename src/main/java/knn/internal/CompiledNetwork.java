@@ -0,0 +1,149 @@
+package knn.internal;
+
+import java.util.Map;
+import knn.api.KnowledgeNode;
+import tags.Tag;
+
+/**
+ * Compiled representation of the KNN. Tags are given dense integer ids and
+ * the output Tags of the KNs are stored in compressed sparse row (CSR) form:
+ * the output Tag ids of the KN with input Tag id {@code i} are found in
+ * {@code outputIds[outputOffsets[i]]} to
+ * {@code outputIds[outputOffsets[i + 1] - 1]}.
+ */
+final class CompiledNetwork {
+    private final TagDictionary dictionary;
+    private final KnowledgeNode[] kns;
+    private final int[] outputOffsets;
+    private final int[] outputIds;
+
+    private CompiledNetwork(
+            final TagDictionary dictionary,
+            final KnowledgeNode[] kns,
+            final int[] outputOffsets,
+            final int[] outputIds) {
+        this.dictionary = dictionary;
+        this.kns = kns;
+        this.outputOffsets = outputOffsets;
+        this.outputIds = outputIds;
+    }
+
+    /**
+     * Compiles the given KNs.
+     *
+     * @param mapKN the mapping from input Tags to KNs
+     * @return the compiled network
+     */
+    static CompiledNetwork compile(final Map<Tag, KnowledgeNode> mapKN) {
+        final TagDictionary dictionary = new TagDictionary();
+        int numOutputs = 0;
+        for (final KnowledgeNode kn : mapKN.values()) {
+            dictionary.getOrAdd(kn.getInputTag());
+            numOutputs += kn.getOutputTags().size();
+        }
+        for (final KnowledgeNode kn : mapKN.values()) {
+            for (final Tag t : kn.getOutputTags()) {
+                dictionary.getOrAdd(t);
+            }
+        }
+        final int numTags = dictionary.size();
+        final KnowledgeNode[] kns = new KnowledgeNode[numTags];
+        final int[] outputCounts = new int[numTags];
+        for (final KnowledgeNode kn : mapKN.values()) {
+            final int id = dictionary.getId(kn.getInputTag());
+            kns[id] = kn;
+            outputCounts[id] = kn.getOutputTags().size();
+        }
+        final int[] outputOffsets = new int[numTags + 1];
+        for (int i = 0; i < numTags; i++) {
+            outputOffsets[i + 1] = outputOffsets[i] + outputCounts[i];
+        }
+        final int[] outputIds = new int[numOutputs];
+        for (int i = 0; i < numTags; i++) {
+            if (kns[i] != null) {
+                int j = outputOffsets[i];
+                for (final Tag t : kns[i].getOutputTags()) {
+                    outputIds[j++] = dictionary.getId(t);
+                }
+            }
+        }
+        return new CompiledNetwork(dictionary, kns, outputOffsets, outputIds);
+    }
+
+    /**
+     * @return the number of Tags in the compiled network
+     */
+    int size() {
+        return dictionary.size();
+    }
+
+    /**
+     * Gets the id of the given Tag.
+     *
+     * @param tag the Tag
+     * @return the id of the Tag, or {@link TagDictionary#NO_ID} if the Tag is
+     * not in the compiled network
+     */
+    int getId(final Tag tag) {
+        return dictionary.getId(tag);
+    }
+
+    /**
+     * Gets the Tag with the given id.
+     *
+     * @param id the Tag id
+     * @return the Tag
+     */
+    Tag getTag(final int id) {
+        return dictionary.getTag(id);
+    }
+
+    /**
+     * Gets the KN whose input Tag has the given id.
+     *
+     * @param id the input Tag id
+     * @return the KN, or null if there is no KN for the Tag
+     */
+    KnowledgeNode getKnowledgeNode(final int id) {
+        return kns[id];
+    }
+
+    /**
+     * Removes the KN whose input Tag has the given id, without recompiling.
+     *
+     * @param id the input Tag id
+     */
+    void removeKnowledgeNode(final int id) {
+        kns[id] = null;
+    }
+
+    /**
+     * Gets the start offset of the output Tag ids of a KN.
+     *
+     * @param id the input Tag id of the KN
+     * @return the start offset (inclusive) in the output ids
+     */
+    int getOutputStart(final int id) {
+        return outputOffsets[id];
+    }
+
+    /**
+     * Gets the end offset of the output Tag ids of a KN.
+     *
+     * @param id the input Tag id of the KN
+     * @return the end offset (exclusive) in the output ids
+     */
+    int getOutputEnd(final int id) {
+        return outputOffsets[id + 1];
+    }
+
+    /**
+     * Gets the output Tag id at the given offset.
+     *
+     * @param offset the offset in the output ids
+     * @return the output Tag id
+     */
+    int getOutputId(final int offset) {
+        return outputIds[offset];
+    }
+}
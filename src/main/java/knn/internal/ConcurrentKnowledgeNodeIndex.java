@@ -0,0 +1,403 @@
+package knn.internal;
+
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import com.google.inject.Inject;
+import knn.api.KnowledgeNode;
+import knn.api.KnowledgeNodeClock;
+import tags.Tag;
+
+/**
+ * Thread-safe implementation of the KN indexes, without global locking.
+ * <p>
+ * KNs are identified by their input Tag, as in the KNN. Recency is tracked by
+ * stamping each KN with its age timestamp and an increasing sequence number
+ * when it is added or excited, the KNs being ordered by decreasing timestamp,
+ * then decreasing sequence number, in a concurrent skip list. Iteration is
+ * weakly consistent: a KN excited during an iteration may be seen twice. The
+ * last sequence number, also taken by removals, is the version of the indexed
+ * KNs.
+ * <p>
+ * The expiry of the KNs is scheduled in an {@link ExpiryWheel}, locked when
+ * KNs are added or removed, but not when they are excited.
+ * <p>
+ * When a journal is set, a KN is added, excited or removed while holding the
+ * {@link JournalLocks} lock of its input Tag, so that the changes to the same
+ * KN are recorded in order.
+ */
+final class ConcurrentKnowledgeNodeIndex implements KnowledgeNodeIndex {
+    /**
+     * Orders the stamps by decreasing timestamp, then decreasing sequence
+     * number.
+     */
+    private static final Comparator<Stamp> MOST_RECENT_FIRST =
+            Comparator.<Stamp>comparingLong(stamp -> stamp.timeStamp)
+                    .thenComparingLong(stamp -> stamp.value)
+                    .reversed();
+
+    private final AtomicLong clock;
+    /**
+     * The current stamp of each KN, by input Tag.
+     */
+    private final ConcurrentMap<Tag, Stamp> stamps;
+    /**
+     * The KNs by stamp, from the most to the least recent.
+     */
+    private final ConcurrentSkipListMap<Stamp, KnowledgeNode> knsByStamp;
+    /**
+     * The KNs which output a Tag, by input Tag.
+     */
+    private final ConcurrentMap<Tag, ConcurrentMap<Tag, KnowledgeNode>>
+            knsByOutputTag;
+    private final Set<KnowledgeNode> knowledgeNodes;
+    private final ExpiryWheel expiryWheel;
+    private final JournalLocks journalLocks;
+    private volatile KnowledgeNodeJournal journal;
+
+    @Inject
+    ConcurrentKnowledgeNodeIndex(final KnowledgeNodeClock knowledgeNodeClock) {
+        this.clock = new AtomicLong();
+        this.stamps = new ConcurrentHashMap<>();
+        this.knsByStamp = new ConcurrentSkipListMap<>(MOST_RECENT_FIRST);
+        this.knsByOutputTag = new ConcurrentHashMap<>();
+        this.knowledgeNodes = new KnowledgeNodes();
+        this.expiryWheel = new ExpiryWheel(knowledgeNodeClock.currentTime());
+        this.journalLocks = new JournalLocks();
+    }
+
+    @Override
+    public void add(final KnowledgeNode kn) {
+        final KnowledgeNodeJournal recorder = journal;
+        if (recorder == null) {
+            addStamp(kn, null);
+            return;
+        }
+        synchronized (journalLocks.of(kn.getInputTag())) {
+            addStamp(kn, recorder);
+        }
+    }
+
+    /**
+     * Stamps an added KN, in place of the KN with the same input Tag.
+     *
+     * @param kn       the KN
+     * @param recorder the journal recording the addition, null if there is
+     *                 none
+     */
+    private void addStamp(final KnowledgeNode kn,
+                          final KnowledgeNodeJournal recorder) {
+        final Tag inputTag = kn.getInputTag();
+        final Stamp stamp = new Stamp(kn, clock.incrementAndGet());
+        knsByStamp.put(stamp, kn);
+        while (true) {
+            final Stamp current = stamps.get(inputTag);
+            if (current == null) {
+                if (stamps.putIfAbsent(inputTag, stamp) == null) {
+                    schedule(null, kn);
+                    addOutputTags(kn);
+                    record(recorder, kn, true);
+                    return;
+                }
+            } else if (stamps.replace(inputTag, current, stamp)) {
+                knsByStamp.remove(current);
+                if (current.kn != kn) {
+                    schedule(current.kn, kn);
+                    removeOutputTags(current.kn);
+                    addOutputTags(kn);
+                    record(recorder, kn, true);
+                }
+                return;
+            }
+        }
+    }
+
+    @Override
+    public void remove(final KnowledgeNode kn) {
+        if (removeStamp(kn)) {
+            synchronized (expiryWheel) {
+                expiryWheel.remove(kn);
+            }
+        }
+    }
+
+    @Override
+    public List<KnowledgeNode> removeExpired(final long now) {
+        final List<KnowledgeNode> due;
+        synchronized (expiryWheel) {
+            due = expiryWheel.advance(now);
+        }
+        final List<KnowledgeNode> expired = new ArrayList<>(due.size());
+        for (final KnowledgeNode kn : due) {
+            if (removeStamp(kn)) {
+                expired.add(kn);
+            }
+        }
+        return expired;
+    }
+
+    /**
+     * Removes the given KN from the recency and output Tag indexes, if it is
+     * the current KN of its input Tag.
+     *
+     * @param kn the KN to remove
+     * @return true if the KN was removed
+     */
+    private boolean removeStamp(final KnowledgeNode kn) {
+        final KnowledgeNodeJournal recorder = journal;
+        if (recorder == null) {
+            return removeStamp(kn, null);
+        }
+        synchronized (journalLocks.of(kn.getInputTag())) {
+            return removeStamp(kn, recorder);
+        }
+    }
+
+    /**
+     * Removes the given KN from the recency and output Tag indexes, if it is
+     * the current KN of its input Tag.
+     *
+     * @param kn       the KN to remove
+     * @param recorder the journal recording the removal, null if there is
+     *                 none
+     * @return true if the KN was removed
+     */
+    private boolean removeStamp(final KnowledgeNode kn,
+                                final KnowledgeNodeJournal recorder) {
+        final Tag inputTag = kn.getInputTag();
+        while (true) {
+            final Stamp current = stamps.get(inputTag);
+            if (current == null || current.kn != kn) {
+                return false;
+            }
+            if (stamps.remove(inputTag, current)) {
+                knsByStamp.remove(current);
+                clock.incrementAndGet();
+                removeOutputTags(kn);
+                if (recorder != null) {
+                    recorder.remove(kn);
+                }
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Schedules the expiry of an added KN, in place of the KN it replaces.
+     *
+     * @param replaced the replaced KN, or null if there is none
+     * @param kn       the added KN
+     */
+    private void schedule(final KnowledgeNode replaced,
+                          final KnowledgeNode kn) {
+        synchronized (expiryWheel) {
+            if (replaced != null) {
+                expiryWheel.remove(replaced);
+            }
+            expiryWheel.add(kn);
+        }
+    }
+
+    @Override
+    public void clear() {
+        synchronized (expiryWheel) {
+            expiryWheel.clear();
+        }
+        stamps.clear();
+        knsByStamp.clear();
+        knsByOutputTag.clear();
+        clock.incrementAndGet();
+        final KnowledgeNodeJournal recorder = journal;
+        if (recorder != null) {
+            recorder.clear();
+        }
+    }
+
+    @Override
+    public boolean excite(final KnowledgeNode kn, final long now) {
+        final KnowledgeNodeJournal recorder = journal;
+        if (recorder == null) {
+            return exciteStamp(kn, now, null);
+        }
+        synchronized (journalLocks.of(kn.getInputTag())) {
+            return exciteStamp(kn, now, recorder);
+        }
+    }
+
+    /**
+     * Excites a KN, and restamps it if it is indexed.
+     *
+     * @param kn       the KN
+     * @param now      the current time
+     * @param recorder the journal recording the state of the KN, null if
+     *                 there is none
+     * @return true if the KN has been newly fired
+     */
+    private boolean exciteStamp(final KnowledgeNode kn, final long now,
+                                final KnowledgeNodeJournal recorder) {
+        final boolean fired = kn.excite(now);
+        final Tag inputTag = kn.getInputTag();
+        final Stamp stamp = new Stamp(kn, clock.incrementAndGet());
+        // The new stamp is visible before the KN is restamped, so that a
+        // concurrent removal always finds the stamp to remove.
+        knsByStamp.put(stamp, kn);
+        while (true) {
+            final Stamp current = stamps.get(inputTag);
+            if (current == null || current.kn != kn) {
+                knsByStamp.remove(stamp);
+                return fired;
+            }
+            if (stamps.replace(inputTag, current, stamp)) {
+                knsByStamp.remove(current);
+                record(recorder, kn, false);
+                return fired;
+            }
+        }
+    }
+
+    @Override
+    public Set<KnowledgeNode> getKnowledgeNodes() {
+        return knowledgeNodes;
+    }
+
+    @Override
+    public Set<KnowledgeNode> getCandidates(final Set<Tag> tags) {
+        final Set<KnowledgeNode> candidates =
+                Collections.newSetFromMap(new IdentityHashMap<>());
+        for (final Tag t : tags) {
+            final Map<Tag, KnowledgeNode> kns = knsByOutputTag.get(t);
+            if (kns != null) {
+                candidates.addAll(kns.values());
+            }
+        }
+        return candidates;
+    }
+
+    /**
+     * Backward search is always exact with these indexes.
+     *
+     * @param tags               the input Tags
+     * @param numRequiredMatches the number of input Tags a KN must output
+     * @return the KNs which output at least one of the Tags
+     */
+    @Override
+    public Set<KnowledgeNode> getCandidates(final Set<Tag> tags,
+                                            final int numRequiredMatches) {
+        return getCandidates(tags);
+    }
+
+    @Override
+    public long getVersion() {
+        return clock.get();
+    }
+
+    @Override
+    public void setJournal(final KnowledgeNodeJournal journal) {
+        this.journal = journal;
+    }
+
+    /**
+     * Records the given KN in the given journal, if any.
+     *
+     * @param recorder the journal, null if there is none
+     * @param kn       the KN
+     * @param added    true if the KN was added, false if it was excited
+     */
+    private static void record(final KnowledgeNodeJournal recorder,
+                               final KnowledgeNode kn, final boolean added) {
+        if (recorder == null) {
+            return;
+        }
+        if (added) {
+            recorder.add(kn);
+        } else {
+            recorder.excite(kn);
+        }
+    }
+
+    /**
+     * Indexes the output Tags of the given KN.
+     *
+     * @param kn the KN
+     */
+    private void addOutputTags(final KnowledgeNode kn) {
+        for (final Tag t : kn.getOutputTags()) {
+            knsByOutputTag
+                    .computeIfAbsent(t, k -> new ConcurrentHashMap<>())
+                    .put(kn.getInputTag(), kn);
+        }
+    }
+
+    /**
+     * Removes the output Tags of the given KN from the index. Empty entries
+     * are left in place, since removing them could race with a concurrent
+     * addition.
+     *
+     * @param kn the KN
+     */
+    private void removeOutputTags(final KnowledgeNode kn) {
+        for (final Tag t : kn.getOutputTags()) {
+            final ConcurrentMap<Tag, KnowledgeNode> kns = knsByOutputTag.get(t);
+            if (kns != null) {
+                kns.remove(kn.getInputTag(), kn);
+            }
+        }
+    }
+
+    /**
+     * A KN with its recency stamp: its age timestamp when it was stamped,
+     * and a sequence number, unique to the stamp.
+     */
+    private static final class Stamp {
+        private final KnowledgeNode kn;
+        private final long timeStamp;
+        private final long value;
+
+        /**
+         * Creates a stamp of the current age timestamp of a KN.
+         *
+         * @param kn    the KN
+         * @param value the sequence number
+         */
+        private Stamp(final KnowledgeNode kn, final long value) {
+            this.kn = kn;
+            this.timeStamp = kn.getAgeTimeStamp();
+            this.value = value;
+        }
+    }
+
+    /**
+     * View of the indexed KNs, from the most to the least recent.
+     */
+    private final class KnowledgeNodes extends AbstractSet<KnowledgeNode> {
+        @Override
+        public Iterator<KnowledgeNode> iterator() {
+            return knsByStamp.values().iterator();
+        }
+
+        @Override
+        public int size() {
+            return stamps.size();
+        }
+
+        @Override
+        public boolean contains(final Object o) {
+            if (!(o instanceof KnowledgeNode)) {
+                return false;
+            }
+            final KnowledgeNode kn = (KnowledgeNode) o;
+            final Stamp stamp = stamps.get(kn.getInputTag());
+            return stamp != null && stamp.kn == kn;
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package knn.internal;
+
+import javax.inject.Inject;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import com.google.inject.assistedinject.Assisted;
+import knn.api.KnowledgeNode;
+import tags.Tag;
+
+/**
+ * Thread-safe implementation of the KNN, so that searches may run
+ * concurrently without global locking.
+ * <p>
+ * The given KN mapping and active Tags are copied into concurrent structures,
+ * the KNs are indexed by a {@link ConcurrentKnowledgeNodeIndex}, and KNs are
+ * excited atomically (see {@link KnowledgeNode#excite()}), so each KN fires
+ * at most once even when excited by concurrent searches.
+ */
+class ConcurrentKnowledgeNodeNetworkImpl extends KnowledgeNodeNetworkImpl {
+    @Inject
+    ConcurrentKnowledgeNodeNetworkImpl(
+            @Assisted("mapKN") final Map<Tag, KnowledgeNode> mapKN,
+            @Assisted("activeTags") final Set<Tag> activeTags,
+            @Assisted("backwardSearchMatchRatio") final
+            double backwardSearchMatchRatio,
+            @Assisted("backwardSearchAgeLimit")
+            final long backwardSearchAgeLimit,
+            final ConcurrentKnowledgeNodeIndex knowledgeNodeIndex,
+            final DirectSearcherFactory directSearcherFactory,
+            final ForwardSearcherFactory forwardSearcherFactory,
+            final BackwardSearcherFactory backwardSearcherFactory,
+            final LambdaSearcherFactory lambdaSearcherFactory) {
+        super(new ConcurrentHashMap<>(mapKN),
+                new JournaledTagSet(newConcurrentSet(activeTags)),
+                backwardSearchMatchRatio, backwardSearchAgeLimit,
+                knowledgeNodeIndex, directSearcherFactory,
+                forwardSearcherFactory, backwardSearcherFactory,
+                lambdaSearcherFactory);
+    }
+
+    /**
+     * Copies the given Tags into a concurrent set.
+     *
+     * @param tags the Tags
+     * @return the concurrent set of Tags
+     */
+    private static Set<Tag> newConcurrentSet(final Set<Tag> tags) {
+        final Set<Tag> set = ConcurrentHashMap.newKeySet();
+        set.addAll(tags);
+        return set;
+    }
+}
@@ -1,13 +1,15 @@
 package knn.internal;
 
 import java.util.Collections;
-import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
-import java.util.TreeSet;
 import com.google.inject.Inject;
 import com.google.inject.assistedinject.Assisted;
 import knn.api.KnowledgeNode;
+import knn.api.KnowledgeNodeClock;
+import knn.api.SearchListener;
+import knn.api.SearchTrace;
+import knn.api.SearchType;
 import tags.Tag;
 
 /**
@@ -16,17 +18,63 @@ import tags.Tag;
 class DirectSearcher {
     private final Map<Tag, KnowledgeNode> mapKN;
     private final Set<Tag> activeTags;
-    private final TreeSet<KnowledgeNode> ageSortedKNs;
+    private final KnowledgeNodeIndex knowledgeNodeIndex;
+    private final SearchListener searchListener;
+    private final KnowledgeNodeClock clock;
 
     @Inject
     DirectSearcher(
             @Assisted("mapKN") final Map<Tag, KnowledgeNode> mapKN,
             @Assisted("activeTags") final Set<Tag> activeTags,
-            @Assisted("ageSortedKNs")
-            final TreeSet<KnowledgeNode> ageSortedKNs) {
+            @Assisted("knowledgeNodeIndex")
+            final KnowledgeNodeIndex knowledgeNodeIndex,
+            final SearchListener searchListener,
+            final KnowledgeNodeClock clock) {
         this.mapKN = mapKN;
         this.activeTags = activeTags;
-        this.ageSortedKNs = ageSortedKNs;
+        this.knowledgeNodeIndex = knowledgeNodeIndex;
+        this.searchListener = searchListener;
+        this.clock = clock;
+    }
+
+    /**
+     * Creates a direct searcher like this one, on other KNs and active Tags.
+     *
+     * @param otherMapKN              the mapping from tags to KNs
+     * @param otherActiveTags         the active Tags
+     * @param otherKnowledgeNodeIndex the indexes of the KNs
+     * @return the new direct searcher
+     */
+    DirectSearcher withKnowledgeNodes(
+            final Map<Tag, KnowledgeNode> otherMapKN,
+            final Set<Tag> otherActiveTags,
+            final KnowledgeNodeIndex otherKnowledgeNodeIndex) {
+        return new DirectSearcher(otherMapKN, otherActiveTags,
+                otherKnowledgeNodeIndex, searchListener, clock);
+    }
+
+    /**
+     * @return the listener of the searches
+     */
+    final SearchListener getSearchListener() {
+        return searchListener;
+    }
+
+    /**
+     * @return the clock aging the KNs
+     */
+    KnowledgeNodeClock getClock() {
+        return clock;
+    }
+
+    /**
+     * Starts tracing a search run with this direct searcher.
+     *
+     * @param type the type of the search
+     * @return the trace of the search events
+     */
+    final SearchTrace startSearch(final SearchType type) {
+        return searchListener.searchStarted(type);
     }
 
     /**
@@ -36,22 +84,107 @@ class DirectSearcher {
      * @return the activated output tags (excluding the given input Tag)
      */
     Set<Tag> search(final Tag inputTag) {
-        final Set<Tag> activatedTags = new HashSet<>();
-        if (mapKN.containsKey(inputTag)) {
-            final KnowledgeNode kn = mapKN.get(inputTag);
-            ageSortedKNs.remove(kn);
-            final boolean fired = kn.excite();
-            ageSortedKNs.add(kn);
+        final SearchTrace trace = startSearch(SearchType.DIRECT);
+        final Set<Tag> activatedTags =
+                search(inputTag, trace, clock.searchStarted());
+        trace.searchEnded();
+        return Collections.unmodifiableSet(activatedTags);
+    }
+
+    /**
+     * Search for the given input Tag in the KN map, as part of a search.
+     *
+     * @param inputTag the input Tag to search for
+     * @param trace    the trace of the search events
+     * @param now      the time of the search
+     * @return the activated output tags (excluding the given input Tag), in
+     * a new set created by {@link #newTagSet()}, which the caller takes over,
+     * so that adding it to another such set combines their bitmaps
+     */
+    Set<Tag> search(final Tag inputTag, final SearchTrace trace,
+                    final long now) {
+        final Set<Tag> activatedTags = newTagSet();
+        final KnowledgeNode kn = fire(inputTag, trace, now);
+        if (kn != null) {
+            activatedTags.addAll(kn.getOutputTags());
+            trace.tagsActivated(activatedTags.size());
+        }
+        this.activeTags.addAll(activatedTags);
+        return activatedTags;
+    }
+
+    /**
+     * Excites the KN of the given input Tag, if any, deleting it if it is
+     * expired, and activates the input Tag. The output Tags of the KN are
+     * left to the caller to activate, see {@link #activate(Set)}.
+     *
+     * @param inputTag the input Tag
+     * @param trace    the trace of the search events
+     * @param now      the time of the search
+     * @return the KN if it has been newly fired, else null
+     */
+    KnowledgeNode fire(final Tag inputTag, final SearchTrace trace,
+                       final long now) {
+        return fire(inputTag, mapKN.get(inputTag), trace, now);
+    }
+
+    /**
+     * Excites the given KN, already looked up by its input Tag, as
+     * {@link #fire(Tag, SearchTrace, long)} does.
+     *
+     * @param inputTag the input Tag
+     * @param kn       the KN of the input Tag, or null if there is none
+     * @param trace    the trace of the search events
+     * @param now      the time of the search
+     * @return the KN if it has been newly fired, else null
+     */
+    KnowledgeNode fire(final Tag inputTag, final KnowledgeNode kn,
+                       final SearchTrace trace, final long now) {
+        KnowledgeNode firedKn = null;
+        if (kn != null) {
+            trace.knowledgeNodeVisited(inputTag);
+            final boolean fired = knowledgeNodeIndex.excite(kn, now);
             if (fired) {
-                activatedTags.addAll(kn.getOutputTags());
+                trace.knowledgeNodeFired(inputTag);
+                firedKn = kn;
             } else if (kn.isExpired()) {
-                mapKN.remove(kn.getInputTag());
+                trace.knowledgeNodeExpired(inputTag);
+                mapKN.remove(kn.getInputTag(), kn);
                 activeTags.remove(kn.getInputTag());
-                ageSortedKNs.remove(kn);
+                knowledgeNodeIndex.remove(kn);
             }
         }
         this.activeTags.add(inputTag);
-        this.activeTags.addAll(activatedTags);
-        return Collections.unmodifiableSet(activatedTags);
+        return firedKn;
+    }
+
+    /**
+     * Gets the KN of the given input Tag.
+     *
+     * @param inputTag the input Tag
+     * @return the KN, or null if there is none
+     */
+    KnowledgeNode getKnowledgeNode(final Tag inputTag) {
+        return mapKN.get(inputTag);
+    }
+
+    /**
+     * Creates an empty set of Tags for a search, stored like the active
+     * Tags, so that the Tags it activates are added to the active Tags at
+     * once, see {@link TagBitSet#newSetLike(Set)}.
+     *
+     * @return the new set
+     */
+    final Set<Tag> newTagSet() {
+        return TagBitSet.newSetLike(activeTags);
+    }
+
+    /**
+     * Activates the given Tags.
+     *
+     * @param tags the Tags
+     */
+    void activate(final Set<Tag> tags) {
+        activeTags.addAll(tags);
     }
 }
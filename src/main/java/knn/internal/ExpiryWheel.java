@@ -0,0 +1,254 @@
+package knn.internal;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import knn.api.KnowledgeNode;
+
+/**
+ * Hierarchical timing wheel scheduling the expiry of KNs. A KN expires when
+ * it has not been excited for longer than {@link KnowledgeNode#AGE_THRESHOLD},
+ * i.e., at its deadline, see {@link #getDeadline(KnowledgeNode)}, or as soon
+ * as it is flagged expired.
+ * <p>
+ * Each level of the wheel has 64 slots spanning a power of two units of
+ * the clock: with the wall clock, about a second, a minute, an hour and
+ * three days; the deadlines further away wait in a single overflow slot.
+ * A KN is scheduled in the finest level whose slots cover the time to its
+ * deadline. Advancing the wheel visits the slots elapsed since it was last
+ * advanced, at most 64 per level, and the current slot of the finest level,
+ * and only the KNs in them: each is either expired, or scheduled again, in
+ * a finer level or at a later deadline if it was excited meanwhile.
+ * Exciting a KN thus leaves the wheel untouched, and a KN which stays alive
+ * is only rescheduled when its former deadline comes near.
+ * <p>
+ * Not thread-safe.
+ */
+final class ExpiryWheel {
+    private static final int SLOTS = 64;
+    /**
+     * The number of bits of the time spanned by the slots of each level, the
+     * last level being the overflow slot.
+     */
+    private static final int[] SHIFTS = {10, 16, 22, 28, 34};
+
+    private final Timer[][] wheel;
+    private final Timer due;
+    private final Map<KnowledgeNode, Timer> timers;
+    private long time;
+
+    /**
+     * Creates an empty wheel.
+     *
+     * @param time the current time, see {@link knn.api.KnowledgeNodeClock}
+     */
+    ExpiryWheel(final long time) {
+        this.wheel = new Timer[SHIFTS.length][];
+        for (int i = 0; i < SHIFTS.length; i++) {
+            int slots = SLOTS;
+            if (i == SHIFTS.length - 1) {
+                slots = 1;
+            }
+            wheel[i] = new Timer[slots];
+            for (int j = 0; j < slots; j++) {
+                wheel[i][j] = new Timer(null);
+            }
+        }
+        this.due = new Timer(null);
+        this.timers = new IdentityHashMap<>();
+        this.time = time;
+    }
+
+    /**
+     * @param kn a KN
+     * @return the first time at which the KN is expired if it is not
+     * excited meanwhile
+     */
+    static long getDeadline(final KnowledgeNode kn) {
+        return kn.getAgeTimeStamp() + KnowledgeNode.AGE_THRESHOLD + 1;
+    }
+
+    /**
+     * Schedules the expiry of a KN, or reschedules it if the KN is already
+     * scheduled.
+     *
+     * @param kn the KN
+     */
+    void add(final KnowledgeNode kn) {
+        Timer timer = timers.get(kn);
+        if (timer == null) {
+            timer = new Timer(kn);
+            timers.put(kn, timer);
+        } else {
+            timer.unlink();
+        }
+        schedule(timer);
+    }
+
+    /**
+     * Cancels the expiry of a KN.
+     *
+     * @param kn the KN
+     */
+    void remove(final KnowledgeNode kn) {
+        final Timer timer = timers.remove(kn);
+        if (timer != null) {
+            timer.unlink();
+        }
+    }
+
+    /**
+     * Cancels the expiry of all the KNs.
+     */
+    void clear() {
+        for (final Timer[] slots : wheel) {
+            for (final Timer sentinel : slots) {
+                sentinel.clear();
+            }
+        }
+        due.clear();
+        timers.clear();
+    }
+
+    /**
+     * @return the number of scheduled KNs
+     */
+    int size() {
+        return timers.size();
+    }
+
+    /**
+     * Advances the wheel to the given time, and removes the KNs expired by
+     * then.
+     *
+     * @param now the current time
+     * @return the expired KNs, no longer scheduled
+     */
+    List<KnowledgeNode> advance(final long now) {
+        final List<KnowledgeNode> expired = new ArrayList<>();
+        final long previous = time;
+        if (now > previous) {
+            time = now;
+            for (int i = 0; i < SHIFTS.length; i++) {
+                final long previousTicks = previous >>> SHIFTS[i];
+                final long currentTicks = now >>> SHIFTS[i];
+                if (i > 0 && currentTicks == previousTicks) {
+                    break;
+                }
+                final Timer[] slots = wheel[i];
+                final int mask = slots.length - 1;
+                final long steps = Math.min(
+                        1 + currentTicks - previousTicks, slots.length);
+                final int start = (int) (previousTicks & mask);
+                for (int j = start; j < start + steps; j++) {
+                    visit(slots[j & mask], expired);
+                }
+            }
+        }
+        visit(due, expired);
+        return expired;
+    }
+
+    /**
+     * Visits the KNs of a slot: the expired ones are removed, and the other
+     * ones scheduled again.
+     *
+     * @param sentinel the sentinel of the slot
+     * @param expired  the expired KNs, to which the expired KNs of the slot
+     *                 are added
+     */
+    private void visit(final Timer sentinel,
+                       final List<KnowledgeNode> expired) {
+        Timer timer = sentinel.next;
+        sentinel.clear();
+        while (timer != sentinel) {
+            final Timer next = timer.next;
+            final KnowledgeNode kn = timer.kn;
+            if (kn.isExpired() || getDeadline(kn) <= time) {
+                timers.remove(kn);
+                expired.add(kn);
+            } else {
+                schedule(timer);
+            }
+            timer = next;
+        }
+    }
+
+    /**
+     * Links the timer of a KN into the slot of its deadline, or into the due
+     * KNs if the KN is expired already.
+     *
+     * @param timer the timer, unlinked
+     */
+    private void schedule(final Timer timer) {
+        final KnowledgeNode kn = timer.kn;
+        final long deadline = getDeadline(kn);
+        if (kn.isExpired() || deadline <= time) {
+            timer.linkBefore(due);
+            return;
+        }
+        final long duration = deadline - time;
+        for (int i = 0; i < SHIFTS.length - 1; i++) {
+            if (duration < 1L << SHIFTS[i + 1]) {
+                final Timer[] slots = wheel[i];
+                final int slot =
+                        (int) ((deadline >>> SHIFTS[i]) & (slots.length - 1));
+                timer.linkBefore(slots[slot]);
+                return;
+            }
+        }
+        timer.linkBefore(wheel[SHIFTS.length - 1][0]);
+    }
+
+    /**
+     * The expiry of a KN, linked in the circular list of its slot, or a
+     * sentinel of such a list.
+     */
+    private static final class Timer {
+        private final KnowledgeNode kn;
+        private Timer prev;
+        private Timer next;
+
+        /**
+         * Creates an unlinked timer.
+         *
+         * @param kn the KN, null for a sentinel
+         */
+        private Timer(final KnowledgeNode kn) {
+            this.kn = kn;
+            this.prev = this;
+            this.next = this;
+        }
+
+        /**
+         * Links the timer as the last one of the list of the given sentinel.
+         *
+         * @param sentinel the sentinel
+         */
+        private void linkBefore(final Timer sentinel) {
+            prev = sentinel.prev;
+            next = sentinel;
+            sentinel.prev.next = this;
+            sentinel.prev = this;
+        }
+
+        /**
+         * Unlinks the timer from its list.
+         */
+        private void unlink() {
+            prev.next = next;
+            next.prev = prev;
+            prev = this;
+            next = this;
+        }
+
+        /**
+         * Empties the list of the sentinel, without unlinking the timers.
+         */
+        private void clear() {
+            prev = this;
+            next = this;
+        }
+    }
+}
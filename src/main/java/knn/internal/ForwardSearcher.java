@@ -1,10 +1,16 @@
 package knn.internal;
 
+import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 import com.google.inject.Inject;
 import com.google.inject.assistedinject.Assisted;
+import knn.api.KnowledgeNode;
+import knn.api.KnowledgeNodeClock;
+import knn.api.SearchListener;
+import knn.api.SearchTrace;
+import knn.api.SearchType;
 import tags.Tag;
 
 /**
@@ -19,19 +25,273 @@ class ForwardSearcher extends Searcher<Set<Tag>> {
         this.directSearcher = directSearcher;
     }
 
+    /**
+     * Creates a forward searcher like this one, on another direct searcher.
+     *
+     * @param otherDirectSearcher the direct searcher
+     * @return the new forward searcher
+     */
+    ForwardSearcher withDirectSearcher(
+            final DirectSearcher otherDirectSearcher) {
+        return new ForwardSearcher(otherDirectSearcher);
+    }
+
+    /**
+     * @return the direct searcher firing the KNs
+     */
+    final DirectSearcher getDirectSearcher() {
+        return directSearcher;
+    }
+
+    /**
+     * @return the listener of the searches
+     */
+    final SearchListener getSearchListener() {
+        return directSearcher.getSearchListener();
+    }
+
+    /**
+     * @return the clock aging the KNs
+     */
+    final KnowledgeNodeClock getClock() {
+        return directSearcher.getClock();
+    }
+
+    @Override
+    SearchTrace startSearch() {
+        return directSearcher.startSearch(SearchType.FORWARD);
+    }
+
     @Override
-    Set<Tag> searchInternal(final Set<Tag> inputTags, final double ply) {
-        final Set<Tag> allActivatedTags = new HashSet<>();
-        Set<Tag> currentPlyInputTags = new HashSet<>(inputTags);
+    Set<Tag> searchInternal(final Set<Tag> inputTags, final double ply,
+                            final SearchTrace trace) {
+        final long now = getClock().searchStarted();
+        final Set<Tag> allActivatedTags = directSearcher.newTagSet();
+        Set<Tag> currentPlyInputTags = directSearcher.newTagSet();
+        currentPlyInputTags.addAll(inputTags);
         for (int i = 0; i < ply && !currentPlyInputTags.isEmpty(); i++) {
-            final Set<Tag> activatedTags = new HashSet<>();
+            trace.plyStarted(i, currentPlyInputTags.size());
+            final Set<Tag> activatedTags =
+                    searchPly(currentPlyInputTags, trace, now);
+            trace.plyEnded(i, activatedTags.size());
+            allActivatedTags.addAll(activatedTags);
+            currentPlyInputTags = activatedTags;
+        }
+        return Collections.unmodifiableSet(allActivatedTags);
+    }
+
+    /**
+     * Performs beam search: forward search keeping, in each ply, only the
+     * activated Tags with the best scores, see {@link TagBeam}. The Tags out
+     * of the beam are neither activated nor searched further. The plies are
+     * searched on the calling thread.
+     *
+     * @param inputTags the input Tags of the search
+     * @param ply       the ply of the search, 0 to search until quiescence
+     * @param beamWidth the maximum number of Tags activated by each ply
+     * @return the Tags activated as a result of searching
+     * @throws IllegalArgumentException if the beam width is not positive
+     */
+    Set<Tag> search(final Set<Tag> inputTags, final double ply,
+                    final int beamWidth) {
+        TagBeam.checkWidth(beamWidth);
+        final double maxPly = maxPly(ply);
+        final SearchTrace trace = startSearch();
+        final long now = getClock().searchStarted();
+        final Set<Tag> allActivatedTags = directSearcher.newTagSet();
+        Set<Tag> currentPlyInputTags = directSearcher.newTagSet();
+        currentPlyInputTags.addAll(inputTags);
+        for (int i = 0; i < maxPly && !currentPlyInputTags.isEmpty(); i++) {
+            trace.plyStarted(i, currentPlyInputTags.size());
+            final TagBeam beam = new TagBeam(beamWidth);
             for (final Tag t : currentPlyInputTags) {
-                final Set<Tag> directActivatedTags = directSearcher.search(t);
-                activatedTags.addAll(directActivatedTags);
+                final KnowledgeNode kn = directSearcher.fire(t, trace, now);
+                if (kn != null) {
+                    beam.offer(kn);
+                }
             }
+            final Set<Tag> activatedTags = beam.getTags();
+            directSearcher.activate(activatedTags);
+            trace.tagsActivated(activatedTags.size());
+            trace.plyEnded(i, activatedTags.size());
             allActivatedTags.addAll(activatedTags);
             currentPlyInputTags = activatedTags;
         }
+        trace.searchEnded();
         return Collections.unmodifiableSet(allActivatedTags);
     }
+
+    /**
+     * Performs forward search for several independent queries in one pass,
+     * with the same results as searching them one by one, in order.
+     * <p>
+     * The queries advance one ply at a time together. A KN fires at most
+     * once, so a query only searches a KN which is not fired yet when all
+     * the earlier queries are done; until then, it waits, which keeps the
+     * queries firing the KNs in order. The KNs which are already fired
+     * activate nothing more, whichever query excites them first. The clock
+     * is read once for the whole batch.
+     *
+     * @param inputs the input Tags of each query
+     * @param ply    the ply of each query, 0 to search until quiescence
+     * @return the Tags activated by each query, in the order of the queries
+     */
+    List<Set<Tag>> searchBatch(final List<Set<Tag>> inputs, final int ply) {
+        final double maxPly = maxPly(ply);
+        final long now = getClock().searchStarted();
+        final List<Query> queries = new ArrayList<>(inputs.size());
+        for (final Set<Tag> inputTags : inputs) {
+            final Set<Tag> plyInputTags = directSearcher.newTagSet();
+            plyInputTags.addAll(inputTags);
+            queries.add(new Query(plyInputTags, directSearcher.newTagSet(),
+                    startSearch()));
+        }
+        int first = 0;
+        while (first < queries.size()) {
+            if (queries.get(first).isDone(maxPly)) {
+                first++;
+                continue;
+            }
+            for (int i = first; i < queries.size(); i++) {
+                final Query query = queries.get(i);
+                if (!query.isDone(maxPly)) {
+                    final KnowledgeNode[] kns =
+                            getKnowledgeNodes(query.plyInputTags);
+                    if (i == first || isFired(kns)) {
+                        searchPly(query, kns, now);
+                        query.endPly(maxPly);
+                    }
+                }
+            }
+        }
+        final List<Set<Tag>> results = new ArrayList<>(queries.size());
+        for (final Query query : queries) {
+            results.add(Collections.unmodifiableSet(query.allActivatedTags));
+        }
+        return results;
+    }
+
+    /**
+     * Searches the current ply of a query of a batch.
+     *
+     * @param query the query
+     * @param kns   the KNs of the input Tags of the ply, in iteration order
+     * @param now   the time of the batch
+     */
+    private void searchPly(final Query query, final KnowledgeNode[] kns,
+                           final long now) {
+        query.trace.plyStarted(query.ply, query.plyInputTags.size());
+        final Set<Tag> activatedTags = directSearcher.newTagSet();
+        int i = 0;
+        for (final Tag t : query.plyInputTags) {
+            final KnowledgeNode kn =
+                    directSearcher.fire(t, kns[i++], query.trace, now);
+            if (kn != null) {
+                activatedTags.addAll(kn.getOutputTags());
+                query.trace.tagsActivated(kn.getOutputTags().size());
+            }
+        }
+        directSearcher.activate(activatedTags);
+        query.activatedTags = activatedTags;
+    }
+
+    /**
+     * @param tags Tags
+     * @return the KNs of the Tags, or null for the Tags with no KN, in
+     * iteration order
+     */
+    private KnowledgeNode[] getKnowledgeNodes(final Set<Tag> tags) {
+        final KnowledgeNode[] kns = new KnowledgeNode[tags.size()];
+        int i = 0;
+        for (final Tag t : tags) {
+            kns[i++] = directSearcher.getKnowledgeNode(t);
+        }
+        return kns;
+    }
+
+    /**
+     * @param kns KNs, or nulls
+     * @return true if all the KNs are already fired
+     */
+    private static boolean isFired(final KnowledgeNode[] kns) {
+        for (final KnowledgeNode kn : kns) {
+            if (kn != null && !kn.isFired()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Performs direct search on each Tag of a ply.
+     *
+     * @param plyInputTags the input Tags of the ply
+     * @param trace        the trace of the search events
+     * @param now          the time of the search
+     * @return the Tags activated by the ply
+     */
+    Set<Tag> searchPly(final Set<Tag> plyInputTags, final SearchTrace trace,
+                       final long now) {
+        final Set<Tag> activatedTags = directSearcher.newTagSet();
+        for (final Tag t : plyInputTags) {
+            activatedTags.addAll(directSearcher.search(t, trace, now));
+        }
+        return activatedTags;
+    }
+
+    /**
+     * A query of a batch of forward searches.
+     */
+    private static final class Query {
+        private final SearchTrace trace;
+        private final Set<Tag> allActivatedTags;
+        private Set<Tag> plyInputTags;
+        private Set<Tag> activatedTags;
+        private int ply;
+        private boolean done;
+
+        /**
+         * Creates a query.
+         *
+         * @param inputTags        the input Tags of the query, which the
+         *                         query takes over
+         * @param allActivatedTags the empty set of the Tags activated by the
+         *                         query
+         * @param trace            the trace of the search events of the query
+         */
+        private Query(final Set<Tag> inputTags,
+                      final Set<Tag> allActivatedTags,
+                      final SearchTrace trace) {
+            this.trace = trace;
+            this.allActivatedTags = allActivatedTags;
+            this.plyInputTags = inputTags;
+        }
+
+        /**
+         * Checks if the query is done, and ends its trace when it is.
+         *
+         * @param maxPly the number of plies to search
+         * @return true if the query has searched all its plies
+         */
+        private boolean isDone(final double maxPly) {
+            if (!done && (ply >= maxPly || plyInputTags.isEmpty())) {
+                done = true;
+                trace.searchEnded();
+            }
+            return done;
+        }
+
+        /**
+         * Ends the current ply of the query, whose Tags have been activated.
+         *
+         * @param maxPly the number of plies to search
+         */
+        private void endPly(final double maxPly) {
+            trace.plyEnded(ply, activatedTags.size());
+            allActivatedTags.addAll(activatedTags);
+            plyInputTags = activatedTags;
+            ply++;
+            isDone(maxPly);
+        }
+    }
 }
@@ -0,0 +1,125 @@
+package knn.internal;
+
+/**
+ * TinyLFU sketch estimating how often keys were recently seen: a count-min
+ * sketch of four rows of 4-bit counters, packed sixteen to a long. A key
+ * increments the smallest of its four counters, and any other equal to it,
+ * which bounds the overestimation of the frequencies, and its frequency is
+ * the smallest of its counters. All the counters are halved once the number
+ * of increments reaches ten times the width of the rows, so that the
+ * frequencies follow the recent keys.
+ * <p>
+ * Keys are identified by their hash code only. Not thread-safe.
+ */
+final class FrequencySketch {
+    private static final int DEPTH = 4;
+    private static final int COUNTER_BITS = 4;
+    private static final int COUNTERS_PER_LONG = Long.SIZE / COUNTER_BITS;
+    private static final long MAX_COUNT = (1 << COUNTER_BITS) - 1;
+    /**
+     * Clears the highest bit of each counter after shifting them right.
+     */
+    private static final long HALVE_MASK = 0x7777777777777777L;
+    private static final int SAMPLE_FACTOR = 10;
+    /**
+     * Odd multipliers hashing the keys into each row.
+     */
+    private static final long[] SEEDS = {
+            0x9E3779B97F4A7C15L, 0xC2B2AE3D27D4EB4FL,
+            0x165667B19E3779F9L, 0xD6E8FEB86659FD93L};
+
+    private final long[] table;
+    private final int width;
+    private final int sampleSize;
+    private int additions;
+
+    /**
+     * Creates an empty sketch.
+     *
+     * @param capacity the number of keys to tell apart, e.g., the maximum
+     *                 number of entries of a cache
+     */
+    FrequencySketch(final int capacity) {
+        int w = COUNTERS_PER_LONG;
+        while (w < capacity && w < 1 << (Integer.SIZE - COUNTER_BITS - 2)) {
+            w <<= 1;
+        }
+        this.width = w;
+        this.table = new long[DEPTH * width / COUNTERS_PER_LONG];
+        this.sampleSize = SAMPLE_FACTOR * width;
+    }
+
+    /**
+     * Records that a key was seen.
+     *
+     * @param hash the hash code of the key
+     */
+    void increment(final int hash) {
+        final long min = frequency(hash);
+        if (min == MAX_COUNT) {
+            return;
+        }
+        for (int i = 0; i < DEPTH; i++) {
+            final int counter = counter(hash, i);
+            if (get(counter) == min) {
+                table[counter / COUNTERS_PER_LONG] +=
+                        1L << shift(counter);
+            }
+        }
+        if (++additions >= sampleSize) {
+            halve();
+        }
+    }
+
+    /**
+     * Estimates how often a key was recently seen.
+     *
+     * @param hash the hash code of the key
+     * @return the estimated frequency of the key, at most 15
+     */
+    int frequency(final int hash) {
+        long min = MAX_COUNT;
+        for (int i = 0; i < DEPTH; i++) {
+            min = Math.min(min, get(counter(hash, i)));
+        }
+        return (int) min;
+    }
+
+    /**
+     * Halves all the counters.
+     */
+    private void halve() {
+        for (int i = 0; i < table.length; i++) {
+            table[i] = (table[i] >>> 1) & HALVE_MASK;
+        }
+        additions /= 2;
+    }
+
+    /**
+     * @param hash the hash code of a key
+     * @param row  the index of a row
+     * @return the index of the counter of the key in the row
+     */
+    private int counter(final int hash, final int row) {
+        long h = (hash + SEEDS[row]) * SEEDS[row];
+        h ^= h >>> Integer.SIZE;
+        return row * width + ((int) h & (width - 1));
+    }
+
+    /**
+     * @param counter the index of a counter
+     * @return the value of the counter
+     */
+    private long get(final int counter) {
+        return (table[counter / COUNTERS_PER_LONG] >>> shift(counter))
+                & MAX_COUNT;
+    }
+
+    /**
+     * @param counter the index of a counter
+     * @return the position of the counter in its long
+     */
+    private static int shift(final int counter) {
+        return (counter % COUNTERS_PER_LONG) * COUNTER_BITS;
+    }
+}
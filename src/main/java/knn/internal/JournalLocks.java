@@ -0,0 +1,32 @@
+package knn.internal;
+
+/**
+ * Striped locks of a thread-safe KNN with a {@link KnowledgeNodeJournal}.
+ * A change to a KN or Tag is made and recorded while holding the lock of its
+ * Tag, so that the records of the changes to the same KN or Tag are appended
+ * in the order of the changes. Changes to other Tags proceed concurrently.
+ */
+final class JournalLocks {
+    private static final int STRIPES = 64;
+    private static final int HASH_SHIFT = 16;
+    private final Object[] locks;
+
+    /**
+     * Creates the locks.
+     */
+    JournalLocks() {
+        this.locks = new Object[STRIPES];
+        for (int i = 0; i < STRIPES; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    /**
+     * @param key the Tag, or the input Tag of the KN
+     * @return the lock of the Tag
+     */
+    Object of(final Object key) {
+        final int h = key.hashCode();
+        return locks[(h ^ (h >>> HASH_SHIFT)) & (STRIPES - 1)];
+    }
+}
@@ -0,0 +1,31 @@
+package knn.internal;
+
+import knn.api.KnowledgeNodeNetwork;
+import tags.Tag;
+
+/**
+ * KNN which records its mutations in a {@link KnowledgeNodeJournal}, and
+ * which the journal is replayed into, see {@link OpenJournal}.
+ */
+interface JournaledKnowledgeNodeNetwork extends KnowledgeNodeNetwork {
+    /**
+     * Deactivates the given Tag.
+     *
+     * @param tag the Tag
+     */
+    void removeActiveTag(Tag tag);
+
+    /**
+     * Sets the journal recording the mutations of the KNs and the active
+     * Tags from now on.
+     *
+     * @param journal the journal, null to stop recording
+     */
+    void setJournal(KnowledgeNodeJournal journal);
+
+    /**
+     * @return a copy of the KNs and the active Tags, which the KNN may be
+     * modified during
+     */
+    KnowledgeNodeSnapshot snapshot();
+}
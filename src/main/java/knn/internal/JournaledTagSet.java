@@ -0,0 +1,142 @@
+package knn.internal;
+
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Set;
+import tags.Tag;
+
+/**
+ * View of a set of active Tags which records its changes in a
+ * {@link KnowledgeNodeJournal}, if one is set. As thread-safe as the
+ * underlying set: when a journal is set, a Tag is added or removed while
+ * holding the {@link JournalLocks} lock of the Tag, so that the changes to
+ * the same Tag are recorded in order.
+ */
+final class JournaledTagSet extends AbstractSet<Tag> {
+    private final Set<Tag> tags;
+    private final JournalLocks journalLocks;
+    private volatile KnowledgeNodeJournal journal;
+
+    /**
+     * Creates a view of the given set.
+     *
+     * @param tags the underlying set
+     */
+    JournaledTagSet(final Set<Tag> tags) {
+        this.tags = tags;
+        this.journalLocks = new JournalLocks();
+    }
+
+    /**
+     * Sets the journal recording the changes of the set.
+     *
+     * @param journal the journal, null to stop recording
+     */
+    void setJournal(final KnowledgeNodeJournal journal) {
+        this.journal = journal;
+    }
+
+    /**
+     * @return the underlying set
+     */
+    Set<Tag> getTags() {
+        return tags;
+    }
+
+    /**
+     * Adds the Tags to the underlying set at once when no journal is set,
+     * which lets a {@link TagBitSet} combine the sets.
+     *
+     * @param c the Tags to add
+     * @return true if the set changed
+     */
+    @Override
+    public boolean addAll(final Collection<? extends Tag> c) {
+        if (journal == null) {
+            return tags.addAll(c);
+        }
+        return super.addAll(c);
+    }
+
+    @Override
+    public boolean add(final Tag tag) {
+        final KnowledgeNodeJournal recorder = journal;
+        if (recorder == null) {
+            return tags.add(tag);
+        }
+        synchronized (journalLocks.of(tag)) {
+            final boolean added = tags.add(tag);
+            if (added) {
+                recorder.addActiveTag(tag);
+            }
+            return added;
+        }
+    }
+
+    @Override
+    public boolean remove(final Object o) {
+        final KnowledgeNodeJournal recorder = journal;
+        if (recorder == null || !(o instanceof Tag)) {
+            return tags.remove(o);
+        }
+        synchronized (journalLocks.of(o)) {
+            final boolean removed = tags.remove(o);
+            if (removed) {
+                recorder.removeActiveTag((Tag) o);
+            }
+            return removed;
+        }
+    }
+
+    @Override
+    public void clear() {
+        tags.clear();
+        final KnowledgeNodeJournal recorder = journal;
+        if (recorder != null) {
+            recorder.clearActiveTags();
+        }
+    }
+
+    @Override
+    public boolean contains(final Object o) {
+        return tags.contains(o);
+    }
+
+    @Override
+    public int size() {
+        return tags.size();
+    }
+
+    @Override
+    public Iterator<Tag> iterator() {
+        final Iterator<Tag> iterator = tags.iterator();
+        return new Iterator<Tag>() {
+            private Tag last;
+
+            @Override
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public Tag next() {
+                last = iterator.next();
+                return last;
+            }
+
+            @Override
+            public void remove() {
+                final KnowledgeNodeJournal recorder = journal;
+                if (recorder == null) {
+                    iterator.remove();
+                    return;
+                }
+                synchronized (journalLocks.of(last)) {
+                    iterator.remove();
+                    recorder.removeActiveTag(last);
+                }
+            }
+        };
+    }
+}
@@ -0,0 +1,93 @@
+package knn.internal;
+
+import java.util.List;
+import java.util.Set;
+import knn.api.KnowledgeNode;
+import tags.Tag;
+
+/**
+ * Indexes of the KNs in the KNN, kept in sync with each other: the KNs ordered
+ * by recency, and the KNs by output Tag.
+ */
+interface KnowledgeNodeIndex {
+    /**
+     * Indexes the given KN as the most recent one.
+     *
+     * @param kn the KN to index
+     */
+    void add(KnowledgeNode kn);
+
+    /**
+     * Removes the given KN from the indexes.
+     *
+     * @param kn the KN to remove
+     */
+    void remove(KnowledgeNode kn);
+
+    /**
+     * Removes all the KNs from the indexes.
+     */
+    void clear();
+
+    /**
+     * Excites the given KN, making it the most recent one if it is indexed.
+     *
+     * @param kn  the KN to excite
+     * @param now the time of the search exciting the KN
+     * @return true if the KN is newly fired
+     * @see KnowledgeNode#excite(long)
+     */
+    boolean excite(KnowledgeNode kn, long now);
+
+    /**
+     * Removes the expired KNs from the indexes: the KNs flagged expired, and
+     * the KNs not excited for longer than the age threshold, see
+     * {@link ExpiryWheel}.
+     *
+     * @param now the current time, see {@link knn.api.KnowledgeNodeClock}
+     * @return the removed KNs
+     */
+    List<KnowledgeNode> removeExpired(long now);
+
+    /**
+     * @return the indexed KNs, in order of increasing age
+     */
+    Set<KnowledgeNode> getKnowledgeNodes();
+
+    /**
+     * Gets the KNs which output at least one of the given Tags.
+     *
+     * @param tags the output Tags
+     * @return the KNs which output at least one of the Tags
+     */
+    Set<KnowledgeNode> getCandidates(Set<Tag> tags);
+
+    /**
+     * Gets the KNs to match against the given Tags during backward search:
+     * the KNs which output at least one of the Tags, or, if the indexes
+     * approximate backward search, the KNs found by a {@link MinHashIndex},
+     * which may miss some of them.
+     *
+     * @param tags               the input Tags
+     * @param numRequiredMatches the number of input Tags a KN must output
+     * @return the candidate KNs
+     */
+    Set<KnowledgeNode> getCandidates(Set<Tag> tags, int numRequiredMatches);
+
+    /**
+     * Gets the version of the indexed KNs, which changes whenever a KN is
+     * added, removed or excited, so that results computed from the KNs at a
+     * version remain valid as long as the version is unchanged.
+     *
+     * @return the version of the indexed KNs
+     */
+    long getVersion();
+
+    /**
+     * Sets the journal recording the changes of the indexes: the added and
+     * removed KNs, and the state of the excited KNs.
+     *
+     * @param journal the journal, null to stop recording
+     */
+    void setJournal(KnowledgeNodeJournal journal);
+}
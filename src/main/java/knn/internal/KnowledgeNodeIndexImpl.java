@@ -0,0 +1,145 @@
+package knn.internal;
+
+import java.util.List;
+import java.util.Set;
+import com.google.inject.Inject;
+import knn.api.BackwardSearchApproximation;
+import knn.api.KnowledgeNode;
+import knn.api.KnowledgeNodeClock;
+import tags.Tag;
+
+/**
+ * Implementation of the KN indexes backed by a {@link RecencyIndex}, an
+ * {@link OutputTagIndex}, a {@link MinHashIndex}, which is empty unless
+ * backward search is approximate, and an {@link ExpiryWheel}. Not
+ * thread-safe.
+ */
+final class KnowledgeNodeIndexImpl implements KnowledgeNodeIndex {
+    private final RecencyIndex recencyIndex;
+    private final OutputTagIndex outputTagIndex;
+    private final MinHashIndex minHashIndex;
+    private final ExpiryWheel expiryWheel;
+    private KnowledgeNodeJournal journal;
+    private long version;
+
+    /**
+     * Creates empty indexes for the exact backward search.
+     *
+     * @param recencyIndex   the index of the KNs by recency
+     * @param outputTagIndex the index of the KNs by output Tag
+     * @param clock          the clock aging the KNs
+     */
+    KnowledgeNodeIndexImpl(
+            final RecencyIndex recencyIndex,
+            final OutputTagIndex outputTagIndex,
+            final KnowledgeNodeClock clock) {
+        this(recencyIndex, outputTagIndex,
+                new MinHashIndex(BackwardSearchApproximation.EXACT), clock);
+    }
+
+    /**
+     * Creates empty indexes.
+     *
+     * @param recencyIndex   the index of the KNs by recency
+     * @param outputTagIndex the index of the KNs by output Tag
+     * @param minHashIndex   the index of the KNs by MinHash signature
+     * @param clock          the clock aging the KNs
+     */
+    @Inject
+    KnowledgeNodeIndexImpl(
+            final RecencyIndex recencyIndex,
+            final OutputTagIndex outputTagIndex,
+            final MinHashIndex minHashIndex,
+            final KnowledgeNodeClock clock) {
+        this.recencyIndex = recencyIndex;
+        this.outputTagIndex = outputTagIndex;
+        this.minHashIndex = minHashIndex;
+        this.expiryWheel = new ExpiryWheel(clock.currentTime());
+    }
+
+    @Override
+    public void add(final KnowledgeNode kn) {
+        version++;
+        if (recencyIndex.add(kn)) {
+            outputTagIndex.add(kn);
+            minHashIndex.add(kn);
+            expiryWheel.add(kn);
+            if (journal != null) {
+                journal.add(kn);
+            }
+        }
+    }
+
+    @Override
+    public void remove(final KnowledgeNode kn) {
+        if (recencyIndex.remove(kn)) {
+            version++;
+            outputTagIndex.remove(kn);
+            minHashIndex.remove(kn);
+            expiryWheel.remove(kn);
+            if (journal != null) {
+                journal.remove(kn);
+            }
+        }
+    }
+
+    @Override
+    public void clear() {
+        version++;
+        recencyIndex.clear();
+        outputTagIndex.clear();
+        minHashIndex.clear();
+        expiryWheel.clear();
+        if (journal != null) {
+            journal.clear();
+        }
+    }
+
+    @Override
+    public boolean excite(final KnowledgeNode kn, final long now) {
+        final boolean fired = recencyIndex.excite(kn, now);
+        version++;
+        if (journal != null && recencyIndex.contains(kn)) {
+            journal.excite(kn);
+        }
+        return fired;
+    }
+
+    @Override
+    public List<KnowledgeNode> removeExpired(final long now) {
+        final List<KnowledgeNode> expired = expiryWheel.advance(now);
+        for (final KnowledgeNode kn : expired) {
+            remove(kn);
+        }
+        return expired;
+    }
+
+    @Override
+    public Set<KnowledgeNode> getKnowledgeNodes() {
+        return recencyIndex;
+    }
+
+    @Override
+    public Set<KnowledgeNode> getCandidates(final Set<Tag> tags) {
+        return outputTagIndex.getCandidates(tags);
+    }
+
+    @Override
+    public Set<KnowledgeNode> getCandidates(final Set<Tag> tags,
+                                            final int numRequiredMatches) {
+        if (minHashIndex.isExact()) {
+            return outputTagIndex.getCandidates(tags);
+        }
+        return minHashIndex.getCandidates(tags, numRequiredMatches);
+    }
+
+    @Override
+    public long getVersion() {
+        return version;
+    }
+
+    @Override
+    public void setJournal(final KnowledgeNodeJournal journal) {
+        this.journal = journal;
+    }
+}
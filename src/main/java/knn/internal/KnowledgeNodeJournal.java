@@ -0,0 +1,1030 @@
+package knn.internal;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.zip.CRC32;
+import knn.api.JournalSyncPolicy;
+import knn.api.KnowledgeNode;
+import tags.Tag;
+import tags.TagCodec;
+
+/**
+ * Write-ahead journal of the mutations of a KNN.
+ * <p>
+ * The journal is made of segments, i.e., files named after the journal with an
+ * increasing generation suffix, e.g. {@code knn.journal.3}. A segment starts
+ * with a magic number and a format version, followed by batches of records,
+ * each framed by its length and CRC32, so that a batch torn by a crash is
+ * detected and ignored when the segment is replayed. Each Tag is written once
+ * per segment, the records referring to it by index.
+ * <p>
+ * Each thread appends its records to its own buffer, numbering them from a
+ * shared sequence, without encoding them. A background thread drains the
+ * buffers every commit interval (group commit), merges the records in order
+ * of sequence number, encodes them and writes them to the current segment,
+ * forcing them if the sync policy requires it: the threads appending records
+ * never wait for the storage device. A buffer is bounded: when it is full,
+ * appending waits for the next commit. An excited KN is recorded with its
+ * resulting state rather than as an excitation, so that replaying the records
+ * on top of a snapshot taken after they were appended gives the same KNN.
+ * <p>
+ * The records of the changes to the same KN or Tag must be appended in the
+ * order of the changes, e.g. while holding a lock of {@link JournalLocks} in
+ * a thread-safe KNN.
+ */
+final class KnowledgeNodeJournal implements Closeable {
+    /**
+     * The magic number of the journal segments, "KNNJ".
+     */
+    static final int MAGIC = 0x4B4E4E4A;
+    /**
+     * The version of the journal format.
+     */
+    static final int VERSION = 1;
+    /**
+     * The number of records in the buffer of a thread above which appending
+     * waits for the next commit.
+     */
+    static final int MAX_BUFFERED_RECORDS = 1 << 16;
+    private static final int INITIAL_BUFFERED_RECORDS = 1 << 8;
+    private static final int INITIAL_BATCH_SIZE = 1 << 12;
+    private static final int FRAME_HEADER_SIZE = 8;
+    private static final long CLOSE_TIMEOUT_SECONDS = 60;
+    private static final long FULL_BUFFER_WAIT_NANOS =
+            TimeUnit.MILLISECONDS.toNanos(1);
+    private static final int IDLE = 0;
+    private static final int APPENDING = 1;
+    private static final int DRAINING = 2;
+    private static final byte TAG = 0;
+    private static final byte ADD = 1;
+    private static final byte REMOVE = 2;
+    private static final byte CLEAR = 3;
+    private static final byte STATE = 4;
+    private static final byte ADD_ACTIVE_TAG = 5;
+    private static final byte REMOVE_ACTIVE_TAG = 6;
+    private static final byte CLEAR_ACTIVE_TAGS = 7;
+
+    private final String filename;
+    private final JournalSyncPolicy syncPolicy;
+    private final ScheduledExecutorService committer;
+    /**
+     * The sequence numbering the records, in the order they are appended.
+     */
+    private final AtomicLong sequence;
+    /**
+     * The buffers of the threads which appended records.
+     */
+    private final Queue<RecordBuffer> buffers;
+    private final ThreadLocal<RecordBuffer> buffer;
+    /**
+     * Serializes the commits and rotations, and guards the pending records,
+     * the Tag indexes, the batch and the channel.
+     */
+    private final Object commitLock = new Object();
+    private final Map<Tag, Integer> tagIds;
+    private final Batch batch;
+    /**
+     * The records drained from the buffers but not committed yet, since
+     * records with lower sequence numbers may still be appended.
+     */
+    private RecordBuffer pending;
+    private FileChannel channel;
+    private long generation;
+    private volatile boolean closed;
+    private volatile IOException failure;
+
+    /**
+     * Creates a journal appending to a new segment.
+     *
+     * @param filename             the base filename of the segments
+     * @param syncPolicy           when the journal forces its writes
+     * @param commitIntervalMillis the interval between group commits
+     * @throws IOException if creating the segment fails
+     */
+    private KnowledgeNodeJournal(final String filename,
+                                 final JournalSyncPolicy syncPolicy,
+                                 final long commitIntervalMillis)
+            throws IOException {
+        this.filename = filename;
+        this.syncPolicy = syncPolicy;
+        this.sequence = new AtomicLong();
+        this.buffers = new ConcurrentLinkedQueue<>();
+        this.buffer = ThreadLocal.withInitial(() -> {
+            final RecordBuffer threadBuffer =
+                    new RecordBuffer(Thread.currentThread());
+            buffers.add(threadBuffer);
+            return threadBuffer;
+        });
+        this.tagIds = new HashMap<>();
+        this.batch = new Batch();
+        this.pending = new RecordBuffer(null);
+        final List<Path> segments = segments(filename);
+        this.generation = 1 + generationOf(filename, segments);
+        this.channel = createSegment(generation);
+        this.committer = Executors.newSingleThreadScheduledExecutor(r -> {
+            final Thread thread = new Thread(r, "knn-journal-commit");
+            thread.setDaemon(true);
+            return thread;
+        });
+        committer.scheduleWithFixedDelay(this::commitInBackground,
+                commitIntervalMillis, commitIntervalMillis,
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Opens a journal appending to a new segment, after the existing ones.
+     *
+     * @param filename             the base filename of the segments
+     * @param syncPolicy           when the journal forces its writes
+     * @param commitIntervalMillis the interval between group commits
+     * @return the journal
+     * @throws IOException if creating the segment fails
+     */
+    static KnowledgeNodeJournal open(final String filename,
+                                     final JournalSyncPolicy syncPolicy,
+                                     final long commitIntervalMillis)
+            throws IOException {
+        return new KnowledgeNodeJournal(
+                filename, syncPolicy, commitIntervalMillis);
+    }
+
+    /**
+     * Replays the segments of a journal into the given KNN, in order. Each
+     * segment is replayed up to its first torn or corrupted batch.
+     *
+     * @param filename the base filename of the segments
+     * @param knn      the KNN
+     * @throws IOException if reading a segment fails
+     */
+    static void replay(final String filename,
+                       final JournaledKnowledgeNodeNetwork knn)
+            throws IOException {
+        for (final Path segment : segments(filename)) {
+            replaySegment(segment, knn);
+        }
+    }
+
+    /**
+     * @return the generation of the current segment
+     */
+    long getGeneration() {
+        synchronized (commitLock) {
+            return generation;
+        }
+    }
+
+    /**
+     * Records that a KN was added, with its current state.
+     *
+     * @param kn the KN
+     */
+    void add(final KnowledgeNode kn) {
+        append(ADD, kn.copy());
+    }
+
+    /**
+     * Records that a KN was removed.
+     *
+     * @param kn the KN
+     */
+    void remove(final KnowledgeNode kn) {
+        append(REMOVE, kn.getInputTag());
+    }
+
+    /**
+     * Records that all the KNs were removed.
+     */
+    void clear() {
+        append(CLEAR, null);
+    }
+
+    /**
+     * Records the state of a KN after it was excited.
+     *
+     * @param kn the KN
+     */
+    void excite(final KnowledgeNode kn) {
+        append(STATE, kn.copy());
+    }
+
+    /**
+     * Records that a Tag was activated.
+     *
+     * @param tag the Tag
+     */
+    void addActiveTag(final Tag tag) {
+        append(ADD_ACTIVE_TAG, tag);
+    }
+
+    /**
+     * Records that a Tag was deactivated.
+     *
+     * @param tag the Tag
+     */
+    void removeActiveTag(final Tag tag) {
+        append(REMOVE_ACTIVE_TAG, tag);
+    }
+
+    /**
+     * Records that all the Tags were deactivated.
+     */
+    void clearActiveTags() {
+        append(CLEAR_ACTIVE_TAGS, null);
+    }
+
+    /**
+     * Writes the records appended so far to the current segment, and forces
+     * them to the storage device if the sync policy requires it.
+     *
+     * @throws IOException if writing fails
+     */
+    void commit() throws IOException {
+        synchronized (commitLock) {
+            commitUpTo(sequence.get());
+        }
+    }
+
+    /**
+     * Commits the records appended so far and continues the journal in a new
+     * segment, so that the previous segments may be deleted once a snapshot
+     * of the KNN is saved. The records appended meanwhile go to the new
+     * segment.
+     *
+     * @return the generation of the new segment
+     * @throws IOException if writing or creating a segment fails
+     * @see #deleteSegmentsBefore(long)
+     */
+    long rotate() throws IOException {
+        synchronized (commitLock) {
+            commitUpTo(sequence.get());
+            closeSegment();
+            generation++;
+            channel = createSegment(generation);
+            // The Tag indexes restart with the segment
+            tagIds.clear();
+            return generation;
+        }
+    }
+
+    /**
+     * Deletes the segments older than the given generation.
+     *
+     * @param oldestGeneration the generation of the oldest segment to keep
+     * @throws IOException if deleting a segment fails
+     */
+    void deleteSegmentsBefore(final long oldestGeneration) throws IOException {
+        for (final Path segment : segments(filename)) {
+            if (generationOf(filename, Arrays.asList(segment))
+                    < oldestGeneration) {
+                Files.deleteIfExists(segment);
+            }
+        }
+    }
+
+    /**
+     * Commits the pending records and closes the journal. The records
+     * appended afterwards are ignored.
+     *
+     * @throws IOException if the journal failed
+     */
+    @Override
+    public void close() throws IOException {
+        committer.shutdown();
+        try {
+            committer.awaitTermination(
+                    CLOSE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        }
+        closed = true;
+        wakeAppenders();
+        synchronized (commitLock) {
+            try {
+                commitUpTo(Long.MAX_VALUE);
+            } finally {
+                closeSegment();
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Commits the pending records from the committer thread, keeping the
+     * failure, if any, to report it to the threads appending records.
+     */
+    private void commitInBackground() {
+        try {
+            commit();
+        } catch (final IOException e) {
+            failure = e;
+            wakeAppenders();
+        }
+    }
+
+    /**
+     * Wakes up the threads waiting for room in their buffers.
+     */
+    private void wakeAppenders() {
+        for (final RecordBuffer threadBuffer : buffers) {
+            LockSupport.unpark(threadBuffer.owner);
+        }
+    }
+
+    /**
+     * Appends a record to the buffer of the current thread, waiting until the
+     * buffer has room for it, unless the thread is interrupted. The record is
+     * numbered while holding the buffer, so that a commit draining the buffer
+     * sees all the records numbered before it started.
+     *
+     * @param type  the type of the record
+     * @param value the KN or Tag of the record, null if there is none
+     * @throws UncheckedIOException if a commit failed
+     */
+    private void append(final byte type, final Object value) {
+        final RecordBuffer threadBuffer = buffer.get();
+        threadBuffer.acquire(APPENDING);
+        while (threadBuffer.size >= MAX_BUFFERED_RECORDS && !closed
+                && failure == null
+                && !Thread.currentThread().isInterrupted()) {
+            threadBuffer.release();
+            LockSupport.parkNanos(this, FULL_BUFFER_WAIT_NANOS);
+            threadBuffer.acquire(APPENDING);
+        }
+        try {
+            if (failure != null) {
+                throw new UncheckedIOException(failure);
+            }
+            if (!closed) {
+                threadBuffer.add(sequence.incrementAndGet(), type, value);
+            }
+        } finally {
+            threadBuffer.release();
+        }
+    }
+
+    /**
+     * Writes the records numbered up to the given sequence number to the
+     * current segment, as one batch. Must be called while holding the commit
+     * lock.
+     *
+     * @param limit the sequence number of the last record to commit, read
+     *              before the buffers are drained
+     * @throws IOException if writing fails
+     */
+    private void commitUpTo(final long limit) throws IOException {
+        final List<RecordBuffer> drained = new ArrayList<>();
+        drained.add(pending);
+        for (final Iterator<RecordBuffer> it = buffers.iterator();
+             it.hasNext();) {
+            final RecordBuffer threadBuffer = it.next();
+            threadBuffer.acquire(DRAINING);
+            final boolean full;
+            try {
+                full = threadBuffer.size >= MAX_BUFFERED_RECORDS;
+                if (threadBuffer.size > 0) {
+                    drained.add(threadBuffer.drain());
+                } else if (!threadBuffer.owner.isAlive()) {
+                    it.remove();
+                }
+            } finally {
+                threadBuffer.release();
+            }
+            if (full) {
+                LockSupport.unpark(threadBuffer.owner);
+            }
+        }
+        final RecordBuffer ready;
+        if (drained.size() == 1 && pending.size > 0
+                && pending.sequences[pending.size - 1] <= limit
+                || drained.size() == 2 && pending.size == 0
+                && drained.get(1).sequences[drained.get(1).size - 1] <= limit) {
+            // The records of a single buffer are already in order
+            ready = drained.get(drained.size() - 1);
+            pending = new RecordBuffer(null);
+        } else {
+            int size = 0;
+            for (final RecordBuffer records : drained) {
+                size += records.size;
+            }
+            ready = new RecordBuffer(null, Math.max(1, size));
+            pending = new RecordBuffer(null);
+            merge(drained, limit, ready, pending);
+        }
+        try {
+            for (int i = 0; i < ready.size; i++) {
+                encode(ready.types[i], ready.values[i]);
+            }
+            write(batch);
+        } finally {
+            batch.reset();
+        }
+    }
+
+    /**
+     * Merges buffers of records, each in order of sequence number.
+     *
+     * @param drained the buffers
+     * @param limit   the sequence number of the last record to commit
+     * @param ready   the buffer receiving the records to commit, in order
+     * @param later   the buffer receiving the other records, in order
+     */
+    private static void merge(final List<RecordBuffer> drained,
+                              final long limit, final RecordBuffer ready,
+                              final RecordBuffer later) {
+        final PriorityQueue<RecordBuffer> heads = new PriorityQueue<>(
+                Math.max(1, drained.size()),
+                Comparator.comparingLong(RecordBuffer::headSequence));
+        for (final RecordBuffer records : drained) {
+            if (records.size > 0) {
+                heads.add(records);
+            }
+        }
+        while (!heads.isEmpty()) {
+            final RecordBuffer records = heads.remove();
+            final int i = records.head++;
+            final long recordSequence = records.sequences[i];
+            if (recordSequence <= limit) {
+                ready.add(recordSequence, records.types[i], records.values[i]);
+            } else {
+                later.add(recordSequence, records.types[i], records.values[i]);
+            }
+            if (records.head < records.size) {
+                heads.add(records);
+            }
+        }
+    }
+
+    /**
+     * Encodes a record into the batch. Must be called while holding the
+     * commit lock.
+     *
+     * @param type  the type of the record
+     * @param value the KN or Tag of the record, null if there is none
+     * @throws IOException if writing fails
+     */
+    private void encode(final byte type, final Object value)
+            throws IOException {
+        final DataOutputStream out = batch.out;
+        switch (type) {
+            case ADD:
+                final KnowledgeNode kn = (KnowledgeNode) value;
+                final int inputTagId = tagId(kn.getInputTag());
+                final int[] outputTagIds = new int[kn.getOutputTags().size()];
+                int i = 0;
+                for (final Tag t : kn.getOutputTags()) {
+                    outputTagIds[i++] = tagId(t);
+                }
+                out.writeByte(ADD);
+                out.writeInt(inputTagId);
+                out.writeInt(kn.getThreshold());
+                out.writeDouble(kn.getBelief());
+                out.writeInt(kn.getStrength());
+                writeState(kn, out);
+                out.writeInt(outputTagIds.length);
+                for (final int id : outputTagIds) {
+                    out.writeInt(id);
+                }
+                break;
+            case STATE:
+                final KnowledgeNode excited = (KnowledgeNode) value;
+                final int excitedTagId = tagId(excited.getInputTag());
+                out.writeByte(STATE);
+                out.writeInt(excitedTagId);
+                writeState(excited, out);
+                break;
+            case REMOVE:
+            case ADD_ACTIVE_TAG:
+            case REMOVE_ACTIVE_TAG:
+                final int id = tagId((Tag) value);
+                out.writeByte(type);
+                out.writeInt(id);
+                break;
+            default:
+                out.writeByte(type);
+                break;
+        }
+    }
+
+    /**
+     * Gets the index of a Tag in the current segment, encoding a record
+     * defining it if it is not defined yet. Must be called while holding the
+     * commit lock, before encoding the record referring to the Tag.
+     *
+     * @param tag the Tag
+     * @return the index of the Tag
+     * @throws IOException if writing fails
+     */
+    private int tagId(final Tag tag) throws IOException {
+        final Integer id = tagIds.get(tag);
+        if (id != null) {
+            return id;
+        }
+        final int newId = tagIds.size();
+        tagIds.put(tag, newId);
+        batch.out.writeByte(TAG);
+        TagCodec.write(tag, batch.out);
+        return newId;
+    }
+
+    /**
+     * Writes the activation and age of a KN.
+     *
+     * @param kn  the KN
+     * @param out the output
+     * @throws IOException if writing fails
+     */
+    private static void writeState(final KnowledgeNode kn,
+                                   final DataOutputStream out)
+            throws IOException {
+        out.writeDouble(kn.getActivation());
+        out.writeLong(kn.getAge());
+        out.writeLong(kn.getAgeTimeStamp());
+        out.writeBoolean(kn.isExpired());
+    }
+
+    /**
+     * Writes a batch to the current segment as a frame, forcing it to the
+     * storage device if the sync policy requires it. Must be called while
+     * holding the commit lock.
+     *
+     * @param frame the batch
+     * @throws IOException if writing fails
+     */
+    private void write(final Batch frame) throws IOException {
+        if (frame.size() == 0) {
+            return;
+        }
+        final CRC32 crc = new CRC32();
+        crc.update(frame.bytes, 0, frame.size());
+        final ByteBuffer header = ByteBuffer.allocate(FRAME_HEADER_SIZE);
+        header.putInt(frame.size()).putInt((int) crc.getValue()).flip();
+        final ByteBuffer[] buffers = {header,
+                ByteBuffer.wrap(frame.bytes, 0, frame.size())};
+        while (buffers[1].hasRemaining()) {
+            channel.write(buffers);
+        }
+        if (syncPolicy == JournalSyncPolicy.COMMIT) {
+            channel.force(false);
+        }
+    }
+
+    /**
+     * Closes the current segment, forcing it to the storage device if the
+     * sync policy requires it. Must be called while holding the commit lock.
+     *
+     * @throws IOException if closing fails
+     */
+    private void closeSegment() throws IOException {
+        if (channel.isOpen()) {
+            try {
+                if (syncPolicy == JournalSyncPolicy.COMMIT) {
+                    channel.force(true);
+                }
+            } finally {
+                channel.close();
+            }
+        }
+    }
+
+    /**
+     * Creates the segment of the given generation, with its header.
+     *
+     * @param segmentGeneration the generation
+     * @return the channel to append to the segment
+     * @throws IOException if creating the segment fails
+     */
+    private FileChannel createSegment(final long segmentGeneration)
+            throws IOException {
+        final FileChannel segment = FileChannel.open(
+                Paths.get(filename + "." + segmentGeneration),
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        final ByteBuffer header = ByteBuffer.allocate(FRAME_HEADER_SIZE);
+        header.putInt(MAGIC).putInt(VERSION).flip();
+        while (header.hasRemaining()) {
+            segment.write(header);
+        }
+        return segment;
+    }
+
+    /**
+     * Lists the segments of a journal, in order of generation.
+     *
+     * @param filename the base filename of the segments
+     * @return the segments
+     * @throws IOException if listing the directory fails
+     */
+    private static List<Path> segments(final String filename)
+            throws IOException {
+        final Path base = Paths.get(filename).toAbsolutePath();
+        final String prefix = base.getFileName() + ".";
+        final TreeMap<Long, Path> segments = new TreeMap<>();
+        try (DirectoryStream<Path> paths =
+                     Files.newDirectoryStream(base.getParent())) {
+            for (final Path path : paths) {
+                final String name = path.getFileName().toString();
+                if (name.startsWith(prefix) && name.length() > prefix.length()
+                        && isDigits(name.substring(prefix.length()))) {
+                    segments.put(Long.parseLong(
+                            name.substring(prefix.length())), path);
+                }
+            }
+        }
+        return new ArrayList<>(segments.values());
+    }
+
+    /**
+     * @param filename the base filename of the segments
+     * @param segments segments of the journal
+     * @return the highest generation of the segments, 0 if there are none
+     */
+    private static long generationOf(final String filename,
+                                     final List<Path> segments) {
+        final int prefixLength =
+                Paths.get(filename).getFileName().toString().length() + 1;
+        long max = 0;
+        for (final Path segment : segments) {
+            max = Math.max(max, Long.parseLong(
+                    segment.getFileName().toString().substring(prefixLength)));
+        }
+        return max;
+    }
+
+    /**
+     * @param s a String
+     * @return true if the String only has decimal digits
+     */
+    private static boolean isDigits(final String s) {
+        for (int i = 0; i < s.length(); i++) {
+            if (!Character.isDigit(s.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Replays a segment into the given KNN, up to its first torn or
+     * corrupted batch.
+     *
+     * @param segment the segment
+     * @param knn     the KNN
+     * @throws IOException if reading the segment fails, or if it is not a
+     *                     journal segment of a supported version
+     */
+    private static void replaySegment(final Path segment,
+                                      final JournaledKnowledgeNodeNetwork knn)
+            throws IOException {
+        try (DataInputStream in = new DataInputStream(new ChannelInputStream(
+                FileChannel.open(segment, StandardOpenOption.READ)))) {
+            final long size = Files.size(segment);
+            if (size < FRAME_HEADER_SIZE) {
+                // Torn before its header was written
+                return;
+            }
+            if (in.readInt() != MAGIC) {
+                throw new IOException(MessageFormat.format(
+                        "Not a KNN journal segment: {0}.", segment));
+            }
+            final int version = in.readInt();
+            if (version != VERSION) {
+                throw new IOException(MessageFormat.format(
+                        "Unsupported KNN journal version: {0}.", version));
+            }
+            final List<Tag> tags = new ArrayList<>();
+            long position = FRAME_HEADER_SIZE;
+            while (position + FRAME_HEADER_SIZE <= size) {
+                final int length = in.readInt();
+                final int checksum = in.readInt();
+                position += FRAME_HEADER_SIZE;
+                if (length <= 0 || length > size - position) {
+                    return;
+                }
+                final byte[] bytes = new byte[length];
+                in.readFully(bytes);
+                position += length;
+                final CRC32 crc = new CRC32();
+                crc.update(bytes, 0, length);
+                if ((int) crc.getValue() != checksum) {
+                    return;
+                }
+                replayBatch(bytes, tags, knn);
+            }
+        } catch (final EOFException e) {
+            // Torn batch at the end of the segment
+            return;
+        }
+    }
+
+    /**
+     * Replays the records of a batch into the given KNN.
+     *
+     * @param bytes the records
+     * @param tags  the Tags defined in the segment so far
+     * @param knn   the KNN
+     * @throws IOException if a record is invalid
+     */
+    private static void replayBatch(final byte[] bytes, final List<Tag> tags,
+                                    final JournaledKnowledgeNodeNetwork knn)
+            throws IOException {
+        final DataInputStream in =
+                new DataInputStream(new ByteArrayInputStream(bytes));
+        while (in.available() > 0) {
+            final byte type = in.readByte();
+            switch (type) {
+                case TAG:
+                    tags.add(TagCodec.read(in));
+                    break;
+                case ADD:
+                    knn.addKnowledgeNode(readKnowledgeNode(in, tags));
+                    break;
+                case REMOVE:
+                    knn.deleteKnowledgeNode(tags.get(in.readInt()));
+                    break;
+                case CLEAR:
+                    knn.resetEmpty();
+                    break;
+                case STATE:
+                    final KnowledgeNode kn =
+                            knn.getKnowledgeNode(tags.get(in.readInt()));
+                    final KnowledgeNode excited = readState(in, kn);
+                    if (excited != null) {
+                        knn.addKnowledgeNode(excited);
+                    }
+                    break;
+                case ADD_ACTIVE_TAG:
+                    knn.addActiveTag(tags.get(in.readInt()));
+                    break;
+                case REMOVE_ACTIVE_TAG:
+                    knn.removeActiveTag(tags.get(in.readInt()));
+                    break;
+                case CLEAR_ACTIVE_TAGS:
+                    knn.clearActiveTags();
+                    break;
+                default:
+                    throw new IOException(MessageFormat.format(
+                            "Invalid KNN journal record type: {0}.", type));
+            }
+        }
+    }
+
+    /**
+     * Reads a KN added to the KNN.
+     *
+     * @param in   the input
+     * @param tags the Tags defined in the segment so far
+     * @return the KN
+     * @throws IOException if reading fails
+     */
+    private static KnowledgeNode readKnowledgeNode(final DataInputStream in,
+                                                   final List<Tag> tags)
+            throws IOException {
+        final Tag inputTag = tags.get(in.readInt());
+        final int threshold = in.readInt();
+        final double belief = in.readDouble();
+        final int strength = in.readInt();
+        final double activation = in.readDouble();
+        final long age = in.readLong();
+        final long ageTimeStamp = in.readLong();
+        final boolean expired = in.readBoolean();
+        final int outputCount = in.readInt();
+        final Set<Tag> outputTags = new HashSet<>();
+        for (int i = 0; i < outputCount; i++) {
+            outputTags.add(tags.get(in.readInt()));
+        }
+        return new KnowledgeNode(inputTag, outputTags, threshold, belief,
+                strength, activation, age, ageTimeStamp, expired);
+    }
+
+    /**
+     * Reads the state of an excited KN.
+     *
+     * @param in the input
+     * @param kn the KN in the KNN, null if there is none
+     * @return a copy of the KN with the state, null if there is no KN
+     * @throws IOException if reading fails
+     */
+    private static KnowledgeNode readState(final DataInputStream in,
+                                           final KnowledgeNode kn)
+            throws IOException {
+        final double activation = in.readDouble();
+        final long age = in.readLong();
+        final long ageTimeStamp = in.readLong();
+        final boolean expired = in.readBoolean();
+        if (kn == null) {
+            return null;
+        }
+        return new KnowledgeNode(kn.getInputTag(), kn.getOutputTags(),
+                kn.getThreshold(), kn.getBelief(), kn.getStrength(),
+                activation, age, ageTimeStamp, expired);
+    }
+
+    /**
+     * Growable in-memory batch of encoded records. Unlike a
+     * ByteArrayOutputStream, it does not lock on every write; it is guarded
+     * by the commit lock.
+     */
+    private static final class Batch extends OutputStream {
+        private final DataOutputStream out;
+        private byte[] bytes;
+        private int size;
+
+        /**
+         * Creates an empty batch.
+         */
+        private Batch() {
+            this.out = new DataOutputStream(this);
+            this.bytes = new byte[INITIAL_BATCH_SIZE];
+        }
+
+        /**
+         * @return the number of bytes in the batch
+         */
+        private int size() {
+            return size;
+        }
+
+        /**
+         * Empties the batch.
+         */
+        private void reset() {
+            size = 0;
+        }
+
+        /**
+         * Makes room for the given number of bytes.
+         *
+         * @param length the number of bytes
+         */
+        private void ensureCapacity(final int length) {
+            if (size + length > bytes.length) {
+                bytes = Arrays.copyOf(bytes,
+                        Math.max(2 * bytes.length, size + length));
+            }
+        }
+
+        @Override
+        public void write(final int b) {
+            ensureCapacity(1);
+            bytes[size++] = (byte) b;
+        }
+
+        @Override
+        public void write(final byte[] b, final int off, final int len) {
+            ensureCapacity(len);
+            System.arraycopy(b, off, bytes, size, len);
+            size += len;
+        }
+    }
+
+    /**
+     * Growable buffer of records which are not encoded yet, in order of
+     * sequence number. The buffer of a thread is guarded by its own lock.
+     */
+    private static final class RecordBuffer {
+        private final Thread owner;
+        /**
+         * Whether the buffer is idle, or held by its owner to append, or by
+         * the committer to drain it.
+         */
+        private final AtomicInteger state = new AtomicInteger(IDLE);
+        private long[] sequences;
+        private byte[] types;
+        private Object[] values;
+        private int size;
+        /**
+         * The index of the next record to merge.
+         */
+        private int head;
+
+        /**
+         * Creates an empty buffer.
+         *
+         * @param owner the thread appending to the buffer, null if it is
+         *              owned by the committer
+         */
+        private RecordBuffer(final Thread owner) {
+            this(owner, INITIAL_BUFFERED_RECORDS);
+        }
+
+        /**
+         * Creates an empty buffer with the given capacity.
+         *
+         * @param owner    the thread appending to the buffer, null if it is
+         *                 owned by the committer
+         * @param capacity the initial number of records of the buffer
+         */
+        private RecordBuffer(final Thread owner, final int capacity) {
+            this.owner = owner;
+            this.sequences = new long[capacity];
+            this.types = new byte[capacity];
+            this.values = new Object[capacity];
+        }
+
+        /**
+         * Holds the buffer, yielding while the other side holds it. Both
+         * sides only hold it for a few stores, so that it is cheaper than a
+         * monitor, which contention or waiting would inflate.
+         *
+         * @param use APPENDING or DRAINING
+         */
+        private void acquire(final int use) {
+            while (!state.compareAndSet(IDLE, use)) {
+                Thread.yield();
+            }
+        }
+
+        /**
+         * Releases the buffer.
+         */
+        private void release() {
+            state.set(IDLE);
+        }
+
+        /**
+         * Appends a record.
+         *
+         * @param recordSequence the sequence number of the record
+         * @param type           the type of the record
+         * @param value          the KN or Tag of the record
+         */
+        private void add(final long recordSequence, final byte type,
+                         final Object value) {
+            if (size == sequences.length) {
+                sequences = Arrays.copyOf(sequences, 2 * size);
+                types = Arrays.copyOf(types, 2 * size);
+                values = Arrays.copyOf(values, 2 * size);
+            }
+            sequences[size] = recordSequence;
+            types[size] = type;
+            values[size] = value;
+            size++;
+        }
+
+        /**
+         * Moves the records to a new buffer, leaving this one empty with the
+         * same capacity, so that it does not grow again.
+         *
+         * @return the new buffer, with the records
+         */
+        private RecordBuffer drain() {
+            final RecordBuffer drained =
+                    new RecordBuffer(null, sequences.length);
+            final long[] drainedSequences = drained.sequences;
+            final byte[] drainedTypes = drained.types;
+            final Object[] drainedValues = drained.values;
+            drained.sequences = sequences;
+            drained.types = types;
+            drained.values = values;
+            drained.size = size;
+            sequences = drainedSequences;
+            types = drainedTypes;
+            values = drainedValues;
+            size = 0;
+            return drained;
+        }
+
+        /**
+         * @return the sequence number of the next record to merge
+         */
+        private long headSequence() {
+            return sequences[head];
+        }
+    }
+}
@@ -0,0 +1,295 @@
+package knn.internal;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import com.google.inject.Inject;
+import com.google.inject.name.Named;
+import knn.api.KnowledgeNode;
+import knn.api.KnowledgeNodeLoader;
+import knn.api.KnowledgeNodeNetwork;
+import knn.api.KnowledgeNodeParseException;
+import knn.api.LoadProgress;
+import knn.api.LoadReport;
+import knn.api.LoadReport.MalformedLine;
+
+/**
+ * Implementation of the KNN data loader.
+ * <p>
+ * The file is split into chunks ending at line boundaries. Each chunk is
+ * memory-mapped and parsed into KNs by a task of the pool, while the calling
+ * thread adds the KNs of the parsed chunks to the KNN, in order. At most a
+ * few chunks per thread of the pool are in flight, so the memory used does not
+ * depend on the size of the file.
+ */
+final class KnowledgeNodeLoaderImpl implements KnowledgeNodeLoader {
+    /**
+     * The default size of the chunks, in bytes.
+     */
+    static final int DEFAULT_CHUNK_SIZE = 4 << 20;
+    /**
+     * The maximum number of malformed lines kept in a report.
+     */
+    static final int MAX_REPORTED_LINES = 1000;
+    private static final int BOUNDARY_BUFFER_SIZE = 8192;
+    private static final int INITIAL_LINE_BUFFER_SIZE = 256;
+    private static final int CHUNKS_PER_THREAD = 2;
+
+    private final ForkJoinPool pool;
+    private final int chunkSize;
+
+    @Inject
+    KnowledgeNodeLoaderImpl(@Named("searchPool") final ForkJoinPool pool) {
+        this(pool, DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Creates a loader.
+     *
+     * @param pool      the pool parsing the chunks
+     * @param chunkSize the size of the chunks, in bytes
+     */
+    KnowledgeNodeLoaderImpl(final ForkJoinPool pool, final int chunkSize) {
+        this.pool = pool;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Adds the KNs of the given data file to the given KNN, parsing the file
+     * on the common pool.
+     *
+     * @param knn      the KNN
+     * @param filename the data file
+     * @return the report of the load
+     * @throws UncheckedIOException if reading the file fails
+     */
+    static LoadReport load(final KnowledgeNodeNetwork knn,
+                           final String filename) {
+        try {
+            return new KnowledgeNodeLoaderImpl(ForkJoinPool.commonPool())
+                    .load(knn, filename, new LoadProgress());
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public LoadReport load(final KnowledgeNodeNetwork knn,
+                           final String filename,
+                           final LoadProgress progress) throws IOException {
+        final List<MalformedLine> malformedLines = new ArrayList<>();
+        final Deque<Future<Chunk>> chunks = new ArrayDeque<>();
+        final int maxChunks = CHUNKS_PER_THREAD * pool.getParallelism();
+        try (FileChannel channel = FileChannel.open(
+                Paths.get(filename), StandardOpenOption.READ)) {
+            final long size = channel.size();
+            progress.start(size);
+            long start = 0;
+            long lineNumber = 0;
+            while (start < size || !chunks.isEmpty()) {
+                while (start < size && chunks.size() < maxChunks) {
+                    final long end = nextLineStart(
+                            channel, Math.min(size, start + chunkSize), size);
+                    final MappedByteBuffer buffer = channel.map(
+                            FileChannel.MapMode.READ_ONLY, start, end - start);
+                    chunks.add(pool.submit(() -> parse(buffer, progress)));
+                    start = end;
+                }
+                final Chunk chunk = join(chunks.remove());
+                for (final KnowledgeNode kn : chunk.knowledgeNodes) {
+                    knn.addKnowledgeNode(kn);
+                }
+                for (final MalformedLine line : chunk.malformedLines) {
+                    if (malformedLines.size() < MAX_REPORTED_LINES) {
+                        malformedLines.add(new MalformedLine(
+                                lineNumber + line.getLineNumber(),
+                                line.getLine(), line.getMessage()));
+                    }
+                }
+                lineNumber += chunk.lineCount;
+                progress.addLines(chunk.lineCount,
+                        chunk.knowledgeNodes.size(),
+                        chunk.malformedLines.size());
+            }
+        } finally {
+            for (final Future<Chunk> chunk : chunks) {
+                chunk.cancel(true);
+            }
+            progress.end();
+        }
+        return new LoadReport(progress, malformedLines);
+    }
+
+    /**
+     * Finds the start of the first line at or after the given position.
+     *
+     * @param channel  the file
+     * @param position the position
+     * @param size     the size of the file
+     * @return the start of the line, or the size of the file if there is none
+     * @throws IOException if reading the file fails
+     */
+    private static long nextLineStart(final FileChannel channel,
+                                      final long position,
+                                      final long size) throws IOException {
+        if (position >= size) {
+            return size;
+        }
+        final ByteBuffer buffer = ByteBuffer.allocate(BOUNDARY_BUFFER_SIZE);
+        // The position is a line start if the previous byte ends a line
+        long offset = position - 1;
+        while (offset < size) {
+            buffer.clear();
+            final int read = channel.read(buffer, offset);
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') {
+                    return offset + i + 1;
+                }
+            }
+            offset += Math.max(read, 0);
+        }
+        return size;
+    }
+
+    /**
+     * Parses the lines of a chunk.
+     *
+     * @param buffer   the chunk
+     * @param progress the progress of the load
+     * @return the parsed chunk, with line numbers relative to the chunk
+     */
+    private static Chunk parse(final ByteBuffer buffer,
+                               final LoadProgress progress) {
+        final Chunk chunk = new Chunk();
+        byte[] lineBytes = new byte[INITIAL_LINE_BUFFER_SIZE];
+        final int limit = buffer.limit();
+        int lineStart = 0;
+        for (int i = 0; i <= limit; i++) {
+            if (i < limit && buffer.get(i) != '\n') {
+                continue;
+            }
+            if (i == limit && lineStart == limit) {
+                break; // No line after the last line feed
+            }
+            int lineEnd = i;
+            if (lineEnd > lineStart && buffer.get(lineEnd - 1) == '\r') {
+                lineEnd--;
+            }
+            final int length = lineEnd - lineStart;
+            if (lineBytes.length < length) {
+                lineBytes = new byte[Math.max(length, 2 * lineBytes.length)];
+            }
+            buffer.position(lineStart);
+            buffer.get(lineBytes, 0, length);
+            chunk.lineCount++;
+            parseLine(new String(lineBytes, 0, length, StandardCharsets.UTF_8),
+                    chunk);
+            lineStart = i + 1;
+        }
+        progress.addParsedBytes(limit);
+        return chunk;
+    }
+
+    /**
+     * Parses a line into a KN, and adds it to the given chunk. Blank lines
+     * are skipped.
+     *
+     * @param line  the line
+     * @param chunk the chunk of the line
+     */
+    private static void parseLine(final String line, final Chunk chunk) {
+        if (line.trim().isEmpty()) {
+            return;
+        }
+        try {
+            chunk.knowledgeNodes.add(new KnowledgeNode(split(line)));
+        } catch (final KnowledgeNodeParseException | RuntimeException e) {
+            chunk.malformedLines.add(new MalformedLine(
+                    chunk.lineCount, line, String.valueOf(e.getMessage())));
+        }
+    }
+
+    /**
+     * Splits a line into the KN data, like {@code line.split(";\\s+")}
+     * without the cost of a regular expression, except that at least one
+     * String is returned.
+     *
+     * @param line the line
+     * @return the KN data
+     */
+    static String[] split(final String line) {
+        final List<String> data = new ArrayList<>();
+        final int length = line.length();
+        int start = 0;
+        int i = 0;
+        while (i < length) {
+            if (line.charAt(i) == ';' && i + 1 < length
+                    && isWhitespace(line.charAt(i + 1))) {
+                data.add(line.substring(start, i));
+                i++;
+                while (i < length && isWhitespace(line.charAt(i))) {
+                    i++;
+                }
+                start = i;
+            } else {
+                i++;
+            }
+        }
+        data.add(line.substring(start));
+        // Like String.split, remove the trailing empty Strings
+        int size = data.size();
+        while (size > 1 && data.get(size - 1).isEmpty()) {
+            size--;
+        }
+        return data.subList(0, size).toArray(new String[size]);
+    }
+
+    /**
+     * @param c a character
+     * @return true if the character matches {@code \s} in a regular expression
+     */
+    private static boolean isWhitespace(final char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B'
+                || c == '\f' || c == '\r';
+    }
+
+    /**
+     * Waits for a chunk to be parsed.
+     *
+     * @param future the parsed chunk
+     * @return the chunk
+     * @throws IOException if parsing the chunk failed or was interrupted
+     */
+    private static Chunk join(final Future<Chunk> future) throws IOException {
+        try {
+            return future.get();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException(e.getMessage());
+        } catch (final ExecutionException e) {
+            throw new IOException(e.getCause());
+        }
+    }
+
+    /**
+     * Chunk of a file, parsed into KNs.
+     */
+    private static final class Chunk {
+        private final List<KnowledgeNode> knowledgeNodes = new ArrayList<>();
+        private final List<MalformedLine> malformedLines = new ArrayList<>();
+        private long lineCount;
+    }
+}
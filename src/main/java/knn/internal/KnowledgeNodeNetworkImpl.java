@@ -1,66 +1,127 @@
 package knn.internal;
 
 import javax.inject.Inject;
-import java.io.BufferedReader;
-import java.io.FileInputStream;
-import java.io.InputStreamReader;
-import java.util.ArrayList;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.Arrays;
 import java.util.Collections;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
 import com.google.inject.assistedinject.Assisted;
+import knn.api.BidirectionalSearchResult;
+import knn.api.JournalSyncPolicy;
 import knn.api.KnowledgeNode;
-import knn.api.KnowledgeNodeNetwork;
+import knn.api.KnowledgeNodeClock;
+import knn.api.LoadReport;
+import knn.api.SearchListener;
+import knn.api.SearchSession;
 import tags.Tag;
 
 /**
  * Implementation of the KNN.
+ * <p>
+ * When a journal is open, the KN indexes and the active Tags record their
+ * mutations in it. The searches only append to its in-memory batch, which is
+ * committed by a background thread.
  */
-class KnowledgeNodeNetworkImpl implements KnowledgeNodeNetwork {
+class KnowledgeNodeNetworkImpl implements JournaledKnowledgeNodeNetwork {
     private final Map<Tag, KnowledgeNode> mapKN;
-    private final Set<Tag> activeTags;
-    private final TreeSet<KnowledgeNode> ageSortedKNs;
+    private final JournaledTagSet activeTags;
+    private final KnowledgeNodeIndex knowledgeNodeIndex;
 
     private final DirectSearcher directSearcher;
     private final ForwardSearcher forwardSearcher;
     private final BackwardSearcher backwardSearcher;
     private final LambdaSearcher lambdaSearcher;
+    /**
+     * The number of changes of the settings of the searches, part of the
+     * version of the KNN.
+     */
+    private final AtomicLong settingsVersion;
 
+    private OpenJournal journal;
+
+    /**
+     * Creates a KNN whose active Tags, and the Tags searched, are stored as
+     * {@link TagBitSet}s with a dictionary of the KNN, which grows with the
+     * Tags active since the active Tags were last cleared.
+     *
+     * @param mapKN                    the mapping from Tags to KNs
+     * @param activeTags               the initial active Tags, copied
+     * @param backwardSearchMatchRatio the backward search match ratio
+     * @param backwardSearchAgeLimit   the backward search age limit
+     * @param knowledgeNodeIndex       the KN indexes
+     * @param directSearcherFactory    the direct searcher factory
+     * @param forwardSearcherFactory   the forward searcher factory
+     * @param backwardSearcherFactory  the backward searcher factory
+     * @param lambdaSearcherFactory    the lambda searcher factory
+     */
     @Inject
     KnowledgeNodeNetworkImpl(
             @Assisted("mapKN") final Map<Tag, KnowledgeNode> mapKN,
             @Assisted("activeTags") final Set<Tag> activeTags,
-            @Assisted("ageSortedKNs") final TreeSet<KnowledgeNode> ageSortedKNs,
             @Assisted("backwardSearchMatchRatio") final
             double backwardSearchMatchRatio,
             @Assisted("backwardSearchAgeLimit")
             final long backwardSearchAgeLimit,
+            final KnowledgeNodeIndex knowledgeNodeIndex,
+            final DirectSearcherFactory directSearcherFactory,
+            final ForwardSearcherFactory forwardSearcherFactory,
+            final BackwardSearcherFactory backwardSearcherFactory,
+            final LambdaSearcherFactory lambdaSearcherFactory) {
+        this(mapKN, new JournaledTagSet(
+                        new TagBitSet(new TagDictionary(), activeTags)),
+                backwardSearchMatchRatio, backwardSearchAgeLimit,
+                knowledgeNodeIndex, directSearcherFactory,
+                forwardSearcherFactory, backwardSearcherFactory,
+                lambdaSearcherFactory);
+    }
+
+    /**
+     * Creates a KNN with the given storage of the active Tags, which the
+     * searches follow for the Tags they search.
+     *
+     * @param mapKN                    the mapping from Tags to KNs
+     * @param activeTags               the active Tags
+     * @param backwardSearchMatchRatio the backward search match ratio
+     * @param backwardSearchAgeLimit   the backward search age limit
+     * @param knowledgeNodeIndex       the KN indexes
+     * @param directSearcherFactory    the direct searcher factory
+     * @param forwardSearcherFactory   the forward searcher factory
+     * @param backwardSearcherFactory  the backward searcher factory
+     * @param lambdaSearcherFactory    the lambda searcher factory
+     */
+    KnowledgeNodeNetworkImpl(
+            final Map<Tag, KnowledgeNode> mapKN,
+            final JournaledTagSet activeTags,
+            final double backwardSearchMatchRatio,
+            final long backwardSearchAgeLimit,
+            final KnowledgeNodeIndex knowledgeNodeIndex,
             final DirectSearcherFactory directSearcherFactory,
             final ForwardSearcherFactory forwardSearcherFactory,
             final BackwardSearcherFactory backwardSearcherFactory,
             final LambdaSearcherFactory lambdaSearcherFactory) {
         this.mapKN = mapKN;
         this.activeTags = activeTags;
-        this.ageSortedKNs = ageSortedKNs;
-        this.directSearcher =
-                directSearcherFactory.create(mapKN, activeTags, ageSortedKNs);
+        this.knowledgeNodeIndex = knowledgeNodeIndex;
+        this.directSearcher = directSearcherFactory
+                .create(mapKN, this.activeTags, knowledgeNodeIndex);
         this.forwardSearcher = forwardSearcherFactory.create(directSearcher);
         this.backwardSearcher = backwardSearcherFactory.create(
-                activeTags, ageSortedKNs, backwardSearchMatchRatio,
-                backwardSearchAgeLimit);
+                this.activeTags, knowledgeNodeIndex,
+                backwardSearchMatchRatio, backwardSearchAgeLimit);
         this.lambdaSearcher =
                 lambdaSearcherFactory.create(forwardSearcher, backwardSearcher);
+        this.settingsVersion = new AtomicLong();
     }
 
     @Override
     public void resetEmpty() {
         mapKN.clear();
         activeTags.clear();
-        ageSortedKNs.clear();
+        knowledgeNodeIndex.clear();
     }
 
     @Override
@@ -68,30 +129,37 @@ class KnowledgeNodeNetworkImpl implements KnowledgeNodeNetwork {
         activeTags.clear();
     }
 
+    /**
+     * Adds a KN, stamping a new KN with the clock of the KNN, see
+     * {@link KnowledgeNode#stampCreation(long)}.
+     *
+     * @param kn the KN
+     */
     @Override
     public void addKnowledgeNode(final KnowledgeNode kn) {
-        mapKN.put(kn.getInputTag(), kn);
-        ageSortedKNs.add(kn);
+        kn.stampCreation(getClock().currentTime());
+        final KnowledgeNode oldKn = mapKN.put(kn.getInputTag(), kn);
+        if (oldKn != null) {
+            knowledgeNodeIndex.remove(oldKn);
+        }
+        knowledgeNodeIndex.add(kn);
     }
 
     @Override
     public void deleteExpiredKnowledgeNodes() {
-        final Set<Tag> tagsToDelete = new HashSet<>();
-        for (final KnowledgeNode kn : mapKN.values()) {
-            if (kn.isExpired()) {
-                tagsToDelete.add(kn.getInputTag());
-                ageSortedKNs.remove(kn);
-            }
-        }
-        for (final Tag t : tagsToDelete) {
-            mapKN.remove(t);
-            activeTags.remove(t);
+        for (final KnowledgeNode kn : knowledgeNodeIndex
+                .removeExpired(getClock().currentTime())) {
+            mapKN.remove(kn.getInputTag(), kn);
+            activeTags.remove(kn.getInputTag());
         }
     }
 
     @Override
     public void deleteKnowledgeNode(final Tag tag) {
-        mapKN.remove(tag);
+        final KnowledgeNode kn = mapKN.remove(tag);
+        if (kn != null) {
+            knowledgeNodeIndex.remove(kn);
+        }
     }
 
     @Override
@@ -99,6 +167,32 @@ class KnowledgeNodeNetworkImpl implements KnowledgeNodeNetwork {
         activeTags.add(tag);
     }
 
+    @Override
+    public final void removeActiveTag(final Tag tag) {
+        activeTags.remove(tag);
+    }
+
+    /**
+     * @return the active Tags, recording their changes in the journal
+     */
+    final Set<Tag> getMutableActiveTags() {
+        return activeTags;
+    }
+
+    /**
+     * @return the listener of the searches of the KNN
+     */
+    final SearchListener getSearchListener() {
+        return directSearcher.getSearchListener();
+    }
+
+    /**
+     * @return the clock aging the KNs
+     */
+    final KnowledgeNodeClock getClock() {
+        return directSearcher.getClock();
+    }
+
     @Override
     public void addActiveTags(final Tag... tags) {
         activeTags.addAll(Arrays.asList(tags));
@@ -116,7 +210,8 @@ class KnowledgeNodeNetworkImpl implements KnowledgeNodeNetwork {
 
     @Override
     public Set<KnowledgeNode> getKnowledgeNodes() {
-        return Collections.unmodifiableSet(ageSortedKNs);
+        return Collections.unmodifiableSet(
+                knowledgeNodeIndex.getKnowledgeNodes());
     }
 
     @Override
@@ -129,6 +224,18 @@ class KnowledgeNodeNetworkImpl implements KnowledgeNodeNetwork {
         return forwardSearcher.search(inputTags, ply);
     }
 
+    @Override
+    public Set<Tag> forwardSearch(final Set<Tag> inputTags, final int ply,
+                                  final int beamWidth) {
+        return forwardSearcher.search(inputTags, ply, beamWidth);
+    }
+
+    @Override
+    public List<Set<Tag>> forwardSearchBatch(final List<Set<Tag>> inputs,
+                                             final int ply) {
+        return forwardSearcher.searchBatch(inputs, ply);
+    }
+
     @Override
     public Set<Tag> forwardThink(final int ply) {
         return forwardSearcher.search(activeTags, ply);
@@ -139,6 +246,12 @@ class KnowledgeNodeNetworkImpl implements KnowledgeNodeNetwork {
         return backwardSearcher.search(inputTags, ply);
     }
 
+    @Override
+    public List<Set<Tag>> backwardSearchBatch(final List<Set<Tag>> inputs,
+                                              final int ply) {
+        return backwardSearcher.searchBatch(inputs, ply);
+    }
+
     @Override
     public Set<Tag> backwardThink(final int ply) {
         return backwardSearcher.search(activeTags, ply);
@@ -147,6 +260,7 @@ class KnowledgeNodeNetworkImpl implements KnowledgeNodeNetwork {
     @Override
     public void setBackwardSearchMatchRatio(final double ratio) {
         backwardSearcher.setPartialMatchRatio(ratio);
+        settingsVersion.incrementAndGet();
     }
 
     @Override
@@ -154,41 +268,122 @@ class KnowledgeNodeNetworkImpl implements KnowledgeNodeNetwork {
         return lambdaSearcher.search(inputTags, ply);
     }
 
+    @Override
+    public Set<Tag> lambdaSearch(final Set<Tag> inputTags, final int ply,
+                                 final int beamWidth) {
+        return lambdaSearcher.search(inputTags, ply, beamWidth);
+    }
+
     @Override
     public Set<Tag> lambdaThink(final int ply) {
         return lambdaSearcher.search(activeTags, ply);
     }
 
     @Override
-    public List<KnowledgeNode> loadData(final String filename) {
-        final List<KnowledgeNode> knowledgeNodes = new ArrayList<>();
+    public BidirectionalSearchResult bidirectionalSearch(
+            final Set<Tag> inputTags, final Set<Tag> goalTags, final int ply,
+            final int budget) {
+        return lambdaSearcher.search(inputTags, goalTags, ply, budget);
+    }
+
+    /**
+     * The version is the version of the KN indexes, through which every KN
+     * is added, deleted and excited, plus the number of changes of the
+     * settings of the searches.
+     *
+     * @return the version of the KNN
+     */
+    @Override
+    public long getVersion() {
+        return knowledgeNodeIndex.getVersion() + settingsVersion.get();
+    }
+
+    /**
+     * Opens a search session running the searchers of the KNN on an overlay
+     * of the KNs. The KN map and indexes are only read by the sessions.
+     *
+     * @return the new search session
+     */
+    @Override
+    public SearchSession openSession() {
+        return new SearchSessionImpl(mapKN, knowledgeNodeIndex,
+                directSearcher, forwardSearcher, backwardSearcher);
+    }
+
+    @Override
+    public LoadReport loadData(final String filename) {
         resetEmpty();
+        return KnowledgeNodeLoaderImpl.load(this, filename);
+    }
+
+    @Override
+    public void reset(final String dbFilename) {
+        final KnowledgeNodeSnapshot snapshot;
         try {
-            final BufferedReader br = new BufferedReader(
-                    new InputStreamReader(new FileInputStream(filename),
-                            "UTF-8"));
-            String line;
-            while ((line = br.readLine()) != null) {
-                final String[] info = line.split(";\\s+");
-                final KnowledgeNode kn = new KnowledgeNode(info);
-                knowledgeNodes.add(kn);
-            }
-            br.close();
-        } catch (final Exception e) {
-            e.printStackTrace();
+            snapshot = KnowledgeNodeSnapshot.read(dbFilename);
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
         }
+        resetEmpty();
+        final List<KnowledgeNode> knowledgeNodes =
+                snapshot.getKnowledgeNodes();
+        // Add the least recent KN first, to restore the recency order
+        for (int i = knowledgeNodes.size() - 1; i >= 0; i--) {
+            addKnowledgeNode(knowledgeNodes.get(i));
+        }
+        activeTags.addAll(snapshot.getActiveTags());
+    }
 
-        for (final KnowledgeNode knowledgeNode : knowledgeNodes) {
-            addKnowledgeNode(knowledgeNode);
+    @Override
+    public void save(final String dbFilename) {
+        try {
+            new KnowledgeNodeSnapshot(
+                    knowledgeNodeIndex.getKnowledgeNodes(), activeTags)
+                    .write(dbFilename);
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
         }
-        return knowledgeNodes;
     }
 
     @Override
-    public void reset(final String dbFilename) {
+    public synchronized void openJournal(final String dbFilename,
+                                         final String journalFilename,
+                                         final JournalSyncPolicy syncPolicy,
+                                         final long commitIntervalMillis) {
+        if (journal != null) {
+            throw new IllegalStateException("A journal is already open.");
+        }
+        journal = OpenJournal.open(this, dbFilename, journalFilename,
+                syncPolicy, commitIntervalMillis);
     }
 
     @Override
-    public void save(final String dbFilename) {
+    public synchronized void compactJournal() {
+        if (journal == null) {
+            throw new IllegalStateException("No journal is open.");
+        }
+        journal.compact();
+    }
+
+    @Override
+    public synchronized void closeJournal() {
+        if (journal == null) {
+            return;
+        }
+        final OpenJournal closing = journal;
+        journal = null;
+        closing.close();
+    }
+
+    @Override
+    public final void setJournal(final KnowledgeNodeJournal recorder) {
+        knowledgeNodeIndex.setJournal(recorder);
+        activeTags.setJournal(recorder);
+    }
+
+    @Override
+    public final KnowledgeNodeSnapshot snapshot() {
+        return new KnowledgeNodeSnapshot(
+                knowledgeNodeIndex.getKnowledgeNodes(), activeTags);
     }
 }
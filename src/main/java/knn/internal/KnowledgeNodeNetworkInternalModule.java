@@ -1,28 +1,251 @@
 package knn.internal;
 
+import java.util.concurrent.ForkJoinPool;
 import com.google.inject.AbstractModule;
 import com.google.inject.assistedinject.FactoryModuleBuilder;
+import com.google.inject.name.Names;
+import knn.api.AsyncKnowledgeNodeNetwork;
+import knn.api.AsyncKnowledgeNodeNetworkFactory;
+import knn.api.BackwardSearchApproximation;
+import knn.api.KnowledgeNodeLoader;
 import knn.api.KnowledgeNodeNetwork;
+import knn.api.KnowledgeNodeClock;
+import knn.api.KnowledgeNodeNetworkEngine;
 import knn.api.KnowledgeNodeNetworkFactory;
+import knn.api.QueryCache;
+import knn.api.QueryCacheFactory;
+import knn.api.SearchListener;
 
 /**
  * The internal Guice module for the KNN.
  */
 public final class KnowledgeNodeNetworkInternalModule extends AbstractModule {
+    /**
+     * The default number of input Tags (in forward search) or KNs (in
+     * backward search) of a ply below which the ply is not split across
+     * threads.
+     */
+    public static final int DEFAULT_SEARCH_SPLIT_THRESHOLD = 1024;
+    /**
+     * The number of shards of the SHARDED engine which stands for one shard
+     * per available processor.
+     */
+    public static final int AVAILABLE_PROCESSORS = 0;
+    private final KnowledgeNodeNetworkEngine engine;
+    private final ForkJoinPool searchPool;
+    private final int searchSplitThreshold;
+    private final int shards;
+    private final SearchListener searchListener;
+    private final KnowledgeNodeClock clock;
+    private final BackwardSearchApproximation backwardSearchApproximation;
+    private final boolean asyncSearch;
+
+    /**
+     * Creates the internal KNN module with the default engine.
+     */
+    public KnowledgeNodeNetworkInternalModule() {
+        this(KnowledgeNodeNetworkEngine.DEFAULT);
+    }
+
+    /**
+     * Creates the internal KNN module with the given engine.
+     *
+     * @param engine the engine implementing the KNN
+     */
+    public KnowledgeNodeNetworkInternalModule(
+            final KnowledgeNodeNetworkEngine engine) {
+        this(engine, null, DEFAULT_SEARCH_SPLIT_THRESHOLD, AVAILABLE_PROCESSORS,
+                SearchListener.NONE, KnowledgeNodeClock.SYSTEM,
+                BackwardSearchApproximation.EXACT, false);
+    }
+
+    /**
+     * Creates the internal KNN module with the given engine, parallel search
+     * settings, number of shards, listener of the searches, clock aging the
+     * KNs, settings of the approximate backward search and support of the
+     * asynchronous searches, see
+     * {@link knn.guice.KnowledgeNodeNetworkModule.Builder}.
+     *
+     * @param engine                      the engine implementing the KNN
+     * @param searchPool                  the pool running parallel search,
+     *                                    or null to search serially unless
+     *                                    the engine is thread-safe
+     * @param searchSplitThreshold        the number of input Tags or KNs of a
+     *                                    ply below which the ply is not split
+     *                                    across threads
+     * @param shards                      the number of shards of the
+     *                                    SHARDED engine, or
+     *                                    {@link #AVAILABLE_PROCESSORS}
+     * @param searchListener              the listener of the searches, see
+     *                                    {@link SearchListener#NONE}
+     * @param clock                       the clock aging the KNs, see
+     *                                    {@link KnowledgeNodeClock#SYSTEM}
+     * @param backwardSearchApproximation the settings of the approximate
+     *                                    backward search, only supported by
+     *                                    the DEFAULT, COMPILED and SHARDED
+     *                                    engines, see {@link
+     *                                    BackwardSearchApproximation#EXACT}
+     * @param asyncSearch                 whether the module binds the
+     *                                    factory of the asynchronous
+     *                                    searches, which are cancellable
+     */
+    public KnowledgeNodeNetworkInternalModule(
+            final KnowledgeNodeNetworkEngine engine,
+            final ForkJoinPool searchPool,
+            final int searchSplitThreshold,
+            final int shards,
+            final SearchListener searchListener,
+            final KnowledgeNodeClock clock,
+            final BackwardSearchApproximation backwardSearchApproximation,
+            final boolean asyncSearch) {
+        this.engine = engine;
+        this.searchPool = searchPool;
+        this.searchSplitThreshold = searchSplitThreshold;
+        this.shards = shards;
+        this.searchListener = searchListener;
+        this.clock = clock;
+        this.backwardSearchApproximation = backwardSearchApproximation;
+        this.asyncSearch = asyncSearch;
+    }
+
     @Override
     protected void configure() {
         install(new FactoryModuleBuilder()
-                .implement(KnowledgeNodeNetwork.class,
-                        KnowledgeNodeNetworkImpl.class)
+                .implement(KnowledgeNodeNetwork.class, getImplementation())
                 .build(KnowledgeNodeNetworkFactory.class));
+        bind(KnowledgeNodeIndex.class).to(KnowledgeNodeIndexImpl.class);
+        bind(KnowledgeNodeLoader.class).to(KnowledgeNodeLoaderImpl.class);
+        bind(ForkJoinPool.class)
+                .annotatedWith(Names.named("searchPool"))
+                .toInstance(getSearchPool());
+        bindConstant()
+                .annotatedWith(Names.named("searchSplitThreshold"))
+                .to(searchSplitThreshold);
+        bindConstant()
+                .annotatedWith(Names.named("shards"))
+                .to(getShards());
+        bindSearchListener();
+        bind(KnowledgeNodeClock.class).toInstance(clock);
+        bind(BackwardSearchApproximation.class)
+                .toInstance(getBackwardSearchApproximation());
+        bindConstant()
+                .annotatedWith(Names.named("serialSearch"))
+                .to(engine != KnowledgeNodeNetworkEngine.CONCURRENT);
+        install(new FactoryModuleBuilder()
+                .implement(QueryCache.class, QueryCacheImpl.class)
+                .build(QueryCacheFactory.class));
 
         install(new FactoryModuleBuilder()
                 .build(DirectSearcherFactory.class));
         install(new FactoryModuleBuilder()
+                .implement(ForwardSearcher.class, getForwardSearcher())
                 .build(ForwardSearcherFactory.class));
         install(new FactoryModuleBuilder()
+                .implement(BackwardSearcher.class, getBackwardSearcher())
                 .build(BackwardSearcherFactory.class));
         install(new FactoryModuleBuilder()
                 .build(LambdaSearcherFactory.class));
     }
+
+    /**
+     * Binds the listener of the searches. With the asynchronous searches,
+     * the listener is wrapped by a {@link CancellableSearchListener}, which
+     * looks up the search of the calling thread as each search starts, so
+     * that it can be cancelled. Otherwise the given listener is bound as is,
+     * so that the searches call {@link SearchListener#NONE} directly.
+     */
+    private void bindSearchListener() {
+        if (!asyncSearch) {
+            bind(SearchListener.class).toInstance(searchListener);
+            return;
+        }
+        final CancellableSearchListener cancellableSearchListener =
+                new CancellableSearchListener(searchListener);
+        bind(SearchListener.class).toInstance(cancellableSearchListener);
+        bind(CancellableSearchListener.class)
+                .toInstance(cancellableSearchListener);
+        install(new FactoryModuleBuilder()
+                .implement(AsyncKnowledgeNodeNetwork.class,
+                        AsyncKnowledgeNodeNetworkImpl.class)
+                .build(AsyncKnowledgeNodeNetworkFactory.class));
+    }
+
+    /**
+     * @return the KNN implementation of the engine
+     */
+    private Class<? extends KnowledgeNodeNetwork> getImplementation() {
+        switch (engine) {
+            case COMPILED:
+                return CompiledKnowledgeNodeNetworkImpl.class;
+            case CONCURRENT:
+                return ConcurrentKnowledgeNodeNetworkImpl.class;
+            case OFF_HEAP:
+                return OffHeapKnowledgeNodeNetworkImpl.class;
+            case SHARDED:
+                return ShardedKnowledgeNodeNetworkImpl.class;
+            case DEFAULT:
+            default:
+                return KnowledgeNodeNetworkImpl.class;
+        }
+    }
+
+    /**
+     * @return the settings of the approximate backward search, exact unless
+     * the engine indexes its KNs with a {@link KnowledgeNodeIndexImpl}
+     */
+    private BackwardSearchApproximation getBackwardSearchApproximation() {
+        switch (engine) {
+            case DEFAULT:
+            case COMPILED:
+            case SHARDED:
+                return backwardSearchApproximation;
+            default:
+                return BackwardSearchApproximation.EXACT;
+        }
+    }
+
+    /**
+     * @return the forward searcher of the engine, parallel if the engine is
+     * thread-safe
+     */
+    private Class<? extends ForwardSearcher> getForwardSearcher() {
+        if (engine == KnowledgeNodeNetworkEngine.CONCURRENT) {
+            return ParallelForwardSearcher.class;
+        }
+        return ForwardSearcher.class;
+    }
+
+    /**
+     * @return the pool running parallel search, the common pool if none was
+     * given
+     */
+    private ForkJoinPool getSearchPool() {
+        if (searchPool == null) {
+            return ForkJoinPool.commonPool();
+        }
+        return searchPool;
+    }
+
+    /**
+     * @return the number of shards of the SHARDED engine, one per available
+     * processor if none was given
+     */
+    private int getShards() {
+        if (shards == AVAILABLE_PROCESSORS) {
+            return Runtime.getRuntime().availableProcessors();
+        }
+        return shards;
+    }
+
+    /**
+     * @return the backward searcher of the engine, parallel if the engine is
+     * thread-safe or if a pool running parallel search was given
+     */
+    private Class<? extends BackwardSearcher> getBackwardSearcher() {
+        if (engine == KnowledgeNodeNetworkEngine.CONCURRENT
+                || searchPool != null) {
+            return ParallelBackwardSearcher.class;
+        }
+        return BackwardSearcher.class;
+    }
 }
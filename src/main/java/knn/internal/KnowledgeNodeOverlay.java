@@ -0,0 +1,357 @@
+package knn.internal;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import knn.api.KnowledgeNode;
+import tags.Tag;
+
+/**
+ * Copy-on-access overlay of the KNs of a shared KNN, giving a search session
+ * its own activation of the KNs without changing the shared ones.
+ * <p>
+ * The overlay is both the mapping from Tags to KNs, see {@link #getMap()},
+ * and the KN indexes of the searchers of the session. A shared KN is copied
+ * in constant time the first time it is looked up, and the copy is excited
+ * in its place. Copies are ordered by their excitation in the overlay, and
+ * come before the shared KNs in order of recency; the candidates of backward
+ * search are the shared ones, replaced by their copies. KNs removed from the
+ * overlay, since they expired, are hidden. The shared KNs are only read.
+ * <p>
+ * Thread-safe, as long as the shared KNs are not modified concurrently, or
+ * are thread-safe themselves.
+ */
+final class KnowledgeNodeOverlay implements KnowledgeNodeIndex {
+    private final Map<Tag, KnowledgeNode> sharedMapKN;
+    private final KnowledgeNodeIndex sharedIndex;
+
+    private final AtomicLong clock;
+    private final ConcurrentMap<Tag, KnowledgeNode> copies;
+    /**
+     * The current stamp of each copy, by input Tag.
+     */
+    private final ConcurrentMap<Tag, Long> stamps;
+    /**
+     * The copies by stamp, from the most to the least recent.
+     */
+    private final ConcurrentSkipListMap<Long, KnowledgeNode> copiesByStamp;
+    private final Set<Tag> removed;
+    private final Map<Tag, KnowledgeNode> map;
+    private final Set<KnowledgeNode> knowledgeNodes;
+
+    /**
+     * Creates an empty overlay of the given shared KNs.
+     *
+     * @param sharedMapKN the mapping from Tags to the shared KNs
+     * @param sharedIndex the indexes of the shared KNs
+     */
+    KnowledgeNodeOverlay(final Map<Tag, KnowledgeNode> sharedMapKN,
+                         final KnowledgeNodeIndex sharedIndex) {
+        this.sharedMapKN = sharedMapKN;
+        this.sharedIndex = sharedIndex;
+        this.clock = new AtomicLong();
+        this.copies = new ConcurrentHashMap<>();
+        this.stamps = new ConcurrentHashMap<>();
+        this.copiesByStamp =
+                new ConcurrentSkipListMap<>(Collections.reverseOrder());
+        this.removed = ConcurrentHashMap.newKeySet();
+        this.map = new OverlayMap();
+        this.knowledgeNodes = new KnowledgeNodes();
+    }
+
+    /**
+     * @return the mapping from Tags to the KNs of the overlay, copying the
+     * shared KNs as they are looked up
+     */
+    Map<Tag, KnowledgeNode> getMap() {
+        return map;
+    }
+
+    /**
+     * Gets the KN with the given input Tag, as seen through the overlay,
+     * without copying it into the overlay. The shared KN is never returned,
+     * so that it cannot be changed through the session.
+     *
+     * @param tag the input Tag
+     * @return the copy of the KN if any, else a copy of the shared KN
+     * detached from the overlay, or null if the KN is removed from the
+     * overlay or does not exist
+     */
+    KnowledgeNode peek(final Tag tag) {
+        if (removed.contains(tag)) {
+            return null;
+        }
+        final KnowledgeNode copy = copies.get(tag);
+        if (copy != null) {
+            return copy;
+        }
+        final KnowledgeNode kn = sharedMapKN.get(tag);
+        if (kn == null) {
+            return null;
+        }
+        return kn.copy();
+    }
+
+    /**
+     * @param tag an input Tag
+     * @return true if the overlay has a KN with the input Tag
+     */
+    private boolean contains(final Tag tag) {
+        return !removed.contains(tag)
+                && (copies.containsKey(tag) || sharedMapKN.containsKey(tag));
+    }
+
+    /**
+     * The overlay never adds KNs, since they would not be shared.
+     *
+     * @param kn the KN to index
+     * @throws UnsupportedOperationException always
+     */
+    @Override
+    public void add(final KnowledgeNode kn) {
+        throw new UnsupportedOperationException(
+                "A search session cannot add KNs.");
+    }
+
+    @Override
+    public void remove(final KnowledgeNode kn) {
+        final Tag inputTag = kn.getInputTag();
+        removed.add(inputTag);
+        clock.incrementAndGet();
+        copies.remove(inputTag, kn);
+        final Long stamp = stamps.remove(inputTag);
+        if (stamp != null) {
+            copiesByStamp.remove(stamp);
+        }
+    }
+
+    /**
+     * Discards the copies and removals, so that the overlay shows the shared
+     * KNs again.
+     */
+    @Override
+    public void clear() {
+        copies.clear();
+        stamps.clear();
+        copiesByStamp.clear();
+        removed.clear();
+        clock.incrementAndGet();
+    }
+
+    /**
+     * The overlay never removes the expired KNs by time: a session only
+     * deletes the KNs found expired by its searches.
+     *
+     * @param now the current time
+     * @return never
+     * @throws UnsupportedOperationException always
+     */
+    @Override
+    public List<KnowledgeNode> removeExpired(final long now) {
+        throw new UnsupportedOperationException(
+                "A search session cannot delete expired KNs.");
+    }
+
+    @Override
+    public boolean excite(final KnowledgeNode kn, final long now) {
+        final boolean fired = kn.excite(now);
+        final Long stamp = clock.incrementAndGet();
+        copiesByStamp.put(stamp, kn);
+        final Long previous = stamps.put(kn.getInputTag(), stamp);
+        if (previous != null) {
+            copiesByStamp.remove(previous);
+        }
+        return fired;
+    }
+
+    @Override
+    public Set<KnowledgeNode> getKnowledgeNodes() {
+        return knowledgeNodes;
+    }
+
+    @Override
+    public Set<KnowledgeNode> getCandidates(final Set<Tag> tags) {
+        return overlay(sharedIndex.getCandidates(tags));
+    }
+
+    @Override
+    public Set<KnowledgeNode> getCandidates(final Set<Tag> tags,
+                                            final int numRequiredMatches) {
+        return overlay(
+                sharedIndex.getCandidates(tags, numRequiredMatches));
+    }
+
+    /**
+     * @param shared shared KNs
+     * @return the KNs of the overlay in place of the shared KNs, without the
+     * removed ones
+     */
+    private Set<KnowledgeNode> overlay(final Set<KnowledgeNode> shared) {
+        final Set<KnowledgeNode> candidates =
+                Collections.newSetFromMap(new IdentityHashMap<>());
+        for (final KnowledgeNode kn : shared) {
+            final Tag inputTag = kn.getInputTag();
+            final KnowledgeNode copy = copies.get(inputTag);
+            if (removed.contains(inputTag)) {
+                continue;
+            } else if (copy != null) {
+                candidates.add(copy);
+            } else {
+                candidates.add(kn);
+            }
+        }
+        return candidates;
+    }
+
+    /**
+     * The version of the overlay changes with the shared KNs, and with the
+     * copies and removals of the overlay.
+     *
+     * @return the version of the KNs of the overlay
+     */
+    @Override
+    public long getVersion() {
+        return sharedIndex.getVersion() + clock.get();
+    }
+
+    /**
+     * The overlay is never journaled, since it does not change the KNN.
+     *
+     * @param journal the journal
+     * @throws UnsupportedOperationException always
+     */
+    @Override
+    public void setJournal(final KnowledgeNodeJournal journal) {
+        throw new UnsupportedOperationException(
+                "A search session has no journal.");
+    }
+
+    /**
+     * Copies the shared KN with the given input Tag, unless it was already
+     * copied or removed.
+     *
+     * @param tag the input Tag
+     * @return the copy of the KN, or null if there is none
+     */
+    private KnowledgeNode copy(final Tag tag) {
+        if (removed.contains(tag)) {
+            return null;
+        }
+        return copies.computeIfAbsent(tag, t -> {
+            final KnowledgeNode kn = sharedMapKN.get(t);
+            if (kn == null) {
+                return null;
+            }
+            return kn.copy();
+        });
+    }
+
+    /**
+     * Mapping from Tags to the KNs of the overlay.
+     */
+    private final class OverlayMap extends AbstractMap<Tag, KnowledgeNode> {
+        @Override
+        public KnowledgeNode get(final Object key) {
+            if (!(key instanceof Tag)) {
+                return null;
+            }
+            return copy((Tag) key);
+        }
+
+        @Override
+        public boolean containsKey(final Object key) {
+            return key instanceof Tag && contains((Tag) key);
+        }
+
+        @Override
+        public boolean remove(final Object key, final Object value) {
+            if (value == null || get(key) != value) {
+                return false;
+            }
+            KnowledgeNodeOverlay.this.remove((KnowledgeNode) value);
+            return true;
+        }
+
+        @Override
+        public Set<Entry<Tag, KnowledgeNode>> entrySet() {
+            return Collections.unmodifiableMap(copies).entrySet();
+        }
+    }
+
+    /**
+     * View of the KNs of the overlay, in order of increasing age: the
+     * excited copies, then the shared KNs, or their copies, which are
+     * neither excited nor removed.
+     */
+    private final class KnowledgeNodes extends AbstractSet<KnowledgeNode> {
+        @Override
+        public Iterator<KnowledgeNode> iterator() {
+            final Iterator<KnowledgeNode> copyIterator =
+                    copiesByStamp.values().iterator();
+            final Iterator<KnowledgeNode> sharedIterator =
+                    sharedIndex.getKnowledgeNodes().iterator();
+            return new Iterator<KnowledgeNode>() {
+                private KnowledgeNode next = advance();
+
+                /**
+                 * @return the next KN of the overlay, or null if there is
+                 * none
+                 */
+                private KnowledgeNode advance() {
+                    while (copyIterator.hasNext()) {
+                        final KnowledgeNode kn = copyIterator.next();
+                        if (!removed.contains(kn.getInputTag())) {
+                            return kn;
+                        }
+                    }
+                    while (sharedIterator.hasNext()) {
+                        final KnowledgeNode kn = sharedIterator.next();
+                        final Tag inputTag = kn.getInputTag();
+                        if (!stamps.containsKey(inputTag)
+                                && !removed.contains(inputTag)) {
+                            return copies.getOrDefault(inputTag, kn);
+                        }
+                    }
+                    return null;
+                }
+
+                @Override
+                public boolean hasNext() {
+                    return next != null;
+                }
+
+                @Override
+                public KnowledgeNode next() {
+                    if (next == null) {
+                        throw new NoSuchElementException();
+                    }
+                    final KnowledgeNode kn = next;
+                    next = advance();
+                    return kn;
+                }
+            };
+        }
+
+        /**
+         * Every copied or removed KN is a shared KN, and removed KNs are
+         * never restored but by clearing the overlay, so the size is the
+         * number of shared KNs less the number of removed ones.
+         *
+         * @return the number of KNs of the overlay
+         */
+        @Override
+        public int size() {
+            return sharedIndex.getKnowledgeNodes().size() - removed.size();
+        }
+    }
+}
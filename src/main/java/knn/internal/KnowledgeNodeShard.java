@@ -0,0 +1,298 @@
+package knn.internal;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import knn.api.KnowledgeNode;
+import knn.api.SearchTrace;
+import tags.Tag;
+
+/**
+ * A shard of the {@link ShardedKnowledgeNodeNetworkImpl}: the KNs whose input
+ * Tags hash to the shard, with their indexes, and the active Tags which hash
+ * to the shard, see {@link ShardedSearcher#shardOf(Tag, int)}.
+ * <p>
+ * A shard is only accessed by its worker thread, through the messages of a
+ * {@link ShardedSearcher}, and shares no mutable state with the other
+ * shards: the Tags it receives are only read, and the Tags it returns are
+ * new sets. The shards of a search session overlay the shards of the KNN,
+ * and are run by the same workers. When a journal is set, the shard records
+ * the mutations of its KNs and active Tags in it, from its worker. Not
+ * thread-safe.
+ */
+final class KnowledgeNodeShard {
+    private final int numShards;
+    private final Map<Tag, KnowledgeNode> mapKN;
+    private final Function<Tag, KnowledgeNode> lookup;
+    private final JournaledTagSet activeTags;
+    private final KnowledgeNodeIndex knowledgeNodeIndex;
+    private final DirectSearcher directSearcher;
+    private final BackwardSearcher backwardSearcher;
+
+    /**
+     * Creates a shard of a KNN.
+     *
+     * @param numShards          the number of shards of the KNN
+     * @param mapKN              the mapping from Tags to the KNs of the shard
+     * @param activeTags         the active Tags of the shard
+     * @param knowledgeNodeIndex the indexes of the KNs of the shard
+     * @param directSearcher     the direct searcher of the shard
+     * @param backwardSearcher   the backward searcher of the shard
+     */
+    KnowledgeNodeShard(final int numShards,
+                       final Map<Tag, KnowledgeNode> mapKN,
+                       final JournaledTagSet activeTags,
+                       final KnowledgeNodeIndex knowledgeNodeIndex,
+                       final DirectSearcher directSearcher,
+                       final BackwardSearcher backwardSearcher) {
+        this(numShards, mapKN, mapKN::get, activeTags, knowledgeNodeIndex,
+                directSearcher, backwardSearcher);
+    }
+
+    /**
+     * Creates a shard.
+     *
+     * @param numShards          the number of shards of the KNN
+     * @param mapKN              the mapping from Tags to the KNs of the shard
+     * @param lookup             the lookup of the KNs returned by the shard
+     * @param activeTags         the active Tags of the shard
+     * @param knowledgeNodeIndex the indexes of the KNs of the shard
+     * @param directSearcher     the direct searcher of the shard
+     * @param backwardSearcher   the backward searcher of the shard
+     */
+    private KnowledgeNodeShard(final int numShards,
+                               final Map<Tag, KnowledgeNode> mapKN,
+                               final Function<Tag, KnowledgeNode> lookup,
+                               final JournaledTagSet activeTags,
+                               final KnowledgeNodeIndex knowledgeNodeIndex,
+                               final DirectSearcher directSearcher,
+                               final BackwardSearcher backwardSearcher) {
+        this.numShards = numShards;
+        this.mapKN = mapKN;
+        this.lookup = lookup;
+        this.activeTags = activeTags;
+        this.knowledgeNodeIndex = knowledgeNodeIndex;
+        this.directSearcher = directSearcher;
+        this.backwardSearcher = backwardSearcher;
+    }
+
+    /**
+     * Opens the shard of a search session on this shard: a
+     * {@link KnowledgeNodeOverlay} of its KNs, with no active Tags, searched
+     * as {@link SearchSessionImpl} does.
+     *
+     * @return the shard of the session
+     */
+    KnowledgeNodeShard openSession() {
+        final KnowledgeNodeOverlay overlay =
+                new KnowledgeNodeOverlay(mapKN, knowledgeNodeIndex);
+        final JournaledTagSet sessionActiveTags =
+                new JournaledTagSet(new HashSet<>());
+        return new KnowledgeNodeShard(numShards, overlay.getMap(),
+                overlay::peek, sessionActiveTags, overlay,
+                directSearcher.withKnowledgeNodes(
+                        overlay.getMap(), sessionActiveTags, overlay),
+                backwardSearcher.withKnowledgeNodes(
+                        sessionActiveTags, overlay));
+    }
+
+    /**
+     * Sets the journal recording the mutations of the KNs and the active
+     * Tags of the shard.
+     *
+     * @param journal the journal, null to stop recording
+     */
+    void setJournal(final KnowledgeNodeJournal journal) {
+        knowledgeNodeIndex.setJournal(journal);
+        activeTags.setJournal(journal);
+    }
+
+    /**
+     * Adds a KN, replacing the KN with the same input Tag, if any.
+     *
+     * @param kn the KN
+     */
+    void addKnowledgeNode(final KnowledgeNode kn) {
+        final KnowledgeNode oldKn = mapKN.put(kn.getInputTag(), kn);
+        if (oldKn != null) {
+            knowledgeNodeIndex.remove(oldKn);
+        }
+        knowledgeNodeIndex.add(kn);
+    }
+
+    /**
+     * Deletes the KN of the given input Tag, if any.
+     *
+     * @param tag the input Tag
+     */
+    void deleteKnowledgeNode(final Tag tag) {
+        final KnowledgeNode kn = mapKN.remove(tag);
+        if (kn != null) {
+            knowledgeNodeIndex.remove(kn);
+        }
+    }
+
+    /**
+     * Deletes the expired KNs, and deactivates their input Tags.
+     *
+     * @param now the current time
+     */
+    void deleteExpiredKnowledgeNodes(final long now) {
+        for (final KnowledgeNode kn : knowledgeNodeIndex.removeExpired(now)) {
+            mapKN.remove(kn.getInputTag(), kn);
+            activeTags.remove(kn.getInputTag());
+        }
+    }
+
+    /**
+     * Deletes all the KNs and deactivates all the Tags.
+     */
+    void clear() {
+        mapKN.clear();
+        activeTags.clear();
+        knowledgeNodeIndex.clear();
+    }
+
+    /**
+     * @param tag an input Tag
+     * @return the KN of the input Tag, or null if there is none
+     */
+    KnowledgeNode getKnowledgeNode(final Tag tag) {
+        return lookup.apply(tag);
+    }
+
+    /**
+     * @return the KNs, in order of increasing age
+     */
+    List<KnowledgeNode> getKnowledgeNodes() {
+        return new ArrayList<>(knowledgeNodeIndex.getKnowledgeNodes());
+    }
+
+    /**
+     * @return the version of the KNs, see {@link KnowledgeNodeIndex}
+     */
+    long getVersion() {
+        return knowledgeNodeIndex.getVersion();
+    }
+
+    /**
+     * @return a copy of the active Tags
+     */
+    Set<Tag> getActiveTags() {
+        return new HashSet<>(activeTags);
+    }
+
+    /**
+     * Deactivates all the Tags.
+     */
+    void clearActiveTags() {
+        activeTags.clear();
+    }
+
+    /**
+     * Activates the given Tags.
+     *
+     * @param tags the Tags
+     */
+    void activate(final Collection<Tag> tags) {
+        activeTags.addAll(tags);
+    }
+
+    /**
+     * Deactivates the given Tag.
+     *
+     * @param tag the Tag
+     */
+    void deactivate(final Tag tag) {
+        activeTags.remove(tag);
+    }
+
+    /**
+     * Activates the given Tags, as backward search does once it is done.
+     *
+     * @param tags the Tags
+     * @return the Tags which were not active yet
+     */
+    Set<Tag> activateNew(final Set<Tag> tags) {
+        final Set<Tag> newTags = new HashSet<>(tags);
+        newTags.removeAll(activeTags);
+        activeTags.addAll(newTags);
+        return newTags;
+    }
+
+    /**
+     * Sets the partial match ratio of backward search.
+     *
+     * @param ratio the partial match ratio
+     */
+    void setBackwardSearchMatchRatio(final double ratio) {
+        backwardSearcher.setPartialMatchRatio(ratio);
+    }
+
+    /**
+     * Fires the KNs of the given input Tags of a ply of forward search, see
+     * {@link DirectSearcher#fire(Tag, SearchTrace, long)}. The output Tags of
+     * the fired KNs are left to their shards to activate.
+     *
+     * @param tags  the input Tags of the ply which hash to this shard
+     * @param trace the trace of the search events
+     * @param now   the time of the search
+     * @return the output Tags of the fired KNs, by shard
+     */
+    List<Set<Tag>> fire(final Set<Tag> tags, final SearchTrace trace,
+                        final long now) {
+        final List<Set<Tag>> activatedTags =
+                ShardedSearcher.newPartition(numShards);
+        for (final Tag t : tags) {
+            final KnowledgeNode kn = directSearcher.fire(t, trace, now);
+            if (kn != null) {
+                for (final Tag output : kn.getOutputTags()) {
+                    ShardedSearcher.route(output, activatedTags);
+                }
+                trace.tagsActivated(kn.getOutputTags().size());
+            }
+        }
+        return activatedTags;
+    }
+
+    /**
+     * Fires the KNs of the given input Tags of a ply of beam search, and
+     * offers their output Tags to a beam.
+     *
+     * @param tags      the input Tags of the ply which hash to this shard
+     * @param beamWidth the width of the beam
+     * @param trace     the trace of the search events
+     * @param now       the time of the search
+     * @return the beam of the output Tags of the fired KNs
+     */
+    TagBeam fire(final Set<Tag> tags, final int beamWidth,
+                 final SearchTrace trace, final long now) {
+        final TagBeam beam = new TagBeam(beamWidth);
+        for (final Tag t : tags) {
+            final KnowledgeNode kn = directSearcher.fire(t, trace, now);
+            if (kn != null) {
+                beam.offer(kn);
+            }
+        }
+        return beam;
+    }
+
+    /**
+     * Matches the KNs against the input Tags of a ply of backward search,
+     * see {@link BackwardSearcher#searchPly(Set, SearchTrace, long)}. The
+     * matched Tags are input Tags of KNs of this shard, so they hash to it.
+     *
+     * @param tags  all the input Tags of the ply, only read
+     * @param trace the trace of the search events
+     * @param now   the time of the search
+     * @return the input Tags of the matching KNs
+     */
+    Set<Tag> match(final Set<Tag> tags, final SearchTrace trace,
+                   final long now) {
+        return backwardSearcher.searchPly(tags, trace, now);
+    }
+}
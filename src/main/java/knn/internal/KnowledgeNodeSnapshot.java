@@ -0,0 +1,238 @@
+package knn.internal;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import knn.api.KnowledgeNode;
+import tags.Tag;
+import tags.TagCodec;
+
+/**
+ * Binary snapshot of the KNs and active Tags of a KNN.
+ * <p>
+ * The snapshot starts with a magic number and a format version, followed by a
+ * dictionary of the Tags, each written once by the {@link TagCodec}. The KNs
+ * follow, from the most to the least recent, with their threshold, belief,
+ * strength, activation, age and the dictionary indexes of their input and
+ * output Tags, and then the indexes of the active Tags. The file is read and
+ * written sequentially through a buffered channel, and no String is parsed
+ * when reading it.
+ */
+final class KnowledgeNodeSnapshot {
+    /**
+     * The magic number of the snapshots, "KNNS".
+     */
+    static final int MAGIC = 0x4B4E4E53;
+    /**
+     * The version of the snapshot format.
+     */
+    static final int VERSION = 1;
+
+    private final List<KnowledgeNode> knowledgeNodes;
+    private final Set<Tag> activeTags;
+
+    /**
+     * Creates a snapshot.
+     *
+     * @param knowledgeNodes the KNs, from the most to the least recent
+     * @param activeTags     the active Tags
+     */
+    KnowledgeNodeSnapshot(final Collection<KnowledgeNode> knowledgeNodes,
+                          final Set<Tag> activeTags) {
+        this.knowledgeNodes = new ArrayList<>(knowledgeNodes);
+        this.activeTags = new HashSet<>(activeTags);
+    }
+
+    /**
+     * @return the KNs, from the most to the least recent
+     */
+    List<KnowledgeNode> getKnowledgeNodes() {
+        return knowledgeNodes;
+    }
+
+    /**
+     * @return the active Tags
+     */
+    Set<Tag> getActiveTags() {
+        return activeTags;
+    }
+
+    /**
+     * Writes the snapshot to the file with the given name, replacing it.
+     *
+     * @param filename the name of the file
+     * @throws IOException if writing the file fails
+     */
+    void write(final String filename) throws IOException {
+        write(filename, knowledgeNodes, activeTags);
+    }
+
+    /**
+     * Writes a snapshot of the given KNs and active Tags to the file with the
+     * given name, replacing it. The KNs are iterated twice, and need not be
+     * held in memory at once.
+     *
+     * @param filename       the name of the file
+     * @param knowledgeNodes the KNs, from the most to the least recent
+     * @param activeTags     the active Tags
+     * @throws IOException if writing the file fails
+     */
+    static void write(final String filename,
+                      final Collection<KnowledgeNode> knowledgeNodes,
+                      final Set<Tag> activeTags) throws IOException {
+        final Map<Tag, Integer> ids = new HashMap<>();
+        final List<Tag> tags = new ArrayList<>();
+        for (final KnowledgeNode kn : knowledgeNodes) {
+            index(kn.getInputTag(), ids, tags);
+            for (final Tag t : kn.getOutputTags()) {
+                index(t, ids, tags);
+            }
+        }
+        for (final Tag t : activeTags) {
+            index(t, ids, tags);
+        }
+        try (DataOutputStream out = new DataOutputStream(
+                new ChannelOutputStream(FileChannel.open(Paths.get(filename),
+                        StandardOpenOption.CREATE,
+                        StandardOpenOption.WRITE,
+                        StandardOpenOption.TRUNCATE_EXISTING)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(tags.size());
+            for (final Tag t : tags) {
+                TagCodec.write(t, out);
+            }
+            out.writeInt(knowledgeNodes.size());
+            for (final KnowledgeNode kn : knowledgeNodes) {
+                out.writeInt(ids.get(kn.getInputTag()));
+                out.writeInt(kn.getThreshold());
+                out.writeDouble(kn.getBelief());
+                out.writeInt(kn.getStrength());
+                out.writeDouble(kn.getActivation());
+                out.writeLong(kn.getAge());
+                out.writeLong(kn.getAgeTimeStamp());
+                out.writeBoolean(kn.isExpired());
+                out.writeInt(kn.getOutputTags().size());
+                for (final Tag t : kn.getOutputTags()) {
+                    out.writeInt(ids.get(t));
+                }
+            }
+            out.writeInt(activeTags.size());
+            for (final Tag t : activeTags) {
+                out.writeInt(ids.get(t));
+            }
+        }
+    }
+
+    /**
+     * Reads a snapshot from the file with the given name.
+     *
+     * @param filename the name of the file
+     * @return the snapshot
+     * @throws IOException if reading the file fails, or if it is not a
+     *                     snapshot of a supported version
+     */
+    static KnowledgeNodeSnapshot read(final String filename)
+            throws IOException {
+        final List<KnowledgeNode> kns = new ArrayList<>();
+        final Set<Tag> active = read(filename, kns::add);
+        return new KnowledgeNodeSnapshot(kns, active);
+    }
+
+    /**
+     * Reads a snapshot from the file with the given name, passing each KN to
+     * the given consumer as it is read, from the most to the least recent.
+     *
+     * @param filename the name of the file
+     * @param consumer the consumer of the KNs
+     * @return the active Tags
+     * @throws IOException if reading the file fails, or if it is not a
+     *                     snapshot of a supported version
+     */
+    static Set<Tag> read(final String filename,
+                         final Consumer<KnowledgeNode> consumer)
+            throws IOException {
+        try (DataInputStream in = new DataInputStream(
+                new ChannelInputStream(FileChannel.open(
+                        Paths.get(filename), StandardOpenOption.READ)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException(MessageFormat.format(
+                        "Not a KNN snapshot: {0}.", filename));
+            }
+            final int version = in.readInt();
+            if (version != VERSION) {
+                throw new IOException(MessageFormat.format(
+                        "Unsupported KNN snapshot version: {0}.", version));
+            }
+            final Tag[] tags = new Tag[in.readInt()];
+            for (int i = 0; i < tags.length; i++) {
+                tags[i] = TagCodec.read(in);
+            }
+            final int knCount = in.readInt();
+            for (int i = 0; i < knCount; i++) {
+                consumer.accept(readKnowledgeNode(in, tags));
+            }
+            final int activeTagCount = in.readInt();
+            final Set<Tag> active = new HashSet<>();
+            for (int i = 0; i < activeTagCount; i++) {
+                active.add(tags[in.readInt()]);
+            }
+            return active;
+        }
+    }
+
+    /**
+     * Reads a KN.
+     *
+     * @param in   the input
+     * @param tags the Tag dictionary
+     * @return the KN
+     * @throws IOException if reading fails
+     */
+    private static KnowledgeNode readKnowledgeNode(final DataInputStream in,
+                                                   final Tag[] tags)
+            throws IOException {
+        final Tag inputTag = tags[in.readInt()];
+        final int threshold = in.readInt();
+        final double belief = in.readDouble();
+        final int strength = in.readInt();
+        final double activation = in.readDouble();
+        final long age = in.readLong();
+        final long ageTimeStamp = in.readLong();
+        final boolean expired = in.readBoolean();
+        final int outputCount = in.readInt();
+        final Set<Tag> outputTags = new HashSet<>();
+        for (int i = 0; i < outputCount; i++) {
+            outputTags.add(tags[in.readInt()]);
+        }
+        return new KnowledgeNode(inputTag, outputTags, threshold, belief,
+                strength, activation, age, ageTimeStamp, expired);
+    }
+
+    /**
+     * Adds the given Tag to the dictionary, if it is not in it yet.
+     *
+     * @param tag  the Tag
+     * @param ids  the dictionary indexes of the Tags
+     * @param tags the Tags of the dictionary, in order
+     */
+    private static void index(final Tag tag, final Map<Tag, Integer> ids,
+                              final List<Tag> tags) {
+        if (!ids.containsKey(tag)) {
+            ids.put(tag, tags.size());
+            tags.add(tag);
+        }
+    }
+}
@@ -3,6 +3,10 @@ package knn.internal;
 import java.util.Set;
 import com.google.inject.Inject;
 import com.google.inject.assistedinject.Assisted;
+import knn.api.BidirectionalSearchResult;
+import knn.api.KnowledgeNodeClock;
+import knn.api.SearchListener;
+import knn.api.SearchTrace;
 import tags.Tag;
 
 /**
@@ -11,6 +15,7 @@ import tags.Tag;
 class LambdaSearcher extends Searcher<Set<Tag>> {
     private final ForwardSearcher forwardSearcher;
     private final BackwardSearcher backwardSearcher;
+    private final BidirectionalSearcher bidirectionalSearcher;
 
     @Inject
     LambdaSearcher(
@@ -18,11 +23,88 @@ class LambdaSearcher extends Searcher<Set<Tag>> {
             @Assisted final BackwardSearcher backwardSearcher) {
         this.forwardSearcher = forwardSearcher;
         this.backwardSearcher = backwardSearcher;
+        this.bidirectionalSearcher = new BidirectionalSearcher() {
+            @Override
+            SearchListener getSearchListener() {
+                return backwardSearcher.getSearchListener();
+            }
+
+            @Override
+            KnowledgeNodeClock getClock() {
+                return backwardSearcher.getClock();
+            }
+
+            @Override
+            Set<Tag> searchForwardPly(final Set<Tag> plyInputTags,
+                                      final SearchTrace trace,
+                                      final long now) {
+                return forwardSearcher.searchPly(plyInputTags, trace, now);
+            }
+
+            @Override
+            Set<Tag> searchBackwardPly(final Set<Tag> plyInputTags,
+                                       final SearchTrace trace,
+                                       final long now) {
+                return backwardSearcher.searchPly(plyInputTags, trace, now);
+            }
+
+            @Override
+            void activate(final Set<Tag> tags) {
+                backwardSearcher.activate(tags);
+            }
+        };
+    }
+
+    /**
+     * Lambda search is not traced itself: its backward and forward searches
+     * are.
+     *
+     * @return the trace which ignores all events
+     */
+    @Override
+    SearchTrace startSearch() {
+        return SearchTrace.NONE;
     }
 
     @Override
-    Set<Tag> searchInternal(final Set<Tag> inputTags, final double ply) {
+    Set<Tag> searchInternal(final Set<Tag> inputTags, final double ply,
+                            final SearchTrace trace) {
         final Set<Tag> backwardTags = backwardSearcher.search(inputTags, ply);
         return forwardSearcher.search(backwardTags, ply);
     }
+
+    /**
+     * Performs lambda search with beam search as the forward search, see
+     * {@link ForwardSearcher#search(Set, double, int)}.
+     *
+     * @param inputTags the input Tags of the search
+     * @param ply       the ply of the search, 0 to search until quiescence
+     * @param beamWidth the maximum number of Tags activated by each ply of
+     *                  the forward search
+     * @return the Tags activated as a result of searching
+     */
+    Set<Tag> search(final Set<Tag> inputTags, final double ply,
+                    final int beamWidth) {
+        final Set<Tag> backwardTags = backwardSearcher.search(inputTags, ply);
+        return forwardSearcher.search(backwardTags, ply, beamWidth);
+    }
+
+    /**
+     * Performs bidirectional search, forward with the forward searcher from
+     * the input Tags, and backward with the backward searcher from the goal
+     * Tags, see {@link BidirectionalSearcher}.
+     *
+     * @param inputTags the input Tags of the search
+     * @param goalTags  the goal Tags of the search
+     * @param ply       the total number of plies, 0 for no limit
+     * @param budget    the maximum number of Tags to search from, 0 for no
+     *                  limit
+     * @return the result of the search
+     * @throws IllegalArgumentException if the budget is negative
+     */
+    BidirectionalSearchResult search(final Set<Tag> inputTags,
+                                     final Set<Tag> goalTags,
+                                     final double ply, final int budget) {
+        return bidirectionalSearcher.search(inputTags, goalTags, ply, budget);
+    }
 }
@@ -0,0 +1,230 @@
+package knn.internal;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+import com.google.inject.Inject;
+import knn.api.BackwardSearchApproximation;
+import knn.api.KnowledgeNode;
+import tags.Tag;
+
+/**
+ * LSH index of the MinHash signatures of the output Tags of the KNs, see
+ * {@link BackwardSearchApproximation}. Used during approximate backward
+ * search in the KNN to only consider the KNs whose output Tags are likely
+ * similar to the search input Tags, in time independent of how many KNs
+ * output each of them.
+ * <p>
+ * The signature of a KN is computed once, when it is added, and each band
+ * of the signature is hashed into a bucket of KNs. Tags are identified by
+ * their hash code only. The index is empty if backward search is exact.
+ * Not thread-safe.
+ */
+class MinHashIndex {
+    /**
+     * The seed of the hash functions, fixed so that the candidates of a
+     * search do not change from one run to the next.
+     */
+    private static final long SEED = 0x9E3779B97F4A7C15L;
+    private static final long MIX = 0xC2B2AE3D27D4EB4FL;
+
+    private final BackwardSearchApproximation approximation;
+    private final int rows;
+    /**
+     * Odd multipliers hashing the Tags, one per MinHash value.
+     */
+    private final long[] seeds;
+    /**
+     * The KNs by the key of their signature on each band, one map per band.
+     */
+    private final List<Map<Long, Set<KnowledgeNode>>> buckets;
+    private final Map<KnowledgeNode, int[]> signatures;
+
+    /**
+     * Creates an empty index.
+     *
+     * @param approximation the settings of the approximate backward search
+     */
+    @Inject
+    MinHashIndex(final BackwardSearchApproximation approximation) {
+        this.approximation = approximation;
+        this.rows = approximation.getRows();
+        this.seeds = new long[approximation.getBands() * rows];
+        final SplittableRandom random = new SplittableRandom(SEED);
+        for (int i = 0; i < seeds.length; i++) {
+            seeds[i] = random.nextLong() | 1;
+        }
+        this.buckets = new ArrayList<>(approximation.getBands());
+        for (int i = 0; i < approximation.getBands(); i++) {
+            buckets.add(new HashMap<>());
+        }
+        this.signatures = new IdentityHashMap<>();
+    }
+
+    /**
+     * @return true if backward search is exact, and the index thus empty
+     */
+    final boolean isExact() {
+        return approximation.isExact();
+    }
+
+    /**
+     * Indexes the signature of the output Tags of the given KN, unless
+     * backward search is exact or the KN outputs no Tags.
+     *
+     * @param kn the KN to index
+     */
+    void add(final KnowledgeNode kn) {
+        if (approximation.isExact() || kn.getOutputTags().isEmpty()) {
+            return;
+        }
+        final int[] signature = signature(kn.getOutputTags());
+        signatures.put(kn, signature);
+        for (int band = 0; band < buckets.size(); band++) {
+            buckets.get(band)
+                    .computeIfAbsent(bandKey(signature, band),
+                            k -> Collections.newSetFromMap(
+                                    new IdentityHashMap<>()))
+                    .add(kn);
+        }
+    }
+
+    /**
+     * Removes the given KN from the index.
+     *
+     * @param kn the KN to remove
+     */
+    void remove(final KnowledgeNode kn) {
+        final int[] signature = signatures.remove(kn);
+        if (signature == null) {
+            return;
+        }
+        for (int band = 0; band < buckets.size(); band++) {
+            final Long key = bandKey(signature, band);
+            final Set<KnowledgeNode> kns = buckets.get(band).get(key);
+            if (kns != null) {
+                kns.remove(kn);
+                if (kns.isEmpty()) {
+                    buckets.get(band).remove(key);
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes all the KNs from the index.
+     */
+    void clear() {
+        for (final Map<Long, Set<KnowledgeNode>> bucket : buckets) {
+            bucket.clear();
+        }
+        signatures.clear();
+    }
+
+    /**
+     * Gets the KNs whose signature agrees with the signature of the given
+     * Tags on a whole band. Unless the candidates are verified, only the KNs
+     * estimated to output at least the required number of the Tags are
+     * kept.
+     *
+     * @param tags               the input Tags
+     * @param numRequiredMatches the number of input Tags a KN must output
+     * @return the candidate KNs
+     */
+    Set<KnowledgeNode> getCandidates(final Set<Tag> tags,
+                                     final int numRequiredMatches) {
+        final Set<KnowledgeNode> candidates =
+                Collections.newSetFromMap(new IdentityHashMap<>());
+        if (tags.isEmpty()) {
+            return candidates;
+        }
+        final int[] signature = signature(tags);
+        for (int band = 0; band < buckets.size(); band++) {
+            final Set<KnowledgeNode> kns =
+                    buckets.get(band).get(bandKey(signature, band));
+            if (kns != null) {
+                candidates.addAll(kns);
+            }
+        }
+        if (!approximation.isVerified()) {
+            candidates.removeIf(kn -> estimateMatches(
+                    signature, tags.size(), kn) < numRequiredMatches);
+        }
+        return candidates;
+    }
+
+    /**
+     * Estimates the number of the input Tags output by a KN from the
+     * Jaccard similarity {@code s} of their signatures, as
+     * {@code s * (|inputs| + |outputs|) / (1 + s)}.
+     *
+     * @param signature the signature of the input Tags
+     * @param numTags   the number of input Tags
+     * @param kn        the KN, indexed
+     * @return the estimated number of input Tags output by the KN
+     */
+    private double estimateMatches(final int[] signature, final int numTags,
+                                   final KnowledgeNode kn) {
+        final int[] other = signatures.get(kn);
+        int agreements = 0;
+        for (int i = 0; i < signature.length; i++) {
+            if (signature[i] == other[i]) {
+                agreements++;
+            }
+        }
+        final double similarity = (double) agreements / signature.length;
+        return similarity * (numTags + kn.getOutputTags().size())
+                / (1 + similarity);
+    }
+
+    /**
+     * @param tags a non-empty collection of Tags
+     * @return the MinHash signature of the Tags: for each hash function, the
+     * smallest hash of the Tags
+     */
+    private int[] signature(final Collection<Tag> tags) {
+        final int[] signature = new int[seeds.length];
+        Arrays.fill(signature, Integer.MAX_VALUE);
+        for (final Tag t : tags) {
+            final int hashCode = t.hashCode();
+            for (int i = 0; i < seeds.length; i++) {
+                signature[i] =
+                        Math.min(signature[i], hash(hashCode, seeds[i]));
+            }
+        }
+        return signature;
+    }
+
+    /**
+     * @param hash the hash code of a Tag
+     * @param seed the multiplier of a hash function
+     * @return the hash of the Tag by the function
+     */
+    private static int hash(final int hash, final long seed) {
+        long h = (hash + seed) * seed;
+        h ^= h >>> Integer.SIZE;
+        h *= MIX;
+        return (int) (h >>> Integer.SIZE);
+    }
+
+    /**
+     * @param signature a signature
+     * @param band      the index of a band
+     * @return the key of the bucket of the band of the signature
+     */
+    private Long bandKey(final int[] signature, final int band) {
+        long key = 0;
+        for (int i = band * rows; i < (band + 1) * rows; i++) {
+            key = (key + signature[i]) * MIX;
+            key ^= key >>> Integer.SIZE;
+        }
+        return key;
+    }
+}
@@ -0,0 +1,91 @@
+package knn.internal;
+
+import java.util.Set;
+import knn.api.KnowledgeNode;
+import knn.api.SearchTrace;
+import tags.Tag;
+
+/**
+ * Direct searcher of the KNs stored by an {@link OffHeapKnowledgeNodeIndex},
+ * which excites them through their Tag ids, and only materializes the KNs
+ * fired by beam search. The forward, backward, lambda and bidirectional
+ * searchers run on it as on the heap direct searcher.
+ */
+class OffHeapDirectSearcher extends DirectSearcher {
+    private final OffHeapKnowledgeNodeIndex knowledgeNodeIndex;
+    private final Set<Tag> activeTags;
+
+    /**
+     * Creates a direct searcher of the stored KNs, with the search listener
+     * and clock of the given direct searcher.
+     *
+     * @param knowledgeNodeIndex the indexes of the stored KNs
+     * @param activeTags         the active Tags
+     * @param directSearcher     the direct searcher to take the search
+     *                           listener and clock from
+     */
+    OffHeapDirectSearcher(final OffHeapKnowledgeNodeIndex knowledgeNodeIndex,
+                          final Set<Tag> activeTags,
+                          final DirectSearcher directSearcher) {
+        super(knowledgeNodeIndex.asMap(), activeTags, knowledgeNodeIndex,
+                directSearcher.getSearchListener(),
+                directSearcher.getClock());
+        this.knowledgeNodeIndex = knowledgeNodeIndex;
+        this.activeTags = activeTags;
+    }
+
+    @Override
+    Set<Tag> search(final Tag inputTag, final SearchTrace trace,
+                    final long now) {
+        final Set<Tag> activatedTags = newTagSet();
+        final int id = fireId(inputTag, trace, now);
+        if (id != OffHeapKnowledgeNodeStore.NONE) {
+            final int outputCount = knowledgeNodeIndex.getOutputCount(id);
+            for (int i = 0; i < outputCount; i++) {
+                activatedTags.add(knowledgeNodeIndex.getOutputTag(id, i));
+            }
+            trace.tagsActivated(activatedTags.size());
+        }
+        activeTags.addAll(activatedTags);
+        return activatedTags;
+    }
+
+    @Override
+    KnowledgeNode fire(final Tag inputTag, final SearchTrace trace,
+                       final long now) {
+        final int id = fireId(inputTag, trace, now);
+        if (id == OffHeapKnowledgeNodeStore.NONE) {
+            return null;
+        }
+        return knowledgeNodeIndex.materialize(id);
+    }
+
+    /**
+     * Excites the stored KN of the given input Tag, as
+     * {@link DirectSearcher#fire(Tag, SearchTrace, long)} does.
+     *
+     * @param inputTag the input Tag
+     * @param trace    the trace of the search events
+     * @param now      the time of the search
+     * @return the input Tag id of the KN if it has been newly fired, else
+     * {@link OffHeapKnowledgeNodeStore#NONE}
+     */
+    private int fireId(final Tag inputTag, final SearchTrace trace,
+                       final long now) {
+        int firedId = OffHeapKnowledgeNodeStore.NONE;
+        final int id = knowledgeNodeIndex.getId(inputTag);
+        if (id != OffHeapKnowledgeNodeStore.NONE) {
+            trace.knowledgeNodeVisited(inputTag);
+            if (knowledgeNodeIndex.excite(id, now)) {
+                trace.knowledgeNodeFired(inputTag);
+                firedId = id;
+            } else if (knowledgeNodeIndex.isExpired(id)) {
+                trace.knowledgeNodeExpired(inputTag);
+                activeTags.remove(inputTag);
+                knowledgeNodeIndex.remove(inputTag);
+            }
+        }
+        activeTags.add(inputTag);
+        return firedId;
+    }
+}
@@ -0,0 +1,480 @@
+package knn.internal;
+
+import java.io.IOException;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import knn.api.KnowledgeNode;
+import tags.Tag;
+
+/**
+ * KN indexes over an {@link OffHeapKnowledgeNodeStore}, giving the searchers
+ * of the KNN access to the stored KNs as if they were on the heap.
+ * <p>
+ * The Tags are given integer ids by a {@link TagDictionary}. A stored KN is
+ * materialized as a copy each time it is looked up, see {@link #asMap()}, or
+ * iterated; exciting or removing a copy excites or removes the stored KN, so
+ * that the copy only lives as long as the search using it. Copies are told
+ * apart by their input Tag rather than by identity. Not thread-safe, except
+ * that the KNs may be read concurrently while none is added, deleted or
+ * excited.
+ */
+final class OffHeapKnowledgeNodeIndex implements KnowledgeNodeIndex {
+    private TagDictionary dictionary;
+    private OffHeapKnowledgeNodeStore store;
+    private final Map<Tag, KnowledgeNode> map;
+    private KnowledgeNodeJournal journal;
+    private long version;
+
+    /**
+     * Creates empty indexes.
+     */
+    OffHeapKnowledgeNodeIndex() {
+        this.dictionary = new TagDictionary();
+        this.store = new OffHeapKnowledgeNodeStore();
+        this.map = new KnowledgeNodeMap();
+    }
+
+    /**
+     * @return the mapping from input Tags to the stored KNs, materialized as
+     * they are looked up; removing a KN from it removes the stored KN
+     */
+    Map<Tag, KnowledgeNode> asMap() {
+        return map;
+    }
+
+    /**
+     * Stores the given KN as the most recent one among the KNs with the same
+     * timestamp, in place of the KN with the same input Tag.
+     *
+     * @param kn the KN to index
+     */
+    @Override
+    public void add(final KnowledgeNode kn) {
+        version++;
+        put(dictionary, store, kn, true);
+        if (journal != null) {
+            journal.add(kn);
+        }
+    }
+
+    /**
+     * Removes the stored KN with the input Tag of the given KN, if any.
+     *
+     * @param kn the KN to remove
+     */
+    @Override
+    public void remove(final KnowledgeNode kn) {
+        remove(kn.getInputTag());
+    }
+
+    /**
+     * Removes the stored KN with the given input Tag, if any.
+     *
+     * @param inputTag the input Tag
+     * @return true if a KN was removed
+     */
+    boolean remove(final Tag inputTag) {
+        final int id = dictionary.getId(inputTag);
+        if (!store.contains(id)) {
+            return false;
+        }
+        if (journal != null) {
+            journal.remove(materialize(id));
+        }
+        version++;
+        store.remove(id);
+        return true;
+    }
+
+    /**
+     * Removes all the KNs, dropping the ids of their Tags.
+     */
+    @Override
+    public void clear() {
+        version++;
+        store.clear();
+        dictionary = new TagDictionary();
+        if (journal != null) {
+            journal.clear();
+        }
+    }
+
+    /**
+     * Excites the stored KN with the input Tag of the given copy, and the
+     * copy, which must be up to date.
+     *
+     * @param kn  the copy of the KN to excite
+     * @param now the time of the search exciting the KN
+     * @return true if the KN is newly fired
+     */
+    @Override
+    public boolean excite(final KnowledgeNode kn, final long now) {
+        final boolean fired = kn.excite(now);
+        final int id = dictionary.getId(kn.getInputTag());
+        if (store.contains(id)) {
+            version++;
+            store.excite(id, now);
+            if (journal != null) {
+                journal.excite(kn);
+            }
+        }
+        return fired;
+    }
+
+    /**
+     * Removes the expired KNs by sweeping the store: scheduling their expiry
+     * in an {@link ExpiryWheel} would keep an object per KN on the heap.
+     *
+     * @param now the current time
+     * @return copies of the removed KNs
+     */
+    @Override
+    public List<KnowledgeNode> removeExpired(final long now) {
+        final List<KnowledgeNode> expired = new ArrayList<>();
+        int id = store.getMostRecent();
+        while (id != OffHeapKnowledgeNodeStore.NONE) {
+            final int next = store.getNext(id);
+            if (store.isExpired(id) || now - store.getAgeTimeStamp(id)
+                    > KnowledgeNode.AGE_THRESHOLD) {
+                final KnowledgeNode kn = materialize(id);
+                remove(kn.getInputTag());
+                expired.add(kn);
+            }
+            id = next;
+        }
+        return expired;
+    }
+
+    @Override
+    public Set<KnowledgeNode> getKnowledgeNodes() {
+        return new KnowledgeNodes();
+    }
+
+    @Override
+    public Set<KnowledgeNode> getCandidates(final Set<Tag> tags) {
+        final BitSet ids = new BitSet();
+        for (final Tag t : tags) {
+            final int id = dictionary.getId(t);
+            if (id == TagDictionary.NO_ID) {
+                continue;
+            }
+            final int inputCount = store.getInputCount(id);
+            for (int i = 0; i < inputCount; i++) {
+                ids.set(store.getInputId(id, i));
+            }
+        }
+        final Set<KnowledgeNode> candidates =
+                Collections.newSetFromMap(new IdentityHashMap<>());
+        for (int id = ids.nextSetBit(0); id >= 0;
+             id = ids.nextSetBit(id + 1)) {
+            candidates.add(materialize(id));
+        }
+        return candidates;
+    }
+
+    /**
+     * Backward search is always exact on the stored KNs.
+     *
+     * @param tags               the input Tags
+     * @param numRequiredMatches the number of input Tags a KN must output
+     * @return the KNs which output at least one of the Tags
+     */
+    @Override
+    public Set<KnowledgeNode> getCandidates(final Set<Tag> tags,
+                                            final int numRequiredMatches) {
+        return getCandidates(tags);
+    }
+
+    @Override
+    public long getVersion() {
+        return version;
+    }
+
+    @Override
+    public void setJournal(final KnowledgeNodeJournal journal) {
+        this.journal = journal;
+    }
+
+    /**
+     * @param tag a Tag
+     * @return the input Tag id of the stored KN with the Tag, or
+     * {@link OffHeapKnowledgeNodeStore#NONE} if there is none
+     */
+    int getId(final Tag tag) {
+        final int id = dictionary.getId(tag);
+        if (!store.contains(id)) {
+            return OffHeapKnowledgeNodeStore.NONE;
+        }
+        return id;
+    }
+
+    /**
+     * Excites the stored KN with the given input Tag id, as
+     * {@link #excite(KnowledgeNode, long)} does, without materializing it
+     * unless a journal records its state.
+     *
+     * @param id  the input Tag id of a stored KN
+     * @param now the time of the search exciting the KN
+     * @return true if the KN is newly fired
+     */
+    boolean excite(final int id, final long now) {
+        version++;
+        final boolean fired = store.excite(id, now);
+        if (journal != null) {
+            journal.excite(materialize(id));
+        }
+        return fired;
+    }
+
+    /**
+     * @param id the input Tag id of a stored KN
+     * @return true if the KN is expired
+     */
+    boolean isExpired(final int id) {
+        return store.isExpired(id);
+    }
+
+    /**
+     * @param id the input Tag id of a stored KN
+     * @return the number of output Tags of the KN
+     */
+    int getOutputCount(final int id) {
+        return store.getOutputCount(id);
+    }
+
+    /**
+     * @param id    the input Tag id of a stored KN
+     * @param index the index of an output Tag of the KN
+     * @return the output Tag
+     */
+    Tag getOutputTag(final int id, final int index) {
+        return dictionary.getTag(store.getOutputId(id, index));
+    }
+
+    /**
+     * Replaces the stored KNs with the KNs of a snapshot, streamed into a new
+     * store, so that they are never all on the heap at once, unless a
+     * journal is set: the replacement is then recorded as a clear followed
+     * by the additions of the KNs, from the least to the most recent, as the
+     * other engines do, once the snapshot is read.
+     *
+     * @param dbFilename the filename of the snapshot
+     * @return the active Tags of the snapshot
+     * @throws IOException if reading the snapshot fails
+     */
+    Set<Tag> reset(final String dbFilename) throws IOException {
+        final TagDictionary newDictionary = new TagDictionary();
+        final OffHeapKnowledgeNodeStore newStore =
+                new OffHeapKnowledgeNodeStore();
+        final KnowledgeNodeJournal recorder = journal;
+        final List<KnowledgeNode> recorded = new ArrayList<>();
+        final Set<Tag> activeTags;
+        try {
+            // The KNs are read from the most to the least recent
+            activeTags = KnowledgeNodeSnapshot.read(dbFilename, kn -> {
+                put(newDictionary, newStore, kn, false);
+                if (recorder != null) {
+                    recorded.add(kn);
+                }
+            });
+        } catch (final IOException e) {
+            newStore.clear();
+            throw e;
+        }
+        version++;
+        store.clear();
+        dictionary = newDictionary;
+        store = newStore;
+        if (recorder != null) {
+            recorder.clear();
+            for (int i = recorded.size() - 1; i >= 0; i--) {
+                recorder.add(recorded.get(i));
+            }
+        }
+        return activeTags;
+    }
+
+    /**
+     * Stores a KN, giving ids to its Tags.
+     *
+     * @param tags       the dictionary of the Tags
+     * @param kns        the store
+     * @param kn         the KN
+     * @param mostRecent true to store the KN first among the KNs with the
+     *                   same timestamp, false last
+     */
+    private static void put(final TagDictionary tags,
+                            final OffHeapKnowledgeNodeStore kns,
+                            final KnowledgeNode kn,
+                            final boolean mostRecent) {
+        final int id = tags.getOrAdd(kn.getInputTag());
+        final int[] outputIds = new int[kn.getOutputTags().size()];
+        int i = 0;
+        for (final Tag t : kn.getOutputTags()) {
+            outputIds[i++] = tags.getOrAdd(t);
+        }
+        kns.put(id, kn, outputIds, mostRecent);
+    }
+
+    /**
+     * Materializes a stored KN.
+     *
+     * @param id the input Tag id of the KN
+     * @return a copy of the KN
+     */
+    KnowledgeNode materialize(final int id) {
+        final int outputCount = store.getOutputCount(id);
+        final Set<Tag> outputTags = new HashSet<>();
+        for (int i = 0; i < outputCount; i++) {
+            outputTags.add(dictionary.getTag(store.getOutputId(id, i)));
+        }
+        return new KnowledgeNode(dictionary.getTag(id), outputTags,
+                store.getThreshold(id), store.getBelief(id),
+                store.getStrength(id), store.getActivation(id),
+                store.getAge(id), store.getAgeTimeStamp(id),
+                store.isExpired(id));
+    }
+
+    /**
+     * @param inputTag an input Tag
+     * @return a copy of the stored KN with the input Tag, or null if there is
+     * none
+     */
+    private KnowledgeNode get(final Tag inputTag) {
+        final int id = dictionary.getId(inputTag);
+        if (!store.contains(id)) {
+            return null;
+        }
+        return materialize(id);
+    }
+
+    /**
+     * View of the stored KNs, from the most to the least recent, materialized
+     * as they are iterated.
+     */
+    private final class KnowledgeNodes extends AbstractSet<KnowledgeNode> {
+        @Override
+        public Iterator<KnowledgeNode> iterator() {
+            return new Iterator<KnowledgeNode>() {
+                private int next = store.getMostRecent();
+
+                @Override
+                public boolean hasNext() {
+                    return next != OffHeapKnowledgeNodeStore.NONE;
+                }
+
+                @Override
+                public KnowledgeNode next() {
+                    if (next == OffHeapKnowledgeNodeStore.NONE) {
+                        throw new NoSuchElementException();
+                    }
+                    final int id = next;
+                    next = store.getNext(id);
+                    return materialize(id);
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return store.size();
+        }
+
+        @Override
+        public boolean contains(final Object o) {
+            if (!(o instanceof KnowledgeNode)) {
+                return false;
+            }
+            return o.equals(get(((KnowledgeNode) o).getInputTag()));
+        }
+    }
+
+    /**
+     * Mapping from input Tags to the stored KNs, materialized as they are
+     * looked up. The KNs are added through the indexes only.
+     */
+    private final class KnowledgeNodeMap
+            extends AbstractMap<Tag, KnowledgeNode> {
+        @Override
+        public KnowledgeNode get(final Object key) {
+            if (!(key instanceof Tag)) {
+                return null;
+            }
+            return OffHeapKnowledgeNodeIndex.this.get((Tag) key);
+        }
+
+        @Override
+        public boolean containsKey(final Object key) {
+            return key instanceof Tag
+                    && store.contains(dictionary.getId((Tag) key));
+        }
+
+        @Override
+        public KnowledgeNode remove(final Object key) {
+            if (!(key instanceof Tag)) {
+                return null;
+            }
+            final KnowledgeNode kn = get(key);
+            if (kn != null) {
+                OffHeapKnowledgeNodeIndex.this.remove((Tag) key);
+            }
+            return kn;
+        }
+
+        @Override
+        public boolean remove(final Object key, final Object value) {
+            return value instanceof KnowledgeNode
+                    && ((KnowledgeNode) value).getInputTag().equals(key)
+                    && OffHeapKnowledgeNodeIndex.this.remove((Tag) key);
+        }
+
+        @Override
+        public void clear() {
+            OffHeapKnowledgeNodeIndex.this.clear();
+        }
+
+        @Override
+        public int size() {
+            return store.size();
+        }
+
+        @Override
+        public Set<Entry<Tag, KnowledgeNode>> entrySet() {
+            return new AbstractSet<Entry<Tag, KnowledgeNode>>() {
+                @Override
+                public Iterator<Entry<Tag, KnowledgeNode>> iterator() {
+                    final Iterator<KnowledgeNode> it =
+                            new KnowledgeNodes().iterator();
+                    return new Iterator<Entry<Tag, KnowledgeNode>>() {
+                        @Override
+                        public boolean hasNext() {
+                            return it.hasNext();
+                        }
+
+                        @Override
+                        public Entry<Tag, KnowledgeNode> next() {
+                            final KnowledgeNode kn = it.next();
+                            return new SimpleImmutableEntry<>(
+                                    kn.getInputTag(), kn);
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return store.size();
+                }
+            };
+        }
+    }
+}
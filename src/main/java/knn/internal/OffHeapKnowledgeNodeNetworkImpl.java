@@ -0,0 +1,140 @@
+package knn.internal;
+
+import javax.inject.Inject;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Map;
+import java.util.Set;
+import com.google.inject.assistedinject.Assisted;
+import knn.api.KnowledgeNode;
+import tags.Tag;
+
+/**
+ * Implementation of the KNN which stores the KNs outside of the Java heap
+ * (see {@link OffHeapKnowledgeNodeStore}), so that the heap does not grow
+ * with the number of KNs and their output Tags, and the garbage collector
+ * never scans them. Only the Tags stay on the heap, each given an integer id
+ * by a {@link TagDictionary}.
+ * <p>
+ * The searchers, search sessions and journal are those of the
+ * {@link KnowledgeNodeNetworkImpl}, run on the stored KNs through an
+ * {@link OffHeapKnowledgeNodeIndex}, which materializes the KNs they access
+ * as short-lived copies, and an {@link OffHeapDirectSearcher}, which excites
+ * the KNs through their Tag ids instead. Snapshots are streamed, but the
+ * compaction of the journal copies the KNs onto the heap, as in the other
+ * engines. Not thread-safe, except that search sessions only read the stored
+ * KNs, and may run concurrently.
+ */
+class OffHeapKnowledgeNodeNetworkImpl extends KnowledgeNodeNetworkImpl {
+    private final OffHeapKnowledgeNodeIndex knowledgeNodeIndex;
+
+    @Inject
+    OffHeapKnowledgeNodeNetworkImpl(
+            @Assisted("mapKN") final Map<Tag, KnowledgeNode> mapKN,
+            @Assisted("activeTags") final Set<Tag> activeTags,
+            @Assisted("backwardSearchMatchRatio") final
+            double backwardSearchMatchRatio,
+            @Assisted("backwardSearchAgeLimit")
+            final long backwardSearchAgeLimit,
+            final DirectSearcherFactory directSearcherFactory,
+            final ForwardSearcherFactory forwardSearcherFactory,
+            final BackwardSearcherFactory backwardSearcherFactory,
+            final LambdaSearcherFactory lambdaSearcherFactory) {
+        this(new OffHeapKnowledgeNodeIndex(), activeTags,
+                backwardSearchMatchRatio, backwardSearchAgeLimit,
+                directSearcherFactory, forwardSearcherFactory,
+                backwardSearcherFactory, lambdaSearcherFactory);
+        for (final KnowledgeNode kn : mapKN.values()) {
+            addKnowledgeNode(kn);
+        }
+    }
+
+    /**
+     * Creates an empty KNN over the given indexes.
+     *
+     * @param knowledgeNodeIndex       the indexes of the stored KNs
+     * @param activeTags               the initial active Tags, copied
+     * @param backwardSearchMatchRatio the backward search match ratio
+     * @param backwardSearchAgeLimit   the backward search age limit
+     * @param directSearcherFactory    the factory of the heap direct
+     *                                 searcher, which the direct searcher of
+     *                                 the stored KNs takes its search
+     *                                 listener and clock from
+     * @param forwardSearcherFactory   the forward searcher factory
+     * @param backwardSearcherFactory  the backward searcher factory
+     * @param lambdaSearcherFactory    the lambda searcher factory
+     */
+    private OffHeapKnowledgeNodeNetworkImpl(
+            final OffHeapKnowledgeNodeIndex knowledgeNodeIndex,
+            final Set<Tag> activeTags,
+            final double backwardSearchMatchRatio,
+            final long backwardSearchAgeLimit,
+            final DirectSearcherFactory directSearcherFactory,
+            final ForwardSearcherFactory forwardSearcherFactory,
+            final BackwardSearcherFactory backwardSearcherFactory,
+            final LambdaSearcherFactory lambdaSearcherFactory) {
+        super(knowledgeNodeIndex.asMap(), new JournaledTagSet(
+                        new TagBitSet(new TagDictionary(), activeTags)),
+                backwardSearchMatchRatio, backwardSearchAgeLimit,
+                knowledgeNodeIndex,
+                (map, tags, index) -> new OffHeapDirectSearcher(
+                        knowledgeNodeIndex, tags,
+                        directSearcherFactory.create(map, tags, index)),
+                forwardSearcherFactory, backwardSearcherFactory,
+                lambdaSearcherFactory);
+        this.knowledgeNodeIndex = knowledgeNodeIndex;
+    }
+
+    @Override
+    public void resetEmpty() {
+        getMutableActiveTags().clear();
+        knowledgeNodeIndex.clear();
+    }
+
+    /**
+     * Stores the KN, in place of the KN with the same input Tag, stamping a
+     * new KN with the clock of the KNN.
+     *
+     * @param kn the KN
+     */
+    @Override
+    public void addKnowledgeNode(final KnowledgeNode kn) {
+        kn.stampCreation(getClock().currentTime());
+        knowledgeNodeIndex.add(kn);
+    }
+
+    /**
+     * Resets the KNN to a snapshot, streaming the KNs into a new store, so
+     * that they are never all on the heap at once.
+     *
+     * @param dbFilename the filename of the database to be read from
+     */
+    @Override
+    public void reset(final String dbFilename) {
+        final Set<Tag> newActiveTags;
+        try {
+            newActiveTags = knowledgeNodeIndex.reset(dbFilename);
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        final Set<Tag> activeTags = getMutableActiveTags();
+        activeTags.clear();
+        activeTags.addAll(newActiveTags);
+    }
+
+    /**
+     * Saves the KNN, streaming the KNs from the store.
+     *
+     * @param dbFilename the filename of the database to be written to
+     */
+    @Override
+    public void save(final String dbFilename) {
+        try {
+            KnowledgeNodeSnapshot.write(dbFilename,
+                    knowledgeNodeIndex.getKnowledgeNodes(),
+                    getMutableActiveTags());
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
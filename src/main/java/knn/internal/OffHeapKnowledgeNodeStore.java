@@ -0,0 +1,522 @@
+package knn.internal;
+
+import knn.api.KnowledgeNode;
+
+/**
+ * Storage of the KNs outside of the Java heap, indexed by the id of their
+ * input Tag. Not thread-safe, except that the KNs may be read concurrently
+ * while none is added, deleted or excited.
+ * <p>
+ * Each KN is a fixed-size record holding its threshold, belief, strength,
+ * activation, age, flags, the location of its output Tag ids, and links to
+ * the previous and next KNs in order of recency, i.e., of age timestamp, so
+ * that no object is allocated per KN. Output Tag ids are appended to a
+ * separate memory; the ids of replaced or deleted KNs are reclaimed by
+ * compacting that memory once they outnumber the live ones. The KNs which
+ * output a Tag are found through a reverse index in compressed sparse row
+ * form, rebuilt lazily after KNs are added or deleted.
+ */
+final class OffHeapKnowledgeNodeStore {
+    /**
+     * Id returned when there is no KN.
+     */
+    static final int NONE = -1;
+    private static final int RECORD_SIZE = 64;
+    private static final int THRESHOLD = 0;
+    private static final int STRENGTH = 4;
+    private static final int BELIEF = 8;
+    private static final int ACTIVATION = 16;
+    private static final int AGE = 24;
+    private static final int AGE_TIME_STAMP = 32;
+    private static final int OUTPUT_OFFSET = 40;
+    private static final int OUTPUT_COUNT = 48;
+    private static final int FLAGS = 52;
+    private static final int PREVIOUS = 56;
+    private static final int NEXT = 60;
+    private static final int PRESENT = 1;
+    private static final int EXPIRED = 2;
+    private static final int INT_SIZE = 4;
+    private static final int LONG_SIZE = 8;
+    /**
+     * The number of garbage output ids below which the outputs are never
+     * compacted.
+     */
+    private static final long MIN_COMPACTED_OUTPUTS = 1 << 16;
+
+    private final OffHeapMemory records;
+    private OffHeapMemory outputs;
+    private final OffHeapMemory reverseOffsets;
+    private final OffHeapMemory reverseIds;
+    private int capacity;
+    private int size;
+    private int head;
+    private int tail;
+    /**
+     * The number of output ids appended, including garbage.
+     */
+    private long outputTop;
+    private long liveOutputs;
+    /**
+     * Volatile, so that search sessions may build the reverse index
+     * concurrently, see {@link #buildReverseIndex()}.
+     */
+    private volatile boolean reverseIndexValid;
+
+    /**
+     * Creates an empty store.
+     */
+    OffHeapKnowledgeNodeStore() {
+        this.records = new OffHeapMemory();
+        this.outputs = new OffHeapMemory();
+        this.reverseOffsets = new OffHeapMemory();
+        this.reverseIds = new OffHeapMemory();
+        this.head = NONE;
+        this.tail = NONE;
+    }
+
+    /**
+     * @return the number of KNs
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * @param id an input Tag id
+     * @return true if there is a KN with the input Tag id
+     */
+    boolean contains(final int id) {
+        return id >= 0 && id < capacity
+                && (records.getInt(address(id) + FLAGS) & PRESENT) != 0;
+    }
+
+    /**
+     * Stores a KN, replacing the one with the same input Tag id, if any.
+     *
+     * @param id         the input Tag id
+     * @param kn         the KN, from which the scalar state is copied
+     * @param outputIds  the output Tag ids
+     * @param mostRecent true to store the KN first among the KNs with the
+     *                   same timestamp, false last, e.g., when the KNs are
+     *                   stored from the most to the least recent
+     */
+    void put(final int id, final KnowledgeNode kn, final int[] outputIds,
+             final boolean mostRecent) {
+        int maxId = id;
+        for (final int outputId : outputIds) {
+            maxId = Math.max(maxId, outputId);
+        }
+        ensureCapacity(maxId + 1);
+        if (contains(id)) {
+            remove(id);
+        }
+        final long outputOffset = appendOutputs(outputIds);
+        final long address = address(id);
+        records.putInt(address + THRESHOLD, kn.getThreshold());
+        records.putInt(address + STRENGTH, kn.getStrength());
+        records.putDouble(address + BELIEF, kn.getBelief());
+        records.putDouble(address + ACTIVATION, kn.getActivation());
+        records.putLong(address + AGE, kn.getAge());
+        records.putLong(address + AGE_TIME_STAMP, kn.getAgeTimeStamp());
+        records.putLong(address + OUTPUT_OFFSET, outputOffset);
+        records.putInt(address + OUTPUT_COUNT, outputIds.length);
+        int flags = PRESENT;
+        if (kn.isExpired()) {
+            flags |= EXPIRED;
+        }
+        records.putInt(address + FLAGS, flags);
+        link(id, mostRecent);
+        size++;
+        liveOutputs += outputIds.length;
+        reverseIndexValid = false;
+    }
+
+    /**
+     * Removes the KN with the given input Tag id, if any.
+     *
+     * @param id the input Tag id
+     * @return true if there was a KN
+     */
+    boolean remove(final int id) {
+        if (!contains(id)) {
+            return false;
+        }
+        unlink(id);
+        final long address = address(id);
+        liveOutputs -= records.getInt(address + OUTPUT_COUNT);
+        records.putInt(address + FLAGS, 0);
+        size--;
+        reverseIndexValid = false;
+        return true;
+    }
+
+    /**
+     * Removes all the KNs, releasing their memory.
+     */
+    void clear() {
+        records.release();
+        outputs.release();
+        reverseOffsets.release();
+        reverseIds.release();
+        capacity = 0;
+        size = 0;
+        head = NONE;
+        tail = NONE;
+        outputTop = 0;
+        liveOutputs = 0;
+        reverseIndexValid = false;
+    }
+
+    /**
+     * Excites the KN with the given input Tag id, which must exist, and moves
+     * it by its new timestamp. Same as {@link KnowledgeNode#excite(long)}.
+     *
+     * @param id  the input Tag id
+     * @param now the time of the excitation
+     * @return true if the KN is newly fired
+     */
+    boolean excite(final int id, final long now) {
+        final long address = address(id);
+        final long age = records.getLong(address + AGE);
+        if (age > KnowledgeNode.AGE_THRESHOLD) {
+            records.putInt(address + FLAGS, PRESENT | EXPIRED);
+            relink(id);
+            return false;
+        }
+        final double activation = records.getDouble(address + ACTIVATION);
+        final double excited = activation + KnowledgeNode.ACTIVATION_INCREMENT;
+        records.putLong(address + AGE,
+                now - records.getLong(address + AGE_TIME_STAMP));
+        records.putLong(address + AGE_TIME_STAMP, now);
+        records.putDouble(address + ACTIVATION, excited);
+        records.putInt(address + FLAGS, PRESENT);
+        relink(id);
+        final int threshold = records.getInt(address + THRESHOLD);
+        return activation < threshold && excited >= threshold;
+    }
+
+    /**
+     * @param id the input Tag id of a KN
+     * @return true if the KN is expired
+     */
+    boolean isExpired(final int id) {
+        return (records.getInt(address(id) + FLAGS) & EXPIRED) != 0;
+    }
+
+    /**
+     * @param id the input Tag id of a KN
+     * @return the threshold of the KN
+     */
+    int getThreshold(final int id) {
+        return records.getInt(address(id) + THRESHOLD);
+    }
+
+    /**
+     * @param id the input Tag id of a KN
+     * @return the belief of the KN
+     */
+    double getBelief(final int id) {
+        return records.getDouble(address(id) + BELIEF);
+    }
+
+    /**
+     * @param id the input Tag id of a KN
+     * @return the strength of the KN
+     */
+    int getStrength(final int id) {
+        return records.getInt(address(id) + STRENGTH);
+    }
+
+    /**
+     * @param id the input Tag id of a KN
+     * @return the activation of the KN
+     */
+    double getActivation(final int id) {
+        return records.getDouble(address(id) + ACTIVATION);
+    }
+
+    /**
+     * @param id the input Tag id of a KN
+     * @return the time between the last two excitations of the KN
+     */
+    long getAge(final int id) {
+        return records.getLong(address(id) + AGE);
+    }
+
+    /**
+     * @param id the input Tag id of a KN
+     * @return the time of the last excitation of the KN, or of its creation
+     */
+    long getAgeTimeStamp(final int id) {
+        return records.getLong(address(id) + AGE_TIME_STAMP);
+    }
+
+    /**
+     * @param id the input Tag id of a KN
+     * @return the number of output Tags of the KN
+     */
+    int getOutputCount(final int id) {
+        return records.getInt(address(id) + OUTPUT_COUNT);
+    }
+
+    /**
+     * @param id    the input Tag id of a KN
+     * @param index the index of an output Tag, less than the number of
+     *              output Tags of the KN
+     * @return the id of the output Tag
+     */
+    int getOutputId(final int id, final int index) {
+        return outputs.getInt((records.getLong(address(id) + OUTPUT_OFFSET)
+                + index) * INT_SIZE);
+    }
+
+    /**
+     * @return the input Tag id of the most recent KN, or {@link #NONE}
+     */
+    int getMostRecent() {
+        return head;
+    }
+
+    /**
+     * @param id the input Tag id of a KN
+     * @return the input Tag id of the next less recent KN, or {@link #NONE}
+     */
+    int getNext(final int id) {
+        return records.getInt(address(id) + NEXT);
+    }
+
+    /**
+     * @param id a Tag id
+     * @return the number of KNs which output the Tag
+     */
+    int getInputCount(final int id) {
+        buildReverseIndex();
+        if (id < 0 || id >= capacity) {
+            return 0;
+        }
+        return (int) (reverseOffsets.getLong((long) (id + 1) * LONG_SIZE)
+                - reverseOffsets.getLong((long) id * LONG_SIZE));
+    }
+
+    /**
+     * @param id    a Tag id
+     * @param index the index of a KN which outputs the Tag, less than their
+     *              number
+     * @return the input Tag id of the KN
+     */
+    int getInputId(final int id, final int index) {
+        return reverseIds.getInt(
+                (reverseOffsets.getLong((long) id * LONG_SIZE) + index)
+                        * INT_SIZE);
+    }
+
+    /**
+     * @param id an input Tag id
+     * @return the address of the record of the KN
+     */
+    private static long address(final int id) {
+        return (long) id * RECORD_SIZE;
+    }
+
+    /**
+     * Makes room for the records of the given number of ids.
+     *
+     * @param ids the number of ids
+     */
+    private void ensureCapacity(final int ids) {
+        if (ids > capacity) {
+            records.ensureCapacity(address(ids));
+            capacity = (int) (records.capacity() / RECORD_SIZE);
+        }
+    }
+
+    /**
+     * Appends output Tag ids, compacting the outputs first if they hold too
+     * much garbage.
+     *
+     * @param outputIds the output Tag ids
+     * @return the index of the first appended id
+     */
+    private long appendOutputs(final int[] outputIds) {
+        final long garbage = outputTop - liveOutputs;
+        if (garbage > MIN_COMPACTED_OUTPUTS && garbage > liveOutputs) {
+            compactOutputs();
+        }
+        final long offset = outputTop;
+        outputs.ensureCapacity((offset + outputIds.length) * INT_SIZE);
+        for (int i = 0; i < outputIds.length; i++) {
+            outputs.putInt((offset + i) * INT_SIZE, outputIds[i]);
+        }
+        outputTop += outputIds.length;
+        return offset;
+    }
+
+    /**
+     * Copies the output Tag ids of the KNs to a new memory, dropping the ids
+     * of replaced or deleted KNs.
+     */
+    private void compactOutputs() {
+        final OffHeapMemory compacted = new OffHeapMemory();
+        compacted.ensureCapacity(liveOutputs * INT_SIZE);
+        long top = 0;
+        for (int id = head; id != NONE; id = getNext(id)) {
+            final long address = address(id);
+            final long offset = records.getLong(address + OUTPUT_OFFSET);
+            final int count = records.getInt(address + OUTPUT_COUNT);
+            for (int i = 0; i < count; i++) {
+                compacted.putInt((top + i) * INT_SIZE,
+                        outputs.getInt((offset + i) * INT_SIZE));
+            }
+            records.putLong(address + OUTPUT_OFFSET, top);
+            top += count;
+        }
+        outputs.release();
+        outputs = compacted;
+        outputTop = top;
+    }
+
+    /**
+     * Builds the reverse index of the outputs, if KNs were added or deleted
+     * since it was last built. Concurrent readers wait for a single build.
+     */
+    private void buildReverseIndex() {
+        if (!reverseIndexValid) {
+            rebuildReverseIndex();
+        }
+    }
+
+    /**
+     * Rebuilds the reverse index of the outputs, unless another thread just
+     * did.
+     */
+    private synchronized void rebuildReverseIndex() {
+        if (reverseIndexValid) {
+            return;
+        }
+        reverseOffsets.release();
+        reverseIds.release();
+        reverseOffsets.ensureCapacity((long) (capacity + 1) * LONG_SIZE);
+        reverseIds.ensureCapacity(liveOutputs * INT_SIZE);
+        // Count the inputs of each Tag at offset id + 1, then accumulate, so
+        // that the inputs of Tag id start at offset id
+        for (int id = head; id != NONE; id = getNext(id)) {
+            final int count = getOutputCount(id);
+            for (int i = 0; i < count; i++) {
+                final long address = (long) (getOutputId(id, i) + 1)
+                        * LONG_SIZE;
+                reverseOffsets.putLong(address,
+                        reverseOffsets.getLong(address) + 1);
+            }
+        }
+        for (int id = 0; id < capacity; id++) {
+            final long address = (long) (id + 1) * LONG_SIZE;
+            reverseOffsets.putLong(address, reverseOffsets.getLong(address)
+                    + reverseOffsets.getLong(address - LONG_SIZE));
+        }
+        // Fill each Tag from its start, using its start as a cursor, which
+        // ends at the start of the next Tag; then shift the starts back
+        for (int id = head; id != NONE; id = getNext(id)) {
+            final int count = getOutputCount(id);
+            for (int i = 0; i < count; i++) {
+                final long address = (long) getOutputId(id, i) * LONG_SIZE;
+                final long cursor = reverseOffsets.getLong(address);
+                reverseIds.putInt(cursor * INT_SIZE, id);
+                reverseOffsets.putLong(address, cursor + 1);
+            }
+        }
+        for (int id = capacity; id > 0; id--) {
+            reverseOffsets.putLong((long) id * LONG_SIZE,
+                    reverseOffsets.getLong((long) (id - 1) * LONG_SIZE));
+        }
+        reverseOffsets.putLong(0, 0);
+        reverseIndexValid = true;
+    }
+
+    /**
+     * Links the given KN by its timestamp, as {@link RecencyIndex} does,
+     * first or last among the KNs with the same timestamp, so that storing
+     * the KNs at the current time, or from the most to the least recent,
+     * takes constant time.
+     *
+     * @param id    the input Tag id of the KN
+     * @param first true to link the KN first among the KNs with the same
+     *              timestamp, false last
+     */
+    private void link(final int id, final boolean first) {
+        final long address = address(id);
+        final long timeStamp = records.getLong(address + AGE_TIME_STAMP);
+        if (head == NONE || isBefore(timeStamp, head, first)) {
+            records.putInt(address + PREVIOUS, NONE);
+            records.putInt(address + NEXT, head);
+            if (head == NONE) {
+                tail = id;
+            } else {
+                records.putInt(address(head) + PREVIOUS, id);
+            }
+            head = id;
+            return;
+        }
+        // The KN comes after the head, so previous is never NONE
+        int previous = tail;
+        while (isBefore(timeStamp, previous, first)) {
+            previous = records.getInt(address(previous) + PREVIOUS);
+        }
+        final int next = getNext(previous);
+        records.putInt(address + PREVIOUS, previous);
+        records.putInt(address + NEXT, next);
+        if (next == NONE) {
+            tail = id;
+        } else {
+            records.putInt(address(next) + PREVIOUS, id);
+        }
+        records.putInt(address(previous) + NEXT, id);
+    }
+
+    /**
+     * Checks if a KN comes before another one in order of recency.
+     *
+     * @param timeStamp the timestamp of the KN
+     * @param other     the input Tag id of the other KN
+     * @param first     true if the KN comes first among the KNs with the
+     *                  same timestamp
+     * @return true if the KN comes before the other one
+     */
+    private boolean isBefore(final long timeStamp, final int other,
+                             final boolean first) {
+        final long otherTimeStamp = getAgeTimeStamp(other);
+        return timeStamp > otherTimeStamp
+                || first && timeStamp == otherTimeStamp;
+    }
+
+    /**
+     * Unlinks the given KN from the recency order.
+     *
+     * @param id the input Tag id of the KN
+     */
+    private void unlink(final int id) {
+        final long address = address(id);
+        final int previous = records.getInt(address + PREVIOUS);
+        final int next = records.getInt(address + NEXT);
+        if (previous == NONE) {
+            head = next;
+        } else {
+            records.putInt(address(previous) + NEXT, next);
+        }
+        if (next == NONE) {
+            tail = previous;
+        } else {
+            records.putInt(address(next) + PREVIOUS, previous);
+        }
+    }
+
+    /**
+     * Moves the given KN by its timestamp, first among the KNs with the same
+     * timestamp.
+     *
+     * @param id the input Tag id of the KN
+     */
+    private void relink(final int id) {
+        unlink(id);
+        link(id, true);
+    }
+}
@@ -0,0 +1,130 @@
+package knn.internal;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * Growable memory outside of the Java heap, addressed by a long offset. The
+ * memory is allocated in direct buffer chunks, so it is not limited to 2 GB,
+ * and is zeroed when allocated. Values must not straddle two chunks, which
+ * holds as long as they are aligned on their size. Not thread-safe.
+ * <p>
+ * Direct buffers are bounded by {@code -XX:MaxDirectMemorySize}, which
+ * defaults to the maximum heap size.
+ */
+final class OffHeapMemory {
+    /**
+     * The size of the chunks, a power of two.
+     */
+    static final int CHUNK_SIZE = 1 << 20;
+    private static final int CHUNK_SHIFT = 20;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+    private static final ByteBuffer[] NO_CHUNKS = new ByteBuffer[0];
+
+    private ByteBuffer[] chunks;
+    private int chunkCount;
+
+    /**
+     * Creates an empty memory.
+     */
+    OffHeapMemory() {
+        this.chunks = NO_CHUNKS;
+    }
+
+    /**
+     * @return the number of bytes allocated
+     */
+    long capacity() {
+        return (long) chunkCount << CHUNK_SHIFT;
+    }
+
+    /**
+     * Allocates chunks until the memory holds at least the given number of
+     * bytes.
+     *
+     * @param size the number of bytes
+     */
+    void ensureCapacity(final long size) {
+        while (capacity() < size) {
+            if (chunkCount == chunks.length) {
+                chunks = Arrays.copyOf(chunks, Math.max(1, 2 * chunkCount));
+            }
+            chunks[chunkCount++] = ByteBuffer.allocateDirect(CHUNK_SIZE)
+                    .order(ByteOrder.nativeOrder());
+        }
+    }
+
+    /**
+     * Releases all the chunks. Their memory is freed once the buffers are
+     * garbage collected.
+     */
+    void release() {
+        chunks = NO_CHUNKS;
+        chunkCount = 0;
+    }
+
+    /**
+     * @param address the address
+     * @return the int at the address
+     */
+    int getInt(final long address) {
+        return chunk(address).getInt(offset(address));
+    }
+
+    /**
+     * @param address the address
+     * @param value   the int to write at the address
+     */
+    void putInt(final long address, final int value) {
+        chunk(address).putInt(offset(address), value);
+    }
+
+    /**
+     * @param address the address
+     * @return the long at the address
+     */
+    long getLong(final long address) {
+        return chunk(address).getLong(offset(address));
+    }
+
+    /**
+     * @param address the address
+     * @param value   the long to write at the address
+     */
+    void putLong(final long address, final long value) {
+        chunk(address).putLong(offset(address), value);
+    }
+
+    /**
+     * @param address the address
+     * @return the double at the address
+     */
+    double getDouble(final long address) {
+        return chunk(address).getDouble(offset(address));
+    }
+
+    /**
+     * @param address the address
+     * @param value   the double to write at the address
+     */
+    void putDouble(final long address, final double value) {
+        chunk(address).putDouble(offset(address), value);
+    }
+
+    /**
+     * @param address the address
+     * @return the chunk holding the address
+     */
+    private ByteBuffer chunk(final long address) {
+        return chunks[(int) (address >>> CHUNK_SHIFT)];
+    }
+
+    /**
+     * @param address the address
+     * @return the offset of the address in its chunk
+     */
+    private static int offset(final long address) {
+        return (int) (address & CHUNK_MASK);
+    }
+}
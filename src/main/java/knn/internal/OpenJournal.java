@@ -0,0 +1,145 @@
+package knn.internal;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import knn.api.JournalSyncPolicy;
+
+/**
+ * The journal of a KNN while it is open: the KNN records its mutations in
+ * it, and it is compacted into the journal database in the background.
+ * Not thread-safe: the KNN opens, compacts and closes its journal under its
+ * own lock.
+ */
+final class OpenJournal {
+    private final JournaledKnowledgeNodeNetwork knn;
+    private final KnowledgeNodeJournal journal;
+    private final String dbFilename;
+    private final ExecutorService compactor;
+    private Future<?> compaction;
+
+    /**
+     * Creates the open journal of a KNN.
+     *
+     * @param knn        the KNN
+     * @param journal    the journal
+     * @param dbFilename the filename of the journal database
+     */
+    private OpenJournal(final JournaledKnowledgeNodeNetwork knn,
+                        final KnowledgeNodeJournal journal,
+                        final String dbFilename) {
+        this.knn = knn;
+        this.journal = journal;
+        this.dbFilename = dbFilename;
+        this.compactor = Executors.newSingleThreadExecutor(r -> {
+            final Thread thread = new Thread(r, "knn-journal-compact");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Resets a KNN to its journal database, if any, replays its journal, and
+     * opens the journal to record its mutations, see
+     * {@link knn.api.KnowledgeNodeNetwork#openJournal(String, String,
+     * JournalSyncPolicy, long)}.
+     *
+     * @param knn                  the KNN
+     * @param dbFilename           the filename of the journal database
+     * @param journalFilename      the base filename of the journal segments
+     * @param syncPolicy           when the journal forces its writes
+     * @param commitIntervalMillis the interval between group commits
+     * @return the open journal
+     */
+    static OpenJournal open(final JournaledKnowledgeNodeNetwork knn,
+                            final String dbFilename,
+                            final String journalFilename,
+                            final JournalSyncPolicy syncPolicy,
+                            final long commitIntervalMillis) {
+        final KnowledgeNodeJournal opened;
+        try {
+            if (Files.exists(Paths.get(dbFilename))) {
+                knn.reset(dbFilename);
+            } else {
+                knn.resetEmpty();
+            }
+            KnowledgeNodeJournal.replay(journalFilename, knn);
+            opened = KnowledgeNodeJournal.open(
+                    journalFilename, syncPolicy, commitIntervalMillis);
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        knn.setJournal(opened);
+        final OpenJournal openJournal =
+                new OpenJournal(knn, opened, dbFilename);
+        openJournal.compact(opened.getGeneration());
+        return openJournal;
+    }
+
+    /**
+     * Rotates the journal to a new segment, and compacts the older ones
+     * into the journal database in the background.
+     */
+    void compact() {
+        final long generation;
+        try {
+            generation = journal.rotate();
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        compact(generation);
+    }
+
+    /**
+     * Stops recording the mutations of the KNN, waits for the compaction in
+     * progress, and closes the journal.
+     */
+    void close() {
+        knn.setJournal(null);
+        compactor.shutdown();
+        try {
+            compaction.get();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (final ExecutionException e) {
+            throw new UncheckedIOException(new IOException(e.getCause()));
+        } finally {
+            try {
+                journal.close();
+            } catch (final IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    /**
+     * Saves the current state of the KNN to the journal database in the
+     * background, and then deletes the journal segments older than the given
+     * generation. The KNs and active Tags are copied first, so the KNN may be
+     * modified during the compaction: the mutations since the rotation to
+     * the given generation are both in the copy and in the journal, and
+     * replaying them again is harmless since excited KNs are recorded with
+     * their resulting state.
+     *
+     * @param generation the generation of the oldest segment to keep
+     */
+    private void compact(final long generation) {
+        final KnowledgeNodeSnapshot snapshot = knn.snapshot();
+        final Path db = Paths.get(dbFilename);
+        final Path tmp = Paths.get(dbFilename + ".tmp");
+        compaction = compactor.submit(() -> {
+            snapshot.write(tmp.toString());
+            Files.move(tmp, db, StandardCopyOption.ATOMIC_MOVE,
+                    StandardCopyOption.REPLACE_EXISTING);
+            journal.deleteSegmentsBefore(generation);
+            return null;
+        });
+    }
+}
@@ -0,0 +1,94 @@
+package knn.internal;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+import com.google.inject.Inject;
+import knn.api.KnowledgeNode;
+import tags.Tag;
+
+/**
+ * Inverted index from output Tags to the KNs which output them. Used during
+ * backward search in the KNN to only consider KNs which share at least one
+ * output Tag with the search input Tags.
+ */
+class OutputTagIndex {
+    private final Map<Tag, Set<KnowledgeNode>> knsByOutputTag;
+
+    @Inject
+    OutputTagIndex() {
+        this.knsByOutputTag = new HashMap<>();
+    }
+
+    /**
+     * Indexes the output Tags of the given KN.
+     *
+     * @param kn the KN to index
+     */
+    void add(final KnowledgeNode kn) {
+        for (final Tag t : kn.getOutputTags()) {
+            knsByOutputTag
+                    .computeIfAbsent(t, k -> Collections.newSetFromMap(
+                            new IdentityHashMap<>()))
+                    .add(kn);
+        }
+    }
+
+    /**
+     * Removes the given KN from the index.
+     *
+     * @param kn the KN to remove
+     */
+    void remove(final KnowledgeNode kn) {
+        for (final Tag t : kn.getOutputTags()) {
+            final Set<KnowledgeNode> kns = knsByOutputTag.get(t);
+            if (kns != null) {
+                kns.remove(kn);
+                if (kns.isEmpty()) {
+                    knsByOutputTag.remove(t);
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes all the KNs from the index.
+     */
+    void clear() {
+        knsByOutputTag.clear();
+    }
+
+    /**
+     * Gets the KNs which output the given Tag.
+     *
+     * @param tag the output Tag
+     * @return the KNs which output the Tag
+     */
+    Set<KnowledgeNode> get(final Tag tag) {
+        final Set<KnowledgeNode> kns = knsByOutputTag.get(tag);
+        if (kns == null) {
+            return Collections.emptySet();
+        }
+        return Collections.unmodifiableSet(kns);
+    }
+
+    /**
+     * Gets the KNs which output at least one of the given Tags.
+     *
+     * @param tags the output Tags
+     * @return the KNs which output at least one of the Tags
+     */
+    Set<KnowledgeNode> getCandidates(final Set<Tag> tags) {
+        final Set<KnowledgeNode> candidates =
+                Collections.newSetFromMap(new IdentityHashMap<>());
+        for (final Tag t : tags) {
+            final Set<KnowledgeNode> kns = knsByOutputTag.get(t);
+            if (kns != null) {
+                candidates.addAll(kns);
+            }
+        }
+        return candidates;
+    }
+}
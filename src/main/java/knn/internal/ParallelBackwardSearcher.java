@@ -0,0 +1,70 @@
+package knn.internal;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import com.google.inject.Inject;
+import com.google.inject.assistedinject.Assisted;
+import com.google.inject.name.Named;
+import knn.api.KnowledgeNode;
+import knn.api.KnowledgeNodeClock;
+import knn.api.SearchListener;
+import tags.Tag;
+
+/**
+ * Backward searcher which splits the KNs matched by each ply across a
+ * {@link ForkJoinPool}, and merges the Tags activated by each part.
+ * <p>
+ * The KNs within the age limit are collected in order of increasing age by the
+ * calling thread, as in {@link BackwardSearcher}, and only the matching runs
+ * in parallel. Matching does not modify the KNs, and the active Tags are
+ * updated by the calling thread once the search is complete, so this searcher
+ * can be used by all the engines.
+ */
+class ParallelBackwardSearcher extends BackwardSearcher {
+    private final ForkJoinPool searchPool;
+    private final int searchSplitThreshold;
+
+    @Inject
+    ParallelBackwardSearcher(
+            @Assisted("activeTags") final Set<Tag> activeTags,
+            @Assisted("knowledgeNodeIndex")
+            final KnowledgeNodeIndex knowledgeNodeIndex,
+            @Assisted("partialMatchRatio") final double partialMatchRatio,
+            @Assisted("ageLimit") final long ageLimit,
+            final BackwardSearchMatcher backwardSearchMatcher,
+            final SearchListener searchListener,
+            final KnowledgeNodeClock clock,
+            @Named("searchPool") final ForkJoinPool searchPool,
+            @Named("searchSplitThreshold") final int searchSplitThreshold) {
+        super(activeTags, knowledgeNodeIndex, partialMatchRatio, ageLimit,
+                backwardSearchMatcher, searchListener, clock);
+        this.searchPool = searchPool;
+        this.searchSplitThreshold = searchSplitThreshold;
+    }
+
+    @Override
+    BackwardSearcher withKnowledgeNodes(
+            final Set<Tag> otherActiveTags,
+            final KnowledgeNodeIndex otherKnowledgeNodeIndex) {
+        return new ParallelBackwardSearcher(otherActiveTags,
+                otherKnowledgeNodeIndex, getPartialMatchRatio(),
+                getAgeLimit(), getBackwardSearchMatcher(),
+                getSearchListener(), getClock(), searchPool,
+                searchSplitThreshold);
+    }
+
+    @Override
+    Set<Tag> match(
+            final Set<Tag> inputTags,
+            final List<KnowledgeNode> kns,
+            final int numRequiredMatches) {
+        if (kns.size() <= searchSplitThreshold) {
+            return super.match(inputTags, kns, numRequiredMatches);
+        }
+        return searchPool.invoke(new SplitSearchTask<>(kns,
+                (kn, activatedTags) -> match(
+                        inputTags, kn, numRequiredMatches, activatedTags),
+                searchSplitThreshold));
+    }
+}
@@ -0,0 +1,55 @@
+package knn.internal;
+
+import java.util.ArrayList;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import com.google.inject.Inject;
+import com.google.inject.assistedinject.Assisted;
+import com.google.inject.name.Named;
+import knn.api.SearchTrace;
+import tags.Tag;
+
+/**
+ * Forward searcher which splits the input Tags of each ply across a
+ * {@link ForkJoinPool}, and merges the Tags activated by each part.
+ * <p>
+ * Each input Tag of a ply excites its own KN once, whatever the order, so
+ * the results are the same as with {@link ForwardSearcher}. The direct
+ * searcher must be thread-safe, as in the concurrent KNN engine.
+ */
+class ParallelForwardSearcher extends ForwardSearcher {
+    private final ForkJoinPool searchPool;
+    private final int searchSplitThreshold;
+
+    @Inject
+    ParallelForwardSearcher(
+            @Assisted final DirectSearcher directSearcher,
+            @Named("searchPool") final ForkJoinPool searchPool,
+            @Named("searchSplitThreshold") final int searchSplitThreshold) {
+        super(directSearcher);
+        this.searchPool = searchPool;
+        this.searchSplitThreshold = searchSplitThreshold;
+    }
+
+    @Override
+    ForwardSearcher withDirectSearcher(
+            final DirectSearcher otherDirectSearcher) {
+        return new ParallelForwardSearcher(
+                otherDirectSearcher, searchPool, searchSplitThreshold);
+    }
+
+    @Override
+    Set<Tag> searchPly(final Set<Tag> plyInputTags, final SearchTrace trace,
+                       final long now) {
+        if (plyInputTags.size() <= searchSplitThreshold) {
+            return super.searchPly(plyInputTags, trace, now);
+        }
+        final DirectSearcher directSearcher = getDirectSearcher();
+        return searchPool.invoke(new SplitSearchTask<>(
+                new ArrayList<>(plyInputTags),
+                (t, activatedTags) ->
+                        activatedTags.addAll(
+                                directSearcher.search(t, trace, now)),
+                searchSplitThreshold));
+    }
+}
@@ -0,0 +1,273 @@
+package knn.internal;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import com.google.inject.Inject;
+import com.google.inject.assistedinject.Assisted;
+import knn.api.KnowledgeNodeNetwork;
+import knn.api.QueryCache;
+import knn.api.QueryCacheStats;
+import knn.api.SearchSession;
+import tags.Tag;
+
+/**
+ * Implementation of the query cache: the results in a map in order of
+ * access, from the least recently used, and the frequencies of the queries
+ * in a {@link FrequencySketch}, recording both the hits and the misses.
+ * <p>
+ * The size of a result is estimated as a fixed overhead per entry, plus a
+ * reference per input and output Tag, since the Tags themselves are shared
+ * with the KNN. The queries are searched outside of the lock of the cache,
+ * so that they may run concurrently.
+ */
+final class QueryCacheImpl implements QueryCache {
+    /**
+     * The estimated size of an entry without its Tags: the entry of the map,
+     * the key, and the two sets.
+     */
+    static final long ENTRY_BYTES = 192;
+    /**
+     * The estimated size of a Tag in a set: a reference and a hash set node.
+     */
+    static final long TAG_BYTES = 40;
+
+    private final KnowledgeNodeNetwork knn;
+    private final int maxEntries;
+    private final long maxBytes;
+    private final LinkedHashMap<Key, Entry> entries;
+    private final FrequencySketch sketch;
+    /**
+     * The version of the KNN at which the entries were searched.
+     */
+    private long version;
+    private long bytes;
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long rejections;
+    private long invalidations;
+
+    @Inject
+    QueryCacheImpl(
+            @Assisted final KnowledgeNodeNetwork knn,
+            @Assisted final int maxEntries,
+            @Assisted final long maxBytes) {
+        if (maxEntries <= 0 || maxBytes <= 0) {
+            throw new IllegalArgumentException(
+                    "The bounds of the cache must be positive.");
+        }
+        this.knn = knn;
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true);
+        this.sketch = new FrequencySketch(maxEntries);
+        this.version = knn.getVersion();
+    }
+
+    @Override
+    public KnowledgeNodeNetwork getKnowledgeNodeNetwork() {
+        return knn;
+    }
+
+    @Override
+    public Set<Tag> forwardSearch(final Set<Tag> inputTags, final int ply) {
+        return query(new Key(QueryType.FORWARD, inputTags, ply));
+    }
+
+    @Override
+    public Set<Tag> backwardSearch(final Set<Tag> inputTags, final int ply) {
+        return query(new Key(QueryType.BACKWARD, inputTags, ply));
+    }
+
+    @Override
+    public Set<Tag> lambdaSearch(final Set<Tag> inputTags, final int ply) {
+        return query(new Key(QueryType.LAMBDA, inputTags, ply));
+    }
+
+    @Override
+    public synchronized void invalidateAll() {
+        invalidations += entries.size();
+        entries.clear();
+        bytes = 0;
+    }
+
+    @Override
+    public synchronized QueryCacheStats getStats() {
+        validate(knn.getVersion());
+        return new QueryCacheStats(hits, misses, evictions, rejections,
+                invalidations, entries.size(), bytes);
+    }
+
+    /**
+     * Returns the cached result of a query, or searches it in a new session
+     * and caches the result, if the KNN did not change meanwhile.
+     *
+     * @param key the query
+     * @return the result of the query
+     */
+    private Set<Tag> query(final Key key) {
+        final long started;
+        synchronized (this) {
+            started = knn.getVersion();
+            validate(started);
+            sketch.increment(key.hash);
+            final Entry entry = entries.get(key);
+            if (entry != null) {
+                hits++;
+                return entry.result;
+            }
+            misses++;
+        }
+        final Set<Tag> result =
+                Collections.unmodifiableSet(search(knn.openSession(), key));
+        synchronized (this) {
+            if (knn.getVersion() == started && version == started) {
+                admit(key, result);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Searches a query.
+     *
+     * @param session the session searched
+     * @param key     the query
+     * @return the result of the query
+     */
+    private static Set<Tag> search(final SearchSession session,
+                                   final Key key) {
+        switch (key.type) {
+            case FORWARD:
+                return session.forwardSearch(key.inputTags, key.ply);
+            case BACKWARD:
+                return session.backwardSearch(key.inputTags, key.ply);
+            default:
+                return session.lambdaSearch(key.inputTags, key.ply);
+        }
+    }
+
+    /**
+     * Discards the entries if the version of the KNN changed since they were
+     * searched.
+     *
+     * @param current the current version of the KNN
+     */
+    private void validate(final long current) {
+        if (current != version) {
+            invalidateAll();
+            version = current;
+        }
+    }
+
+    /**
+     * Caches the result of a query, evicting the least recently used entries
+     * to make room, as long as they were requested less often than the
+     * query.
+     *
+     * @param key    the query
+     * @param result the result of the query
+     */
+    private void admit(final Key key, final Set<Tag> result) {
+        final long size = ENTRY_BYTES
+                + TAG_BYTES * (key.inputTags.size() + result.size());
+        if (size > maxBytes || entries.containsKey(key)) {
+            if (size > maxBytes) {
+                rejections++;
+            }
+            return;
+        }
+        final int frequency = sketch.frequency(key.hash);
+        final Iterator<Map.Entry<Key, Entry>> eldest =
+                entries.entrySet().iterator();
+        while (entries.size() >= maxEntries || bytes + size > maxBytes) {
+            final Map.Entry<Key, Entry> victim = eldest.next();
+            if (frequency <= sketch.frequency(victim.getKey().hash)) {
+                rejections++;
+                return;
+            }
+            eldest.remove();
+            bytes -= victim.getValue().size;
+            evictions++;
+        }
+        entries.put(key, new Entry(result, size));
+        bytes += size;
+    }
+
+    /**
+     * The types of the cached queries.
+     */
+    private enum QueryType {
+        FORWARD,
+        BACKWARD,
+        LAMBDA
+    }
+
+    /**
+     * A query: its type, its input Tags, in no order, and its ply.
+     */
+    private static final class Key {
+        private final QueryType type;
+        private final Set<Tag> inputTags;
+        private final int ply;
+        private final int hash;
+
+        /**
+         * Creates a query, copying its input Tags.
+         *
+         * @param type      the type of the query
+         * @param inputTags the input Tags of the query
+         * @param ply       the ply of the query
+         */
+        private Key(final QueryType type, final Set<Tag> inputTags,
+                    final int ply) {
+            this.type = type;
+            this.inputTags = Collections.unmodifiableSet(
+                    new HashSet<>(inputTags));
+            this.ply = ply;
+            this.hash = 31 * (31 * type.hashCode() + this.inputTags.hashCode())
+                    + ply;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            final Key key = (Key) o;
+            return type == key.type && ply == key.ply && hash == key.hash
+                    && inputTags.equals(key.inputTags);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    /**
+     * A cached result, with its estimated size.
+     */
+    private static final class Entry {
+        private final Set<Tag> result;
+        private final long size;
+
+        /**
+         * Creates an entry.
+         *
+         * @param result the result
+         * @param size   the estimated size of the entry, in bytes
+         */
+        private Entry(final Set<Tag> result, final long size) {
+            this.result = result;
+            this.size = size;
+        }
+    }
+}
@@ -0,0 +1,212 @@
+package knn.internal;
+
+import java.util.AbstractSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import com.google.inject.Inject;
+import knn.api.KnowledgeNode;
+
+/**
+ * Index of the KNs ordered by recency, i.e., in order of increasing age: the
+ * KN with the latest age timestamp comes first, and among KNs with the same
+ * timestamp, the one most recently excited (or added). Backed by a doubly
+ * linked list and an identity map. Adding or exciting a KN at the current
+ * time, and adding a KN older than all the others, take constant time; a KN
+ * with an older timestamp, e.g., restored from a snapshot, is linked after
+ * the more recent KNs, searched from the least recent end of the list, so
+ * that KNs are best restored from the least to the most recent.
+ *
+ * @see KnowledgeNode#getAgeTimeStamp()
+ */
+final class RecencyIndex extends AbstractSet<KnowledgeNode> {
+    private final Map<KnowledgeNode, Entry> entries;
+    /**
+     * The most recently used entry.
+     */
+    private Entry head;
+    /**
+     * The least recently used entry.
+     */
+    private Entry tail;
+
+    @Inject
+    RecencyIndex() {
+        this.entries = new IdentityHashMap<>();
+    }
+
+    /**
+     * Adds the given KN by its timestamp, or moves it by its timestamp if it
+     * is already indexed.
+     *
+     * @param kn the KN to add
+     * @return true if the KN was not already indexed
+     */
+    @Override
+    public boolean add(final KnowledgeNode kn) {
+        final Entry entry = entries.get(kn);
+        if (entry != null) {
+            relink(entry);
+            return false;
+        }
+        final Entry newEntry = new Entry(kn);
+        entries.put(kn, newEntry);
+        link(newEntry);
+        return true;
+    }
+
+    /**
+     * Excites the given KN and moves it by its new timestamp, if it is
+     * indexed.
+     *
+     * @param kn  the KN to excite
+     * @param now the time of the excitation
+     * @return true if the KN is newly fired
+     * @see KnowledgeNode#excite(long)
+     */
+    boolean excite(final KnowledgeNode kn, final long now) {
+        final boolean fired = kn.excite(now);
+        final Entry entry = entries.get(kn);
+        if (entry != null) {
+            relink(entry);
+        }
+        return fired;
+    }
+
+    @Override
+    public boolean remove(final Object o) {
+        final Entry entry = entries.remove(o);
+        if (entry == null) {
+            return false;
+        }
+        unlink(entry);
+        return true;
+    }
+
+    @Override
+    public boolean contains(final Object o) {
+        return entries.containsKey(o);
+    }
+
+    @Override
+    public void clear() {
+        entries.clear();
+        head = null;
+        tail = null;
+    }
+
+    @Override
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return an iterator over the KNs, from the most to the least recent
+     */
+    @Override
+    public Iterator<KnowledgeNode> iterator() {
+        return new Iterator<KnowledgeNode>() {
+            private Entry next = head;
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            public KnowledgeNode next() {
+                if (next == null) {
+                    throw new NoSuchElementException();
+                }
+                final KnowledgeNode kn = next.kn;
+                next = next.next;
+                return kn;
+            }
+        };
+    }
+
+    /**
+     * Moves the given entry by the timestamp of its KN.
+     *
+     * @param entry the entry
+     */
+    private void relink(final Entry entry) {
+        unlink(entry);
+        link(entry);
+    }
+
+    /**
+     * Links the given entry by the timestamp of its KN, first among the KNs
+     * with the same timestamp: first if it is not older than the most recent
+     * KN, and otherwise after the last entry whose KN is more recent,
+     * searched from the least recent end of the list.
+     *
+     * @param entry the entry
+     */
+    private void link(final Entry entry) {
+        final long timeStamp = entry.kn.getAgeTimeStamp();
+        if (head == null || timeStamp >= head.kn.getAgeTimeStamp()) {
+            entry.prev = null;
+            entry.next = head;
+            if (head == null) {
+                tail = entry;
+            } else {
+                head.prev = entry;
+            }
+            head = entry;
+            return;
+        }
+        // The head is more recent than the entry, so prev is never null
+        Entry prev = tail;
+        while (prev.kn.getAgeTimeStamp() <= timeStamp) {
+            prev = prev.prev;
+        }
+        entry.prev = prev;
+        entry.next = prev.next;
+        if (prev.next == null) {
+            tail = entry;
+        } else {
+            prev.next.prev = entry;
+        }
+        prev.next = entry;
+    }
+
+    /**
+     * Unlinks the given entry from the list.
+     *
+     * @param entry the entry
+     */
+    private void unlink(final Entry entry) {
+        if (entry.prev == null) {
+            head = entry.next;
+        } else {
+            entry.prev.next = entry.next;
+        }
+        if (entry.next == null) {
+            tail = entry.prev;
+        } else {
+            entry.next.prev = entry.prev;
+        }
+        entry.prev = null;
+        entry.next = null;
+    }
+
+    /**
+     * Entry of the list.
+     */
+    private static final class Entry {
+        private final KnowledgeNode kn;
+        private Entry prev;
+        private Entry next;
+
+        /**
+         * Creates an unlinked entry.
+         *
+         * @param kn the KN
+         */
+        private Entry(final KnowledgeNode kn) {
+            this.kn = kn;
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package knn.internal;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import knn.api.BidirectionalSearchResult;
+import knn.api.KnowledgeNode;
+import knn.api.SearchSession;
+import tags.Tag;
+
+/**
+ * Implementation of the search session, running the searchers of the KNN
+ * engine on a {@link KnowledgeNodeOverlay} of the shared KNs, with its own
+ * active Tags.
+ * <p>
+ * The searchers of the session are created from the searchers of the KNN,
+ * which carry the injected settings of the engine, rather than by their
+ * Guice factories, which would dominate the cost of opening a session.
+ */
+final class SearchSessionImpl implements SearchSession {
+    private final KnowledgeNodeOverlay overlay;
+    private final Set<Tag> activeTags;
+
+    private final DirectSearcher directSearcher;
+    private final ForwardSearcher forwardSearcher;
+    private final BackwardSearcher backwardSearcher;
+    private final LambdaSearcher lambdaSearcher;
+
+    /**
+     * Opens a search session on the given shared KNs.
+     *
+     * @param mapKN              the mapping from Tags to the shared KNs
+     * @param knowledgeNodeIndex the indexes of the shared KNs
+     * @param directSearcher     the direct searcher of the KNN
+     * @param forwardSearcher    the forward searcher of the KNN
+     * @param backwardSearcher   the backward searcher of the KNN, whose
+     *                           partial match ratio and age limit the
+     *                           session starts with
+     */
+    SearchSessionImpl(
+            final Map<Tag, KnowledgeNode> mapKN,
+            final KnowledgeNodeIndex knowledgeNodeIndex,
+            final DirectSearcher directSearcher,
+            final ForwardSearcher forwardSearcher,
+            final BackwardSearcher backwardSearcher) {
+        this.overlay = new KnowledgeNodeOverlay(mapKN, knowledgeNodeIndex);
+        this.activeTags = ConcurrentHashMap.newKeySet();
+        this.directSearcher = directSearcher
+                .withKnowledgeNodes(overlay.getMap(), activeTags, overlay);
+        this.forwardSearcher =
+                forwardSearcher.withDirectSearcher(this.directSearcher);
+        this.backwardSearcher =
+                backwardSearcher.withKnowledgeNodes(activeTags, overlay);
+        this.lambdaSearcher =
+                new LambdaSearcher(this.forwardSearcher, this.backwardSearcher);
+    }
+
+    @Override
+    public void clearActiveTags() {
+        activeTags.clear();
+    }
+
+    @Override
+    public void addActiveTag(final Tag tag) {
+        activeTags.add(tag);
+    }
+
+    @Override
+    public void addActiveTags(final Tag... tags) {
+        activeTags.addAll(Arrays.asList(tags));
+    }
+
+    @Override
+    public Set<Tag> getActiveTags() {
+        return Collections.unmodifiableSet(activeTags);
+    }
+
+    @Override
+    public KnowledgeNode getKnowledgeNode(final Tag tag) {
+        return overlay.peek(tag);
+    }
+
+    @Override
+    public Set<Tag> directSearch(final Tag inputTag) {
+        return directSearcher.search(inputTag);
+    }
+
+    @Override
+    public Set<Tag> forwardSearch(final Set<Tag> inputTags, final int ply) {
+        return forwardSearcher.search(inputTags, ply);
+    }
+
+    @Override
+    public Set<Tag> forwardSearch(final Set<Tag> inputTags, final int ply,
+                                  final int beamWidth) {
+        return forwardSearcher.search(inputTags, ply, beamWidth);
+    }
+
+    @Override
+    public List<Set<Tag>> forwardSearchBatch(final List<Set<Tag>> inputs,
+                                             final int ply) {
+        return forwardSearcher.searchBatch(inputs, ply);
+    }
+
+    @Override
+    public Set<Tag> forwardThink(final int ply) {
+        return forwardSearcher.search(activeTags, ply);
+    }
+
+    @Override
+    public Set<Tag> backwardSearch(final Set<Tag> inputTags, final int ply) {
+        return backwardSearcher.search(inputTags, ply);
+    }
+
+    @Override
+    public List<Set<Tag>> backwardSearchBatch(final List<Set<Tag>> inputs,
+                                              final int ply) {
+        return backwardSearcher.searchBatch(inputs, ply);
+    }
+
+    @Override
+    public Set<Tag> backwardThink(final int ply) {
+        return backwardSearcher.search(activeTags, ply);
+    }
+
+    @Override
+    public void setBackwardSearchMatchRatio(final double ratio) {
+        backwardSearcher.setPartialMatchRatio(ratio);
+    }
+
+    @Override
+    public Set<Tag> lambdaSearch(final Set<Tag> inputTags, final int ply) {
+        return lambdaSearcher.search(inputTags, ply);
+    }
+
+    @Override
+    public Set<Tag> lambdaSearch(final Set<Tag> inputTags, final int ply,
+                                 final int beamWidth) {
+        return lambdaSearcher.search(inputTags, ply, beamWidth);
+    }
+
+    @Override
+    public Set<Tag> lambdaThink(final int ply) {
+        return lambdaSearcher.search(activeTags, ply);
+    }
+
+    @Override
+    public BidirectionalSearchResult bidirectionalSearch(
+            final Set<Tag> inputTags, final Set<Tag> goalTags, final int ply,
+            final int budget) {
+        return lambdaSearcher.search(inputTags, goalTags, ply, budget);
+    }
+}
@@ -1,6 +1,7 @@
 package knn.internal;
 
 import java.util.Set;
+import knn.api.SearchTrace;
 import tags.Tag;
 
 /**
@@ -14,9 +15,28 @@ abstract class Searcher<T> {
      *
      * @param input the search input
      * @param ply   the ply of the search
+     * @param trace the trace of the search events
      * @return the Tags activated as a result of searching
      */
-    abstract Set<Tag> searchInternal(T input, double ply);
+    abstract Set<Tag> searchInternal(T input, double ply, SearchTrace trace);
+
+    /**
+     * Internal search method, not traced.
+     *
+     * @param input the search input
+     * @param ply   the ply of the search
+     * @return the Tags activated as a result of searching
+     */
+    final Set<Tag> searchInternal(final T input, final double ply) {
+        return searchInternal(input, ply, SearchTrace.NONE);
+    }
+
+    /**
+     * Starts tracing a search, see {@link knn.api.SearchListener}.
+     *
+     * @return the trace of the search events
+     */
+    abstract SearchTrace startSearch();
 
     /**
      * Public searcher.
@@ -26,9 +46,22 @@ abstract class Searcher<T> {
      * @return the Tags activated as a result of searching
      */
     Set<Tag> search(final T input, final double ply) {
+        final SearchTrace trace = startSearch();
+        final Set<Tag> activatedTags =
+                searchInternal(input, maxPly(ply), trace);
+        trace.searchEnded();
+        return activatedTags;
+    }
+
+    /**
+     * @param ply the ply of a search
+     * @return the number of plies to search, infinite if the ply is 0, i.e.,
+     * until quiescence
+     */
+    static double maxPly(final double ply) {
         if (ply == 0) {
-            return searchInternal(input, Double.POSITIVE_INFINITY);
+            return Double.POSITIVE_INFINITY;
         }
-        return searchInternal(input, ply);
+        return ply;
     }
 }
@@ -0,0 +1,391 @@
+package knn.internal;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import com.google.inject.Inject;
+import com.google.inject.Provider;
+import com.google.inject.assistedinject.Assisted;
+import com.google.inject.name.Named;
+import knn.api.BidirectionalSearchResult;
+import knn.api.JournalSyncPolicy;
+import knn.api.KnowledgeNode;
+import knn.api.KnowledgeNodeClock;
+import knn.api.LoadReport;
+import knn.api.SearchListener;
+import knn.api.SearchSession;
+import tags.Tag;
+
+/**
+ * Implementation of the KNN which partitions the KNs and the active Tags
+ * into {@link KnowledgeNodeShard}s by the hash of their input Tags. Each
+ * shard is owned by a worker thread, and the searches exchange batches of
+ * Tags between the shards, one round per ply, see {@link ShardedSearcher};
+ * the shards share no mutable state.
+ * <p>
+ * Mutations are sent to the shards without waiting for them, and are
+ * processed by each shard in order with the later messages, so only the
+ * searches and queries wait for the shards. The searches yield the same
+ * results as the {@link KnowledgeNodeNetworkImpl}, but the KNs of a ply fire
+ * in parallel across the shards, and the queries of a batch are searched one
+ * by one.
+ * <p>
+ * When a journal is open, each shard records the mutations of its KNs and
+ * active Tags from its worker, in the order it processes them, which is all
+ * the replay needs, since the shards share no KN or Tag. Only clearing all
+ * the KNs or active Tags concerns every shard, so it then waits for all the
+ * shards: each shard records its clearing after its earlier mutations, and
+ * before the mutations sent once the KNN is cleared. Not thread-safe, except
+ * that search sessions may run concurrently.
+ */
+class ShardedKnowledgeNodeNetworkImpl
+        implements JournaledKnowledgeNodeNetwork {
+    /**
+     * Orders the KNs of all the shards by increasing age.
+     */
+    private static final Comparator<KnowledgeNode> YOUNGEST_FIRST =
+            Comparator.comparingLong(KnowledgeNode::getAgeTimeStamp)
+                    .reversed();
+
+    private final ShardedSearcher searcher;
+    private final KnowledgeNodeClock clock;
+    /**
+     * The number of changes of the settings of the searches, part of the
+     * version of the KNN.
+     */
+    private final AtomicLong settingsVersion;
+    private OpenJournal journal;
+    /**
+     * Whether the shards record their mutations in a journal.
+     */
+    private boolean journaled;
+
+    /**
+     * Creates a KNN with the given number of shards, each with its own KN
+     * indexes.
+     *
+     * @param mapKN                      the mapping from Tags to KNs, copied
+     * @param activeTags                 the initial active Tags, copied
+     * @param backwardSearchMatchRatio   the backward search match ratio
+     * @param backwardSearchAgeLimit     the backward search age limit
+     * @param knowledgeNodeIndexProvider the provider of the KN indexes of
+     *                                   each shard
+     * @param backwardSearchMatcher      the matcher of backward search
+     * @param searchListener             the listener of the searches
+     * @param clock                      the clock aging the KNs
+     * @param numShards                  the number of shards
+     */
+    @Inject
+    ShardedKnowledgeNodeNetworkImpl(
+            @Assisted("mapKN") final Map<Tag, KnowledgeNode> mapKN,
+            @Assisted("activeTags") final Set<Tag> activeTags,
+            @Assisted("backwardSearchMatchRatio") final
+            double backwardSearchMatchRatio,
+            @Assisted("backwardSearchAgeLimit")
+            final long backwardSearchAgeLimit,
+            final Provider<KnowledgeNodeIndex> knowledgeNodeIndexProvider,
+            final BackwardSearchMatcher backwardSearchMatcher,
+            final SearchListener searchListener,
+            final KnowledgeNodeClock clock,
+            @Named("shards") final int numShards) {
+        final KnowledgeNodeShard[] shards = new KnowledgeNodeShard[numShards];
+        for (int i = 0; i < numShards; i++) {
+            final Map<Tag, KnowledgeNode> shardMapKN = new HashMap<>();
+            final JournaledTagSet shardActiveTags =
+                    new JournaledTagSet(new HashSet<>());
+            final KnowledgeNodeIndex index = knowledgeNodeIndexProvider.get();
+            shards[i] = new KnowledgeNodeShard(numShards, shardMapKN,
+                    shardActiveTags, index,
+                    new DirectSearcher(shardMapKN, shardActiveTags, index,
+                            searchListener, clock),
+                    new BackwardSearcher(shardActiveTags, index,
+                            backwardSearchMatchRatio, backwardSearchAgeLimit,
+                            backwardSearchMatcher, searchListener, clock));
+        }
+        this.searcher = new ShardedSearcher(
+                ShardedSearcher.newWorkers(numShards), shards,
+                searchListener, clock);
+        this.clock = clock;
+        this.settingsVersion = new AtomicLong();
+        for (final KnowledgeNode kn : mapKN.values()) {
+            addKnowledgeNode(kn);
+        }
+        addActiveTags(activeTags.toArray(new Tag[0]));
+    }
+
+    @Override
+    public void resetEmpty() {
+        if (journaled) {
+            searcher.broadcast(shard -> {
+                shard.clear();
+                return null;
+            });
+        } else {
+            searcher.sendAll(KnowledgeNodeShard::clear);
+        }
+    }
+
+    @Override
+    public void clearActiveTags() {
+        if (journaled) {
+            searcher.broadcast(shard -> {
+                shard.clearActiveTags();
+                return null;
+            });
+        } else {
+            searcher.clearActiveTags();
+        }
+    }
+
+    @Override
+    public void addKnowledgeNode(final KnowledgeNode kn) {
+        kn.stampCreation(clock.currentTime());
+        searcher.send(kn.getInputTag(), shard -> shard.addKnowledgeNode(kn));
+    }
+
+    @Override
+    public void deleteExpiredKnowledgeNodes() {
+        final long now = clock.currentTime();
+        searcher.sendAll(shard -> shard.deleteExpiredKnowledgeNodes(now));
+    }
+
+    @Override
+    public void deleteKnowledgeNode(final Tag tag) {
+        searcher.send(tag, shard -> shard.deleteKnowledgeNode(tag));
+    }
+
+    @Override
+    public void addActiveTag(final Tag tag) {
+        searcher.addActiveTag(tag);
+    }
+
+    @Override
+    public void addActiveTags(final Tag... tags) {
+        searcher.addActiveTags(tags);
+    }
+
+    @Override
+    public void removeActiveTag(final Tag tag) {
+        searcher.send(tag, shard -> shard.deactivate(tag));
+    }
+
+    @Override
+    public Set<Tag> getActiveTags() {
+        return searcher.getActiveTags();
+    }
+
+    @Override
+    public KnowledgeNode getKnowledgeNode(final Tag tag) {
+        return searcher.getKnowledgeNode(tag);
+    }
+
+    /**
+     * Merges the KNs of the shards, each in order of increasing age, by
+     * the time they were last excited.
+     *
+     * @return all the KNs in the KNN
+     */
+    @Override
+    public Set<KnowledgeNode> getKnowledgeNodes() {
+        final List<KnowledgeNode> kns = new ArrayList<>();
+        for (final List<KnowledgeNode> shardKns
+                : searcher.broadcast(KnowledgeNodeShard::getKnowledgeNodes)) {
+            kns.addAll(shardKns);
+        }
+        kns.sort(YOUNGEST_FIRST);
+        return Collections.unmodifiableSet(new LinkedHashSet<>(kns));
+    }
+
+    @Override
+    public Set<Tag> directSearch(final Tag inputTag) {
+        return searcher.directSearch(inputTag);
+    }
+
+    @Override
+    public Set<Tag> forwardSearch(final Set<Tag> inputTags, final int ply) {
+        return searcher.forwardSearch(inputTags, ply);
+    }
+
+    @Override
+    public Set<Tag> forwardSearch(final Set<Tag> inputTags, final int ply,
+                                  final int beamWidth) {
+        return searcher.forwardSearch(inputTags, ply, beamWidth);
+    }
+
+    @Override
+    public List<Set<Tag>> forwardSearchBatch(final List<Set<Tag>> inputs,
+                                             final int ply) {
+        return searcher.forwardSearchBatch(inputs, ply);
+    }
+
+    @Override
+    public Set<Tag> forwardThink(final int ply) {
+        return searcher.forwardThink(ply);
+    }
+
+    @Override
+    public Set<Tag> backwardSearch(final Set<Tag> inputTags, final int ply) {
+        return searcher.backwardSearch(inputTags, ply);
+    }
+
+    @Override
+    public List<Set<Tag>> backwardSearchBatch(final List<Set<Tag>> inputs,
+                                              final int ply) {
+        return searcher.backwardSearchBatch(inputs, ply);
+    }
+
+    @Override
+    public Set<Tag> backwardThink(final int ply) {
+        return searcher.backwardThink(ply);
+    }
+
+    @Override
+    public void setBackwardSearchMatchRatio(final double ratio) {
+        searcher.setBackwardSearchMatchRatio(ratio);
+        settingsVersion.incrementAndGet();
+    }
+
+    @Override
+    public Set<Tag> lambdaSearch(final Set<Tag> inputTags, final int ply) {
+        return searcher.lambdaSearch(inputTags, ply);
+    }
+
+    @Override
+    public Set<Tag> lambdaSearch(final Set<Tag> inputTags, final int ply,
+                                 final int beamWidth) {
+        return searcher.lambdaSearch(inputTags, ply, beamWidth);
+    }
+
+    @Override
+    public Set<Tag> lambdaThink(final int ply) {
+        return searcher.lambdaThink(ply);
+    }
+
+    @Override
+    public BidirectionalSearchResult bidirectionalSearch(
+            final Set<Tag> inputTags, final Set<Tag> goalTags, final int ply,
+            final int budget) {
+        return searcher.bidirectionalSearch(inputTags, goalTags, ply, budget);
+    }
+
+    /**
+     * The version is the sum of the versions of the KN indexes of the
+     * shards, plus the number of changes of the settings of the searches.
+     *
+     * @return the version of the KNN
+     */
+    @Override
+    public long getVersion() {
+        long version = settingsVersion.get();
+        for (final long shardVersion
+                : searcher.broadcast(KnowledgeNodeShard::getVersion)) {
+            version += shardVersion;
+        }
+        return version;
+    }
+
+    /**
+     * Opens a search session whose shards overlay the shards of the KNN, and
+     * are run by the same workers.
+     *
+     * @return the new search session
+     */
+    @Override
+    public SearchSession openSession() {
+        return searcher.openSession();
+    }
+
+    @Override
+    public LoadReport loadData(final String filename) {
+        resetEmpty();
+        return KnowledgeNodeLoaderImpl.load(this, filename);
+    }
+
+    @Override
+    public void reset(final String dbFilename) {
+        final KnowledgeNodeSnapshot snapshot;
+        try {
+            snapshot = KnowledgeNodeSnapshot.read(dbFilename);
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        resetEmpty();
+        final List<KnowledgeNode> knowledgeNodes =
+                snapshot.getKnowledgeNodes();
+        // Add the least recent KN first, to restore the recency order
+        for (int i = knowledgeNodes.size() - 1; i >= 0; i--) {
+            addKnowledgeNode(knowledgeNodes.get(i));
+        }
+        addActiveTags(snapshot.getActiveTags().toArray(new Tag[0]));
+    }
+
+    @Override
+    public void save(final String dbFilename) {
+        try {
+            new KnowledgeNodeSnapshot(getKnowledgeNodes(), getActiveTags())
+                    .write(dbFilename);
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public synchronized void openJournal(final String dbFilename,
+                                         final String journalFilename,
+                                         final JournalSyncPolicy syncPolicy,
+                                         final long commitIntervalMillis) {
+        if (journal != null) {
+            throw new IllegalStateException("A journal is already open.");
+        }
+        journal = OpenJournal.open(this, dbFilename, journalFilename,
+                syncPolicy, commitIntervalMillis);
+    }
+
+    @Override
+    public synchronized void compactJournal() {
+        if (journal == null) {
+            throw new IllegalStateException("No journal is open.");
+        }
+        journal.compact();
+    }
+
+    @Override
+    public synchronized void closeJournal() {
+        if (journal == null) {
+            return;
+        }
+        final OpenJournal closing = journal;
+        journal = null;
+        closing.close();
+    }
+
+    /**
+     * Sets the journal of every shard, waiting for the shards, so that the
+     * mutations sent from now on are recorded, and those sent before are
+     * not.
+     *
+     * @param recorder the journal, null to stop recording
+     */
+    @Override
+    public void setJournal(final KnowledgeNodeJournal recorder) {
+        searcher.broadcast(shard -> {
+            shard.setJournal(recorder);
+            return null;
+        });
+        journaled = recorder != null;
+    }
+
+    @Override
+    public KnowledgeNodeSnapshot snapshot() {
+        return new KnowledgeNodeSnapshot(getKnowledgeNodes(), getActiveTags());
+    }
+}
@@ -0,0 +1,938 @@
+package knn.internal;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import knn.api.BidirectionalSearchResult;
+import knn.api.KnowledgeNode;
+import knn.api.KnowledgeNodeClock;
+import knn.api.SearchListener;
+import knn.api.SearchSession;
+import knn.api.SearchTrace;
+import knn.api.SearchType;
+import tags.Tag;
+
+/**
+ * Searcher of the {@link ShardedKnowledgeNodeNetworkImpl}, which coordinates
+ * the searches of its {@link KnowledgeNodeShard}s by message passing. Each
+ * shard is run by a single worker thread, which executes the messages sent
+ * to the shard in order, so that the searches see the mutations sent
+ * before them without any locking.
+ * <p>
+ * Each ply of a search is a round of messages, sent to all the shards
+ * concerned at once, and awaited before the next ply:
+ * <ul>
+ * <li>a forward ply sends each shard its input Tags, the shard fires their
+ * KNs, and returns their output Tags by shard, which are merged into the
+ * input Tags of the next ply, and activated by their shards as they fire
+ * them;</li>
+ * <li>a backward ply sends all its input Tags to every shard, each shard
+ * matches its own KNs, and the Tags matched by all the plies are activated
+ * by their shards once the search is done.</li>
+ * </ul>
+ * The rounds of forward and backward searches are chained by the workers,
+ * see {@link ChainedSearch}: the last shard to reply to a ply sends the next
+ * one, and the calling thread only waits for the result. The plies of
+ * bidirectional search are driven by the calling thread, which alternates
+ * them.
+ * <p>
+ * The searcher is also the search session whose shards overlay the shards
+ * of the KNN, see {@link #openSession()}; the sessions share the workers of
+ * the KNN. Not thread-safe, but the sessions may be searched concurrently.
+ * The listener of the searches must not call the KNN back, since its
+ * events are called by the workers, one at a time for each search.
+ */
+final class ShardedSearcher implements SearchSession {
+    /**
+     * The time an idle worker thread is kept, in seconds, after which it
+     * terminates until the next message, so that discarded KNNs leak no
+     * threads.
+     */
+    private static final long WORKER_KEEP_ALIVE_SECONDS = 10;
+    /**
+     * The beam width of forward searches which keep all the activated Tags.
+     */
+    private static final int NO_BEAM = 0;
+    private static final String CANCELLED = "The search was cancelled.";
+
+    private final ExecutorService[] workers;
+    private final KnowledgeNodeShard[] shards;
+    private final SearchListener searchListener;
+    private final KnowledgeNodeClock clock;
+
+    private final BidirectionalSearcher bidirectionalSearcher =
+            new BidirectionalSearcher() {
+                @Override
+                SearchListener getSearchListener() {
+                    return searchListener;
+                }
+
+                @Override
+                KnowledgeNodeClock getClock() {
+                    return clock;
+                }
+
+                @Override
+                Set<Tag> searchForwardPly(final Set<Tag> plyInputTags,
+                                          final SearchTrace trace,
+                                          final long now) {
+                    final List<Set<Tag>> activatedTags = forwardPly(
+                            partition(plyInputTags), NO_BEAM, trace, now);
+                    ShardedSearcher.this.activate(activatedTags);
+                    return union(activatedTags);
+                }
+
+                @Override
+                Set<Tag> searchBackwardPly(final Set<Tag> plyInputTags,
+                                           final SearchTrace trace,
+                                           final long now) {
+                    return union(backwardPly(plyInputTags, trace, now));
+                }
+
+                @Override
+                void activate(final Set<Tag> tags) {
+                    ShardedSearcher.this.activate(partition(tags));
+                }
+            };
+
+    /**
+     * Creates the searcher of the given shards.
+     *
+     * @param workers        the worker thread of each shard, see
+     *                       {@link #newWorkers(int)}
+     * @param shards         the shards, only accessed by their workers from
+     *                       now on
+     * @param searchListener the listener of the searches
+     * @param clock          the clock aging the KNs
+     */
+    ShardedSearcher(final ExecutorService[] workers,
+                    final KnowledgeNodeShard[] shards,
+                    final SearchListener searchListener,
+                    final KnowledgeNodeClock clock) {
+        this.workers = workers;
+        this.shards = shards;
+        this.searchListener = searchListener;
+        this.clock = clock;
+    }
+
+    /**
+     * Creates the worker threads of the shards of a KNN. The threads are
+     * daemon threads, which terminate when idle.
+     *
+     * @param numShards the number of shards
+     * @return the single-threaded executor of each shard
+     */
+    static ExecutorService[] newWorkers(final int numShards) {
+        final ExecutorService[] workers = new ExecutorService[numShards];
+        for (int i = 0; i < numShards; i++) {
+            final String name = "knn-shard-" + i;
+            final ThreadPoolExecutor worker = new ThreadPoolExecutor(1, 1,
+                    WORKER_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>(), r -> {
+                final Thread thread = new Thread(r, name);
+                thread.setDaemon(true);
+                return thread;
+            });
+            worker.allowCoreThreadTimeOut(true);
+            workers[i] = worker;
+        }
+        return workers;
+    }
+
+    /**
+     * Gets the shard of a Tag, by the hash code of the Tag, spread so that
+     * Tags whose hash codes only differ in their high bits are spread too.
+     *
+     * @param tag       the Tag
+     * @param numShards the number of shards
+     * @return the index of the shard of the Tag
+     */
+    static int shardOf(final Tag tag, final int numShards) {
+        final int hash = tag.hashCode();
+        return Math.floorMod(hash ^ (hash >>> (Integer.SIZE / 2)), numShards);
+    }
+
+    /**
+     * Creates an empty partition of Tags by shard.
+     *
+     * @param numShards the number of shards
+     * @return an empty set of Tags per shard
+     */
+    static List<Set<Tag>> newPartition(final int numShards) {
+        final List<Set<Tag>> partition = new ArrayList<>(numShards);
+        for (int i = 0; i < numShards; i++) {
+            partition.add(new HashSet<>());
+        }
+        return partition;
+    }
+
+    /**
+     * Adds a Tag to the set of its shard in a partition.
+     *
+     * @param tag       the Tag
+     * @param partition the Tags by shard
+     */
+    static void route(final Tag tag, final List<Set<Tag>> partition) {
+        partition.get(shardOf(tag, partition.size())).add(tag);
+    }
+
+    /**
+     * Opens a search session on the shards of this searcher, see
+     * {@link KnowledgeNodeShard#openSession()}, in one round.
+     *
+     * @return the searcher of the session
+     */
+    ShardedSearcher openSession() {
+        final List<KnowledgeNodeShard> sessionShards =
+                broadcast(KnowledgeNodeShard::openSession);
+        return new ShardedSearcher(workers,
+                sessionShards.toArray(new KnowledgeNodeShard[0]),
+                searchListener, clock);
+    }
+
+    /**
+     * Sends a message to a shard, without waiting for it to be processed.
+     *
+     * @param shard   the index of the shard
+     * @param message the message, run by the worker of the shard
+     */
+    void send(final int shard, final Consumer<KnowledgeNodeShard> message) {
+        final KnowledgeNodeShard target = shards[shard];
+        workers[shard].execute(() -> message.accept(target));
+    }
+
+    /**
+     * Sends a message to the shard of a Tag, without waiting for it to be
+     * processed.
+     *
+     * @param tag     the Tag
+     * @param message the message, run by the worker of the shard
+     */
+    void send(final Tag tag, final Consumer<KnowledgeNodeShard> message) {
+        send(shardOf(tag, shards.length), message);
+    }
+
+    /**
+     * Sends a message to all the shards, without waiting for it to be
+     * processed.
+     *
+     * @param message the message, run by the worker of each shard
+     */
+    void sendAll(final Consumer<KnowledgeNodeShard> message) {
+        for (int i = 0; i < shards.length; i++) {
+            send(i, message);
+        }
+    }
+
+    /**
+     * Sends a request to the shard of a Tag, and waits for its reply.
+     *
+     * @param tag     the Tag
+     * @param request the request, run by the worker of the shard
+     * @param <T>     the type of the reply
+     * @return the reply of the shard
+     */
+    <T> T call(final Tag tag,
+               final Function<KnowledgeNodeShard, T> request) {
+        return await(submit(shardOf(tag, shards.length), request));
+    }
+
+    /**
+     * Sends a request to all the shards, and waits for their replies.
+     *
+     * @param request the request, run by the worker of each shard
+     * @param <T>     the type of the replies
+     * @return the reply of each shard, in order of shard
+     */
+    <T> List<T> broadcast(final Function<KnowledgeNodeShard, T> request) {
+        final List<Future<T>> futures = new ArrayList<>(shards.length);
+        for (int i = 0; i < shards.length; i++) {
+            futures.add(submit(i, request));
+        }
+        final List<T> replies = new ArrayList<>(shards.length);
+        for (final Future<T> future : futures) {
+            replies.add(await(future));
+        }
+        return replies;
+    }
+
+    /**
+     * Sends each shard its Tags, and waits for the replies. The shards with
+     * no Tags are not sent anything.
+     *
+     * @param tags    the Tags by shard
+     * @param request the request, run by the worker of each shard with its
+     *                Tags
+     * @param <T>     the type of the replies
+     * @return the replies of the shards sent Tags
+     */
+    private <T> List<T> round(
+            final List<Set<Tag>> tags,
+            final BiFunction<KnowledgeNodeShard, Set<Tag>, T> request) {
+        final List<Future<T>> futures = new ArrayList<>(shards.length);
+        for (int i = 0; i < shards.length; i++) {
+            final Set<Tag> shardTags = tags.get(i);
+            if (!shardTags.isEmpty()) {
+                futures.add(submit(i,
+                        shard -> request.apply(shard, shardTags)));
+            }
+        }
+        final List<T> replies = new ArrayList<>(futures.size());
+        for (final Future<T> future : futures) {
+            replies.add(await(future));
+        }
+        return replies;
+    }
+
+    /**
+     * Sends a request to a shard.
+     *
+     * @param shard   the index of the shard
+     * @param request the request, run by the worker of the shard
+     * @param <T>     the type of the reply
+     * @return the future reply of the shard
+     */
+    private <T> Future<T> submit(
+            final int shard, final Function<KnowledgeNodeShard, T> request) {
+        final KnowledgeNodeShard target = shards[shard];
+        return workers[shard].submit(() -> request.apply(target));
+    }
+
+    /**
+     * Waits for the reply of a shard.
+     *
+     * @param future the future reply
+     * @param <T>    the type of the reply
+     * @return the reply
+     * @throws CancellationException if the calling thread is interrupted
+     */
+    private static <T> T await(final Future<T> future) {
+        try {
+            return future.get();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException(CANCELLED);
+        } catch (final ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    /**
+     * Partitions Tags by shard.
+     *
+     * @param tags the Tags
+     * @return the Tags by shard
+     */
+    private List<Set<Tag>> partition(final Collection<Tag> tags) {
+        final List<Set<Tag>> partition = newPartition(shards.length);
+        for (final Tag t : tags) {
+            route(t, partition);
+        }
+        return partition;
+    }
+
+    /**
+     * @param partition Tags by shard
+     * @return the number of Tags
+     */
+    private static int size(final List<Set<Tag>> partition) {
+        int size = 0;
+        for (final Set<Tag> tags : partition) {
+            size += tags.size();
+        }
+        return size;
+    }
+
+    /**
+     * @param sets sets of Tags
+     * @return the union of the sets
+     */
+    private static Set<Tag> union(final Collection<Set<Tag>> sets) {
+        final Set<Tag> union = new HashSet<>();
+        for (final Set<Tag> tags : sets) {
+            union.addAll(tags);
+        }
+        return union;
+    }
+
+    /**
+     * Activates Tags, without waiting for their shards to do so.
+     *
+     * @param tags the Tags by shard
+     */
+    private void activate(final List<Set<Tag>> tags) {
+        for (int i = 0; i < shards.length; i++) {
+            final Set<Tag> shardTags = tags.get(i);
+            if (!shardTags.isEmpty()) {
+                send(i, shard -> shard.activate(shardTags));
+            }
+        }
+    }
+
+    @Override
+    public void clearActiveTags() {
+        sendAll(KnowledgeNodeShard::clearActiveTags);
+    }
+
+    @Override
+    public void addActiveTag(final Tag tag) {
+        send(tag, shard -> shard.activate(Collections.singleton(tag)));
+    }
+
+    @Override
+    public void addActiveTags(final Tag... tags) {
+        activate(partition(Arrays.asList(tags)));
+    }
+
+    @Override
+    public Set<Tag> getActiveTags() {
+        return Collections.unmodifiableSet(
+                union(broadcast(KnowledgeNodeShard::getActiveTags)));
+    }
+
+    @Override
+    public KnowledgeNode getKnowledgeNode(final Tag tag) {
+        return call(tag, shard -> shard.getKnowledgeNode(tag));
+    }
+
+    @Override
+    public Set<Tag> directSearch(final Tag inputTag) {
+        final SearchTrace trace =
+                searchListener.searchStarted(SearchType.DIRECT);
+        final List<Set<Tag>> activatedTags = forwardPly(
+                partition(Collections.singleton(inputTag)), NO_BEAM, trace,
+                clock.searchStarted());
+        activate(activatedTags);
+        trace.searchEnded();
+        return Collections.unmodifiableSet(union(activatedTags));
+    }
+
+    @Override
+    public Set<Tag> forwardSearch(final Set<Tag> inputTags, final int ply) {
+        return forwardSearch(inputTags, ply, NO_BEAM, clock.searchStarted());
+    }
+
+    @Override
+    public Set<Tag> forwardSearch(final Set<Tag> inputTags, final int ply,
+                                  final int beamWidth) {
+        TagBeam.checkWidth(beamWidth);
+        return forwardSearch(inputTags, ply, beamWidth, clock.searchStarted());
+    }
+
+    @Override
+    public List<Set<Tag>> forwardSearchBatch(final List<Set<Tag>> inputs,
+                                             final int ply) {
+        final long now = clock.searchStarted();
+        final List<Set<Tag>> results = new ArrayList<>(inputs.size());
+        for (final Set<Tag> inputTags : inputs) {
+            results.add(forwardSearch(inputTags, ply, NO_BEAM, now));
+        }
+        return results;
+    }
+
+    @Override
+    public Set<Tag> forwardThink(final int ply) {
+        return forwardSearch(getActiveTags(), ply);
+    }
+
+    /**
+     * Performs forward search, one round per ply, chained by the workers.
+     *
+     * @param inputTags the input Tags of the search
+     * @param ply       the ply of the search, 0 to search until quiescence
+     * @param beamWidth the maximum number of Tags activated by each ply, or
+     *                  {@link #NO_BEAM}
+     * @param now       the time of the search
+     * @return the Tags activated as a result of searching
+     */
+    private Set<Tag> forwardSearch(final Set<Tag> inputTags, final int ply,
+                                   final int beamWidth, final long now) {
+        final SearchTrace trace =
+                searchListener.searchStarted(SearchType.FORWARD);
+        if (beamWidth == NO_BEAM) {
+            return new ForwardSearch<List<Set<Tag>>>(inputTags, ply, trace,
+                    (shard, tags) -> shard.fire(tags, trace, now),
+                    this::mergeFired).run();
+        }
+        return new ForwardSearch<TagBeam>(inputTags, ply, trace,
+                (shard, tags) -> shard.fire(tags, beamWidth, trace, now),
+                replies -> mergeBeams(replies, beamWidth, trace)).run();
+    }
+
+    /**
+     * Performs a ply of forward search, in one round: each shard fires the
+     * KNs of its input Tags, which it activates, and replies with their
+     * output Tags, which are merged by shard, and kept by a beam if any. The
+     * Tags activated by the ply are left to the caller to activate.
+     *
+     * @param plyInputTags the input Tags of the ply, by shard
+     * @param beamWidth    the maximum number of Tags activated by the ply,
+     *                     or {@link #NO_BEAM}
+     * @param trace        the trace of the search events
+     * @param now          the time of the search
+     * @return the Tags activated by the ply, by shard
+     */
+    private List<Set<Tag>> forwardPly(final List<Set<Tag>> plyInputTags,
+                                      final int beamWidth,
+                                      final SearchTrace trace,
+                                      final long now) {
+        if (beamWidth == NO_BEAM) {
+            return mergeFired(round(plyInputTags,
+                    (shard, tags) -> shard.fire(tags, trace, now)));
+        }
+        return mergeBeams(round(plyInputTags,
+                (shard, tags) -> shard.fire(tags, beamWidth, trace, now)),
+                beamWidth, trace);
+    }
+
+    /**
+     * Merges the output Tags fired by the shards in a ply of forward search.
+     *
+     * @param replies the output Tags fired by each shard, by shard
+     * @return the Tags activated by the ply, by shard
+     */
+    private List<Set<Tag>> mergeFired(final List<List<Set<Tag>>> replies) {
+        final List<Set<Tag>> activatedTags = newPartition(shards.length);
+        for (final List<Set<Tag>> reply : replies) {
+            for (int i = 0; i < shards.length; i++) {
+                activatedTags.get(i).addAll(reply.get(i));
+            }
+        }
+        return activatedTags;
+    }
+
+    /**
+     * Merges the beams of the shards in a ply of forward search.
+     *
+     * @param replies   the beam of the output Tags fired by each shard
+     * @param beamWidth the maximum number of Tags activated by the ply
+     * @param trace     the trace of the search events
+     * @return the Tags activated by the ply, by shard
+     */
+    private List<Set<Tag>> mergeBeams(final List<TagBeam> replies,
+                                      final int beamWidth,
+                                      final SearchTrace trace) {
+        final TagBeam beam = new TagBeam(beamWidth);
+        for (final TagBeam reply : replies) {
+            beam.offer(reply);
+        }
+        final Set<Tag> activatedTags = beam.getTags();
+        trace.tagsActivated(activatedTags.size());
+        return partition(activatedTags);
+    }
+
+    @Override
+    public Set<Tag> backwardSearch(final Set<Tag> inputTags, final int ply) {
+        return backwardSearch(inputTags, ply, clock.searchStarted());
+    }
+
+    @Override
+    public List<Set<Tag>> backwardSearchBatch(final List<Set<Tag>> inputs,
+                                              final int ply) {
+        final long now = clock.searchStarted();
+        final List<Set<Tag>> results = new ArrayList<>(inputs.size());
+        for (final Set<Tag> inputTags : inputs) {
+            results.add(backwardSearch(inputTags, ply, now));
+        }
+        return results;
+    }
+
+    @Override
+    public Set<Tag> backwardThink(final int ply) {
+        return backwardSearch(getActiveTags(), ply);
+    }
+
+    /**
+     * Performs backward search, one round per ply, and a last round to
+     * activate the matched Tags, chained by the workers.
+     *
+     * @param inputTags the input Tags of the search
+     * @param ply       the ply of the search, 0 to search until quiescence
+     * @param now       the time of the search
+     * @return the Tags activated as a result of searching
+     */
+    private Set<Tag> backwardSearch(final Set<Tag> inputTags, final int ply,
+                                    final long now) {
+        return new BackwardSearch(inputTags, ply,
+                searchListener.searchStarted(SearchType.BACKWARD), now).run();
+    }
+
+    /**
+     * Performs a ply of backward search, in one round: each shard matches
+     * its KNs against all the input Tags of the ply. The matched Tags are
+     * left to the caller to activate.
+     *
+     * @param plyInputTags the input Tags of the ply
+     * @param trace        the trace of the search events
+     * @param now          the time of the search
+     * @return the input Tags of the matching KNs, by shard
+     */
+    private List<Set<Tag>> backwardPly(final Set<Tag> plyInputTags,
+                                       final SearchTrace trace,
+                                       final long now) {
+        final Set<Tag> tags = Collections.unmodifiableSet(plyInputTags);
+        return broadcast(shard -> shard.match(tags, trace, now));
+    }
+
+    @Override
+    public void setBackwardSearchMatchRatio(final double ratio) {
+        sendAll(shard -> shard.setBackwardSearchMatchRatio(ratio));
+    }
+
+    @Override
+    public Set<Tag> lambdaSearch(final Set<Tag> inputTags, final int ply) {
+        return forwardSearch(backwardSearch(inputTags, ply), ply);
+    }
+
+    @Override
+    public Set<Tag> lambdaSearch(final Set<Tag> inputTags, final int ply,
+                                 final int beamWidth) {
+        return forwardSearch(backwardSearch(inputTags, ply), ply, beamWidth);
+    }
+
+    @Override
+    public Set<Tag> lambdaThink(final int ply) {
+        return lambdaSearch(getActiveTags(), ply);
+    }
+
+    @Override
+    public BidirectionalSearchResult bidirectionalSearch(
+            final Set<Tag> inputTags, final Set<Tag> goalTags, final int ply,
+            final int budget) {
+        return bidirectionalSearcher.search(inputTags, goalTags, ply, budget);
+    }
+
+    /**
+     * Search whose rounds are chained by the workers: the last shard to reply
+     * to a round ends it on its worker, and sends the next round, so that
+     * the calling thread does not take part in every ply, but only waits for
+     * the result. The rounds of a search never overlap, so its state is only
+     * accessed by one thread at a time, each round happening before the
+     * next.
+     *
+     * @param <R> the type of the replies of the shards
+     * @param <T> the type of the result
+     */
+    private abstract class ChainedSearch<R, T> {
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+        /**
+         * Whether the calling thread has stopped waiting for the result, in
+         * which case no further round is sent.
+         */
+        private volatile boolean abandoned;
+
+        /**
+         * Runs the search, and waits for its result.
+         *
+         * @return the result
+         * @throws CancellationException if the calling thread is interrupted
+         */
+        final T run() {
+            try {
+                start();
+            } catch (final RuntimeException | Error e) {
+                fail(e);
+            }
+            try {
+                return await(result);
+            } catch (final CancellationException e) {
+                abandoned = true;
+                throw e;
+            }
+        }
+
+        /**
+         * Starts the search, by sending its first round or completing it.
+         */
+        abstract void start();
+
+        /**
+         * Ends a round, by sending the next one or completing the search.
+         *
+         * @param replies the replies of the shards sent Tags, in order of
+         *                shard
+         */
+        abstract void roundEnded(List<R> replies);
+
+        /**
+         * Completes the search.
+         *
+         * @param value the result
+         */
+        final void complete(final T value) {
+            result.complete(value);
+        }
+
+        /**
+         * Fails the search, the exception being thrown to the calling thread.
+         *
+         * @param e the exception
+         */
+        private void fail(final Throwable e) {
+            result.completeExceptionally(e);
+        }
+
+        /**
+         * Sends each shard its Tags, the shards with no Tags being sent
+         * nothing. The round ends once all the shards sent Tags have replied.
+         *
+         * @param tags    the Tags by shard
+         * @param request the request, run by the worker of each shard with
+         *                its Tags
+         */
+        final void sendRound(
+                final List<Set<Tag>> tags,
+                final BiFunction<KnowledgeNodeShard, Set<Tag>, R> request) {
+            int numReplies = 0;
+            for (final Set<Tag> shardTags : tags) {
+                if (!shardTags.isEmpty()) {
+                    numReplies++;
+                }
+            }
+            if (numReplies == 0) {
+                endRound(Collections.emptyList());
+                return;
+            }
+            final AtomicReferenceArray<R> replies =
+                    new AtomicReferenceArray<>(numReplies);
+            final AtomicInteger pending = new AtomicInteger(numReplies);
+            int slot = 0;
+            for (int i = 0; i < shards.length; i++) {
+                final Set<Tag> shardTags = tags.get(i);
+                if (!shardTags.isEmpty()) {
+                    final int replySlot = slot++;
+                    send(i, shard -> reply(shard, shardTags, request,
+                            replies, replySlot, pending));
+                }
+            }
+        }
+
+        /**
+         * Replies to a request of a round, on the worker of the shard, and
+         * ends the round if it is the last reply. Does nothing if the search
+         * has already failed.
+         *
+         * @param shard     the shard
+         * @param shardTags the Tags of the shard
+         * @param request   the request
+         * @param replies   the replies of the round
+         * @param replySlot the index of the reply of the shard
+         * @param pending   the number of replies still expected
+         */
+        private void reply(
+                final KnowledgeNodeShard shard, final Set<Tag> shardTags,
+                final BiFunction<KnowledgeNodeShard, Set<Tag>, R> request,
+                final AtomicReferenceArray<R> replies, final int replySlot,
+                final AtomicInteger pending) {
+            if (result.isDone()) {
+                return;
+            }
+            try {
+                replies.set(replySlot, request.apply(shard, shardTags));
+            } catch (final RuntimeException | Error e) {
+                fail(e);
+                return;
+            }
+            if (pending.decrementAndGet() == 0) {
+                final List<R> ended = new ArrayList<>(replies.length());
+                for (int i = 0; i < replies.length(); i++) {
+                    ended.add(replies.get(i));
+                }
+                endRound(ended);
+            }
+        }
+
+        /**
+         * Ends a round, unless the calling thread has stopped waiting.
+         *
+         * @param replies the replies of the round
+         */
+        private void endRound(final List<R> replies) {
+            if (abandoned) {
+                fail(new CancellationException(CANCELLED));
+                return;
+            }
+            try {
+                roundEnded(replies);
+            } catch (final RuntimeException | Error e) {
+                fail(e);
+            }
+        }
+    }
+
+    /**
+     * Forward search, whose plies are chained by the workers. The Tags
+     * activated by the last ply are activated before the search completes,
+     * so that they precede the messages sent once the search returns.
+     *
+     * @param <R> the type of the replies of the shards to a ply
+     */
+    private final class ForwardSearch<R>
+            extends ChainedSearch<R, Set<Tag>> {
+        private final double maxPly;
+        private final SearchTrace trace;
+        private final BiFunction<KnowledgeNodeShard, Set<Tag>, R> fire;
+        private final Function<List<R>, List<Set<Tag>>> merge;
+        private final Set<Tag> allActivatedTags = new HashSet<>();
+        private List<Set<Tag>> plyInputTags;
+        private int size;
+        private int currentPly;
+
+        /**
+         * Creates a forward search.
+         *
+         * @param inputTags the input Tags of the search
+         * @param ply       the ply of the search, 0 to search until
+         *                  quiescence
+         * @param trace     the trace of the search events
+         * @param fire      the request of a ply, run by each shard with its
+         *                  input Tags
+         * @param merge     the merging of the replies of a ply into the Tags
+         *                  it activates, by shard
+         */
+        ForwardSearch(final Set<Tag> inputTags, final int ply,
+                      final SearchTrace trace,
+                      final BiFunction<KnowledgeNodeShard, Set<Tag>, R> fire,
+                      final Function<List<R>, List<Set<Tag>>> merge) {
+            this.maxPly = Searcher.maxPly(ply);
+            this.trace = trace;
+            this.fire = fire;
+            this.merge = merge;
+            this.plyInputTags = partition(inputTags);
+            this.size = size(plyInputTags);
+        }
+
+        @Override
+        void start() {
+            startPly();
+        }
+
+        @Override
+        void roundEnded(final List<R> replies) {
+            final List<Set<Tag>> activatedTags = merge.apply(replies);
+            size = size(activatedTags);
+            trace.plyEnded(currentPly, size);
+            for (final Set<Tag> tags : activatedTags) {
+                allActivatedTags.addAll(tags);
+            }
+            plyInputTags = activatedTags;
+            currentPly++;
+            startPly();
+        }
+
+        /**
+         * Sends the next ply, or completes the search.
+         */
+        private void startPly() {
+            if (currentPly < maxPly && size > 0) {
+                trace.plyStarted(currentPly, size);
+                sendRound(plyInputTags, fire);
+                return;
+            }
+            // The shards activate the Tags they fire, except the last ones
+            activate(plyInputTags);
+            trace.searchEnded();
+            complete(Collections.unmodifiableSet(allActivatedTags));
+        }
+    }
+
+    /**
+     * Backward search, whose plies, and the last round activating the
+     * matched Tags, are chained by the workers.
+     */
+    private final class BackwardSearch
+            extends ChainedSearch<Set<Tag>, Set<Tag>> {
+        private final double maxPly;
+        private final SearchTrace trace;
+        private final long now;
+        private final List<Set<Tag>> allActivatedTags;
+        private Set<Tag> plyInputTags;
+        private int currentPly;
+        /**
+         * Whether the last round, activating the matched Tags, was sent.
+         */
+        private boolean activating;
+
+        /**
+         * Creates a backward search.
+         *
+         * @param inputTags the input Tags of the search
+         * @param ply       the ply of the search, 0 to search until
+         *                  quiescence
+         * @param trace     the trace of the search events
+         * @param now       the time of the search
+         */
+        BackwardSearch(final Set<Tag> inputTags, final int ply,
+                       final SearchTrace trace, final long now) {
+            this.maxPly = Searcher.maxPly(ply);
+            this.trace = trace;
+            this.now = now;
+            this.allActivatedTags = newPartition(shards.length);
+            this.plyInputTags = new HashSet<>(inputTags);
+        }
+
+        @Override
+        void start() {
+            startPly();
+        }
+
+        @Override
+        void roundEnded(final List<Set<Tag>> replies) {
+            if (activating) {
+                trace.searchEnded();
+                complete(Collections.unmodifiableSet(union(replies)));
+                return;
+            }
+            // Every shard is sent the Tags of a ply, so the replies are
+            // those of all the shards
+            plyInputTags = union(replies);
+            trace.plyEnded(currentPly, plyInputTags.size());
+            for (int i = 0; i < shards.length; i++) {
+                allActivatedTags.get(i).addAll(replies.get(i));
+            }
+            currentPly++;
+            startPly();
+        }
+
+        /**
+         * Sends the next ply, or the last round activating the matched Tags.
+         */
+        private void startPly() {
+            if (currentPly < maxPly && !plyInputTags.isEmpty()) {
+                trace.plyStarted(currentPly, plyInputTags.size());
+                final Set<Tag> tags =
+                        Collections.unmodifiableSet(plyInputTags);
+                sendRound(Collections.nCopies(shards.length, tags),
+                        (shard, shardTags) ->
+                                shard.match(shardTags, trace, now));
+                return;
+            }
+            activating = true;
+            sendRound(allActivatedTags, KnowledgeNodeShard::activateNew);
+        }
+    }
+}
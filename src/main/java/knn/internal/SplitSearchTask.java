@@ -0,0 +1,88 @@
+package knn.internal;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BiConsumer;
+import tags.Tag;
+
+/**
+ * Fork/join task which searches a range of items, e.g., the input Tags of a
+ * forward search ply or the KNs matched by a backward search ply. The range is
+ * split in halves until it is at most the split threshold, and the Tags
+ * activated by each half are merged.
+ *
+ * @param <T> the type of the searched items
+ */
+final class SplitSearchTask<T> extends RecursiveTask<Set<Tag>> {
+    private static final long serialVersionUID = 1L;
+    private final transient List<T> items;
+    private final transient BiConsumer<T, Set<Tag>> search;
+    private final int splitThreshold;
+    private final int from;
+    private final int to;
+
+    /**
+     * Creates a task searching all the given items.
+     *
+     * @param items          the items to search
+     * @param search         the search of an item, which adds the Tags it
+     *                       activates to the given set
+     * @param splitThreshold the number of items below which the task is not
+     *                       split
+     */
+    SplitSearchTask(
+            final List<T> items,
+            final BiConsumer<T, Set<Tag>> search,
+            final int splitThreshold) {
+        this(items, search, Math.max(1, splitThreshold), 0, items.size());
+    }
+
+    /**
+     * Creates a task searching a range of the given items.
+     *
+     * @param items          the items to search
+     * @param search         the search of an item
+     * @param splitThreshold the number of items below which the task is not
+     *                       split
+     * @param from           the start of the range, inclusive
+     * @param to             the end of the range, exclusive
+     */
+    private SplitSearchTask(
+            final List<T> items,
+            final BiConsumer<T, Set<Tag>> search,
+            final int splitThreshold,
+            final int from,
+            final int to) {
+        this.items = items;
+        this.search = search;
+        this.splitThreshold = splitThreshold;
+        this.from = from;
+        this.to = to;
+    }
+
+    @Override
+    protected Set<Tag> compute() {
+        if (to - from <= splitThreshold) {
+            final Set<Tag> activatedTags = new HashSet<>();
+            for (int i = from; i < to; i++) {
+                search.accept(items.get(i), activatedTags);
+            }
+            return activatedTags;
+        }
+        final int middle = (from + to) >>> 1;
+        final SplitSearchTask<T> left = new SplitSearchTask<>(
+                items, search, splitThreshold, from, middle);
+        left.fork();
+        final Set<Tag> activatedTags = new SplitSearchTask<>(
+                items, search, splitThreshold, middle, to).compute();
+        final Set<Tag> leftActivatedTags = left.join();
+        if (leftActivatedTags.size() > activatedTags.size()) {
+            leftActivatedTags.addAll(activatedTags);
+            return leftActivatedTags;
+        }
+        activatedTags.addAll(leftActivatedTags);
+        return activatedTags;
+    }
+}
@@ -0,0 +1,134 @@
+package knn.internal;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import knn.api.KnowledgeNode;
+import tags.Tag;
+
+/**
+ * The beam of a ply of beam search: the Tags activated by the ply, of which
+ * only the given number with the best scores are kept.
+ * <p>
+ * A Tag activated by a KN scores the belief times the strength of the KN,
+ * plus the confidence of the Tag; a Tag activated by several KNs keeps its
+ * best score. Ties are broken by an arbitrary but fixed order of the Tags,
+ * so that the beam does not depend on the order of the offers. The best Tags
+ * are selected with a heap bounded by the width of the beam.
+ */
+final class TagBeam {
+    /**
+     * Orders the scored Tags from the worst to the best.
+     */
+    private static final Comparator<Map.Entry<Tag, Double>> WORST_FIRST =
+            Comparator.<Map.Entry<Tag, Double>>comparingDouble(
+                    Map.Entry::getValue)
+                    .thenComparing(e -> e.getKey().hashCode(),
+                            Comparator.reverseOrder())
+                    .thenComparing(e -> e.getKey().toDataString(),
+                            Comparator.reverseOrder());
+
+    private final int width;
+    private final Map<Tag, Double> scores;
+
+    /**
+     * Creates an empty beam.
+     *
+     * @param width the maximum number of Tags kept
+     * @throws IllegalArgumentException if the width is not positive
+     */
+    TagBeam(final int width) {
+        checkWidth(width);
+        this.width = width;
+        this.scores = new HashMap<>();
+    }
+
+    /**
+     * Checks the width of a beam.
+     *
+     * @param width the width of the beam
+     * @throws IllegalArgumentException if the width is not positive
+     */
+    static void checkWidth(final int width) {
+        if (width <= 0) {
+            throw new IllegalArgumentException(
+                    "The beam width must be positive.");
+        }
+    }
+
+    /**
+     * Scores a Tag activated by a KN.
+     *
+     * @param belief   the belief of the KN
+     * @param strength the strength of the KN
+     * @param tag      the activated Tag
+     * @return the score of the Tag
+     */
+    static double score(final double belief, final int strength,
+                        final Tag tag) {
+        return belief * strength + tag.getConfidence();
+    }
+
+    /**
+     * Offers the output Tags of a fired KN.
+     *
+     * @param kn the KN
+     */
+    void offer(final KnowledgeNode kn) {
+        for (final Tag t : kn.getOutputTags()) {
+            offer(t, score(kn.getBelief(), kn.getStrength(), t));
+        }
+    }
+
+    /**
+     * Offers an activated Tag.
+     *
+     * @param tag   the Tag
+     * @param score the score of the Tag
+     */
+    void offer(final Tag tag, final double score) {
+        scores.merge(tag, score, Math::max);
+    }
+
+    /**
+     * Offers the Tags kept by another beam, with their scores. The best Tags
+     * offered to several beams of the same width, e.g., one per part of a
+     * ply, are among the Tags they keep, so that merging them into this beam
+     * keeps the same Tags as offering everything to it.
+     *
+     * @param other the other beam
+     */
+    void offer(final TagBeam other) {
+        for (final Tag t : other.getTags()) {
+            offer(t, other.scores.get(t));
+        }
+    }
+
+    /**
+     * @return the offered Tags with the best scores, at most the width of the
+     * beam
+     */
+    Set<Tag> getTags() {
+        if (scores.size() <= width) {
+            return new HashSet<>(scores.keySet());
+        }
+        final PriorityQueue<Map.Entry<Tag, Double>> heap =
+                new PriorityQueue<>(width, WORST_FIRST);
+        for (final Map.Entry<Tag, Double> e : scores.entrySet()) {
+            if (heap.size() < width) {
+                heap.add(e);
+            } else if (WORST_FIRST.compare(e, heap.peek()) > 0) {
+                heap.poll();
+                heap.add(e);
+            }
+        }
+        final Set<Tag> tags = new HashSet<>();
+        for (final Map.Entry<Tag, Double> e : heap) {
+            tags.add(e.getKey());
+        }
+        return tags;
+    }
+}
@@ -0,0 +1,258 @@
+package knn.internal;
+
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import tags.Tag;
+
+/**
+ * Set of Tags stored as a {@link TagBitmap} of their ids in a
+ * {@link TagDictionary}, which gives an id to each Tag added.
+ * <p>
+ * Adding and removing all the Tags of another set with the same dictionary
+ * combine the bitmaps, a word at a time where they are dense, without
+ * looking up any Tag. Iteration materializes the Tags from their
+ * ids as it goes, in order of id.
+ * <p>
+ * As in a {@link HashSet}, the set gives back the Tag instances added to it,
+ * which may differ from equal instances, e.g., Facts with other confidences:
+ * the instances which are not those of the dictionary are kept by id, next
+ * to the bitmap. Clearing the set gives it a new dictionary, so that the
+ * Tags only known to the old one are collected with it once no set uses it
+ * anymore. Not thread-safe, and the sets sharing a dictionary must not be
+ * modified concurrently.
+ */
+final class TagBitSet extends AbstractSet<Tag> {
+    private final TagBitmap ids;
+    private TagDictionary dictionary;
+    /**
+     * The Tag instances of the set which are not those of the dictionary, by
+     * id, or null if there are none.
+     */
+    private Map<Integer, Tag> instances;
+
+    /**
+     * Creates an empty set.
+     *
+     * @param dictionary the dictionary of the Tag ids
+     */
+    TagBitSet(final TagDictionary dictionary) {
+        this.dictionary = dictionary;
+        this.ids = new TagBitmap();
+    }
+
+    /**
+     * Creates a set of the given Tags.
+     *
+     * @param dictionary the dictionary of the Tag ids
+     * @param tags       the Tags
+     */
+    TagBitSet(final TagDictionary dictionary,
+              final Collection<? extends Tag> tags) {
+        this(dictionary);
+        addAll(tags);
+    }
+
+    /**
+     * Creates an empty set of Tags, stored like the given one: with the same
+     * dictionary if it is a {@link TagBitSet}, else as a hash set. The set
+     * may be a {@link JournaledTagSet} view of either.
+     *
+     * @param like the set whose storage to follow
+     * @return the new set
+     */
+    static Set<Tag> newSetLike(final Set<Tag> like) {
+        final Set<Tag> tags = unwrap(like);
+        if (tags instanceof TagBitSet) {
+            return new TagBitSet(((TagBitSet) tags).dictionary);
+        }
+        return new HashSet<>();
+    }
+
+    @Override
+    public boolean add(final Tag tag) {
+        final int id = dictionary.getOrAdd(tag);
+        if (!ids.add(id)) {
+            return false;
+        }
+        if (dictionary.getTag(id) != tag) {
+            if (instances == null) {
+                instances = new HashMap<>();
+            }
+            instances.put(id, tag);
+        }
+        return true;
+    }
+
+    @Override
+    public boolean remove(final Object o) {
+        final int id = getId(o);
+        if (id == TagDictionary.NO_ID || !ids.remove(id)) {
+            return false;
+        }
+        removeInstance(id);
+        return true;
+    }
+
+    @Override
+    public boolean contains(final Object o) {
+        final int id = getId(o);
+        return id != TagDictionary.NO_ID && ids.contains(id);
+    }
+
+    @Override
+    public boolean addAll(final Collection<? extends Tag> c) {
+        final TagBitSet other = sameDictionary(c);
+        if (other != null) {
+            if (other.instances != null) {
+                for (final Map.Entry<Integer, Tag> e
+                        : other.instances.entrySet()) {
+                    if (!ids.contains(e.getKey())) {
+                        if (instances == null) {
+                            instances = new HashMap<>();
+                        }
+                        instances.put(e.getKey(), e.getValue());
+                    }
+                }
+            }
+            return ids.or(other.ids);
+        }
+        return super.addAll(c);
+    }
+
+    @Override
+    public boolean removeAll(final Collection<?> c) {
+        final TagBitSet other = sameDictionary(c);
+        if (other != null) {
+            final boolean removed = ids.andNot(other.ids);
+            if (removed && instances != null) {
+                instances.keySet().removeIf(id -> !ids.contains(id));
+            }
+            return removed;
+        }
+        return removeIf(c::contains);
+    }
+
+    @Override
+    public int size() {
+        return ids.cardinality();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return ids.cardinality() == 0;
+    }
+
+    /**
+     * Clears the set, and gives it a new dictionary, see {@link TagBitSet}.
+     */
+    @Override
+    public void clear() {
+        ids.clear();
+        instances = null;
+        dictionary = new TagDictionary();
+    }
+
+    @Override
+    public Iterator<Tag> iterator() {
+        return new Iterator<Tag>() {
+            private int next = ids.next(0);
+            private int last = TagDictionary.NO_ID;
+
+            @Override
+            public boolean hasNext() {
+                return next >= 0;
+            }
+
+            @Override
+            public Tag next() {
+                if (next < 0) {
+                    throw new NoSuchElementException();
+                }
+                last = next;
+                next = ids.next(next + 1);
+                return getTag(last);
+            }
+
+            @Override
+            public void remove() {
+                if (last == TagDictionary.NO_ID) {
+                    throw new IllegalStateException();
+                }
+                ids.remove(last);
+                removeInstance(last);
+                last = TagDictionary.NO_ID;
+            }
+        };
+    }
+
+    /**
+     * @param id the id of a Tag of the set
+     * @return the Tag instance of the set with the id
+     */
+    private Tag getTag(final int id) {
+        if (instances != null) {
+            final Tag tag = instances.get(id);
+            if (tag != null) {
+                return tag;
+            }
+        }
+        return dictionary.getTag(id);
+    }
+
+    /**
+     * Forgets the Tag instance of a removed id, if it is kept.
+     *
+     * @param id the id
+     */
+    private void removeInstance(final int id) {
+        if (instances != null) {
+            instances.remove(id);
+        }
+    }
+
+    /**
+     * @param o an object
+     * @return the id of the object if it is a Tag of the dictionary, else
+     * {@link TagDictionary#NO_ID}
+     */
+    private int getId(final Object o) {
+        if (!(o instanceof Tag)) {
+            return TagDictionary.NO_ID;
+        }
+        return dictionary.getId((Tag) o);
+    }
+
+    /**
+     * @param c a collection
+     * @return the collection as a set with the same dictionary, or null if
+     * it is not one
+     */
+    private TagBitSet sameDictionary(final Collection<?> c) {
+        if (c instanceof JournaledTagSet) {
+            return sameDictionary(((JournaledTagSet) c).getTags());
+        }
+        if (c instanceof TagBitSet
+                && ((TagBitSet) c).dictionary == dictionary) {
+            return (TagBitSet) c;
+        }
+        return null;
+    }
+
+    /**
+     * @param tags a set
+     * @return the underlying set if the set is a {@link JournaledTagSet},
+     * else the set
+     */
+    private static Set<Tag> unwrap(final Set<Tag> tags) {
+        if (tags instanceof JournaledTagSet) {
+            return ((JournaledTagSet) tags).getTags();
+        }
+        return tags;
+    }
+}
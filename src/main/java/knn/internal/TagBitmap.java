@@ -0,0 +1,615 @@
+package knn.internal;
+
+import java.util.Arrays;
+
+/**
+ * Compressed bitmap of non-negative ints, e.g., Tag ids, in the manner of a
+ * Roaring bitmap: the ints are partitioned by their high 16 bits, the keys,
+ * and the low 16 bits of each partition are stored in a container, either a
+ * sorted array of at most 4096 values, or a bitmap of 65536 bits when it is
+ * denser. Sparse partitions thus take two bytes per int, and dense ones one
+ * bit.
+ * <p>
+ * The union and difference with another bitmap only visit the containers of
+ * the keys of the other bitmap, and combine two bitmap containers a word at
+ * a time. The cardinality is maintained, so that it takes constant time.
+ * Not thread-safe.
+ */
+final class TagBitmap {
+    /**
+     * The maximum cardinality of an array container.
+     */
+    static final int ARRAY_MAX = 4096;
+    private static final int LOW_BITS = 16;
+    private static final int LOW_MASK = 0xFFFF;
+    private static final int WORDS = (LOW_MASK + 1) / Long.SIZE;
+    /**
+     * The number of bits of the index of a bit in its word.
+     */
+    private static final int WORD_SHIFT = 6;
+    private static final int INITIAL_CAPACITY = 4;
+    /**
+     * An array container adds the values of an array container this many
+     * times smaller in place, e.g., the few Tags activated by one KN merged
+     * into those of a ply, rather than merging them into a new array.
+     */
+    private static final int INSERT_RATIO = 16;
+
+    private char[] keys;
+    private Container[] containers;
+    private int size;
+    private int cardinality;
+
+    /**
+     * Creates an empty bitmap.
+     */
+    TagBitmap() {
+        this.keys = new char[INITIAL_CAPACITY];
+        this.containers = new Container[INITIAL_CAPACITY];
+    }
+
+    /**
+     * Adds an int to the bitmap.
+     *
+     * @param value the int, non-negative
+     * @return true if the int was added, false if it was already in
+     */
+    boolean add(final int value) {
+        final char key = (char) (value >>> LOW_BITS);
+        int i = indexOf(key);
+        if (i < 0) {
+            i = -i - 1;
+            insert(i, key, new ArrayContainer());
+        }
+        final Container container = containers[i];
+        final int before = container.cardinality;
+        containers[i] = container.add((char) (value & LOW_MASK));
+        return update(before, containers[i]);
+    }
+
+    /**
+     * Removes an int from the bitmap.
+     *
+     * @param value the int
+     * @return true if the int was removed, false if it was not in
+     */
+    boolean remove(final int value) {
+        final int i = indexOf((char) (value >>> LOW_BITS));
+        if (i < 0) {
+            return false;
+        }
+        final Container container = containers[i];
+        final int before = container.cardinality;
+        containers[i] = container.remove((char) (value & LOW_MASK));
+        final boolean removed = update(before, containers[i]);
+        if (containers[i].cardinality == 0) {
+            delete(i);
+        }
+        return removed;
+    }
+
+    /**
+     * @param value an int
+     * @return true if the int is in the bitmap
+     */
+    boolean contains(final int value) {
+        final int i = indexOf((char) (value >>> LOW_BITS));
+        return i >= 0 && containers[i].contains((char) (value & LOW_MASK));
+    }
+
+    /**
+     * Adds all the ints of another bitmap to this one.
+     *
+     * @param other the other bitmap
+     * @return true if this bitmap changed
+     */
+    boolean or(final TagBitmap other) {
+        final int before = cardinality;
+        int i = 0;
+        for (int j = 0; j < other.size; j++) {
+            final char key = other.keys[j];
+            while (i < size && keys[i] < key) {
+                i++;
+            }
+            if (i < size && keys[i] == key) {
+                final Container container = containers[i];
+                final int containerBefore = container.cardinality;
+                containers[i] = container.or(other.containers[j]);
+                update(containerBefore, containers[i]);
+            } else {
+                final Container copy = other.containers[j].copy();
+                insert(i, key, copy);
+                cardinality += copy.cardinality;
+            }
+            i++;
+        }
+        return cardinality != before;
+    }
+
+    /**
+     * Removes all the ints of another bitmap from this one.
+     *
+     * @param other the other bitmap
+     * @return true if this bitmap changed
+     */
+    boolean andNot(final TagBitmap other) {
+        final int before = cardinality;
+        int i = 0;
+        for (int j = 0; j < other.size && i < size; j++) {
+            final char key = other.keys[j];
+            while (i < size && keys[i] < key) {
+                i++;
+            }
+            if (i < size && keys[i] == key) {
+                final Container container = containers[i];
+                final int containerBefore = container.cardinality;
+                containers[i] = container.andNot(other.containers[j]);
+                update(containerBefore, containers[i]);
+                if (containers[i].cardinality == 0) {
+                    delete(i);
+                } else {
+                    i++;
+                }
+            }
+        }
+        return cardinality != before;
+    }
+
+    /**
+     * @param from the int to start from, non-negative
+     * @return the smallest int of the bitmap at least the given one, or -1 if
+     * there is none
+     */
+    int next(final int from) {
+        int i = indexOf((char) (from >>> LOW_BITS));
+        int low = from & LOW_MASK;
+        if (i < 0) {
+            i = -i - 1;
+            low = 0;
+        }
+        for (; i < size; i++) {
+            final int next = containers[i].next(low);
+            if (next >= 0) {
+                return keys[i] << LOW_BITS | next;
+            }
+            low = 0;
+        }
+        return -1;
+    }
+
+    /**
+     * @return the number of ints in the bitmap
+     */
+    int cardinality() {
+        return cardinality;
+    }
+
+    /**
+     * Removes all the ints from the bitmap.
+     */
+    void clear() {
+        Arrays.fill(containers, 0, size, null);
+        size = 0;
+        cardinality = 0;
+    }
+
+    /**
+     * @param key the key of a container
+     * @return true if the container of the key is a bitmap, for tests
+     */
+    boolean isBitmapContainer(final int key) {
+        final int i = indexOf((char) key);
+        return i >= 0 && containers[i] instanceof BitmapContainer;
+    }
+
+    /**
+     * Adds the change of cardinality of a container to the cardinality of
+     * the bitmap.
+     *
+     * @param before    the cardinality of the container before the change
+     * @param container the container after the change
+     * @return true if the cardinality changed
+     */
+    private boolean update(final int before, final Container container) {
+        cardinality += container.cardinality - before;
+        return container.cardinality != before;
+    }
+
+    /**
+     * @param key a key
+     * @return the index of the container of the key, or (-(insertion point)
+     * - 1) if there is none
+     */
+    private int indexOf(final char key) {
+        return Arrays.binarySearch(keys, 0, size, key);
+    }
+
+    /**
+     * Inserts a container.
+     *
+     * @param i         the index of the container
+     * @param key       the key of the container
+     * @param container the container
+     */
+    private void insert(final int i, final char key,
+                        final Container container) {
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+            containers = Arrays.copyOf(containers, size * 2);
+        }
+        System.arraycopy(keys, i, keys, i + 1, size - i);
+        System.arraycopy(containers, i, containers, i + 1, size - i);
+        keys[i] = key;
+        containers[i] = container;
+        size++;
+    }
+
+    /**
+     * Deletes a container.
+     *
+     * @param i the index of the container
+     */
+    private void delete(final int i) {
+        System.arraycopy(keys, i + 1, keys, i, size - i - 1);
+        System.arraycopy(containers, i + 1, containers, i, size - i - 1);
+        containers[--size] = null;
+    }
+
+    /**
+     * The low 16 bits of the ints of a partition. The operations change the
+     * container in place, and return the container to use from then on,
+     * which is another one when the representation changes.
+     */
+    private abstract static class Container {
+        private int cardinality;
+
+        /**
+         * @return the number of values in the container
+         */
+        final int getCardinality() {
+            return cardinality;
+        }
+
+        /**
+         * @param cardinality the new number of values in the container
+         */
+        final void setCardinality(final int cardinality) {
+            this.cardinality = cardinality;
+        }
+
+        /**
+         * @param value a value
+         * @return true if the value is in the container
+         */
+        abstract boolean contains(char value);
+
+        /**
+         * @param value the value to add
+         * @return the container with the value
+         */
+        abstract Container add(char value);
+
+        /**
+         * @param value the value to remove
+         * @return the container without the value
+         */
+        abstract Container remove(char value);
+
+        /**
+         * @param other another container
+         * @return the union of the containers
+         */
+        abstract Container or(Container other);
+
+        /**
+         * @param other another container
+         * @return the values of this container not in the other one
+         */
+        abstract Container andNot(Container other);
+
+        /**
+         * @param from the value to start from
+         * @return the smallest value at least the given one, or -1 if there
+         * is none
+         */
+        abstract int next(int from);
+
+        /**
+         * @return a copy of the container
+         */
+        abstract Container copy();
+    }
+
+    /**
+     * Container of at most {@link #ARRAY_MAX} sorted values.
+     */
+    private static final class ArrayContainer extends Container {
+        private char[] values;
+
+        /**
+         * Creates an empty container.
+         */
+        private ArrayContainer() {
+            this.values = new char[INITIAL_CAPACITY];
+        }
+
+        /**
+         * Creates a container of the given sorted values.
+         *
+         * @param values      the values
+         * @param cardinality the number of values
+         */
+        private ArrayContainer(final char[] values, final int cardinality) {
+            this.values = values;
+            setCardinality(cardinality);
+        }
+
+        @Override
+        boolean contains(final char value) {
+            return Arrays.binarySearch(
+                    values, 0, getCardinality(), value) >= 0;
+        }
+
+        @Override
+        Container add(final char value) {
+            final int n = getCardinality();
+            final int i = Arrays.binarySearch(values, 0, n, value);
+            if (i >= 0) {
+                return this;
+            }
+            if (n == ARRAY_MAX) {
+                return toBitmap().add(value);
+            }
+            final int insertion = -i - 1;
+            if (n == values.length) {
+                values = Arrays.copyOf(values,
+                        Math.min(Math.max(n * 2, INITIAL_CAPACITY), ARRAY_MAX));
+            }
+            System.arraycopy(values, insertion, values, insertion + 1,
+                    n - insertion);
+            values[insertion] = value;
+            setCardinality(n + 1);
+            return this;
+        }
+
+        @Override
+        Container remove(final char value) {
+            final int n = getCardinality();
+            final int i = Arrays.binarySearch(values, 0, n, value);
+            if (i >= 0) {
+                System.arraycopy(values, i + 1, values, i, n - i - 1);
+                setCardinality(n - 1);
+            }
+            return this;
+        }
+
+        @Override
+        Container or(final Container other) {
+            if (other instanceof BitmapContainer) {
+                return other.copy().or(this);
+            }
+            final ArrayContainer array = (ArrayContainer) other;
+            final int n = getCardinality();
+            final int m = array.getCardinality();
+            if (m * INSERT_RATIO <= n) {
+                Container container = this;
+                for (int i = 0; i < m; i++) {
+                    container = container.add(array.values[i]);
+                }
+                return container;
+            }
+            final char[] merged = new char[n + m];
+            int i = 0;
+            int j = 0;
+            int k = 0;
+            while (i < n && j < m) {
+                if (values[i] < array.values[j]) {
+                    merged[k++] = values[i++];
+                } else if (values[i] > array.values[j]) {
+                    merged[k++] = array.values[j++];
+                } else {
+                    merged[k++] = values[i++];
+                    j++;
+                }
+            }
+            while (i < n) {
+                merged[k++] = values[i++];
+            }
+            while (j < m) {
+                merged[k++] = array.values[j++];
+            }
+            if (k > ARRAY_MAX) {
+                return new ArrayContainer(merged, k).toBitmap();
+            }
+            values = merged;
+            setCardinality(k);
+            return this;
+        }
+
+        @Override
+        Container andNot(final Container other) {
+            final int n = getCardinality();
+            int k = 0;
+            for (int i = 0; i < n; i++) {
+                if (!other.contains(values[i])) {
+                    values[k++] = values[i];
+                }
+            }
+            setCardinality(k);
+            return this;
+        }
+
+        @Override
+        int next(final int from) {
+            final int n = getCardinality();
+            int i = Arrays.binarySearch(values, 0, n, (char) from);
+            if (i < 0) {
+                i = -i - 1;
+            }
+            if (i < n) {
+                return values[i];
+            }
+            return -1;
+        }
+
+        @Override
+        Container copy() {
+            return new ArrayContainer(
+                    Arrays.copyOf(values, getCardinality()),
+                    getCardinality());
+        }
+
+        /**
+         * @return a bitmap container of the same values
+         */
+        private BitmapContainer toBitmap() {
+            final BitmapContainer bitmap = new BitmapContainer();
+            for (int i = 0; i < getCardinality(); i++) {
+                bitmap.add(values[i]);
+            }
+            return bitmap;
+        }
+    }
+
+    /**
+     * Container of more than {@link #ARRAY_MAX} values, as a bitmap.
+     */
+    private static final class BitmapContainer extends Container {
+        private final long[] words;
+
+        /**
+         * Creates an empty container.
+         */
+        private BitmapContainer() {
+            this.words = new long[WORDS];
+        }
+
+        /**
+         * Creates a container of the given words.
+         *
+         * @param words the words
+         */
+        private BitmapContainer(final long[] words) {
+            this.words = words;
+            recount();
+        }
+
+        @Override
+        boolean contains(final char value) {
+            return (words[value >>> WORD_SHIFT] & 1L << value) != 0;
+        }
+
+        @Override
+        Container add(final char value) {
+            final long word = words[value >>> WORD_SHIFT];
+            final long bit = 1L << value;
+            if ((word & bit) == 0) {
+                words[value >>> WORD_SHIFT] = word | bit;
+                setCardinality(getCardinality() + 1);
+            }
+            return this;
+        }
+
+        @Override
+        Container remove(final char value) {
+            final long word = words[value >>> WORD_SHIFT];
+            final long bit = 1L << value;
+            if ((word & bit) != 0) {
+                words[value >>> WORD_SHIFT] = word & ~bit;
+                setCardinality(getCardinality() - 1);
+            }
+            return toArrayIfSparse();
+        }
+
+        @Override
+        Container or(final Container other) {
+            if (other instanceof BitmapContainer) {
+                final long[] otherWords = ((BitmapContainer) other).words;
+                for (int i = 0; i < WORDS; i++) {
+                    words[i] |= otherWords[i];
+                }
+                recount();
+            } else {
+                final ArrayContainer array = (ArrayContainer) other;
+                for (int i = 0; i < array.getCardinality(); i++) {
+                    add(array.values[i]);
+                }
+            }
+            return this;
+        }
+
+        @Override
+        Container andNot(final Container other) {
+            if (other instanceof BitmapContainer) {
+                final long[] otherWords = ((BitmapContainer) other).words;
+                for (int i = 0; i < WORDS; i++) {
+                    words[i] &= ~otherWords[i];
+                }
+                recount();
+            } else {
+                final ArrayContainer array = (ArrayContainer) other;
+                for (int i = 0; i < array.getCardinality(); i++) {
+                    final char value = array.values[i];
+                    if (contains(value)) {
+                        words[value >>> WORD_SHIFT] &= ~(1L << value);
+                        setCardinality(getCardinality() - 1);
+                    }
+                }
+            }
+            return toArrayIfSparse();
+        }
+
+        @Override
+        int next(final int from) {
+            int i = from >>> WORD_SHIFT;
+            long word = words[i] & -1L << from;
+            while (true) {
+                if (word != 0) {
+                    return i * Long.SIZE + Long.numberOfTrailingZeros(word);
+                }
+                if (++i == WORDS) {
+                    return -1;
+                }
+                word = words[i];
+            }
+        }
+
+        @Override
+        Container copy() {
+            return new BitmapContainer(words.clone());
+        }
+
+        /**
+         * Recounts the cardinality from the words.
+         */
+        private void recount() {
+            int n = 0;
+            for (final long word : words) {
+                n += Long.bitCount(word);
+            }
+            setCardinality(n);
+        }
+
+        /**
+         * @return an array container of the same values if there are at most
+         * {@link #ARRAY_MAX}, else this container
+         */
+        private Container toArrayIfSparse() {
+            final int n = getCardinality();
+            if (n > ARRAY_MAX) {
+                return this;
+            }
+            final char[] values = new char[Math.max(n, 1)];
+            int k = 0;
+            for (int i = 0; i < WORDS; i++) {
+                long word = words[i];
+                while (word != 0) {
+                    values[k++] = (char) (i * Long.SIZE
+                            + Long.numberOfTrailingZeros(word));
+                    word &= word - 1;
+                }
+            }
+            return new ArrayContainer(values, n);
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package knn.internal;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import tags.Tag;
+
+/**
+ * Dictionary assigning dense integer ids to Tags, starting at 0.
+ * <p>
+ * Tags must be added by one thread at a time, but may be looked up
+ * concurrently, e.g., by the results of a search while the next search of
+ * the KNN adds Tags: a Tag is published with its id only once it can be
+ * found by its id.
+ */
+class TagDictionary {
+    private static final int INITIAL_CAPACITY = 16;
+    /**
+     * Id returned when a Tag is not in the dictionary.
+     */
+    static final int NO_ID = -1;
+
+    private final Map<Tag, Integer> ids;
+    private volatile Tag[] tags;
+    private int size;
+
+    TagDictionary() {
+        this.ids = new ConcurrentHashMap<>();
+        this.tags = new Tag[INITIAL_CAPACITY];
+    }
+
+    /**
+     * Gets the id of the given Tag, adding it to the dictionary if needed.
+     *
+     * @param tag the Tag
+     * @return the id of the Tag
+     */
+    int getOrAdd(final Tag tag) {
+        final Integer id = ids.get(tag);
+        if (id != null) {
+            return id;
+        }
+        Tag[] current = tags;
+        if (size == current.length) {
+            current = Arrays.copyOf(current, size * 2);
+        }
+        current[size] = tag;
+        tags = current;
+        ids.put(tag, size);
+        return size++;
+    }
+
+    /**
+     * Gets the id of the given Tag.
+     *
+     * @param tag the Tag
+     * @return the id of the Tag, or {@link #NO_ID} if the Tag is not in the
+     * dictionary
+     */
+    int getId(final Tag tag) {
+        final Integer id = ids.get(tag);
+        if (id == null) {
+            return NO_ID;
+        }
+        return id;
+    }
+
+    /**
+     * Gets the Tag with the given id.
+     *
+     * @param id the id of the Tag
+     * @return the first Tag added with the id
+     */
+    Tag getTag(final int id) {
+        return tags[id];
+    }
+
+    /**
+     * @return the number of Tags in the dictionary
+     */
+    int size() {
+        return size;
+    }
+}
@@ -1,6 +1,8 @@
 package prometheus.api;
 
+import es.api.AsyncExpertSystem;
 import es.api.ExpertSystem;
+import knn.api.AsyncKnowledgeNodeNetwork;
 import knn.api.KnowledgeNodeNetwork;
 import meta.api.MetaReasoner;
 import nn.api.NeuralNetwork;
@@ -19,11 +21,23 @@ public interface Prometheus {
      */
     KnowledgeNodeNetwork getKnowledgeNodeNetwork();
 
+    /**
+     * @return the asynchronous searches of the KNN, run on the executor of
+     * Prometheus
+     */
+    AsyncKnowledgeNodeNetwork getAsyncKnowledgeNodeNetwork();
+
     /**
      * @return the Expert System (ES)
      */
     ExpertSystem getExpertSystem();
 
+    /**
+     * @return the asynchronous thinking of the ES, run on the executor of
+     * Prometheus
+     */
+    AsyncExpertSystem getAsyncExpertSystem();
+
     /**
      * @return the Meta Reasoner (META)
      */
@@ -1,5 +1,7 @@
 package prometheus.guice;
 
+import java.util.concurrent.Executor;
+import async.AsyncExecutors;
 import com.google.inject.AbstractModule;
 import es.guice.ExpertSystemModule;
 import knn.guice.KnowledgeNodeNetworkModule;
@@ -11,13 +13,37 @@ import prometheus.internal.PrometheusInternalModule;
  * Public Guice module for Prometheus.
  */
 public final class PrometheusModule extends AbstractModule {
+    private final Executor asyncExecutor;
+
+    /**
+     * Creates the Prometheus module, running the asynchronous tasks on the
+     * shared executor, whose threads are only started by the first task, see
+     * {@link AsyncExecutors#getSharedExecutor()}.
+     */
+    public PrometheusModule() {
+        this(AsyncExecutors.getSharedExecutor());
+    }
+
+    /**
+     * Creates the Prometheus module, running the asynchronous tasks on the
+     * given executor.
+     *
+     * @param asyncExecutor the executor running the asynchronous searches of
+     *                      the KNN and thinking of the ES
+     */
+    public PrometheusModule(final Executor asyncExecutor) {
+        this.asyncExecutor = asyncExecutor;
+    }
+
     @Override
     protected void configure() {
         install(new NeuralNetworkModule());
-        install(new KnowledgeNodeNetworkModule());
+        install(KnowledgeNodeNetworkModule.builder()
+                .asyncSearch(true)
+                .build());
         install(new ExpertSystemModule());
         install(new MetaReasonerModule());
 
-        install(new PrometheusInternalModule());
+        install(new PrometheusInternalModule(asyncExecutor));
     }
 }
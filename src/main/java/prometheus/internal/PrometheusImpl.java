@@ -1,11 +1,16 @@
 package prometheus.internal;
 
 import javax.inject.Inject;
+import javax.inject.Named;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.TreeSet;
+import java.util.concurrent.Executor;
+import es.api.AsyncExpertSystem;
+import es.api.AsyncExpertSystemFactory;
 import es.api.ExpertSystem;
 import es.api.ExpertSystemFactory;
+import knn.api.AsyncKnowledgeNodeNetwork;
+import knn.api.AsyncKnowledgeNodeNetworkFactory;
 import knn.api.KnowledgeNodeNetwork;
 import knn.api.KnowledgeNodeNetworkFactory;
 import meta.api.MetaReasoner;
@@ -22,21 +27,27 @@ class PrometheusImpl implements Prometheus {
     private final KnowledgeNodeNetwork knn;
     private final ExpertSystem es;
     private final MetaReasoner meta;
+    private final AsyncKnowledgeNodeNetwork asyncKnn;
+    private final AsyncExpertSystem asyncEs;
 
     @Inject
     PrometheusImpl(
             final NeuralNetworkFactory neuralNetworkFactory,
             final ExpertSystemFactory expertSystemFactory,
             final KnowledgeNodeNetworkFactory knowledgeNodeNetworkFactory,
-            final MetaReasonerFactory metaReasonerFactory) {
+            final MetaReasonerFactory metaReasonerFactory,
+            final AsyncKnowledgeNodeNetworkFactory asyncKnnFactory,
+            final AsyncExpertSystemFactory asyncEsFactory,
+            @Named("asyncExecutor") final Executor asyncExecutor) {
         this.nn = neuralNetworkFactory.create();
         this.es = expertSystemFactory
                 .create(new HashSet<>(), new HashSet<>(), new HashSet<>(),
                         new HashSet<>());
         this.knn = knowledgeNodeNetworkFactory.create(
-                new HashMap<>(), new HashSet<>(), new TreeSet<>(), 1,
-                Long.MAX_VALUE);
+                new HashMap<>(), new HashSet<>(), 1, Long.MAX_VALUE);
         this.meta = metaReasonerFactory.create();
+        this.asyncKnn = asyncKnnFactory.create(knn, asyncExecutor);
+        this.asyncEs = asyncEsFactory.create(es, asyncExecutor);
     }
 
     @Override
@@ -49,11 +60,21 @@ class PrometheusImpl implements Prometheus {
         return knn;
     }
 
+    @Override
+    public AsyncKnowledgeNodeNetwork getAsyncKnowledgeNodeNetwork() {
+        return asyncKnn;
+    }
+
     @Override
     public ExpertSystem getExpertSystem() {
         return es;
     }
 
+    @Override
+    public AsyncExpertSystem getAsyncExpertSystem() {
+        return asyncEs;
+    }
+
     @Override
     public MetaReasoner getMetaReasoner() {
         return meta;
@@ -1,14 +1,31 @@
 package prometheus.internal;
 
+import java.util.concurrent.Executor;
 import com.google.inject.AbstractModule;
+import com.google.inject.name.Names;
 import prometheus.api.Prometheus;
 
 /**
  * Internal Guice module for Prometheus.
  */
 public final class PrometheusInternalModule extends AbstractModule {
+    private final Executor asyncExecutor;
+
+    /**
+     * Creates the internal Prometheus module.
+     *
+     * @param asyncExecutor the executor running the asynchronous searches of
+     *                      the KNN and thinking of the ES
+     */
+    public PrometheusInternalModule(final Executor asyncExecutor) {
+        this.asyncExecutor = asyncExecutor;
+    }
+
     @Override
     protected void configure() {
         bind(Prometheus.class).to(PrometheusImpl.class);
+        bind(Executor.class)
+                .annotatedWith(Names.named("asyncExecutor"))
+                .toInstance(asyncExecutor);
     }
 }
@@ -1,11 +1,23 @@
 package tags;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.text.MessageFormat;
+
 /**
  * Arguments are composed of a name and symbol.
  */
 public abstract class Argument {
+    private static final ArgType[] ARG_TYPES = ArgType.values();
+    private static final int NO_SYMBOL = -1;
+
     private String name;
     private ArgType symbol;
+    /**
+     * Cached hash code, 0 if not computed yet.
+     */
+    private int hashCode;
 
     /**
      * Constructor for Argument
@@ -24,6 +36,76 @@ public abstract class Argument {
         }
     }
 
+    /**
+     * Constructor for Argument from its name and symbol.
+     *
+     * @param name   the name of the argument
+     * @param symbol the symbol of the argument
+     */
+    Argument(final String name, final ArgType symbol) {
+        this.name = name;
+        this.symbol = symbol;
+    }
+
+    /**
+     * Reads an argument written by {@link #write(DataOutput)}.
+     *
+     * @param in the input
+     * @return the argument
+     * @throws IOException if reading fails, or if the symbol is invalid
+     */
+    static Argument read(final DataInput in) throws IOException {
+        final int ordinal = in.readByte();
+        final String name = in.readUTF();
+        if (ordinal == NO_SYMBOL) {
+            return new VariableArgument(name, (ArgType) null);
+        } else if (ordinal < 0 || ordinal >= ARG_TYPES.length) {
+            throw new IOException(MessageFormat.format(
+                    "Invalid argument symbol: {0}.", ordinal));
+        }
+        final ArgType symbol = ARG_TYPES[ordinal];
+        switch (symbol) {
+            case STRING:
+                final boolean isNeg = in.readBoolean();
+                return new StringArgument(name, isNeg, in.readUTF());
+            case EQ:
+            case GT:
+            case LT:
+            case INT:
+                final boolean isNumericNeg = in.readBoolean();
+                return new NumericArgument(
+                        name, symbol, isNumericNeg, in.readInt());
+            default:
+                return new VariableArgument(name, symbol);
+        }
+    }
+
+    /**
+     * Writes the symbol, name and value of the argument, without parsing
+     * cost when read back.
+     *
+     * @param out the output
+     * @throws IOException if writing fails
+     * @see #read(DataInput)
+     */
+    final void write(final DataOutput out) throws IOException {
+        if (symbol == null) {
+            out.writeByte(NO_SYMBOL);
+        } else {
+            out.writeByte(symbol.ordinal());
+        }
+        out.writeUTF(name);
+        writeValue(out);
+    }
+
+    /**
+     * Writes the value of the argument, if any.
+     *
+     * @param out the output
+     * @throws IOException if writing fails
+     */
+    abstract void writeValue(DataOutput out) throws IOException;
+
     /**
      * @return the name of the argument
      */
@@ -38,6 +120,7 @@ public abstract class Argument {
      */
     final void setName(final String name) {
         this.name = name;
+        this.hashCode = 0;
     }
 
     /**
@@ -54,8 +137,33 @@ public abstract class Argument {
      */
     final void setSymbol(final ArgType symbol) {
         this.symbol = symbol;
+        this.hashCode = 0;
     }
 
+    /**
+     * @return the cached hash code of the argument, or 0 if it has not been
+     * computed since the argument last changed
+     */
+    final int getCachedHashCode() {
+        return hashCode;
+    }
+
+    /**
+     * Caches the hash code of the argument.
+     *
+     * @param hashCode the hash code, or 0 to clear the cached value
+     */
+    final void setCachedHashCode(final int hashCode) {
+        this.hashCode = hashCode;
+    }
+
+    /**
+     * @return the argument in the format of the KNN data files, which parses
+     * back to an equal argument
+     * @see Fact#makeArgument(String)
+     */
+    abstract String toDataString();
+
     /**
      * Compares two arguments, calling appropriate overloaded method.
      *
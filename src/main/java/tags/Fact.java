@@ -4,8 +4,6 @@ import java.text.MessageFormat;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
-import org.apache.commons.lang3.builder.EqualsBuilder;
-import org.apache.commons.lang3.builder.HashCodeBuilder;
 
 /**
  * Represents a fact in the Expert System. Facts are calculus predicates that
@@ -29,12 +27,7 @@ public final class Fact extends Predicate {
      */
 
     public Fact(final String value, final double confidenceValue) {
-
-        final String[] tokens = value.split("[(),]");
-
-        this.setPredicateName(tokens[0]);
-        this.setArguments(argStringParser(tokens));
-        this.setConfidence(confidenceValue);
+        this(TagPool.fact(value), confidenceValue);
     }
 
     /**
@@ -54,6 +47,29 @@ public final class Fact extends Predicate {
         this.setConfidence(confidence);
     }
 
+    /**
+     * Creates a Fact sharing the immutable structure of the given Fact.
+     *
+     * @param fact       the Fact to copy
+     * @param confidence the confidence of the new Fact
+     */
+    Fact(final Fact fact, final double confidence) {
+        this.copyStructure(fact);
+        this.setConfidence(confidence);
+    }
+
+    /**
+     * Parses a Fact from a string, bypassing the {@link TagPool}.
+     *
+     * @param value the Fact string
+     * @return the parsed Fact, with a confidence of 1.0
+     * @see #Fact(String, double)
+     */
+    static Fact parse(final String value) {
+        final String[] tokens = value.split("[(),]");
+        return new Fact(tokens[0], argStringParser(tokens), 1.0);
+    }
+
     /**
      * Calls the appropriate Argument constructor on a string token.
      * <p>
@@ -80,7 +96,7 @@ public final class Fact extends Predicate {
 
     @Override
     Predicate getPredicateCopy() {
-        return new Fact(getPredicateName(), getArguments(), getConfidence());
+        return new Fact(this, getConfidence());
     }
 
     /**
@@ -91,7 +107,7 @@ public final class Fact extends Predicate {
      * @param tokens string input
      * @return list of string arguments
      */
-    private List<Argument> argStringParser(final String[] tokens) {
+    private static List<Argument> argStringParser(final String[] tokens) {
         final List<Argument> argSet = new ArrayList<>();
         for (int i = 1; i < tokens.length; i++) {
             final Argument argument = makeArgument(tokens[i]);
@@ -238,18 +254,17 @@ public final class Fact extends Predicate {
 
         final Fact fact = (Fact) o;
 
-        return new EqualsBuilder()
-                .append(getPredicateName(), fact.getPredicateName())
-                .append(getArguments(), fact.getArguments())
-                .isEquals();
+        return predicateEquals(fact);
     }
 
     @Override
     public int hashCode() {
-        return new HashCodeBuilder()
-                .append(getPredicateName())
-                .append(getArguments())
-                .toHashCode();
+        return getPredicateHashCode();
+    }
+
+    @Override
+    public String toDataString() {
+        return getPredicateName() + argumentsToDataString();
     }
 
     @Override
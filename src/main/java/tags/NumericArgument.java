@@ -1,5 +1,7 @@
 package tags;
 
+import java.io.DataOutput;
+import java.io.IOException;
 import org.apache.commons.lang3.builder.EqualsBuilder;
 import org.apache.commons.lang3.builder.HashCodeBuilder;
 
@@ -40,6 +42,21 @@ final class NumericArgument extends Argument {
 
     }
 
+    /**
+     * Constructor of numeric arguments from their fields.
+     *
+     * @param name   the name, empty if none
+     * @param symbol the symbol, one of EQ, GT, LT or INT
+     * @param isNeg  true if the argument is negated
+     * @param value  the value
+     */
+    NumericArgument(final String name, final ArgType symbol,
+                    final boolean isNeg, final int value) {
+        super(name, symbol);
+        this.isNeg = isNeg;
+        this.value = value;
+    }
+
     /**
      * @return true if the numeric argument is negated
      */
@@ -110,6 +127,34 @@ final class NumericArgument extends Argument {
         return value;
     }
 
+    @Override
+    void writeValue(final DataOutput out) throws IOException {
+        out.writeBoolean(isNeg);
+        out.writeInt(value);
+    }
+
+    @Override
+    String toDataString() {
+        final StringBuilder sb = new StringBuilder(getName());
+        if (isNeg) {
+            sb.append('!');
+        }
+        switch (getSymbol()) {
+            case EQ:
+                sb.append('=');
+                break;
+            case GT:
+                sb.append('>');
+                break;
+            case LT:
+                sb.append('<');
+                break;
+            default:
+                break;
+        }
+        return sb.append(value).toString();
+    }
+
     /**
      * Prints name (when appropriate), symbol and value.
      *
@@ -167,9 +212,14 @@ final class NumericArgument extends Argument {
 
     @Override
     public int hashCode() {
-        return new HashCodeBuilder()
-                .append(isNeg)
-                .append(value)
-                .toHashCode();
+        int h = getCachedHashCode();
+        if (h == 0) {
+            h = new HashCodeBuilder()
+                    .append(isNeg)
+                    .append(value)
+                    .toHashCode();
+            setCachedHashCode(h);
+        }
+        return h;
     }
 }
@@ -1,8 +1,11 @@
 package tags;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import org.apache.commons.lang3.builder.EqualsBuilder;
+import org.apache.commons.lang3.builder.HashCodeBuilder;
 
 /**
  * Interface for Predicates (Implemented by Fact and Recommendation).
@@ -10,6 +13,11 @@ import java.util.Map;
 public abstract class Predicate extends Tag {
     private String predicateName;
     private List<Argument> arguments;
+    /**
+     * Cached hash code of the predicate name and arguments, 0 if not computed
+     * yet.
+     */
+    private int predicateHashCode;
 
     /**
      * @return a copy of the current Predicate
@@ -30,27 +38,93 @@ public abstract class Predicate extends Tag {
      */
     final void setPredicateName(final String predicateName) {
         this.predicateName = predicateName;
+        this.predicateHashCode = 0;
     }
 
     /**
      * @return the arguments
      */
     public final List<Argument> getArguments() {
-        return Collections.unmodifiableList(arguments);
+        return arguments;
     }
 
     /**
-     * Sets the arguments.
+     * Sets the arguments. The given list is copied.
      *
      * @param arguments the arguments
      */
     final void setArguments(final List<Argument> arguments) {
-        this.arguments = arguments;
+        this.arguments =
+                Collections.unmodifiableList(new ArrayList<>(arguments));
+        this.predicateHashCode = 0;
+    }
+
+    /**
+     * Shares the predicate name, arguments and cached hash code of the given
+     * Predicate, which are immutable.
+     *
+     * @param predicate the Predicate to copy from
+     */
+    final void copyStructure(final Predicate predicate) {
+        this.predicateName = predicate.predicateName;
+        this.arguments = predicate.arguments;
+        this.predicateHashCode = predicate.predicateHashCode;
+    }
+
+    /**
+     * @return the hash code of the predicate name and arguments, computed once
+     */
+    final int getPredicateHashCode() {
+        int h = predicateHashCode;
+        if (h == 0) {
+            h = new HashCodeBuilder()
+                    .append(predicateName)
+                    .append(arguments)
+                    .toHashCode();
+            predicateHashCode = h;
+        }
+        return h;
+    }
+
+    /**
+     * Checks if the predicate name and arguments of the given Predicate are
+     * equal to those of the current Predicate. Predicates with different hash
+     * codes are rejected without comparing their arguments.
+     *
+     * @param predicate the Predicate to compare to
+     * @return true if the predicate names and arguments are equal
+     */
+    final boolean predicateEquals(final Predicate predicate) {
+        if (getPredicateHashCode() != predicate.getPredicateHashCode()) {
+            return false;
+        }
+        return new EqualsBuilder()
+                .append(predicateName, predicate.predicateName)
+                .append(arguments, predicate.arguments)
+                .isEquals();
+    }
+
+    /**
+     * @return the arguments in the format of the KNN data files, between
+     * parentheses
+     */
+    final String argumentsToDataString() {
+        final StringBuilder sb = new StringBuilder("(");
+        for (int i = 0; i < arguments.size(); i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append(arguments.get(i).toDataString());
+        }
+        return sb.append(')').toString();
     }
 
     /**
      * Returns a copy of the current Predicate with replaced variable
      * argument(s) with a String or Numeric Argument.
+     * <p>
+     * The arguments of the current Predicate are replaced as well, unless it
+     * is a canonical instance of the {@link TagPool}.
      *
      * @param pendingReplacementPairs the pending replacement pairs
      * @return a copy of the current Predicate with replaced variable
@@ -59,14 +133,19 @@ public abstract class Predicate extends Tag {
     public final Predicate replaceVariableArguments(
             final Map<String, Argument> pendingReplacementPairs) {
         final Predicate p = getPredicateCopy();
+        final List<Argument> replacedArguments = new ArrayList<>(arguments);
         int argumentIndex = 0;
-        for (final Argument argument : p.arguments) {
+        for (final Argument argument : arguments) {
             if (pendingReplacementPairs.containsKey(argument.getName())) {
-                arguments.set(argumentIndex,
+                replacedArguments.set(argumentIndex,
                         pendingReplacementPairs.get(argument.getName()));
             }
             argumentIndex++;
         }
+        p.setArguments(replacedArguments);
+        if (!isCanonical()) {
+            setArguments(replacedArguments);
+        }
         return p;
     }
 }
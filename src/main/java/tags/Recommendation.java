@@ -3,8 +3,6 @@ package tags;
 import java.text.MessageFormat;
 import java.util.ArrayList;
 import java.util.List;
-import org.apache.commons.lang3.builder.EqualsBuilder;
-import org.apache.commons.lang3.builder.HashCodeBuilder;
 
 /**
  * Represents a recommendation in the Expert System. Recommendations are for
@@ -28,11 +26,7 @@ public final class Recommendation extends Predicate {
      */
 
     public Recommendation(final String value, final double confidence) {
-        final String[] tokens = value.split("[(),]");
-
-        this.setPredicateName(tokens[0].replace("@", ""));
-        this.setArguments(argStringParser(tokens));
-        this.setConfidence(confidence);
+        this(TagPool.recommendation(value), confidence);
     }
 
     /**
@@ -52,6 +46,32 @@ public final class Recommendation extends Predicate {
         this.setConfidence(confidence);
     }
 
+    /**
+     * Creates a Recommendation sharing the immutable structure of the given
+     * Recommendation.
+     *
+     * @param recommendation the Recommendation to copy
+     * @param confidence     the confidence of the new Recommendation
+     */
+    Recommendation(final Recommendation recommendation,
+                   final double confidence) {
+        this.copyStructure(recommendation);
+        this.setConfidence(confidence);
+    }
+
+    /**
+     * Parses a Recommendation from a string, bypassing the {@link TagPool}.
+     *
+     * @param value the Recommendation string
+     * @return the parsed Recommendation, with a confidence of 1.0
+     * @see #Recommendation(String, double)
+     */
+    static Recommendation parse(final String value) {
+        final String[] tokens = value.split("[(),]");
+        return new Recommendation(tokens[0].replace("@", ""),
+                argStringParser(tokens), 1.0);
+    }
+
     /**
      * Calls the appropriate Argument constructor on a string token.
      * <p>
@@ -67,8 +87,7 @@ public final class Recommendation extends Predicate {
 
     @Override
     Predicate getPredicateCopy() {
-        return new Recommendation(getPredicateName(), getArguments(),
-                getConfidence());
+        return new Recommendation(this, getConfidence());
     }
 
     /**
@@ -78,7 +97,7 @@ public final class Recommendation extends Predicate {
      * @param tokens string input
      * @return list of string arguments
      */
-    private List<Argument> argStringParser(final String[] tokens) {
+    private static List<Argument> argStringParser(final String[] tokens) {
         final List<Argument> argSet = new ArrayList<>();
         for (int i = 1; i < tokens.length; i++) {
             final Argument argument = makeArgument(tokens[i]);
@@ -111,18 +130,17 @@ public final class Recommendation extends Predicate {
 
         final Recommendation that = (Recommendation) o;
 
-        return new EqualsBuilder()
-                .append(getPredicateName(), that.getPredicateName())
-                .append(getArguments(), that.getArguments())
-                .isEquals();
+        return predicateEquals(that);
     }
 
     @Override
     public int hashCode() {
-        return new HashCodeBuilder()
-                .append(getPredicateName())
-                .append(getArguments())
-                .toHashCode();
+        return getPredicateHashCode();
+    }
+
+    @Override
+    public String toDataString() {
+        return "@" + getPredicateName() + argumentsToDataString();
     }
 
     @Override
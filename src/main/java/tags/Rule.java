@@ -20,6 +20,11 @@ import org.apache.commons.lang3.builder.HashCodeBuilder;
 public final class Rule extends Tag {
     private final Set<Fact> inputFacts;
     private final Set<Predicate> outputPredicates;
+    /**
+     * Cached hash code of a canonical Rule, whose Predicates never change, 0
+     * if not computed yet.
+     */
+    private int hashCode;
 
     /**
      * {@code confidenceValue} defaults to 1.0.
@@ -103,24 +108,52 @@ public final class Rule extends Tag {
      * @see #makeRules(String)
      */
     public Rule(final String string) {
-        this.outputPredicates = new HashSet<>();
-        final List<String> tokens =
-                new ArrayList<>(Arrays.asList(string.split(" ")));
-        final int outputFactIndex = tokens.indexOf("->");
+        this(TagPool.rule(string));
+    }
 
-        for (final String outputFact : tokens
-                .subList(outputFactIndex + 1, tokens.size())) {
-            this.addOutputPredicate(outputFact);
+    /**
+     * Creates a Rule with copies of the input Facts and output Predicates of
+     * the given Rule, which share their immutable structure.
+     *
+     * @param rule the Rule to copy
+     */
+    private Rule(final Rule rule) {
+        this.inputFacts = new HashSet<>();
+        this.outputPredicates = new HashSet<>();
+        for (final Fact inputFact : rule.inputFacts) {
+            this.inputFacts.add((Fact) inputFact.getPredicateCopy());
         }
-
-        final Fact[] arrInputFacts = new Fact[outputFactIndex];
-        for (int i = 0; i < arrInputFacts.length; i++) {
-            final Fact fact = new Fact(tokens.get(i));
-            arrInputFacts[i] = fact;
+        for (final Predicate outputPredicate : rule.outputPredicates) {
+            this.outputPredicates.add(outputPredicate.getPredicateCopy());
         }
+        this.setConfidence(rule.getConfidence());
+    }
 
-        this.inputFacts = new HashSet<>(Arrays.asList(arrInputFacts));
-        this.setConfidence(1.0);
+    /**
+     * Parses a single rule from a string for the {@link TagPool}. The input
+     * Facts and output Predicates are canonical instances of the pool.
+     *
+     * @param string the Rule as a string.
+     * @return the parsed Rule, with a confidence of 1.0
+     * @see #Rule(String)
+     */
+    static Rule parse(final String string) {
+        final List<String> tokens = Arrays.asList(string.split(" "));
+        final int outputFactIndex = tokens.indexOf("->");
+        final Set<Fact> facts = new HashSet<>();
+        for (final String inputFact : tokens.subList(0, outputFactIndex)) {
+            facts.add(TagPool.fact(inputFact));
+        }
+        final Set<Predicate> predicates = new HashSet<>();
+        for (final String outputPredicate
+                : tokens.subList(outputFactIndex + 1, tokens.size())) {
+            if (!outputPredicate.contains("@")) {
+                predicates.add(TagPool.fact(outputPredicate));
+            } else {
+                predicates.add(TagPool.recommendation(outputPredicate));
+            }
+        }
+        return new Rule(facts, predicates, 1.0);
     }
 
     /**
@@ -196,6 +229,24 @@ public final class Rule extends Tag {
         return outputPredicates;
     }
 
+    /**
+     * @return true if the input Facts and output Predicates are all canonical
+     * instances of the {@link TagPool}
+     */
+    boolean hasCanonicalPredicates() {
+        for (final Fact inputFact : inputFacts) {
+            if (!inputFact.isCanonical()) {
+                return false;
+            }
+        }
+        for (final Predicate outputPredicate : outputPredicates) {
+            if (!outputPredicate.isCanonical()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     /**
      * @return the input Facts
      */
@@ -213,15 +264,31 @@ public final class Rule extends Tag {
     /**
      * Sets confidence value of output tags to the product of the confidence
      * value of input tags.
+     * <p>
+     * Canonical Predicates of the {@link TagPool} are never modified: those
+     * whose confidence differs are replaced by copies.
      */
     private void setOutputFactsConfidenceValue() {
         double value = 1.0;
         for (final Fact fact : this.inputFacts) {
             value = value * fact.getConfidence();
         }
+        final List<Predicate> predicates = new ArrayList<>();
         for (final Predicate outputPredicate : this.outputPredicates) {
-            outputPredicate.setConfidence(value);
+            if (!outputPredicate.isCanonical()) {
+                outputPredicate.setConfidence(value);
+                predicates.add(outputPredicate);
+            } else if (Double.compare(
+                    outputPredicate.getConfidence(), value) == 0) {
+                predicates.add(outputPredicate);
+            } else {
+                final Predicate p = outputPredicate.getPredicateCopy();
+                p.setConfidence(value);
+                predicates.add(p);
+            }
         }
+        this.outputPredicates.clear();
+        this.outputPredicates.addAll(predicates);
     }
 
     /**
@@ -262,6 +329,9 @@ public final class Rule extends Tag {
         }
 
         final Rule rule = (Rule) o;
+        if (hashCode() != rule.hashCode()) {
+            return false;
+        }
 
         return new EqualsBuilder()
                 .append(inputFacts, rule.inputFacts)
@@ -269,12 +339,39 @@ public final class Rule extends Tag {
                 .isEquals();
     }
 
+    /**
+     * The hash code of a canonical Rule is computed once, like the hash codes
+     * of its Predicates. The Predicates of other Rules may be modified, so
+     * their hash code is computed from their Predicates every time.
+     *
+     * @return the hash code of the Rule
+     */
     @Override
     public int hashCode() {
-        return new HashCodeBuilder()
-                .append(inputFacts)
-                .append(outputPredicates)
-                .toHashCode();
+        int h = hashCode;
+        if (h == 0) {
+            h = new HashCodeBuilder()
+                    .append(inputFacts)
+                    .append(outputPredicates)
+                    .toHashCode();
+            if (isCanonical()) {
+                hashCode = h;
+            }
+        }
+        return h;
+    }
+
+    @Override
+    public String toDataString() {
+        final StringBuilder sb = new StringBuilder();
+        for (final Fact inputFact : inputFacts) {
+            sb.append(inputFact.toDataString()).append(' ');
+        }
+        sb.append("->");
+        for (final Predicate outputPredicate : outputPredicates) {
+            sb.append(' ').append(outputPredicate.toDataString());
+        }
+        return sb.toString();
     }
 
     @Override
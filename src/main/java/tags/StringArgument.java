@@ -1,5 +1,7 @@
 package tags;
 
+import java.io.DataOutput;
+import java.io.IOException;
 import org.apache.commons.lang3.builder.EqualsBuilder;
 import org.apache.commons.lang3.builder.HashCodeBuilder;
 
@@ -34,6 +36,20 @@ final class StringArgument extends Argument {
         setSymbol(ArgType.STRING);
     }
 
+    /**
+     * Constructor of string Arguments from their fields.
+     *
+     * @param name  the name, empty if none
+     * @param isNeg true if the argument is negated
+     * @param value the value
+     */
+    StringArgument(final String name, final boolean isNeg,
+                   final String value) {
+        super(name, ArgType.STRING);
+        this.isNeg = isNeg;
+        this.value = value;
+    }
+
     /**
      * @return if the argument is negated
      */
@@ -48,6 +64,7 @@ final class StringArgument extends Argument {
      */
     void setNeg(final boolean neg) {
         isNeg = neg;
+        setCachedHashCode(0);
     }
 
     /**
@@ -71,6 +88,24 @@ final class StringArgument extends Argument {
         }
     }
 
+    @Override
+    void writeValue(final DataOutput out) throws IOException {
+        out.writeBoolean(isNeg);
+        out.writeUTF(value);
+    }
+
+    @Override
+    String toDataString() {
+        final StringBuilder sb = new StringBuilder(getName());
+        if (isNeg) {
+            sb.append('!');
+        }
+        if (!getName().isEmpty()) {
+            sb.append('=');
+        }
+        return sb.append(value).toString();
+    }
+
     /**
      * Prints name (when appropriate), symbol and value.
      *
@@ -114,10 +149,15 @@ final class StringArgument extends Argument {
 
     @Override
     public int hashCode() {
-        return new HashCodeBuilder()
-                .append(isNeg)
-                .append(value)
-                .toHashCode();
+        int h = getCachedHashCode();
+        if (h == 0) {
+            h = new HashCodeBuilder()
+                    .append(isNeg)
+                    .append(value)
+                    .toHashCode();
+            setCachedHashCode(h);
+        }
+        return h;
     }
 
     /**
@@ -134,5 +174,6 @@ final class StringArgument extends Argument {
      */
     public void setValue(final String value) {
         this.value = value;
+        setCachedHashCode(0);
     }
 }
@@ -6,6 +6,11 @@ package tags;
  */
 public abstract class Tag {
     private double confidence;
+    /**
+     * true if the Tag is a canonical instance of the {@link TagPool}, which
+     * must never be modified.
+     */
+    private boolean canonical;
 
     /**
      * @return the confidence of the Tag
@@ -23,8 +28,28 @@ public abstract class Tag {
         this.confidence = confidence;
     }
 
+    /**
+     * @return true if the Tag is a canonical instance of the {@link TagPool}
+     */
+    final boolean isCanonical() {
+        return canonical;
+    }
+
+    /**
+     * Marks the Tag as a canonical instance of the {@link TagPool}.
+     */
+    final void setCanonical() {
+        this.canonical = true;
+    }
+
     /**
      * @return a simple String representation of the Tag
      */
     abstract String simpleToString();
+
+    /**
+     * @return the Tag in the format of the KNN data files, which parses back
+     * to an equal Tag
+     */
+    public abstract String toDataString();
 }
@@ -0,0 +1,132 @@
+package tags;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Binary encoding of Tags, e.g., for snapshots of the KNN.
+ * <p>
+ * Tags are written as their structure, i.e., predicate names, arguments and
+ * the Predicates of Rules, so that reading them back does not parse any
+ * String. The Tags read with a confidence of 1.0 are canonical instances of
+ * the {@link TagPool}.
+ */
+public final class TagCodec {
+    private static final byte FACT = 0;
+    private static final byte RECOMMENDATION = 1;
+    private static final byte RULE = 2;
+    private static final double CANONICAL_CONFIDENCE = 1.0;
+
+    private TagCodec() {
+    }
+
+    /**
+     * Writes a Tag.
+     *
+     * @param tag the Tag
+     * @param out the output
+     * @throws IOException if writing fails
+     */
+    public static void write(final Tag tag, final DataOutput out)
+            throws IOException {
+        if (tag instanceof Rule) {
+            final Rule rule = (Rule) tag;
+            out.writeByte(RULE);
+            out.writeDouble(rule.getConfidence());
+            out.writeInt(rule.getInputFacts().size());
+            for (final Fact inputFact : rule.getInputFacts()) {
+                write(inputFact, out);
+            }
+            out.writeInt(rule.getOutputPredicates().size());
+            for (final Predicate outputPredicate : rule.getOutputPredicates()) {
+                write(outputPredicate, out);
+            }
+        } else {
+            final Predicate predicate = (Predicate) tag;
+            if (predicate instanceof Fact) {
+                out.writeByte(FACT);
+            } else {
+                out.writeByte(RECOMMENDATION);
+            }
+            out.writeDouble(predicate.getConfidence());
+            out.writeUTF(predicate.getPredicateName());
+            out.writeInt(predicate.getArguments().size());
+            for (final Argument argument : predicate.getArguments()) {
+                argument.write(out);
+            }
+        }
+    }
+
+    /**
+     * Reads a Tag written by {@link #write(Tag, DataOutput)}.
+     *
+     * @param in the input
+     * @return the Tag
+     * @throws IOException if reading fails, or if the data is not a Tag
+     */
+    public static Tag read(final DataInput in) throws IOException {
+        final byte type = in.readByte();
+        final double confidence = in.readDouble();
+        final boolean canonical =
+                Double.compare(confidence, CANONICAL_CONFIDENCE) == 0;
+        switch (type) {
+            case FACT:
+                final Fact fact = TagPool.intern(new Fact(in.readUTF(),
+                        readArguments(in), CANONICAL_CONFIDENCE));
+                if (canonical) {
+                    return fact;
+                }
+                return new Fact(fact, confidence);
+            case RECOMMENDATION:
+                final Recommendation recommendation = TagPool.intern(
+                        new Recommendation(in.readUTF(), readArguments(in),
+                                CANONICAL_CONFIDENCE));
+                if (canonical) {
+                    return recommendation;
+                }
+                return new Recommendation(recommendation, confidence);
+            case RULE:
+                final Set<Fact> inputFacts = new HashSet<>();
+                final int inputCount = in.readInt();
+                for (int i = 0; i < inputCount; i++) {
+                    inputFacts.add((Fact) read(in));
+                }
+                final Set<Predicate> outputPredicates = new HashSet<>();
+                final int outputCount = in.readInt();
+                for (int i = 0; i < outputCount; i++) {
+                    outputPredicates.add((Predicate) read(in));
+                }
+                if (canonical) {
+                    return TagPool.intern(new Rule(inputFacts,
+                            outputPredicates, CANONICAL_CONFIDENCE));
+                }
+                return new Rule(inputFacts, outputPredicates, confidence);
+            default:
+                throw new IOException(MessageFormat.format(
+                        "Invalid Tag type: {0}.", type));
+        }
+    }
+
+    /**
+     * Reads the arguments of a Predicate.
+     *
+     * @param in the input
+     * @return the arguments
+     * @throws IOException if reading fails
+     */
+    private static List<Argument> readArguments(final DataInput in)
+            throws IOException {
+        final int count = in.readInt();
+        final List<Argument> arguments = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            arguments.add(Argument.read(in));
+        }
+        return arguments;
+    }
+}
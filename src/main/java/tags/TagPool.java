@@ -0,0 +1,210 @@
+package tags;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+
+/**
+ * Pool of canonical Tags parsed from strings. Equal strings are parsed only
+ * once, and the resulting Tags share their immutable structure and cached hash
+ * code, so that equality checks between them short-circuit on identity.
+ * <p>
+ * The canonical Tags have a confidence of 1.0 and are never modified: the
+ * operations which modify Tags in place copy canonical Tags instead.
+ * <p>
+ * The pool only holds its Tags weakly: a canonical Tag no longer referenced
+ * elsewhere is dropped from the pool, and parsed again when needed, so that
+ * the pool does not keep every Tag ever parsed. There is never more than one
+ * canonical Tag per string at a time.
+ */
+public final class TagPool {
+    private static final WeakValueMap<Fact> FACTS = new WeakValueMap<>();
+    private static final WeakValueMap<Recommendation> RECOMMENDATIONS =
+            new WeakValueMap<>();
+    private static final WeakValueMap<Rule> RULES = new WeakValueMap<>();
+
+    private TagPool() {
+    }
+
+    /**
+     * Gets the canonical Fact for the given string.
+     *
+     * @param value the Fact string
+     * @return the canonical Fact
+     * @see Fact#Fact(String)
+     */
+    public static Fact fact(final String value) {
+        return FACTS.computeIfAbsent(value, v -> canonical(Fact.parse(v)));
+    }
+
+    /**
+     * Gets the canonical Recommendation for the given string.
+     *
+     * @param value the Recommendation string
+     * @return the canonical Recommendation
+     * @see Recommendation#Recommendation(String)
+     */
+    public static Recommendation recommendation(final String value) {
+        return RECOMMENDATIONS.computeIfAbsent(
+                value, v -> canonical(Recommendation.parse(v)));
+    }
+
+    /**
+     * Gets the canonical Rule for the given string.
+     *
+     * @param value the Rule string
+     * @return the canonical Rule
+     * @see Rule#Rule(String)
+     */
+    public static Rule rule(final String value) {
+        return RULES.computeIfAbsent(value, v -> canonical(Rule.parse(v)));
+    }
+
+    /**
+     * Gets the canonical Fact equal to the given one, which becomes canonical
+     * if the pool has none yet.
+     *
+     * @param fact the Fact, with a confidence of 1.0
+     * @return the canonical Fact
+     */
+    static Fact intern(final Fact fact) {
+        return FACTS.computeIfAbsent(
+                fact.toDataString(), v -> canonical(fact));
+    }
+
+    /**
+     * Gets the canonical Recommendation equal to the given one, which becomes
+     * canonical if the pool has none yet.
+     *
+     * @param recommendation the Recommendation, with a confidence of 1.0
+     * @return the canonical Recommendation
+     */
+    static Recommendation intern(final Recommendation recommendation) {
+        return RECOMMENDATIONS.computeIfAbsent(
+                recommendation.toDataString(), v -> canonical(recommendation));
+    }
+
+    /**
+     * Gets the canonical Rule equal to the given one, which becomes canonical
+     * if the pool has none yet. A Rule with Predicates which are not
+     * canonical may still be modified, so it is returned as is.
+     *
+     * @param rule the Rule, with a confidence of 1.0
+     * @return the canonical Rule, or the given Rule
+     */
+    static Rule intern(final Rule rule) {
+        if (!rule.hasCanonicalPredicates()) {
+            return rule;
+        }
+        return RULES.computeIfAbsent(
+                rule.toDataString(), v -> canonical(rule));
+    }
+
+    /**
+     * Marks the given Tag as canonical.
+     *
+     * @param tag the Tag
+     * @param <T> the type of the Tag
+     * @return the Tag
+     */
+    private static <T extends Tag> T canonical(final T tag) {
+        tag.setCanonical();
+        return tag;
+    }
+
+    /**
+     * @return the number of canonical Tags in the pool which are still
+     * referenced
+     */
+    public static int size() {
+        return FACTS.size() + RECOMMENDATIONS.size() + RULES.size();
+    }
+
+    /**
+     * Concurrent map from strings to weakly referenced values. The entries
+     * whose values were collected are removed on the next access.
+     *
+     * @param <T> the type of the values
+     */
+    private static final class WeakValueMap<T> {
+        private final ConcurrentMap<String, ValueReference<T>> map =
+                new ConcurrentHashMap<>();
+        private final ReferenceQueue<T> queue = new ReferenceQueue<>();
+
+        /**
+         * Gets the value of the given key, computing it if the map has none,
+         * or if it was collected.
+         *
+         * @param key     the key
+         * @param compute the function computing the value of the key
+         * @return the value of the key
+         */
+        T computeIfAbsent(final String key,
+                          final Function<String, T> compute) {
+            removeCollected();
+            while (true) {
+                final ValueReference<T> reference = map.get(key);
+                if (reference != null) {
+                    final T value = reference.get();
+                    if (value != null) {
+                        return value;
+                    }
+                }
+                final T value = compute.apply(key);
+                final ValueReference<T> newReference =
+                        new ValueReference<>(key, value, queue);
+                if (reference == null) {
+                    if (map.putIfAbsent(key, newReference) == null) {
+                        return value;
+                    }
+                } else if (map.replace(key, reference, newReference)) {
+                    return value;
+                }
+            }
+        }
+
+        /**
+         * @return the number of values which were not collected yet
+         */
+        int size() {
+            removeCollected();
+            return map.size();
+        }
+
+        /**
+         * Removes the entries whose values were collected.
+         */
+        @SuppressWarnings("unchecked")
+        private void removeCollected() {
+            ValueReference<T> reference;
+            while ((reference = (ValueReference<T>) queue.poll()) != null) {
+                map.remove(reference.key, reference);
+            }
+        }
+    }
+
+    /**
+     * Weak reference to a value of a {@link WeakValueMap}, which knows its
+     * key.
+     *
+     * @param <T> the type of the value
+     */
+    private static final class ValueReference<T> extends WeakReference<T> {
+        private final String key;
+
+        /**
+         * Creates a reference registered with the given queue.
+         *
+         * @param key   the key of the value
+         * @param value the value
+         * @param queue the queue of the collected values of the map
+         */
+        private ValueReference(final String key, final T value,
+                               final ReferenceQueue<T> queue) {
+            super(value, queue);
+            this.key = key;
+        }
+    }
+}
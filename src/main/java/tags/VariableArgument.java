@@ -1,5 +1,6 @@
 package tags;
 
+import java.io.DataOutput;
 import org.apache.commons.lang3.builder.EqualsBuilder;
 import org.apache.commons.lang3.builder.HashCodeBuilder;
 
@@ -35,6 +36,35 @@ final class VariableArgument extends Argument {
         }
     }
 
+    /**
+     * Constructor of variable Arguments from their fields.
+     *
+     * @param name   the name
+     * @param symbol the symbol, null for a named argument without variable
+     */
+    VariableArgument(final String name, final ArgType symbol) {
+        super(name, symbol);
+    }
+
+    @Override
+    void writeValue(final DataOutput out) {
+        // The name and symbol are the whole argument
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * A named argument without a variable, e.g. {@code a=?}, is parsed as a
+     * variable argument without symbol, which is rendered the same way.
+     */
+    @Override
+    String toDataString() {
+        if (getSymbol() == null) {
+            return getName() + "=?";
+        }
+        return getName();
+    }
+
     /**
      * Prints name (when appropriate), and type.
      *
@@ -87,9 +117,14 @@ final class VariableArgument extends Argument {
      */
     @Override
     public int hashCode() {
-        return new HashCodeBuilder()
-                .append(getName())
-                .append(getSymbol())
-                .toHashCode();
+        int h = getCachedHashCode();
+        if (h == 0) {
+            h = new HashCodeBuilder()
+                    .append(getName())
+                    .append(getSymbol())
+                    .toHashCode();
+            setCachedHashCode(h);
+        }
+        return h;
     }
 }
@@ -0,0 +1,152 @@
+package async;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.fail;
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertFalse;
+import static org.testng.AssertJUnit.assertTrue;
+
+public class AsyncTasksTest {
+    private ExecutorService executor;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        executor = Executors.newSingleThreadExecutor();
+    }
+
+    @AfterMethod
+    public void tearDown() throws Exception {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Runs a task which loops until it is cancelled, after counting down the given latch.
+     */
+    private CompletableFuture<Integer> supplyUntilCancelled(final CountDownLatch started,
+                                                           final AtomicBoolean stopped) {
+        return AsyncTasks.supplyAsync(cancelled -> {
+            started.countDown();
+            try {
+                while (!cancelled.getAsBoolean()) {
+                    Thread.yield();
+                }
+                throw new CancellationException();
+            } finally {
+                stopped.set(true);
+            }
+        }, executor);
+    }
+
+    @Test
+    public void mustSupplyAsync() throws Exception {
+        // when
+        final CompletableFuture<Integer> future = AsyncTasks.supplyAsync(() -> 1, executor);
+
+        // then
+        assertEquals(Integer.valueOf(1), future.get(1, TimeUnit.MINUTES));
+    }
+
+    @Test
+    public void mustCompleteExceptionallyWhenTaskFails() throws Exception {
+        // given
+        final IllegalStateException exception = new IllegalStateException();
+
+        // when
+        final CompletableFuture<Integer> future = AsyncTasks.supplyAsync(() -> {
+            throw exception;
+        }, executor);
+
+        // then
+        try {
+            future.get(1, TimeUnit.MINUTES);
+            fail();
+        } catch (final ExecutionException e) {
+            assertEquals(exception, e.getCause());
+        }
+    }
+
+    @Test
+    public void mustStopTaskWhenCancelled() throws Exception {
+        // given
+        final CountDownLatch started = new CountDownLatch(1);
+        final AtomicBoolean stopped = new AtomicBoolean();
+        final CompletableFuture<Integer> future = supplyUntilCancelled(started, stopped);
+        started.await(1, TimeUnit.MINUTES);
+
+        // when
+        future.cancel(true);
+
+        // then
+        assertTrue(future.isCancelled());
+        final CompletableFuture<Boolean> next =
+                AsyncTasks.supplyAsync(() -> Thread.currentThread().isInterrupted(), executor);
+        assertFalse(next.get(1, TimeUnit.MINUTES));
+        assertTrue(stopped.get());
+    }
+
+    @Test
+    public void mustNotRunTaskCancelledBeforeStarting() throws Exception {
+        // given
+        final CountDownLatch started = new CountDownLatch(1);
+        final AtomicBoolean stopped = new AtomicBoolean();
+        final CompletableFuture<Integer> running = supplyUntilCancelled(started, stopped);
+        final AtomicBoolean ran = new AtomicBoolean();
+        final CompletableFuture<Boolean> waiting = AsyncTasks.supplyAsync(() -> ran.getAndSet(true), executor);
+        started.await(1, TimeUnit.MINUTES);
+
+        // when
+        waiting.cancel(true);
+        running.cancel(true);
+
+        // then
+        AsyncTasks.supplyAsync(() -> 0, executor).get(1, TimeUnit.MINUTES);
+        assertTrue(waiting.isCancelled());
+        assertFalse(ran.get());
+    }
+
+    @Test
+    public void mustCompleteExceptionallyWhenRejected() throws Exception {
+        // given
+        executor.shutdown();
+
+        // when
+        final CompletableFuture<Integer> future = AsyncTasks.supplyAsync(() -> 1, executor);
+
+        // then
+        assertTrue(future.isCompletedExceptionally());
+    }
+
+    @Test
+    public void mustRunOnDefaultExecutor() throws Exception {
+        // given
+        final ExecutorService defaultExecutor = AsyncExecutors.newDefaultExecutor();
+
+        // when
+        final CompletableFuture<Integer> future = AsyncTasks.supplyAsync(() -> 1, defaultExecutor);
+
+        // then
+        assertEquals(Integer.valueOf(1), future.get(1, TimeUnit.MINUTES));
+        defaultExecutor.shutdown();
+    }
+
+    @Test
+    public void mustRunOnSharedExecutor() throws Exception {
+        // when
+        final CompletableFuture<Integer> future =
+                AsyncTasks.supplyAsync(() -> 1, AsyncExecutors.getSharedExecutor());
+
+        // then
+        assertEquals(Integer.valueOf(1), future.get(1, TimeUnit.MINUTES));
+    }
+}
@@ -0,0 +1,154 @@
+package async;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.fail;
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertFalse;
+import static org.testng.AssertJUnit.assertTrue;
+
+public class SerialExecutorTest {
+    private static final int TASKS = 100;
+    private ExecutorService executor;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        executor = Executors.newFixedThreadPool(4);
+    }
+
+    @AfterMethod
+    public void tearDown() throws Exception {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void mustRunTasksOneAtATimeInOrder() throws Exception {
+        // given
+        final SerialExecutor serialExecutor = new SerialExecutor(executor);
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicBoolean overlapped = new AtomicBoolean();
+        final List<Integer> order = Collections.synchronizedList(new ArrayList<>());
+        final List<CompletableFuture<Integer>> futures = new ArrayList<>();
+
+        // when
+        for (int i = 0; i < TASKS; i++) {
+            final int task = i;
+            futures.add(AsyncTasks.supplyAsync(() -> {
+                if (running.incrementAndGet() > 1) {
+                    overlapped.set(true);
+                }
+                order.add(task);
+                Thread.yield();
+                running.decrementAndGet();
+                return task;
+            }, serialExecutor));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).get(1, TimeUnit.MINUTES);
+
+        // then
+        assertFalse(overlapped.get());
+        for (int i = 0; i < TASKS; i++) {
+            assertEquals(Integer.valueOf(i), order.get(i));
+        }
+    }
+
+    @Test
+    public void mustNotRunQueuedTaskCancelledBeforeStarting() throws Exception {
+        // given
+        final SerialExecutor serialExecutor = new SerialExecutor(executor);
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final CompletableFuture<Integer> running = AsyncTasks.supplyAsync(() -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return 0;
+        }, serialExecutor);
+        final AtomicBoolean ran = new AtomicBoolean();
+        final CompletableFuture<Boolean> waiting = AsyncTasks.supplyAsync(() -> ran.getAndSet(true), serialExecutor);
+        started.await(1, TimeUnit.MINUTES);
+
+        // when
+        waiting.cancel(true);
+        release.countDown();
+
+        // then
+        assertEquals(Integer.valueOf(0), running.get(1, TimeUnit.MINUTES));
+        assertEquals(Boolean.FALSE, AsyncTasks.supplyAsync(ran::get, serialExecutor).get(1, TimeUnit.MINUTES));
+        assertTrue(waiting.isCancelled());
+    }
+
+    @Test
+    public void mustRunNextTaskOnlyWhenCancelledTaskStops() throws Exception {
+        // given
+        final SerialExecutor serialExecutor = new SerialExecutor(executor);
+        final CountDownLatch started = new CountDownLatch(1);
+        final AtomicBoolean stopped = new AtomicBoolean();
+        final CompletableFuture<Integer> running = AsyncTasks.supplyAsync(cancelled -> {
+            started.countDown();
+            while (!cancelled.getAsBoolean()) {
+                Thread.yield();
+            }
+            stopped.set(true);
+            return 0;
+        }, serialExecutor);
+        final CompletableFuture<Boolean> next = AsyncTasks.supplyAsync(stopped::get, serialExecutor);
+        started.await(1, TimeUnit.MINUTES);
+
+        // when
+        running.cancel(true);
+
+        // then
+        assertTrue(next.get(1, TimeUnit.MINUTES));
+    }
+
+    @Test
+    public void mustRejectQueuedTasksWhenExecutorRejectsThem() throws Exception {
+        // given
+        final SerialExecutor serialExecutor = new SerialExecutor(executor);
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final CompletableFuture<Integer> running = AsyncTasks.supplyAsync(() -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return 0;
+        }, serialExecutor);
+        final CompletableFuture<Integer> queued = AsyncTasks.supplyAsync(() -> 1, serialExecutor);
+        started.await(1, TimeUnit.MINUTES);
+
+        // when
+        executor.shutdown();
+        release.countDown();
+
+        // then
+        assertEquals(Integer.valueOf(0), running.get(1, TimeUnit.MINUTES));
+        try {
+            queued.get(1, TimeUnit.MINUTES);
+            fail();
+        } catch (final ExecutionException e) {
+            assertTrue(e.getCause() instanceof RejectedExecutionException);
+        }
+        assertTrue(AsyncTasks.supplyAsync(() -> 2, serialExecutor).isCompletedExceptionally());
+    }
+}
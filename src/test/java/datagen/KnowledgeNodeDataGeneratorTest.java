@@ -0,0 +1,124 @@
+package datagen;
+
+import com.google.inject.Guice;
+import knn.api.KnowledgeNode;
+import knn.api.KnowledgeNodeNetwork;
+import knn.api.KnowledgeNodeNetworkFactory;
+import knn.guice.KnowledgeNodeNetworkModule;
+import org.testng.annotations.Test;
+import tags.Fact;
+import tags.Recommendation;
+import tags.Rule;
+import tags.Tag;
+
+import java.io.File;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotEquals;
+import static org.testng.Assert.assertTrue;
+
+public class KnowledgeNodeDataGeneratorTest {
+    private static final int NODE_COUNT = 1000;
+
+    private static KnowledgeNodeDataGenerator generator(final DegreeDistribution degreeDistribution, final long seed) {
+        return new KnowledgeNodeDataGenerator(NODE_COUNT, degreeDistribution, TagMix.DEFAULT, 0.1, seed);
+    }
+
+    @Test
+    public void mustBeReproducible() throws Exception {
+        // given
+        final StringWriter writer = new StringWriter();
+        final StringWriter sameSeedWriter = new StringWriter();
+        final StringWriter otherSeedWriter = new StringWriter();
+
+        // when
+        generator(DegreeDistribution.uniform(1, 5), 1).write(writer);
+        generator(DegreeDistribution.uniform(1, 5), 1).write(sameSeedWriter);
+        generator(DegreeDistribution.uniform(1, 5), 2).write(otherSeedWriter);
+
+        // then
+        assertEquals(writer.toString(), sameSeedWriter.toString());
+        assertNotEquals(writer.toString(), otherSeedWriter.toString());
+        assertEquals(writer.toString().split("\n").length, NODE_COUNT);
+        assertTrue(writer.toString().startsWith(generator(DegreeDistribution.uniform(1, 5), 1).knowledgeNode(0)));
+    }
+
+    @Test
+    public void mustGenerateValidKnowledgeNodes() throws Exception {
+        // given
+        final KnowledgeNodeDataGenerator generator = generator(DegreeDistribution.uniform(2, 6), 0);
+        final Set<Class<?>> outputTagTypes = new HashSet<>();
+
+        for (int i = 0; i < NODE_COUNT; i++) {
+            // when
+            final KnowledgeNode kn = new KnowledgeNode(generator.knowledgeNode(i));
+
+            // then
+            assertEquals(kn.getInputTag(), new KnowledgeNode(generator.inputTag(i) + "; 1").getInputTag());
+            assertTrue(kn.getOutputTags().size() <= 6);
+            assertFalse(kn.getOutputTags().isEmpty());
+            for (Tag t : kn.getOutputTags()) {
+                outputTagTypes.add(t.getClass());
+            }
+        }
+        assertEquals(outputTagTypes, new HashSet<>(Arrays.asList(
+                Fact.class, Recommendation.class, Rule.class)));
+    }
+
+    @Test
+    public void mustSamplePowerLawDegrees() {
+        // given
+        final DegreeDistribution degreeDistribution = DegreeDistribution.powerLaw(1, 100, 2.5);
+        final SplittableRandom random = new SplittableRandom(0);
+        int ones = 0;
+        int max = 0;
+
+        // when
+        for (int i = 0; i < NODE_COUNT; i++) {
+            final int degree = degreeDistribution.sample(random);
+            assertTrue(degree >= 1 && degree <= 100);
+            if (degree == 1) {
+                ones++;
+            }
+            max = Math.max(max, degree);
+        }
+
+        // then
+        assertTrue(ones > NODE_COUNT / 2);
+        assertTrue(max > 10);
+    }
+
+    @Test
+    public void mustLoadGeneratedFile() throws Exception {
+        // given
+        final File file = File.createTempFile("knn", ".txt");
+        file.deleteOnExit();
+        final KnowledgeNodeDataGenerator generator = generator(DegreeDistribution.uniform(1, 4), 0);
+        final KnowledgeNodeNetwork knn = Guice.createInjector(new KnowledgeNodeNetworkModule())
+                .getInstance(KnowledgeNodeNetworkFactory.class)
+                .create(new HashMap<>(), new HashSet<>(), 1, Long.MAX_VALUE);
+
+        // when
+        KnowledgeNodeDataGenerator.main(new String[]{file.getPath(), String.valueOf(NODE_COUNT), "7"});
+        generator.write(file.getPath());
+        knn.loadData(file.getPath());
+
+        // then
+        assertEquals(knn.getKnowledgeNodes().size(), NODE_COUNT);
+        final Tag inputTag = new KnowledgeNode(generator.knowledgeNode(0)).getInputTag();
+        assertEquals(knn.getKnowledgeNode(inputTag).getOutputTags(),
+                new KnowledgeNode(generator.knowledgeNode(0)).getOutputTags());
+        final Set<Tag> inputTags = new HashSet<>();
+        for (KnowledgeNode kn : knn.getKnowledgeNodes()) {
+            inputTags.add(kn.getInputTag());
+        }
+        assertTrue(knn.forwardSearch(inputTags, 0).size() > NODE_COUNT / 4);
+    }
+}
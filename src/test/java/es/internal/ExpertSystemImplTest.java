@@ -53,7 +53,7 @@ public class ExpertSystemImplTest {
         expected.add(recommendation);
 
         // given
-        when(thinker.think(false, Integer.MAX_VALUE)).thenReturn(expected);
+        when(thinker.think(false, Integer.MAX_VALUE, Thinker.NOT_CANCELLED)).thenReturn(expected);
 
         // when
         final Set<Recommendation> actual = es.think();
@@ -69,7 +69,7 @@ public class ExpertSystemImplTest {
         expected.add(recommendation);
 
         // given
-        when(thinker.think(false, Integer.MAX_VALUE)).thenReturn(expected);
+        when(thinker.think(false, Integer.MAX_VALUE, Thinker.NOT_CANCELLED)).thenReturn(expected);
 
         // when
         final Set<Recommendation> actual = es.think(false);
@@ -85,7 +85,7 @@ public class ExpertSystemImplTest {
         expected.add(recommendation);
 
         // given
-        when(thinker.think(true, Integer.MAX_VALUE)).thenReturn(expected);
+        when(thinker.think(true, Integer.MAX_VALUE, Thinker.NOT_CANCELLED)).thenReturn(expected);
 
         // when
         final Set<Recommendation> actual = es.think(true);
@@ -101,7 +101,7 @@ public class ExpertSystemImplTest {
         expected.add(recommendation);
 
         // given
-        when(thinker.think(true, NUM_TEST_CYCLES)).thenReturn(expected);
+        when(thinker.think(true, NUM_TEST_CYCLES, Thinker.NOT_CANCELLED)).thenReturn(expected);
 
         // when
         final Set<Recommendation> actual = es.think(true, NUM_TEST_CYCLES);
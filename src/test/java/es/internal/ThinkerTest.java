@@ -4,6 +4,8 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicBoolean;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 import tags.Fact;
@@ -12,8 +14,12 @@ import tags.Recommendation;
 import tags.Rule;
 
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.testng.Assert.fail;
 import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertTrue;
 
 public class ThinkerTest {
     private Thinker thinker;
@@ -50,10 +56,33 @@ public class ThinkerTest {
         when(thinkCycleExecutor.thinkCycle()).thenReturn(activatedPredicates);
 
         // when
-        final Set<Recommendation> actualActivatedRecommendations = thinker.think(false, 1);
+        final Set<Recommendation> actualActivatedRecommendations = thinker.think(false, 1, Thinker.NOT_CANCELLED);
 
         // then
         assertEquals(expectedActivatedRecommendations, actualActivatedRecommendations);
     }
 
+    @Test
+    public void mustStopThinkingWhenCancelled() throws Exception {
+        final Set<Predicate> activatedPredicates = Collections.singleton(new Fact("P(B)"));
+
+        final AtomicBoolean cancelled = new AtomicBoolean();
+
+        // given
+        when(thinkCycleExecutor.thinkCycle()).thenAnswer(invocation -> {
+            cancelled.set(true);
+            return activatedPredicates;
+        });
+
+        // when
+        try {
+            thinker.think(true, 3, cancelled::get);
+            fail();
+        } catch (final CancellationException e) {
+            // then
+            verify(thinkCycleExecutor, times(1)).thinkCycle();
+            assertTrue(readyRules.isEmpty());
+        }
+    }
+
 }
\ No newline at end of file
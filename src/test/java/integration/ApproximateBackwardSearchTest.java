@@ -0,0 +1,74 @@
+package integration;
+
+import knn.api.BackwardSearchApproximation;
+import knn.api.KnowledgeNode;
+import knn.api.KnowledgeNodeNetwork;
+import knn.api.KnowledgeNodeNetworkEngine;
+import knn.guice.KnowledgeNodeNetworkModule;
+import org.testng.annotations.Test;
+import tags.Tag;
+
+import java.util.Set;
+
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Checks that the approximate backward search of every KNN engine only activates Tags activated by the exact backward
+ * search when it verifies its candidates, and always finds the KNs whose output Tags, if any, are the input Tags. The engines
+ * which do not support the approximation search exactly.
+ */
+public class ApproximateBackwardSearchTest {
+    private static final String ANIMAL_DATA_PATH = "data/animalData.txt";
+
+    private static KnowledgeNodeNetwork createKnn(final KnowledgeNodeNetworkEngine engine,
+                                                  final BackwardSearchApproximation approximation) {
+        final KnowledgeNodeNetwork knn = TestKnowledgeNodeNetworks.create(KnowledgeNodeNetworkModule.builder()
+                .engine(engine)
+                .backwardSearchApproximation(approximation), 0.5, Long.MAX_VALUE);
+        knn.loadData(ANIMAL_DATA_PATH);
+        return knn;
+    }
+
+    @Test
+    public void mustOnlyActivateExactMatchesIfVerified() {
+        for (KnowledgeNodeNetworkEngine engine : KnowledgeNodeNetworkEngine.values()) {
+            // given
+            final KnowledgeNodeNetwork exactKnn = createKnn(engine, BackwardSearchApproximation.EXACT);
+            final KnowledgeNodeNetwork knn = createKnn(engine, new BackwardSearchApproximation(16, 1, true));
+
+            for (KnowledgeNode kn : exactKnn.getKnowledgeNodes()) {
+                if (kn.getOutputTags().isEmpty()) {
+                    continue;
+                }
+
+                // when
+                final Set<Tag> exact = exactKnn.openSession().backwardSearch(kn.getOutputTags(), 1);
+                final Set<Tag> approximate = knn.openSession().backwardSearch(kn.getOutputTags(), 1);
+
+                // then
+                assertTrue(exact.containsAll(approximate), engine.name());
+                assertTrue(approximate.contains(kn.getInputTag()), engine.name());
+            }
+        }
+    }
+
+    @Test
+    public void mustActivateEstimatedMatchesIfNotVerified() {
+        for (KnowledgeNodeNetworkEngine engine : KnowledgeNodeNetworkEngine.values()) {
+            // given
+            final KnowledgeNodeNetwork knn = createKnn(engine, new BackwardSearchApproximation(16, 1, false));
+
+            for (KnowledgeNode kn : knn.getKnowledgeNodes()) {
+                if (kn.getOutputTags().isEmpty()) {
+                    continue;
+                }
+
+                // when
+                final Set<Tag> approximate = knn.openSession().backwardSearch(kn.getOutputTags(), 1);
+
+                // then
+                assertTrue(approximate.contains(kn.getInputTag()), engine.name());
+            }
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package integration;
+
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import es.api.AsyncExpertSystem;
+import es.api.ExpertSystem;
+import knn.api.AsyncKnowledgeNodeNetwork;
+import knn.api.AsyncKnowledgeNodeNetworkFactory;
+import knn.api.KnowledgeNode;
+import knn.api.KnowledgeNodeNetwork;
+import knn.api.KnowledgeNodeNetworkEngine;
+import knn.api.SearchListener;
+import knn.api.SearchTrace;
+import knn.guice.KnowledgeNodeNetworkModule;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import prometheus.api.Prometheus;
+import prometheus.guice.PrometheusModule;
+import tags.Fact;
+import tags.Recommendation;
+import tags.Rule;
+import tags.Tag;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Checks that the asynchronous searches of every KNN engine, and the asynchronous thinking of the ES, give the same
+ * results as the blocking ones, and stop when cancelled.
+ */
+public class AsyncSearchTest {
+    private static final int CHAIN_LENGTH = 10;
+    private static final int REQUESTS = 1000;
+    private ExecutorService executor;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        executor = Executors.newFixedThreadPool(4);
+    }
+
+    @AfterMethod
+    public void tearDown() throws Exception {
+        executor.shutdownNow();
+    }
+
+    private static Tag tag(final int i) {
+        return new Fact("T" + i + "(x)");
+    }
+
+    /**
+     * Creates a KNN with the chain of KNs T0 -> T1 -> ... -> T{CHAIN_LENGTH}, listened to by the given listener.
+     */
+    private static Injector createInjector(final KnowledgeNodeNetworkEngine engine, final SearchListener listener) {
+        return Guice.createInjector(KnowledgeNodeNetworkModule.builder()
+                .engine(engine)
+                .searchListener(listener)
+                .asyncSearch(true)
+                .build());
+    }
+
+    private static KnowledgeNodeNetwork createKnn(final Injector injector) {
+        final KnowledgeNodeNetwork knn = TestKnowledgeNodeNetworks.create(injector);
+        for (int i = 0; i < CHAIN_LENGTH; i++) {
+            knn.addKnowledgeNode(new KnowledgeNode(tag(i), Collections.singleton(tag(i + 1)), 1));
+        }
+        return knn;
+    }
+
+    @Test
+    public void mustSearchAsync() throws Exception {
+        for (KnowledgeNodeNetworkEngine engine : KnowledgeNodeNetworkEngine.values()) {
+            // given
+            final Injector injector = createInjector(engine, SearchListener.NONE);
+            final KnowledgeNodeNetwork expectedKnn = createKnn(injector);
+            final AsyncKnowledgeNodeNetwork asyncKnn = injector.getInstance(AsyncKnowledgeNodeNetworkFactory.class)
+                    .create(createKnn(injector), executor);
+
+            // when
+            final Set<Tag> forward = asyncKnn.forwardSearchAsync(Collections.singleton(tag(0)), 3)
+                    .get(1, TimeUnit.MINUTES);
+            final Set<Tag> backward = asyncKnn.backwardSearchAsync(Collections.singleton(tag(CHAIN_LENGTH)), 0)
+                    .get(1, TimeUnit.MINUTES);
+
+            // then
+            assertEquals(forward, expectedKnn.forwardSearch(Collections.singleton(tag(0)), 3), engine.name());
+            assertEquals(backward, expectedKnn.backwardSearch(Collections.singleton(tag(CHAIN_LENGTH)), 0),
+                    engine.name());
+            assertEquals(asyncKnn.getKnowledgeNodeNetwork().getActiveTags(), expectedKnn.getActiveTags(),
+                    engine.name());
+        }
+    }
+
+    @Test
+    public void mustServeManyRequests() throws Exception {
+        for (KnowledgeNodeNetworkEngine engine : KnowledgeNodeNetworkEngine.values()) {
+            // given
+            final Injector injector = createInjector(engine, SearchListener.NONE);
+            final AsyncKnowledgeNodeNetwork asyncKnn = injector.getInstance(AsyncKnowledgeNodeNetworkFactory.class)
+                    .create(createKnn(injector), executor);
+
+            // when
+            final List<CompletableFuture<Set<Tag>>> futures = new ArrayList<>();
+            for (int i = 0; i < REQUESTS; i++) {
+                futures.add(asyncKnn.backwardSearchAsync(Collections.singleton(tag(i % (CHAIN_LENGTH + 1))), 1));
+            }
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).get(1, TimeUnit.MINUTES);
+
+            // then
+            final Set<Tag> expectedActiveTags = new HashSet<>();
+            for (int i = 0; i < CHAIN_LENGTH; i++) {
+                expectedActiveTags.add(tag(i));
+            }
+            assertEquals(asyncKnn.getKnowledgeNodeNetwork().getActiveTags(), expectedActiveTags, engine.name());
+        }
+    }
+
+    @Test
+    public void mustStopSearchWhenCancelled() throws Exception {
+        for (KnowledgeNodeNetworkEngine engine : KnowledgeNodeNetworkEngine.values()) {
+            // given
+            final CountDownLatch plyStarted = new CountDownLatch(1);
+            final CountDownLatch cancelled = new CountDownLatch(1);
+            final AtomicInteger plies = new AtomicInteger();
+            final SearchListener listener = type -> new SearchTrace() {
+                @Override
+                public void plyStarted(final int ply, final int inputTags) {
+                    plies.incrementAndGet();
+                    if (ply == 1) {
+                        plyStarted.countDown();
+                        try {
+                            cancelled.await();
+                        } catch (final InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                    }
+                }
+            };
+            executor.shutdown();
+            executor = Executors.newSingleThreadExecutor();
+            final Injector injector = createInjector(engine, listener);
+            final AsyncKnowledgeNodeNetwork asyncKnn = injector.getInstance(AsyncKnowledgeNodeNetworkFactory.class)
+                    .create(createKnn(injector), executor);
+            final CompletableFuture<Set<Tag>> future = asyncKnn.forwardSearchAsync(Collections.singleton(tag(0)), 0);
+            plyStarted.await(1, TimeUnit.MINUTES);
+
+            // when
+            future.cancel(true);
+            cancelled.countDown();
+
+            // then
+            assertTrue(future.isCancelled(), engine.name());
+            asyncKnn.directSearchAsync(tag(CHAIN_LENGTH)).get(1, TimeUnit.MINUTES);
+            assertEquals(plies.get(), 2, engine.name());
+        }
+    }
+
+    @Test
+    public void mustThinkAsync() throws Exception {
+        // given
+        final Prometheus prometheus = Guice.createInjector(new PrometheusModule(executor))
+                .getInstance(Prometheus.class);
+        final AsyncExpertSystem asyncEs = prometheus.getAsyncExpertSystem();
+        final ExpertSystem es = asyncEs.getExpertSystem();
+        es.addReadyRule(new Rule("A(*), B(*) -> D(*)"));
+        es.addReadyRule(new Rule("D(*) -> @Z(*)"));
+        es.addFact(new Fact("A(*)"));
+        es.addFact(new Fact("B(*)"));
+
+        // when
+        final Set<Recommendation> recommendations = asyncEs.thinkAsync().get(1, TimeUnit.MINUTES);
+
+        // then
+        assertEquals(recommendations, Collections.singleton(new Recommendation("@Z(*)")));
+        assertEquals(prometheus.getAsyncKnowledgeNodeNetwork().getKnowledgeNodeNetwork(),
+                prometheus.getKnowledgeNodeNetwork());
+    }
+}
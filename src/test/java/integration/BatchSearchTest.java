@@ -0,0 +1,155 @@
+package integration;
+
+import knn.api.KnowledgeNode;
+import knn.api.KnowledgeNodeNetwork;
+import knn.api.KnowledgeNodeNetworkEngine;
+import knn.api.SearchSession;
+import knn.guice.KnowledgeNodeNetworkModule;
+import org.testng.annotations.Test;
+import tags.Fact;
+import tags.Tag;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.testng.Assert.assertEquals;
+
+/**
+ * Checks that every KNN engine searches a batch of queries with the same results, and the same resulting KNN, as
+ * searching the queries one by one.
+ */
+public class BatchSearchTest {
+    private static final long SEED = 42;
+    private static final int NETWORK_SIZE = 200;
+    private static final int FAN_OUT = 3;
+    private static final int QUERIES = 50;
+    private static final int[] THRESHOLDS = {1, 150, 250};
+    private final Tag[] tags = new Tag[NETWORK_SIZE];
+
+    public BatchSearchTest() {
+        for (int i = 0; i < NETWORK_SIZE; i++) {
+            tags[i] = new Fact("N(x" + i + ")");
+        }
+    }
+
+    /**
+     * Creates a random KNN, the same for every seed, whose KNs fire after one, two or three excitations.
+     */
+    private KnowledgeNodeNetwork createKnn(final KnowledgeNodeNetworkEngine engine, final double ratio) {
+        final KnowledgeNodeNetwork knn = TestKnowledgeNodeNetworks.create(KnowledgeNodeNetworkModule.builder()
+                .engine(engine), ratio, Long.MAX_VALUE);
+        final Random random = new Random(SEED);
+        for (int i = 0; i < NETWORK_SIZE; i++) {
+            final Set<Tag> outputTags = new HashSet<>();
+            for (int j = 0; j < FAN_OUT; j++) {
+                outputTags.add(tags[random.nextInt(NETWORK_SIZE)]);
+            }
+            knn.addKnowledgeNode(new KnowledgeNode(tags[i], outputTags, THRESHOLDS[random.nextInt(THRESHOLDS.length)]));
+        }
+        return knn;
+    }
+
+    /**
+     * Creates random queries, some of which are repeated.
+     */
+    private List<Set<Tag>> createQueries() {
+        final Random random = new Random(SEED + 1);
+        final List<Set<Tag>> queries = new ArrayList<>();
+        for (int i = 0; i < QUERIES; i++) {
+            if (i > 0 && random.nextInt(4) == 0) {
+                queries.add(queries.get(random.nextInt(i)));
+            } else {
+                queries.add(new HashSet<>(Arrays.asList(tags[random.nextInt(NETWORK_SIZE)],
+                        tags[random.nextInt(NETWORK_SIZE)])));
+            }
+        }
+        return queries;
+    }
+
+    private static void assertSameKnowledgeNodes(final KnowledgeNodeNetwork actual,
+                                                 final KnowledgeNodeNetwork expected, final String message) {
+        assertEquals(actual.getActiveTags(), expected.getActiveTags(), message);
+        for (final KnowledgeNode kn : expected.getKnowledgeNodes()) {
+            final KnowledgeNode actualKn = actual.getKnowledgeNode(kn.getInputTag());
+            assertEquals(actualKn.getActivation(), kn.getActivation(), message);
+            assertEquals(actualKn.isFired(), kn.isFired(), message);
+        }
+    }
+
+    @Test
+    public void mustForwardSearchBatchLikeOneByOne() {
+        for (KnowledgeNodeNetworkEngine engine : KnowledgeNodeNetworkEngine.values()) {
+            for (int ply : new int[]{0, 1, 3}) {
+                // given
+                final KnowledgeNodeNetwork knn = createKnn(engine, 1);
+                final KnowledgeNodeNetwork batchKnn = createKnn(engine, 1);
+                final List<Set<Tag>> queries = createQueries();
+                final List<Set<Tag>> expected = new ArrayList<>();
+                for (final Set<Tag> query : queries) {
+                    expected.add(knn.forwardSearch(query, ply));
+                }
+
+                // when
+                final List<Set<Tag>> activatedTags = batchKnn.forwardSearchBatch(queries, ply);
+
+                // then
+                final String message = engine.name() + " ply " + ply;
+                assertEquals(activatedTags, expected, message);
+                assertSameKnowledgeNodes(batchKnn, knn, message);
+            }
+        }
+    }
+
+    @Test
+    public void mustBackwardSearchBatchLikeOneByOne() {
+        for (KnowledgeNodeNetworkEngine engine : KnowledgeNodeNetworkEngine.values()) {
+            for (double ratio : new double[]{0, 0.5, 1}) {
+                // given
+                final KnowledgeNodeNetwork knn = createKnn(engine, ratio);
+                final KnowledgeNodeNetwork batchKnn = createKnn(engine, ratio);
+                final List<Set<Tag>> queries = createQueries();
+                final List<Set<Tag>> expected = new ArrayList<>();
+                for (final Set<Tag> query : queries) {
+                    expected.add(knn.backwardSearch(query, 2));
+                }
+
+                // when
+                final List<Set<Tag>> activatedTags = batchKnn.backwardSearchBatch(queries, 2);
+
+                // then
+                final String message = engine.name() + " ratio " + ratio;
+                assertEquals(activatedTags, expected, message);
+                assertEquals(batchKnn.getActiveTags(), knn.getActiveTags(), message);
+            }
+        }
+    }
+
+    @Test
+    public void mustSearchBatchInSession() {
+        for (KnowledgeNodeNetworkEngine engine : KnowledgeNodeNetworkEngine.values()) {
+            // given
+            final KnowledgeNodeNetwork knn = createKnn(engine, 1);
+            final SearchSession session = knn.openSession();
+            final SearchSession batchSession = knn.openSession();
+            final List<Set<Tag>> queries = createQueries();
+            final List<Set<Tag>> expected = new ArrayList<>();
+            for (final Set<Tag> query : queries) {
+                expected.add(session.forwardSearch(query, 0));
+            }
+
+            // when
+            final List<Set<Tag>> activatedTags = batchSession.forwardSearchBatch(queries, 0);
+            final List<Set<Tag>> backwardActivatedTags = batchSession.backwardSearchBatch(queries, 1);
+
+            // then
+            assertEquals(activatedTags, expected, engine.name());
+            assertEquals(backwardActivatedTags.size(), QUERIES, engine.name());
+            assertEquals(knn.getActiveTags(), Collections.emptySet(), engine.name());
+        }
+    }
+}
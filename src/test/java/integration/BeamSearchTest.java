@@ -0,0 +1,167 @@
+package integration;
+
+import knn.api.KnowledgeNode;
+import knn.api.KnowledgeNodeNetwork;
+import knn.api.KnowledgeNodeNetworkEngine;
+import knn.api.SearchSession;
+import knn.guice.KnowledgeNodeNetworkModule;
+import org.testng.annotations.Test;
+import tags.Fact;
+import tags.Tag;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Checks that every KNN engine keeps the best Tags of each ply in beam search, ranked by the belief and strength of
+ * the KNs which activate them.
+ */
+public class BeamSearchTest {
+    private static final String ANIMAL_DATA_PATH = "data/animalData.txt";
+    private final Tag p = new Fact("P(x)");
+    private final Tag q = new Fact("Q(x)");
+    private final Tag r = new Fact("R(x)");
+    private final Tag b = new Fact("B(x)");
+    private final Tag c = new Fact("C(x)");
+    private final Tag d = new Fact("D(x)");
+    private final Tag e = new Fact("E(x)");
+    private final Tag f = new Fact("F(x)");
+    private final Tag g = new Fact("G(x)");
+
+    private static KnowledgeNodeNetwork createKnn(final KnowledgeNodeNetworkEngine engine) {
+        return TestKnowledgeNodeNetworks.create(KnowledgeNodeNetworkModule.builder().engine(engine));
+    }
+
+    /**
+     * Creates a KNN with three chains P -> B -> E, Q -> C -> F and R -> D -> G, where P, Q and R activate their
+     * outputs with decreasing strengths.
+     */
+    private KnowledgeNodeNetwork createChainKnn(final KnowledgeNodeNetworkEngine engine) {
+        final KnowledgeNodeNetwork knn = createKnn(engine);
+        knn.addKnowledgeNode(new KnowledgeNode(p, Collections.singleton(b), 1, 1, 3));
+        knn.addKnowledgeNode(new KnowledgeNode(q, Collections.singleton(c), 1, 1, 2));
+        knn.addKnowledgeNode(new KnowledgeNode(r, Collections.singleton(d), 1, 1, 1));
+        knn.addKnowledgeNode(new KnowledgeNode(b, Collections.singleton(e), 1, 1, 1));
+        knn.addKnowledgeNode(new KnowledgeNode(c, Collections.singleton(f), 1, 1, 1));
+        knn.addKnowledgeNode(new KnowledgeNode(d, Collections.singleton(g), 1, 1, 1));
+        return knn;
+    }
+
+    private Set<Tag> inputTags() {
+        return new HashSet<>(Arrays.asList(p, q, r));
+    }
+
+    @Test
+    public void mustKeepBestTagsOfEachPly() {
+        for (KnowledgeNodeNetworkEngine engine : KnowledgeNodeNetworkEngine.values()) {
+            // given
+            final KnowledgeNodeNetwork knn = createChainKnn(engine);
+
+            // when
+            final Set<Tag> activatedTags = knn.forwardSearch(inputTags(), 0, 2);
+
+            // then
+            assertEquals(activatedTags, new HashSet<>(Arrays.asList(b, c, e, f)), engine.name());
+            assertTrue(knn.getActiveTags().containsAll(activatedTags), engine.name());
+            assertFalse(knn.getActiveTags().contains(d), engine.name());
+            assertFalse(knn.getActiveTags().contains(g), engine.name());
+        }
+    }
+
+    @Test
+    public void mustLimitPly() {
+        for (KnowledgeNodeNetworkEngine engine : KnowledgeNodeNetworkEngine.values()) {
+            // given
+            final KnowledgeNodeNetwork knn = createChainKnn(engine);
+
+            // when
+            final Set<Tag> activatedTags = knn.forwardSearch(inputTags(), 1, 1);
+
+            // then
+            assertEquals(activatedTags, Collections.singleton(b), engine.name());
+        }
+    }
+
+    @Test
+    public void mustSearchLikeForwardSearchWithWideBeam() {
+        for (KnowledgeNodeNetworkEngine engine : KnowledgeNodeNetworkEngine.values()) {
+            // given
+            final KnowledgeNodeNetwork knn = createKnn(engine);
+            final KnowledgeNodeNetwork forwardKnn = createKnn(KnowledgeNodeNetworkEngine.DEFAULT);
+            knn.loadData(ANIMAL_DATA_PATH);
+            forwardKnn.loadData(ANIMAL_DATA_PATH);
+            final Set<Tag> tags = new HashSet<>(Arrays.asList(
+                    new Fact("dog(wolflike,length>50,weight>20)"),
+                    new Fact("cat(feline,length>50,weight>20)")));
+
+            // when
+            final Set<Tag> activatedTags = knn.forwardSearch(tags, 0, Integer.MAX_VALUE);
+
+            // then
+            assertEquals(activatedTags, forwardKnn.forwardSearch(tags, 0), engine.name());
+            assertEquals(knn.getActiveTags(), forwardKnn.getActiveTags(), engine.name());
+        }
+    }
+
+    @Test
+    public void mustLambdaSearchWithBeam() {
+        for (KnowledgeNodeNetworkEngine engine : KnowledgeNodeNetworkEngine.values()) {
+            // given
+            final KnowledgeNodeNetwork knn = createChainKnn(engine);
+            final KnowledgeNodeNetwork expectedKnn = createChainKnn(KnowledgeNodeNetworkEngine.DEFAULT);
+            final Set<Tag> tags = new HashSet<>(Arrays.asList(b, c, d));
+
+            // when
+            final Set<Tag> activatedTags = knn.lambdaSearch(tags, 0, 1);
+
+            // then
+            assertEquals(activatedTags, expectedKnn.forwardSearch(expectedKnn.backwardSearch(tags, 0), 0, 1),
+                    engine.name());
+            assertFalse(activatedTags.contains(c), engine.name());
+            assertFalse(activatedTags.contains(d), engine.name());
+        }
+    }
+
+    @Test
+    public void mustSearchSessionWithBeam() {
+        for (KnowledgeNodeNetworkEngine engine : KnowledgeNodeNetworkEngine.values()) {
+            // given
+            final KnowledgeNodeNetwork knn = createChainKnn(engine);
+            final SearchSession session = knn.openSession();
+
+            // when
+            final Set<Tag> activatedTags = session.forwardSearch(inputTags(), 0, 2);
+
+            // then
+            assertEquals(activatedTags, new HashSet<>(Arrays.asList(b, c, e, f)), engine.name());
+            assertTrue(session.getActiveTags().containsAll(activatedTags), engine.name());
+            assertFalse(session.getActiveTags().contains(d), engine.name());
+            assertTrue(knn.getActiveTags().isEmpty(), engine.name());
+        }
+    }
+
+    @Test
+    public void mustRejectNonPositiveBeamWidth() {
+        for (KnowledgeNodeNetworkEngine engine : KnowledgeNodeNetworkEngine.values()) {
+            // given
+            final KnowledgeNodeNetwork knn = createChainKnn(engine);
+            boolean thrown = false;
+
+            // when
+            try {
+                knn.forwardSearch(inputTags(), 0, 0);
+            } catch (IllegalArgumentException ex) {
+                thrown = true;
+            }
+
+            // then
+            assertTrue(thrown, engine.name());
+        }
+    }
+}
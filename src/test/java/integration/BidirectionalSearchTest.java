@@ -0,0 +1,123 @@
+package integration;
+
+import knn.api.BidirectionalSearchResult;
+import knn.api.KnowledgeNode;
+import knn.api.KnowledgeNodeNetwork;
+import knn.api.KnowledgeNodeNetworkEngine;
+import knn.guice.KnowledgeNodeNetworkModule;
+import org.testng.annotations.Test;
+import tags.Fact;
+import tags.Tag;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Checks that every KNN engine connects input Tags to goal Tags by searching forward and backward until the two
+ * searches meet.
+ */
+public class BidirectionalSearchTest {
+    private static final int FAN_OUT = 8;
+    private final Tag a = new Fact("A(x)");
+    private final Tag b = new Fact("B(x)");
+    private final Tag c = new Fact("C(x)");
+    private final Tag d = new Fact("D(x)");
+    private final Tag e = new Fact("E(x)");
+    private final Tag f = new Fact("F(x)");
+
+    /**
+     * Creates a KNN with the chain A -> B -> C -> D -> E -> F, where A also activates many other Tags.
+     */
+    private KnowledgeNodeNetwork createKnn(final KnowledgeNodeNetworkEngine engine) {
+        final KnowledgeNodeNetwork knn = TestKnowledgeNodeNetworks.create(KnowledgeNodeNetworkModule.builder()
+                .engine(engine));
+        final Set<Tag> outputTags = new HashSet<>(Collections.singleton(b));
+        for (int i = 0; i < FAN_OUT; i++) {
+            outputTags.add(new Fact("W(x" + i + ")"));
+        }
+        knn.addKnowledgeNode(new KnowledgeNode(a, outputTags, 1));
+        knn.addKnowledgeNode(new KnowledgeNode(b, Collections.singleton(c), 1));
+        knn.addKnowledgeNode(new KnowledgeNode(c, Collections.singleton(d), 1));
+        knn.addKnowledgeNode(new KnowledgeNode(d, Collections.singleton(e), 1));
+        knn.addKnowledgeNode(new KnowledgeNode(e, Collections.singleton(f), 1));
+        return knn;
+    }
+
+    @Test
+    public void mustConnectInputAndGoalTags() {
+        for (KnowledgeNodeNetworkEngine engine : KnowledgeNodeNetworkEngine.values()) {
+            // given
+            final KnowledgeNodeNetwork knn = createKnn(engine);
+
+            // when
+            final BidirectionalSearchResult result =
+                    knn.bidirectionalSearch(Collections.singleton(a), Collections.singleton(f), 0, 0);
+
+            // then
+            assertTrue(result.isConnected(), engine.name());
+            assertEquals(result.getConnectingTags(), Collections.singleton(b), engine.name());
+            assertEquals(result.getForwardTags().size(), FAN_OUT + 1, engine.name());
+            assertEquals(result.getBackwardTags(), new HashSet<>(Arrays.asList(b, c, d, e)), engine.name());
+            assertEquals(result.getExploredTags(), 5, engine.name());
+            assertTrue(knn.getActiveTags().containsAll(result.getForwardTags()), engine.name());
+            assertTrue(knn.getActiveTags().containsAll(result.getBackwardTags()), engine.name());
+        }
+    }
+
+    @Test
+    public void mustStopWithinBudget() {
+        for (KnowledgeNodeNetworkEngine engine : KnowledgeNodeNetworkEngine.values()) {
+            // given
+            final KnowledgeNodeNetwork knn = createKnn(engine);
+
+            // when
+            final BidirectionalSearchResult result =
+                    knn.bidirectionalSearch(Collections.singleton(a), Collections.singleton(f), 0, 3);
+
+            // then
+            assertFalse(result.isConnected(), engine.name());
+            assertEquals(result.getExploredTags(), 3, engine.name());
+            assertEquals(result.getBackwardTags(), new HashSet<>(Arrays.asList(d, e)), engine.name());
+        }
+    }
+
+    @Test
+    public void mustNotConnectUnreachableGoal() {
+        for (KnowledgeNodeNetworkEngine engine : KnowledgeNodeNetworkEngine.values()) {
+            // given
+            final KnowledgeNodeNetwork knn = createKnn(engine);
+
+            // when
+            final BidirectionalSearchResult result =
+                    knn.bidirectionalSearch(Collections.singleton(c), Collections.singleton(b), 0, 0);
+
+            // then
+            assertFalse(result.isConnected(), engine.name());
+            assertEquals(result.getForwardTags(), new HashSet<>(Arrays.asList(d, e, f)), engine.name());
+            assertEquals(result.getBackwardTags(), Collections.singleton(a), engine.name());
+        }
+    }
+
+    @Test
+    public void mustSearchSessionLikeKnowledgeNodeNetwork() {
+        for (KnowledgeNodeNetworkEngine engine : KnowledgeNodeNetworkEngine.values()) {
+            // given
+            final KnowledgeNodeNetwork knn = createKnn(engine);
+
+            // when
+            final BidirectionalSearchResult result = knn.openSession()
+                    .bidirectionalSearch(Collections.singleton(a), Collections.singleton(f), 0, 0);
+
+            // then
+            assertEquals(result.getConnectingTags(), Collections.singleton(b), engine.name());
+            assertEquals(result.getExploredTags(), 5, engine.name());
+            assertTrue(knn.getActiveTags().isEmpty(), engine.name());
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package integration;
+
+import knn.api.KnowledgeNodeNetwork;
+import knn.api.KnowledgeNodeNetworkEngine;
+import knn.guice.KnowledgeNodeNetworkModule;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import tags.Fact;
+import tags.Tag;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.testng.Assert.assertEquals;
+
+/**
+ * Checks that the compiled KNN engine gives the same results as the default engine.
+ */
+public class CompiledKnowledgeNodeNetworkTest {
+    private static final String ANIMAL_DATA_PATH = "data/animalData.txt";
+    private KnowledgeNodeNetwork knn;
+    private KnowledgeNodeNetwork compiledKnn;
+
+    private static KnowledgeNodeNetwork createKnn(final KnowledgeNodeNetworkEngine engine) {
+        return TestKnowledgeNodeNetworks.create(KnowledgeNodeNetworkModule.builder().engine(engine));
+    }
+
+    @BeforeMethod
+    public void setupKNN() {
+        knn = createKnn(KnowledgeNodeNetworkEngine.DEFAULT);
+        compiledKnn = createKnn(KnowledgeNodeNetworkEngine.COMPILED);
+        knn.loadData(ANIMAL_DATA_PATH);
+        compiledKnn.loadData(ANIMAL_DATA_PATH);
+    }
+
+    @Test
+    public void mustForwardSearchLikeDefaultEngine() {
+        for (int ply : new int[]{1, 2, 0}) {
+            setupKNN();
+            Set<Tag> inputTags = new HashSet<>(Arrays.asList(
+                    new Fact("dog(wolflike,length>50,weight>20)"),
+                    new Fact("cat(feline,length>50,weight>20)")));
+
+            assertEquals(compiledKnn.forwardSearch(inputTags, ply), knn.forwardSearch(inputTags, ply));
+            assertEquals(compiledKnn.getActiveTags(), knn.getActiveTags());
+        }
+    }
+
+    @Test
+    public void mustForwardThinkLikeDefaultEngine() {
+        Fact fact = new Fact("chicken(eggs,length<50,weight<10)");
+        knn.addActiveTag(fact);
+        compiledKnn.addActiveTag(fact);
+
+        assertEquals(compiledKnn.forwardThink(0), knn.forwardThink(0));
+        assertEquals(compiledKnn.directSearch(fact), knn.directSearch(fact));
+        assertEquals(compiledKnn.getActiveTags(), knn.getActiveTags());
+    }
+
+    @Test
+    public void mustLambdaSearchLikeDefaultEngine() {
+        Set<Tag> inputTags = new HashSet<>(Arrays.asList(new Fact("calm(safe>5)"), new Fact("coward(scared,safe)")));
+        knn.setBackwardSearchMatchRatio(0.5);
+        compiledKnn.setBackwardSearchMatchRatio(0.5);
+
+        assertEquals(compiledKnn.lambdaSearch(inputTags, 0), knn.lambdaSearch(inputTags, 0));
+        assertEquals(compiledKnn.getActiveTags(), knn.getActiveTags());
+        assertEquals(compiledKnn.lambdaThink(1), knn.lambdaThink(1));
+    }
+
+    @Test
+    public void mustSearchAfterDeletingKnowledgeNode() {
+        Fact dog = new Fact("dog(wolflike,length>50,weight>20)");
+        knn.deleteKnowledgeNode(dog);
+        compiledKnn.deleteKnowledgeNode(dog);
+
+        assertEquals(compiledKnn.forwardSearch(new HashSet<>(Arrays.asList(dog)), 0),
+                knn.forwardSearch(new HashSet<>(Arrays.asList(dog)), 0));
+    }
+}
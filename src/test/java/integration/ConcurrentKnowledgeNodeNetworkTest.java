@@ -0,0 +1,134 @@
+package integration;
+
+import knn.api.KnowledgeNode;
+import knn.api.KnowledgeNodeNetwork;
+import knn.api.KnowledgeNodeNetworkEngine;
+import knn.guice.KnowledgeNodeNetworkModule;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import tags.Fact;
+import tags.Tag;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Stress tests the concurrent KNN engine from several threads, and checks that it gives the same results as the
+ * default engine.
+ */
+public class ConcurrentKnowledgeNodeNetworkTest {
+    private static final String ANIMAL_DATA_PATH = "data/animalData.txt";
+    private static final int THREADS = 8;
+    private static final int ITERATIONS = 200;
+    private ExecutorService executor;
+    private KnowledgeNodeNetwork knn;
+    private KnowledgeNodeNetwork concurrentKnn;
+
+    private static KnowledgeNodeNetwork createKnn(final KnowledgeNodeNetworkEngine engine) {
+        return TestKnowledgeNodeNetworks.create(KnowledgeNodeNetworkModule.builder().engine(engine));
+    }
+
+    @BeforeMethod
+    public void setupKNN() {
+        executor = Executors.newFixedThreadPool(THREADS);
+        knn = createKnn(KnowledgeNodeNetworkEngine.DEFAULT);
+        concurrentKnn = createKnn(KnowledgeNodeNetworkEngine.CONCURRENT);
+        knn.loadData(ANIMAL_DATA_PATH);
+        concurrentKnn.loadData(ANIMAL_DATA_PATH);
+    }
+
+    @AfterMethod
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private <T> List<T> runConcurrently(final Callable<T> task) throws Exception {
+        final List<Future<T>> futures = executor.invokeAll(Collections.nCopies(THREADS, task));
+        final List<T> results = new ArrayList<>();
+        for (Future<T> future : futures) {
+            results.add(future.get());
+        }
+        return results;
+    }
+
+    @Test
+    public void mustFireKnowledgeNodeOnce() throws Exception {
+        // given
+        final KnowledgeNode kn = new KnowledgeNode(new Fact("A(x)"), new HashSet<>(Arrays.asList(new Fact("B(x)"))), ITERATIONS);
+        final AtomicInteger fired = new AtomicInteger();
+
+        // when
+        runConcurrently(() -> {
+            for (int i = 0; i < ITERATIONS; i++) {
+                if (kn.excite()) {
+                    fired.incrementAndGet();
+                }
+            }
+            return null;
+        });
+
+        // then
+        assertEquals(fired.get(), 1);
+    }
+
+    @Test
+    public void mustSearchConcurrentlyLikeDefaultEngine() throws Exception {
+        // given
+        final Set<Tag> inputTags = new HashSet<>(Arrays.asList(
+                new Fact("dog(wolflike,length>50,weight>20)"),
+                new Fact("cat(feline,length>50,weight>20)")));
+        final Fact fact = new Fact("chicken(eggs,length<50,weight<10)");
+        knn.forwardSearch(inputTags, 0);
+        final Set<Tag> expected = knn.directSearch(fact);
+
+        // when
+        final List<Set<Tag>> results = runConcurrently(() -> {
+            for (int i = 0; i < ITERATIONS; i++) {
+                concurrentKnn.forwardSearch(inputTags, 0);
+                concurrentKnn.backwardSearch(inputTags, 1);
+            }
+            return concurrentKnn.directSearch(fact);
+        });
+
+        // then: the KN fired for exactly one of the threads
+        results.removeIf(Set::isEmpty);
+        assertEquals(results, Collections.singletonList(expected));
+        assertTrue(concurrentKnn.getActiveTags().containsAll(knn.getActiveTags()));
+        assertEquals(concurrentKnn.getKnowledgeNodes().size(), knn.getKnowledgeNodes().size());
+    }
+
+    @Test
+    public void mustUpdateConcurrently() throws Exception {
+        // given
+        final AtomicInteger id = new AtomicInteger();
+
+        // when
+        runConcurrently(() -> {
+            for (int i = 0; i < ITERATIONS; i++) {
+                final Fact inputTag = new Fact("T(" + id.incrementAndGet() + ")");
+                concurrentKnn.addKnowledgeNode(new KnowledgeNode(inputTag, new HashSet<>(Arrays.asList(new Fact("U(x)"))), 1));
+                concurrentKnn.addActiveTag(inputTag);
+                concurrentKnn.forwardSearch(new HashSet<>(Arrays.asList(inputTag)), 1);
+                concurrentKnn.deleteKnowledgeNode(inputTag);
+            }
+            return null;
+        });
+
+        // then
+        assertEquals(concurrentKnn.getKnowledgeNodes().size(), knn.getKnowledgeNodes().size());
+        assertEquals(concurrentKnn.getActiveTags().size(), THREADS * ITERATIONS + 1);
+    }
+}
@@ -0,0 +1,79 @@
+package integration;
+
+import knn.api.KnowledgeNode;
+import knn.api.KnowledgeNodeNetwork;
+import knn.api.KnowledgeNodeNetworkEngine;
+import knn.guice.KnowledgeNodeNetworkModule;
+import org.testng.annotations.Test;
+import tags.Fact;
+import tags.Tag;
+
+import java.util.Collections;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+
+/**
+ * Checks that every KNN engine deletes the KNs flagged expired and the KNs not excited for longer than the age
+ * threshold, and only them.
+ */
+public class ExpiryTest {
+    private final Tag fresh = new Fact("fresh(x)");
+    private final Tag idle = new Fact("idle(x)");
+    private final Tag flagged = new Fact("flagged(x)");
+    private final Tag output = new Fact("output(x)");
+
+    private KnowledgeNodeNetwork createKnn(final KnowledgeNodeNetworkEngine engine) {
+        return TestKnowledgeNodeNetworks.create(KnowledgeNodeNetworkModule.builder().engine(engine));
+    }
+
+    private static KnowledgeNode createKnowledgeNode(final Tag inputTag, final Tag outputTag, final long ageTimeStamp,
+                                                     final boolean expired) {
+        return new KnowledgeNode(inputTag, Collections.singleton(outputTag), 1, 0, 1, 0, 0, ageTimeStamp, expired);
+    }
+
+    @Test
+    public void mustDeleteExpiredKnowledgeNodes() {
+        for (KnowledgeNodeNetworkEngine engine : KnowledgeNodeNetworkEngine.values()) {
+            // given
+            final KnowledgeNodeNetwork knn = createKnn(engine);
+            final long now = System.currentTimeMillis();
+            knn.addKnowledgeNode(createKnowledgeNode(fresh, output, now, false));
+            knn.addKnowledgeNode(createKnowledgeNode(idle, output, now - KnowledgeNode.AGE_THRESHOLD - 1, false));
+            knn.addKnowledgeNode(createKnowledgeNode(flagged, output, now, true));
+            knn.addActiveTags(fresh, idle, flagged);
+
+            // when
+            knn.deleteExpiredKnowledgeNodes();
+
+            // then
+            assertNotNull(knn.getKnowledgeNode(fresh), engine.name());
+            assertNull(knn.getKnowledgeNode(idle), engine.name());
+            assertNull(knn.getKnowledgeNode(flagged), engine.name());
+            assertEquals(knn.getKnowledgeNodes().size(), 1, engine.name());
+            assertEquals(knn.getActiveTags(), Collections.singleton(fresh), engine.name());
+            knn.clearActiveTags();
+            assertEquals(knn.backwardSearch(Collections.singleton(output), 1), Collections.singleton(fresh),
+                    engine.name());
+        }
+    }
+
+    @Test
+    public void mustKeepReplacedKnowledgeNode() {
+        for (KnowledgeNodeNetworkEngine engine : KnowledgeNodeNetworkEngine.values()) {
+            // given
+            final KnowledgeNodeNetwork knn = createKnn(engine);
+            final long now = System.currentTimeMillis();
+            knn.addKnowledgeNode(createKnowledgeNode(idle, output, now - KnowledgeNode.AGE_THRESHOLD - 1, false));
+            knn.addKnowledgeNode(createKnowledgeNode(idle, output, now, false));
+
+            // when
+            knn.deleteExpiredKnowledgeNodes();
+
+            // then
+            assertNotNull(knn.getKnowledgeNode(idle), engine.name());
+            assertEquals(knn.getKnowledgeNodes().size(), 1, engine.name());
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package integration;
+
+import knn.api.KnowledgeNode;
+import knn.api.KnowledgeNodeNetwork;
+import knn.api.KnowledgeNodeNetworkEngine;
+import knn.api.LogicalKnowledgeNodeClock;
+import knn.guice.KnowledgeNodeNetworkModule;
+import org.testng.annotations.Test;
+import tags.Fact;
+import tags.Tag;
+
+import java.util.Collections;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+
+/**
+ * Checks that every KNN engine ages its KNs with the injected clock, so that the age limit of backward search and the
+ * expiry of the KNs are deterministic with a logical clock.
+ */
+public class KnowledgeNodeClockTest {
+    private static final long AGE_LIMIT = 5;
+    private static final long START = 42;
+    private static final String ANIMAL_DATA_PATH = "data/animalData.txt";
+
+    private final Tag a = new Fact("a(x)");
+    private final Tag b = new Fact("b(x)");
+
+    private KnowledgeNodeNetwork createKnn(final KnowledgeNodeNetworkEngine engine,
+                                           final LogicalKnowledgeNodeClock clock) {
+        return TestKnowledgeNodeNetworks.create(KnowledgeNodeNetworkModule.builder()
+                .engine(engine)
+                .clock(clock), 1, AGE_LIMIT);
+    }
+
+    @Test
+    public void mustLimitBackwardSearchByTicks() {
+        for (KnowledgeNodeNetworkEngine engine : KnowledgeNodeNetworkEngine.values()) {
+            // given
+            final LogicalKnowledgeNodeClock clock = new LogicalKnowledgeNodeClock(0);
+            final KnowledgeNodeNetwork knn = createKnn(engine, clock);
+            knn.addKnowledgeNode(new KnowledgeNode(a, Collections.singleton(b), 1, 0, 1, 0, 0, 0, false));
+
+            // when
+            clock.advance(AGE_LIMIT - 1);
+            final int withinLimit = knn.backwardSearch(Collections.singleton(b), 1).size();
+            knn.clearActiveTags();
+            final int beyondLimit = knn.backwardSearch(Collections.singleton(b), 1).size();
+
+            // then
+            assertEquals(withinLimit, 1, engine.name());
+            assertEquals(beyondLimit, 0, engine.name());
+            assertEquals(clock.currentTime(), AGE_LIMIT + 1, engine.name());
+        }
+    }
+
+    @Test
+    public void mustStampAddedKnowledgeNodesWithClock() {
+        for (KnowledgeNodeNetworkEngine engine : KnowledgeNodeNetworkEngine.values()) {
+            // given
+            final LogicalKnowledgeNodeClock clock = new LogicalKnowledgeNodeClock(START);
+            final KnowledgeNodeNetwork knn = createKnn(engine, clock);
+
+            // when
+            knn.addKnowledgeNode(new KnowledgeNode(a, Collections.singleton(b), 1));
+
+            // then
+            assertEquals(knn.getKnowledgeNode(a).getAgeTimeStamp(), START, engine.name());
+        }
+    }
+
+    @Test
+    public void mustStampLoadedKnowledgeNodesWithClock() {
+        for (KnowledgeNodeNetworkEngine engine : KnowledgeNodeNetworkEngine.values()) {
+            // given
+            final LogicalKnowledgeNodeClock clock = new LogicalKnowledgeNodeClock(START);
+            final KnowledgeNodeNetwork knn = createKnn(engine, clock);
+
+            // when
+            knn.loadData(ANIMAL_DATA_PATH);
+
+            // then
+            assertFalse(knn.getKnowledgeNodes().isEmpty(), engine.name());
+            for (final KnowledgeNode kn : knn.getKnowledgeNodes()) {
+                assertEquals(kn.getAgeTimeStamp(), START, engine.name());
+            }
+        }
+    }
+
+    @Test
+    public void mustExpireKnowledgeNodesByTicks() {
+        for (KnowledgeNodeNetworkEngine engine : KnowledgeNodeNetworkEngine.values()) {
+            // given
+            final LogicalKnowledgeNodeClock clock = new LogicalKnowledgeNodeClock(0);
+            final KnowledgeNodeNetwork knn = createKnn(engine, clock);
+            knn.addKnowledgeNode(new KnowledgeNode(a, Collections.singleton(b), 1, 0, 1, 0, 0, 0, false));
+
+            // when
+            clock.advance(KnowledgeNode.AGE_THRESHOLD);
+            knn.deleteExpiredKnowledgeNodes();
+            final KnowledgeNode kept = knn.getKnowledgeNode(a);
+            clock.advance(1);
+            knn.deleteExpiredKnowledgeNodes();
+
+            // then
+            assertNotNull(kept, engine.name());
+            assertNull(knn.getKnowledgeNode(a), engine.name());
+        }
+    }
+}
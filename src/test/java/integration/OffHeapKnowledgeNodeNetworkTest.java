@@ -0,0 +1,152 @@
+package integration;
+
+import datagen.DegreeDistribution;
+import datagen.KnowledgeNodeDataGenerator;
+import datagen.TagMix;
+import knn.api.KnowledgeNode;
+import knn.api.KnowledgeNodeNetwork;
+import knn.api.KnowledgeNodeNetworkEngine;
+import knn.guice.KnowledgeNodeNetworkModule;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import tags.Fact;
+import tags.Tag;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+
+/**
+ * Checks that the off-heap KNN engine gives the same results as the default engine.
+ */
+public class OffHeapKnowledgeNodeNetworkTest {
+    private static final String ANIMAL_DATA_PATH = "data/animalData.txt";
+    private KnowledgeNodeNetwork knn;
+    private KnowledgeNodeNetwork offHeapKnn;
+
+    private static KnowledgeNodeNetwork createKnn(final KnowledgeNodeNetworkEngine engine) {
+        return TestKnowledgeNodeNetworks.create(KnowledgeNodeNetworkModule.builder().engine(engine));
+    }
+
+    private void assertSameKnowledgeNodes() {
+        final Map<Tag, KnowledgeNode> expected = new HashMap<>();
+        for (KnowledgeNode kn : knn.getKnowledgeNodes()) {
+            expected.put(kn.getInputTag(), kn);
+        }
+        assertEquals(offHeapKnn.getKnowledgeNodes().size(), expected.size());
+        // The ages depend on the time of the searches, and the recency order within a ply on the iteration order
+        // of the ply, which differ between the engines
+        for (KnowledgeNode actual : offHeapKnn.getKnowledgeNodes()) {
+            final KnowledgeNode kn = expected.get(actual.getInputTag());
+            assertEquals(actual.getOutputTags(), kn.getOutputTags());
+            assertEquals(actual.getActivation(), kn.getActivation());
+            assertEquals(actual.isExpired(), kn.isExpired());
+        }
+    }
+
+    @BeforeMethod
+    public void setupKNN() {
+        knn = createKnn(KnowledgeNodeNetworkEngine.DEFAULT);
+        offHeapKnn = createKnn(KnowledgeNodeNetworkEngine.OFF_HEAP);
+        knn.loadData(ANIMAL_DATA_PATH);
+        offHeapKnn.loadData(ANIMAL_DATA_PATH);
+    }
+
+    @Test
+    public void mustForwardSearchLikeDefaultEngine() {
+        for (int ply : new int[]{1, 2, 0}) {
+            setupKNN();
+            Set<Tag> inputTags = new HashSet<>(Arrays.asList(
+                    new Fact("dog(wolflike,length>50,weight>20)"),
+                    new Fact("cat(feline,length>50,weight>20)")));
+
+            assertEquals(offHeapKnn.forwardSearch(inputTags, ply), knn.forwardSearch(inputTags, ply));
+            assertEquals(offHeapKnn.getActiveTags(), knn.getActiveTags());
+        }
+    }
+
+    @Test
+    public void mustForwardThinkLikeDefaultEngine() {
+        Fact fact = new Fact("chicken(eggs,length<50,weight<10)");
+        knn.addActiveTag(fact);
+        offHeapKnn.addActiveTag(fact);
+
+        assertEquals(offHeapKnn.forwardThink(0), knn.forwardThink(0));
+        assertEquals(offHeapKnn.directSearch(fact), knn.directSearch(fact));
+        assertEquals(offHeapKnn.getActiveTags(), knn.getActiveTags());
+    }
+
+    @Test
+    public void mustLambdaSearchLikeDefaultEngine() {
+        Set<Tag> inputTags = new HashSet<>(Arrays.asList(new Fact("calm(safe>5)"), new Fact("coward(scared,safe)")));
+        knn.setBackwardSearchMatchRatio(0.5);
+        offHeapKnn.setBackwardSearchMatchRatio(0.5);
+
+        assertEquals(offHeapKnn.lambdaSearch(inputTags, 0), knn.lambdaSearch(inputTags, 0));
+        assertEquals(offHeapKnn.getActiveTags(), knn.getActiveTags());
+        assertEquals(offHeapKnn.lambdaThink(1), knn.lambdaThink(1));
+    }
+
+    @Test
+    public void mustBackwardSearchLikeDefaultEngine() {
+        Set<Tag> inputTags = new HashSet<>(Arrays.asList(new Fact("calm(safe>5)"), new Fact("coward(scared,safe)")));
+        for (double ratio : new double[]{0, 0.5, 1}) {
+            setupKNN();
+            knn.setBackwardSearchMatchRatio(ratio);
+            offHeapKnn.setBackwardSearchMatchRatio(ratio);
+
+            assertEquals(offHeapKnn.backwardSearch(inputTags, 2), knn.backwardSearch(inputTags, 2));
+            assertEquals(offHeapKnn.getActiveTags(), knn.getActiveTags());
+        }
+    }
+
+    @Test
+    public void mustSearchGeneratedDataLikeDefaultEngine() throws Exception {
+        final File data = File.createTempFile("knn", ".txt");
+        data.deleteOnExit();
+        new KnowledgeNodeDataGenerator(2000, DegreeDistribution.powerLaw(1, 20, 2.5), TagMix.DEFAULT, 0.05, 0)
+                .write(data.getPath());
+        knn.loadData(data.getPath());
+        offHeapKnn.loadData(data.getPath());
+        final Set<Tag> inputTags = new HashSet<>();
+        for (KnowledgeNode kn : knn.getKnowledgeNodes()) {
+            if (inputTags.size() < 50) {
+                inputTags.add(kn.getInputTag());
+            }
+        }
+
+        assertEquals(offHeapKnn.forwardSearch(inputTags, 3), knn.forwardSearch(inputTags, 3));
+        assertEquals(offHeapKnn.getActiveTags(), knn.getActiveTags());
+        assertEquals(offHeapKnn.forwardThink(0), knn.forwardThink(0));
+        assertSameKnowledgeNodes();
+    }
+
+    @Test
+    public void mustSearchAfterDeletingKnowledgeNode() {
+        Fact dog = new Fact("dog(wolflike,length>50,weight>20)");
+        knn.deleteKnowledgeNode(dog);
+        offHeapKnn.deleteKnowledgeNode(dog);
+
+        assertNull(offHeapKnn.getKnowledgeNode(dog));
+        assertEquals(offHeapKnn.forwardSearch(new HashSet<>(Arrays.asList(dog)), 0),
+                knn.forwardSearch(new HashSet<>(Arrays.asList(dog)), 0));
+        assertSameKnowledgeNodes();
+    }
+
+    @Test
+    public void mustReplaceKnowledgeNode() throws Exception {
+        final KnowledgeNode kn = new KnowledgeNode("dog(wolflike,length>50,weight>20); 1; cat(feline)");
+        knn.addKnowledgeNode(kn);
+        offHeapKnn.addKnowledgeNode(kn);
+
+        assertEquals(offHeapKnn.getKnowledgeNode(kn.getInputTag()).getOutputTags(), kn.getOutputTags());
+        assertEquals(offHeapKnn.directSearch(kn.getInputTag()), knn.directSearch(kn.getInputTag()));
+        assertSameKnowledgeNodes();
+    }
+}
@@ -0,0 +1,182 @@
+package integration;
+
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import knn.api.KnowledgeNode;
+import knn.api.KnowledgeNodeNetwork;
+import knn.api.KnowledgeNodeNetworkEngine;
+import knn.api.QueryCache;
+import knn.api.QueryCacheFactory;
+import knn.api.QueryCacheStats;
+import knn.guice.KnowledgeNodeNetworkModule;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import tags.Fact;
+import tags.Tag;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Checks that the query cache of every KNN engine answers repeated queries like read-only searches, without exciting
+ * the KNs, and discards its results as soon as the KNN changes.
+ */
+public class QueryCacheTest {
+    private static final String ANIMAL_DATA_PATH = "data/animalData.txt";
+    private static final long MAX_BYTES = 1L << 20;
+    private final Tag output = new Fact("output(x)");
+    private Set<Tag> inputTags;
+
+    private static Injector createInjector(final KnowledgeNodeNetworkEngine engine) {
+        return Guice.createInjector(KnowledgeNodeNetworkModule.builder().engine(engine).build());
+    }
+
+    private static KnowledgeNodeNetwork createKnn(final Injector injector) {
+        final KnowledgeNodeNetwork knn = TestKnowledgeNodeNetworks.create(injector);
+        knn.loadData(ANIMAL_DATA_PATH);
+        return knn;
+    }
+
+    private static QueryCache createCache(final KnowledgeNodeNetworkEngine engine, final int maxEntries,
+                                          final long maxBytes) {
+        final Injector injector = createInjector(engine);
+        return injector.getInstance(QueryCacheFactory.class).create(createKnn(injector), maxEntries, maxBytes);
+    }
+
+    private static KnowledgeNode createKnowledgeNode(final Tag inputTag, final Tag outputTag, final boolean expired) {
+        return new KnowledgeNode(inputTag, Collections.singleton(outputTag), 1, 0, 1, 0, 0,
+                System.currentTimeMillis(), expired);
+    }
+
+    private static void assertStats(final QueryCacheStats stats, final long hits, final long misses,
+                                    final long invalidations, final String message) {
+        assertEquals(stats.getHits(), hits, message);
+        assertEquals(stats.getMisses(), misses, message);
+        assertEquals(stats.getInvalidations(), invalidations, message);
+    }
+
+    @BeforeMethod
+    public void setUp() {
+        inputTags = new HashSet<>(Arrays.asList(
+                new Fact("dog(wolflike,length>50,weight>20)"),
+                new Fact("cat(feline,length>50,weight>20)")));
+    }
+
+    @Test
+    public void mustCacheReadOnlyQueries() {
+        for (KnowledgeNodeNetworkEngine engine : KnowledgeNodeNetworkEngine.values()) {
+            // given
+            final QueryCache cache = createCache(engine, 100, MAX_BYTES);
+            final KnowledgeNodeNetwork knn = cache.getKnowledgeNodeNetwork();
+            final long version = knn.getVersion();
+            final KnowledgeNodeNetwork expectedKnn = createKnn(createInjector(KnowledgeNodeNetworkEngine.DEFAULT));
+
+            // when
+            final Set<Tag> first = cache.forwardSearch(inputTags, 0);
+            final Set<Tag> second = cache.forwardSearch(new HashSet<>(inputTags), 0);
+            final Set<Tag> lambda = cache.lambdaSearch(inputTags, 2);
+
+            // then
+            assertFalse(first.isEmpty(), engine.name());
+            assertEquals(first, expectedKnn.forwardSearch(inputTags, 0), engine.name());
+            assertEquals(second, first, engine.name());
+            assertEquals(lambda, createKnn(createInjector(KnowledgeNodeNetworkEngine.DEFAULT))
+                    .lambdaSearch(inputTags, 2), engine.name());
+            assertStats(cache.getStats(), 1, 2, 0, engine.name());
+            assertEquals(cache.getStats().getEntries(), 2, engine.name());
+            assertEquals(knn.getVersion(), version, engine.name());
+            assertTrue(knn.getActiveTags().isEmpty(), engine.name());
+            for (KnowledgeNode kn : knn.getKnowledgeNodes()) {
+                assertEquals(kn.getActivation(), 0.0, engine.name());
+            }
+        }
+    }
+
+    @Test
+    public void mustInvalidateWhenKnowledgeNodeNetworkChanges() {
+        for (KnowledgeNodeNetworkEngine engine : KnowledgeNodeNetworkEngine.values()) {
+            // given
+            final QueryCache cache = createCache(engine, 100, MAX_BYTES);
+            final KnowledgeNodeNetwork knn = cache.getKnowledgeNodeNetwork();
+            final Tag added = new Fact("added(x)");
+            final Tag expired = new Fact("expired(x)");
+            final Set<Tag> addedInput = Collections.singleton(added);
+            cache.forwardSearch(addedInput, 1);
+
+            // when
+            knn.addKnowledgeNode(createKnowledgeNode(added, output, false));
+            final Set<Tag> afterAdd = cache.forwardSearch(addedInput, 1);
+            knn.deleteKnowledgeNode(added);
+            final Set<Tag> afterDelete = cache.forwardSearch(addedInput, 1);
+            knn.addKnowledgeNode(createKnowledgeNode(expired, output, true));
+            cache.forwardSearch(inputTags, 1);
+            knn.deleteExpiredKnowledgeNodes();
+            cache.forwardSearch(inputTags, 1);
+            knn.forwardSearch(inputTags, 1);
+            cache.forwardSearch(inputTags, 1);
+
+            // then
+            assertEquals(afterAdd, Collections.singleton(output), engine.name());
+            assertTrue(afterDelete.isEmpty(), engine.name());
+            assertStats(cache.getStats(), 0, 6, 5, engine.name());
+            assertEquals(cache.getStats().getEntries(), 1, engine.name());
+        }
+    }
+
+    @Test
+    public void mustAdmitFrequentQueries() {
+        for (KnowledgeNodeNetworkEngine engine : KnowledgeNodeNetworkEngine.values()) {
+            // given
+            final QueryCache cache = createCache(engine, 2, MAX_BYTES);
+            for (int i = 0; i < 2; i++) {
+                cache.forwardSearch(inputTags, 1);
+                cache.forwardSearch(inputTags, 2);
+            }
+
+            // when
+            cache.forwardSearch(inputTags, 3);
+            final QueryCacheStats rejected = cache.getStats();
+            cache.forwardSearch(inputTags, 3);
+            cache.forwardSearch(inputTags, 3);
+            final QueryCacheStats admitted = cache.getStats();
+            cache.forwardSearch(inputTags, 1);
+
+            // then: the least recently used query is evicted once the new one is more frequent
+            assertEquals(rejected.getRejections(), 1, engine.name());
+            assertEquals(rejected.getEvictions(), 0, engine.name());
+            assertEquals(admitted.getRejections(), 2, engine.name());
+            assertEquals(admitted.getEvictions(), 1, engine.name());
+            assertEquals(admitted.getEntries(), 2, engine.name());
+            assertStats(cache.getStats(), 2, 6, 0, engine.name());
+        }
+    }
+
+    @Test
+    public void mustRejectResultsLargerThanCache() {
+        for (KnowledgeNodeNetworkEngine engine : KnowledgeNodeNetworkEngine.values()) {
+            // given
+            final QueryCache cache = createCache(engine, 100, 1);
+
+            // when
+            final Set<Tag> first = cache.forwardSearch(inputTags, 0);
+            final Set<Tag> second = cache.forwardSearch(inputTags, 0);
+
+            // then
+            assertEquals(second, first, engine.name());
+            assertStats(cache.getStats(), 0, 2, 0, engine.name());
+            assertEquals(cache.getStats().getRejections(), 2, engine.name());
+            assertEquals(cache.getStats().getBytes(), 0, engine.name());
+        }
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void mustRejectNonPositiveBounds() {
+        createCache(KnowledgeNodeNetworkEngine.DEFAULT, 0, MAX_BYTES);
+    }
+}
@@ -0,0 +1,174 @@
+package integration;
+
+import com.google.inject.Guice;
+import knn.api.KnowledgeNode;
+import knn.api.KnowledgeNodeNetwork;
+import knn.api.KnowledgeNodeNetworkEngine;
+import knn.api.SearchCounters;
+import knn.api.SearchListener;
+import knn.api.SearchStats;
+import knn.api.SearchType;
+import knn.guice.KnowledgeNodeNetworkModule;
+import org.testng.annotations.Test;
+import tags.Fact;
+import tags.Tag;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertSame;
+
+/**
+ * Checks that every KNN engine reports the events of its searches to the listener of the KNN module.
+ */
+public class SearchListenerTest {
+    private final Tag a = new Fact("A(x)");
+    private final Tag b = new Fact("B(x)");
+    private final Tag c = new Fact("C(x)");
+    private final Tag d = new Fact("D(x)");
+
+    /**
+     * Creates a KNN with the KNs A -> B, C and B -> D, listened to by the given counters.
+     */
+    private KnowledgeNodeNetwork createKnn(final KnowledgeNodeNetworkEngine engine,
+                                           final SearchCounters searchCounters) {
+        final KnowledgeNodeNetwork knn = TestKnowledgeNodeNetworks.create(KnowledgeNodeNetworkModule.builder()
+                .engine(engine)
+                .searchListener(searchCounters));
+        knn.addKnowledgeNode(new KnowledgeNode(a, new HashSet<>(Arrays.asList(b, c)), 1));
+        knn.addKnowledgeNode(new KnowledgeNode(b, Collections.singleton(d), 1));
+        return knn;
+    }
+
+    @Test
+    public void mustCountForwardSearch() {
+        for (KnowledgeNodeNetworkEngine engine : KnowledgeNodeNetworkEngine.values()) {
+            // given
+            final List<SearchStats> searches = new ArrayList<>();
+            final KnowledgeNodeNetwork knn = createKnn(engine, new SearchCounters(searches::add));
+
+            // when
+            knn.forwardSearch(Collections.singleton(a), 0);
+
+            // then
+            assertEquals(searches.size(), 1, engine.name());
+            final SearchStats stats = searches.get(0);
+            assertEquals(stats.getType(), SearchType.FORWARD, engine.name());
+            assertEquals(stats.getPlies(), 3, engine.name());
+            assertEquals(stats.getVisited(0), 1, engine.name());
+            assertEquals(stats.getVisited(1), 1, engine.name());
+            assertEquals(stats.getVisited(2), 0, engine.name());
+            assertEquals(stats.getFired(), 2, engine.name());
+            assertEquals(stats.getActivatedTags(), 3, engine.name());
+            assertEquals(stats.getExpired(), 0, engine.name());
+        }
+    }
+
+    @Test
+    public void mustCountDirectSearch() {
+        for (KnowledgeNodeNetworkEngine engine : KnowledgeNodeNetworkEngine.values()) {
+            // given
+            final List<SearchStats> searches = new ArrayList<>();
+            final KnowledgeNodeNetwork knn = createKnn(engine, new SearchCounters(searches::add));
+
+            // when
+            knn.directSearch(a);
+
+            // then
+            assertEquals(searches.size(), 1, engine.name());
+            final SearchStats stats = searches.get(0);
+            assertEquals(stats.getType(), SearchType.DIRECT, engine.name());
+            assertEquals(stats.getPlies(), 0, engine.name());
+            assertEquals(stats.getVisited(), 1, engine.name());
+            assertEquals(stats.getFired(), 1, engine.name());
+            assertEquals(stats.getActivatedTags(), 2, engine.name());
+        }
+    }
+
+    @Test
+    public void mustCountBackwardSearch() {
+        for (KnowledgeNodeNetworkEngine engine : KnowledgeNodeNetworkEngine.values()) {
+            // given
+            final List<SearchStats> searches = new ArrayList<>();
+            final KnowledgeNodeNetwork knn = createKnn(engine, new SearchCounters(searches::add));
+
+            // when
+            knn.backwardSearch(Collections.singleton(d), 1);
+
+            // then
+            assertEquals(searches.size(), 1, engine.name());
+            final SearchStats stats = searches.get(0);
+            assertEquals(stats.getType(), SearchType.BACKWARD, engine.name());
+            assertEquals(stats.getPlies(), 1, engine.name());
+            assertEquals(stats.getVisited(), 1, engine.name());
+            assertEquals(stats.getFired(), 1, engine.name());
+            assertEquals(stats.getActivatedTags(), 1, engine.name());
+        }
+    }
+
+    @Test
+    public void mustCountLambdaSearchAsBackwardThenForwardSearch() {
+        for (KnowledgeNodeNetworkEngine engine : KnowledgeNodeNetworkEngine.values()) {
+            // given
+            final List<SearchStats> searches = new ArrayList<>();
+            final KnowledgeNodeNetwork knn = createKnn(engine, new SearchCounters(searches::add));
+
+            // when
+            knn.lambdaSearch(Collections.singleton(d), 1);
+
+            // then
+            assertEquals(searches.size(), 2, engine.name());
+            assertEquals(searches.get(0).getType(), SearchType.BACKWARD, engine.name());
+            assertEquals(searches.get(1).getType(), SearchType.FORWARD, engine.name());
+        }
+    }
+
+    @Test
+    public void mustCountBidirectionalSearch() {
+        for (KnowledgeNodeNetworkEngine engine : KnowledgeNodeNetworkEngine.values()) {
+            // given
+            final List<SearchStats> searches = new ArrayList<>();
+            final KnowledgeNodeNetwork knn = createKnn(engine, new SearchCounters(searches::add));
+
+            // when
+            knn.bidirectionalSearch(Collections.singleton(a), Collections.singleton(d), 0, 0);
+
+            // then
+            assertEquals(searches.size(), 1, engine.name());
+            assertEquals(searches.get(0).getType(), SearchType.BIDIRECTIONAL, engine.name());
+            assertEquals(searches.get(0).getPlies(), 2, engine.name());
+        }
+    }
+
+    @Test
+    public void mustCountSessionSearches() {
+        for (KnowledgeNodeNetworkEngine engine : KnowledgeNodeNetworkEngine.values()) {
+            // given
+            final SearchCounters searchCounters = new SearchCounters();
+            final KnowledgeNodeNetwork knn = createKnn(engine, searchCounters);
+
+            // when
+            knn.openSession().forwardSearch(Collections.singleton(a), 0);
+            knn.openSession().directSearch(a);
+
+            // then
+            final SearchStats totals = searchCounters.getTotals();
+            assertEquals(totals.getSearches(), 2, engine.name());
+            assertEquals(totals.getFired(), 3, engine.name());
+        }
+    }
+
+    @Test
+    public void mustBindListenerAsIsWithoutAsyncSearch() throws Exception {
+        // when
+        final SearchListener listener = Guice.createInjector(KnowledgeNodeNetworkModule.builder().build())
+                .getInstance(SearchListener.class);
+
+        // then
+        assertSame(listener, SearchListener.NONE);
+    }
+}
@@ -0,0 +1,193 @@
+package integration;
+
+import knn.api.KnowledgeNode;
+import knn.api.KnowledgeNodeNetwork;
+import knn.api.KnowledgeNodeNetworkEngine;
+import knn.api.SearchSession;
+import knn.guice.KnowledgeNodeNetworkModule;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import tags.Fact;
+import tags.Tag;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Checks that the search sessions of every KNN engine search like a fresh KNN, without changing the shared KNN or
+ * each other.
+ */
+public class SearchSessionTest {
+    private static final String ANIMAL_DATA_PATH = "data/animalData.txt";
+    private static final int THREADS = 8;
+    private static final int SESSIONS = 100;
+    private ExecutorService executor;
+    private Set<Tag> inputTags;
+
+    private static KnowledgeNodeNetwork createKnn(final KnowledgeNodeNetworkEngine engine) {
+        final KnowledgeNodeNetwork knn = TestKnowledgeNodeNetworks.create(KnowledgeNodeNetworkModule.builder()
+                .engine(engine));
+        knn.loadData(ANIMAL_DATA_PATH);
+        return knn;
+    }
+
+    private static void assertUnchanged(final KnowledgeNodeNetwork knn) {
+        assertTrue(knn.getActiveTags().isEmpty());
+        for (KnowledgeNode kn : knn.getKnowledgeNodes()) {
+            assertEquals(kn.getActivation(), 0.0);
+        }
+    }
+
+    @BeforeMethod
+    public void setUp() {
+        executor = Executors.newFixedThreadPool(THREADS);
+        inputTags = new HashSet<>(Arrays.asList(
+                new Fact("dog(wolflike,length>50,weight>20)"),
+                new Fact("cat(feline,length>50,weight>20)")));
+    }
+
+    @AfterMethod
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void mustSearchLikeFreshKnowledgeNodeNetwork() {
+        for (KnowledgeNodeNetworkEngine engine : KnowledgeNodeNetworkEngine.values()) {
+            // given
+            final KnowledgeNodeNetwork knn = createKnn(engine);
+            final KnowledgeNodeNetwork forwardKnn = createKnn(KnowledgeNodeNetworkEngine.DEFAULT);
+            final KnowledgeNodeNetwork backwardKnn = createKnn(KnowledgeNodeNetworkEngine.DEFAULT);
+            final KnowledgeNodeNetwork lambdaKnn = createKnn(KnowledgeNodeNetworkEngine.DEFAULT);
+            final SearchSession forwardSession = knn.openSession();
+            final SearchSession backwardSession = knn.openSession();
+            final SearchSession lambdaSession = knn.openSession();
+
+            // when
+            final Set<Tag> forward = forwardSession.forwardSearch(inputTags, 0);
+            final Set<Tag> backward = backwardSession.backwardSearch(inputTags, 2);
+            final Set<Tag> lambda = lambdaSession.lambdaSearch(inputTags, 2);
+
+            // then
+            assertEquals(forward, forwardKnn.forwardSearch(inputTags, 0), engine.name());
+            assertEquals(forwardSession.getActiveTags(), forwardKnn.getActiveTags(), engine.name());
+            assertEquals(backward, backwardKnn.backwardSearch(inputTags, 2), engine.name());
+            assertEquals(backwardSession.getActiveTags(), backwardKnn.getActiveTags(), engine.name());
+            assertEquals(lambda, lambdaKnn.lambdaSearch(inputTags, 2), engine.name());
+            assertEquals(lambdaSession.getActiveTags(), lambdaKnn.getActiveTags(), engine.name());
+            assertUnchanged(knn);
+        }
+    }
+
+    @Test
+    public void mustIsolateSessions() {
+        for (KnowledgeNodeNetworkEngine engine : KnowledgeNodeNetworkEngine.values()) {
+            // given
+            final KnowledgeNodeNetwork knn = createKnn(engine);
+            final SearchSession session = knn.openSession();
+            final SearchSession otherSession = knn.openSession();
+            session.addActiveTags(inputTags.toArray(new Tag[0]));
+            final Set<Tag> expected = session.forwardThink(1);
+
+            // when
+            final Set<Tag> repeated = session.forwardSearch(inputTags, 1);
+            final Set<Tag> other = otherSession.forwardSearch(inputTags, 1);
+
+            // then: the KNs only fire once per session
+            assertFalse(expected.isEmpty(), engine.name());
+            assertTrue(repeated.isEmpty(), engine.name());
+            assertEquals(other, expected, engine.name());
+            final Tag inputTag = inputTags.iterator().next();
+            assertTrue(session.getKnowledgeNode(inputTag).isFired(), engine.name());
+            assertFalse(knn.getKnowledgeNode(inputTag).isFired(), engine.name());
+            session.clearActiveTags();
+            assertTrue(session.getActiveTags().isEmpty(), engine.name());
+            assertFalse(otherSession.getActiveTags().isEmpty(), engine.name());
+            assertUnchanged(knn);
+        }
+    }
+
+    @Test
+    public void mustNotExposeSharedKnowledgeNode() {
+        for (KnowledgeNodeNetworkEngine engine : KnowledgeNodeNetworkEngine.values()) {
+            // given
+            final KnowledgeNodeNetwork knn = createKnn(engine);
+            final SearchSession session = knn.openSession();
+            final Tag inputTag = inputTags.iterator().next();
+
+            // when
+            session.getKnowledgeNode(inputTag).excite(System.currentTimeMillis());
+
+            // then
+            assertFalse(knn.getKnowledgeNode(inputTag).isFired(), engine.name());
+            assertFalse(session.getKnowledgeNode(inputTag).isFired(), engine.name());
+            assertUnchanged(knn);
+        }
+    }
+
+    @Test
+    public void mustDeleteExpiredKnowledgeNodeFromSessionOnly() {
+        for (KnowledgeNodeNetworkEngine engine : KnowledgeNodeNetworkEngine.values()) {
+            // given
+            final KnowledgeNodeNetwork knn = createKnn(engine);
+            final Fact inputTag = new Fact("old(x)");
+            knn.addKnowledgeNode(new KnowledgeNode(inputTag, Collections.singleton(new Fact("older(x)")), 1, 0, 1, 0,
+                    KnowledgeNode.AGE_THRESHOLD + 1, System.currentTimeMillis(), false));
+            final SearchSession session = knn.openSession();
+
+            // when
+            final Set<Tag> activated = session.directSearch(inputTag);
+
+            // then
+            assertTrue(activated.isEmpty(), engine.name());
+            assertNull(session.getKnowledgeNode(inputTag), engine.name());
+            assertNotNull(knn.getKnowledgeNode(inputTag), engine.name());
+            assertFalse(knn.getKnowledgeNode(inputTag).isExpired(), engine.name());
+            assertNotNull(knn.openSession().getKnowledgeNode(inputTag), engine.name());
+        }
+    }
+
+    @Test
+    public void mustSearchSessionsConcurrently() throws Exception {
+        for (KnowledgeNodeNetworkEngine engine : KnowledgeNodeNetworkEngine.values()) {
+            // given
+            final KnowledgeNodeNetwork knn = createKnn(engine);
+            final KnowledgeNodeNetwork freshKnn = createKnn(KnowledgeNodeNetworkEngine.DEFAULT);
+            final Set<Tag> expected = freshKnn.lambdaSearch(inputTags, 0);
+            final List<Future<Boolean>> futures = new ArrayList<>();
+
+            // when
+            for (int i = 0; i < THREADS; i++) {
+                futures.add(executor.submit(() -> {
+                    boolean same = true;
+                    for (int j = 0; j < SESSIONS; j++) {
+                        final SearchSession session = knn.openSession();
+                        session.setBackwardSearchMatchRatio(1);
+                        same &= session.lambdaSearch(inputTags, 0).equals(expected);
+                    }
+                    return same;
+                }));
+            }
+
+            // then
+            for (Future<Boolean> future : futures) {
+                assertTrue(future.get(), engine.name());
+            }
+            assertUnchanged(knn);
+        }
+    }
+}
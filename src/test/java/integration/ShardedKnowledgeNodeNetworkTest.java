@@ -0,0 +1,171 @@
+package integration;
+
+import datagen.DegreeDistribution;
+import datagen.KnowledgeNodeDataGenerator;
+import datagen.TagMix;
+import knn.api.KnowledgeNode;
+import knn.api.KnowledgeNodeNetwork;
+import knn.api.KnowledgeNodeNetworkEngine;
+import knn.api.SearchSession;
+import knn.guice.KnowledgeNodeNetworkModule;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import tags.Fact;
+import tags.Tag;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+
+/**
+ * Checks that the sharded KNN engine, with several shards, gives the same results as the default engine.
+ */
+public class ShardedKnowledgeNodeNetworkTest {
+    private static final String ANIMAL_DATA_PATH = "data/animalData.txt";
+    private static final int SHARDS = 4;
+    private KnowledgeNodeNetwork knn;
+    private KnowledgeNodeNetwork shardedKnn;
+
+    private static KnowledgeNodeNetwork createKnn(final KnowledgeNodeNetworkEngine engine) {
+        return TestKnowledgeNodeNetworks.create(KnowledgeNodeNetworkModule.builder()
+                .engine(engine)
+                .shards(SHARDS));
+    }
+
+    private void assertSameKnowledgeNodes() {
+        final Map<Tag, KnowledgeNode> expected = new HashMap<>();
+        for (KnowledgeNode kn : knn.getKnowledgeNodes()) {
+            expected.put(kn.getInputTag(), kn);
+        }
+        assertEquals(shardedKnn.getKnowledgeNodes().size(), expected.size());
+        // The KNs of a ply fire in parallel across the shards, so the recency order within a ply differs
+        for (KnowledgeNode actual : shardedKnn.getKnowledgeNodes()) {
+            final KnowledgeNode kn = expected.get(actual.getInputTag());
+            assertEquals(actual.getOutputTags(), kn.getOutputTags());
+            assertEquals(actual.getActivation(), kn.getActivation());
+            assertEquals(actual.isFired(), kn.isFired());
+        }
+    }
+
+    @BeforeMethod
+    public void setupKNN() {
+        knn = createKnn(KnowledgeNodeNetworkEngine.DEFAULT);
+        shardedKnn = createKnn(KnowledgeNodeNetworkEngine.SHARDED);
+        knn.loadData(ANIMAL_DATA_PATH);
+        shardedKnn.loadData(ANIMAL_DATA_PATH);
+    }
+
+    @Test
+    public void mustForwardSearchLikeDefaultEngine() {
+        for (int ply : new int[]{1, 2, 0}) {
+            setupKNN();
+            Set<Tag> inputTags = new HashSet<>(Arrays.asList(
+                    new Fact("dog(wolflike,length>50,weight>20)"),
+                    new Fact("cat(feline,length>50,weight>20)")));
+
+            assertEquals(shardedKnn.forwardSearch(inputTags, ply), knn.forwardSearch(inputTags, ply));
+            assertEquals(shardedKnn.getActiveTags(), knn.getActiveTags());
+        }
+    }
+
+    @Test
+    public void mustForwardThinkLikeDefaultEngine() {
+        Fact fact = new Fact("chicken(eggs,length<50,weight<10)");
+        knn.addActiveTag(fact);
+        shardedKnn.addActiveTag(fact);
+
+        assertEquals(shardedKnn.forwardThink(0), knn.forwardThink(0));
+        assertEquals(shardedKnn.directSearch(fact), knn.directSearch(fact));
+        assertEquals(shardedKnn.getActiveTags(), knn.getActiveTags());
+    }
+
+    @Test
+    public void mustLambdaSearchLikeDefaultEngine() {
+        Set<Tag> inputTags = new HashSet<>(Arrays.asList(new Fact("calm(safe>5)"), new Fact("coward(scared,safe)")));
+        knn.setBackwardSearchMatchRatio(0.5);
+        shardedKnn.setBackwardSearchMatchRatio(0.5);
+
+        assertEquals(shardedKnn.lambdaSearch(inputTags, 0), knn.lambdaSearch(inputTags, 0));
+        assertEquals(shardedKnn.getActiveTags(), knn.getActiveTags());
+        assertEquals(shardedKnn.lambdaThink(1), knn.lambdaThink(1));
+    }
+
+    @Test
+    public void mustBackwardSearchLikeDefaultEngine() {
+        Set<Tag> inputTags = new HashSet<>(Arrays.asList(new Fact("calm(safe>5)"), new Fact("coward(scared,safe)")));
+        for (double ratio : new double[]{0, 0.5, 1}) {
+            setupKNN();
+            knn.setBackwardSearchMatchRatio(ratio);
+            shardedKnn.setBackwardSearchMatchRatio(ratio);
+
+            assertEquals(shardedKnn.backwardSearch(inputTags, 2), knn.backwardSearch(inputTags, 2));
+            assertEquals(shardedKnn.getActiveTags(), knn.getActiveTags());
+        }
+    }
+
+    @Test
+    public void mustSearchGeneratedDataLikeDefaultEngine() throws Exception {
+        final File data = File.createTempFile("knn", ".txt");
+        data.deleteOnExit();
+        new KnowledgeNodeDataGenerator(2000, DegreeDistribution.powerLaw(1, 20, 2.5), TagMix.DEFAULT, 0.05, 0)
+                .write(data.getPath());
+        knn.loadData(data.getPath());
+        shardedKnn.loadData(data.getPath());
+        final Set<Tag> inputTags = new HashSet<>();
+        for (KnowledgeNode kn : knn.getKnowledgeNodes()) {
+            if (inputTags.size() < 50) {
+                inputTags.add(kn.getInputTag());
+            }
+        }
+
+        assertEquals(shardedKnn.forwardSearch(inputTags, 3, 20), knn.forwardSearch(inputTags, 3, 20));
+        assertEquals(shardedKnn.forwardSearch(inputTags, 3), knn.forwardSearch(inputTags, 3));
+        assertEquals(shardedKnn.getActiveTags(), knn.getActiveTags());
+        assertEquals(shardedKnn.forwardThink(0), knn.forwardThink(0));
+        assertSameKnowledgeNodes();
+    }
+
+    @Test
+    public void mustSearchSessionLikeDefaultEngine() {
+        Set<Tag> inputTags = new HashSet<>(Arrays.asList(
+                new Fact("dog(wolflike,length>50,weight>20)"),
+                new Fact("cat(feline,length>50,weight>20)")));
+        final SearchSession session = shardedKnn.openSession();
+
+        assertEquals(session.forwardSearch(inputTags, 0), knn.openSession().forwardSearch(inputTags, 0));
+        assertEquals(shardedKnn.getActiveTags(), knn.getActiveTags());
+        assertEquals(shardedKnn.forwardSearch(inputTags, 0), knn.forwardSearch(inputTags, 0));
+        assertSameKnowledgeNodes();
+    }
+
+    @Test
+    public void mustSearchAfterDeletingKnowledgeNode() {
+        Fact dog = new Fact("dog(wolflike,length>50,weight>20)");
+        knn.deleteKnowledgeNode(dog);
+        shardedKnn.deleteKnowledgeNode(dog);
+
+        assertNull(shardedKnn.getKnowledgeNode(dog));
+        assertEquals(shardedKnn.forwardSearch(new HashSet<>(Arrays.asList(dog)), 0),
+                knn.forwardSearch(new HashSet<>(Arrays.asList(dog)), 0));
+        assertSameKnowledgeNodes();
+    }
+
+    @Test
+    public void mustReplaceKnowledgeNode() throws Exception {
+        final String data = "dog(wolflike,length>50,weight>20); 1; cat(feline)";
+        final KnowledgeNode kn = new KnowledgeNode(data);
+        knn.addKnowledgeNode(kn);
+        // The sharded KNN keeps the KN itself, excited by its own searches
+        shardedKnn.addKnowledgeNode(new KnowledgeNode(data));
+
+        assertEquals(shardedKnn.getKnowledgeNode(kn.getInputTag()).getOutputTags(), kn.getOutputTags());
+        assertEquals(shardedKnn.directSearch(kn.getInputTag()), knn.directSearch(kn.getInputTag()));
+        assertSameKnowledgeNodes();
+    }
+}
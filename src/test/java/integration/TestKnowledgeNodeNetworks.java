@@ -0,0 +1,42 @@
+package integration;
+
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import knn.api.KnowledgeNodeNetwork;
+import knn.api.KnowledgeNodeNetworkFactory;
+import knn.guice.KnowledgeNodeNetworkModule;
+
+import java.util.HashMap;
+import java.util.HashSet;
+
+/**
+ * Creates the empty KNNs of the integration tests, with a backward search match ratio of 1 and no age limit unless
+ * given.
+ */
+final class TestKnowledgeNodeNetworks {
+    private TestKnowledgeNodeNetworks() {
+    }
+
+    static KnowledgeNodeNetwork create(final KnowledgeNodeNetworkModule.Builder builder) {
+        return create(builder, 1, Long.MAX_VALUE);
+    }
+
+    static KnowledgeNodeNetwork create(final KnowledgeNodeNetworkModule.Builder builder,
+                                       final double backwardSearchMatchRatio, final long backwardSearchAgeLimit) {
+        return create(Guice.createInjector(builder.build()), backwardSearchMatchRatio, backwardSearchAgeLimit);
+    }
+
+    /**
+     * Creates a KNN from an injector of a {@link KnowledgeNodeNetworkModule}, for tests which also get other
+     * instances from the injector.
+     */
+    static KnowledgeNodeNetwork create(final Injector injector) {
+        return create(injector, 1, Long.MAX_VALUE);
+    }
+
+    static KnowledgeNodeNetwork create(final Injector injector, final double backwardSearchMatchRatio,
+                                       final long backwardSearchAgeLimit) {
+        return injector.getInstance(KnowledgeNodeNetworkFactory.class)
+                .create(new HashMap<>(), new HashSet<>(), backwardSearchMatchRatio, backwardSearchAgeLimit);
+    }
+}
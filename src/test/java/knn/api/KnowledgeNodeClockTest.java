@@ -0,0 +1,89 @@
+package knn.api;
+
+import java.util.Collections;
+import org.testng.annotations.Test;
+import tags.Fact;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertFalse;
+import static org.testng.AssertJUnit.assertTrue;
+
+public class KnowledgeNodeClockTest {
+    @Test
+    public void mustTickOncePerSearch() throws Exception {
+        // given
+        final LogicalKnowledgeNodeClock clock = new LogicalKnowledgeNodeClock(10);
+
+        // when
+        final long first = clock.searchStarted();
+        final long second = clock.searchStarted();
+
+        // then
+        assertEquals(11, first);
+        assertEquals(12, second);
+        assertEquals(12, clock.currentTime());
+        assertEquals(20, clock.advance(8));
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void mustNotGoBackward() throws Exception {
+        new LogicalKnowledgeNodeClock(0).advance(-1);
+    }
+
+    @Test
+    public void mustAgeKnowledgeNodeByTicks() throws Exception {
+        // given
+        final LogicalKnowledgeNodeClock clock = new LogicalKnowledgeNodeClock(0);
+        final KnowledgeNode kn = new KnowledgeNode(new Fact("A(x)"), Collections.singleton(new Fact("B(x)")), 1000, 0,
+                1, 0, 0, 0, false);
+
+        // when
+        kn.excite(clock.searchStarted());
+        clock.advance(KnowledgeNode.AGE_THRESHOLD);
+        kn.excite(clock.searchStarted());
+        final boolean fired = kn.excite(clock.searchStarted());
+
+        // then
+        assertEquals(KnowledgeNode.AGE_THRESHOLD + 1, kn.getAge());
+        assertEquals(1, kn.getCurrentAge(clock.currentTime()));
+        assertFalse(fired);
+        assertTrue(kn.isExpired());
+    }
+
+    @Test
+    public void mustStampNewKnowledgeNodeOnce() throws Exception {
+        // given
+        final KnowledgeNode kn = new KnowledgeNode(new Fact("A(x)"), Collections.singleton(new Fact("B(x)")), 1);
+        final KnowledgeNode restored = new KnowledgeNode(new Fact("A(x)"), Collections.singleton(new Fact("B(x)")), 1,
+                0, 1, 0, 0, 3, false);
+
+        // when
+        kn.stampCreation(5);
+        kn.stampCreation(7);
+        restored.stampCreation(5);
+
+        // then
+        assertEquals(5, kn.getAgeTimeStamp());
+        assertEquals(3, restored.getAgeTimeStamp());
+    }
+
+    @Test
+    public void mustFollowWallClock() throws Exception {
+        // given
+        final long before = System.currentTimeMillis();
+        try (CoarseKnowledgeNodeClock clock = new CoarseKnowledgeNodeClock(1)) {
+            // when
+            Thread.sleep(50);
+            final long time = clock.searchStarted();
+
+            // then
+            assertTrue(time > before);
+            assertTrue(time <= System.currentTimeMillis());
+        }
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void mustHavePositiveResolution() throws Exception {
+        new CoarseKnowledgeNodeClock(0).close();
+    }
+}
@@ -0,0 +1,99 @@
+package knn.api;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import tags.Fact;
+import tags.Tag;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertNull;
+import static org.testng.AssertJUnit.assertTrue;
+
+public class SearchCountersTest {
+    private final Tag a = new Fact("A(x)");
+    private final Tag b = new Fact("B(x)");
+    private List<SearchStats> searches;
+    private SearchCounters searchCounters;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        searches = new ArrayList<>();
+        searchCounters = new SearchCounters(searches::add);
+    }
+
+    private void search(final SearchType type) {
+        final SearchTrace trace = searchCounters.searchStarted(type);
+        trace.plyStarted(0, 2);
+        trace.knowledgeNodeVisited(a);
+        trace.knowledgeNodeFired(a);
+        trace.tagsActivated(3);
+        trace.knowledgeNodeVisited(b);
+        trace.knowledgeNodeExpired(b);
+        trace.plyEnded(0, 3);
+        trace.plyStarted(1, 3);
+        trace.knowledgeNodeVisited(a);
+        trace.plyEnded(1, 0);
+        trace.searchEnded();
+    }
+
+    @Test
+    public void mustCountSearch() throws Exception {
+        // when
+        search(SearchType.FORWARD);
+
+        // then
+        assertEquals(1, searches.size());
+        final SearchStats stats = searches.get(0);
+        assertEquals(SearchType.FORWARD, stats.getType());
+        assertEquals(1, stats.getSearches());
+        assertEquals(2, stats.getPlies());
+        assertEquals(2, stats.getVisited(0));
+        assertEquals(1, stats.getVisited(1));
+        assertEquals(0, stats.getVisited(2));
+        assertEquals(3, stats.getVisited());
+        assertEquals(1, stats.getFired());
+        assertEquals(1, stats.getExpired());
+        assertEquals(3, stats.getActivatedTags());
+        assertEquals(3.0, stats.getFanOut(), 0);
+        assertEquals(1.0 / 3, stats.getHitRate(), 1e-9);
+        assertTrue(stats.getElapsedNanos() >= 0);
+        assertTrue(stats.toString().contains("visitedPerPly=[2, 1]"));
+    }
+
+    @Test
+    public void mustAddUpSearches() throws Exception {
+        // when
+        search(SearchType.FORWARD);
+        search(SearchType.BACKWARD);
+        searchCounters.searchStarted(SearchType.DIRECT).searchEnded();
+
+        // then
+        final SearchStats totals = searchCounters.getTotals();
+        assertNull(totals.getType());
+        assertEquals(3, totals.getSearches());
+        assertEquals(4, totals.getPlies());
+        assertEquals(4, totals.getVisited(0));
+        assertEquals(2, totals.getVisited(1));
+        assertEquals(6, totals.getVisited());
+        assertEquals(2, totals.getFired());
+        assertEquals(2, totals.getExpired());
+        assertEquals(6, totals.getActivatedTags());
+        assertEquals(searches.get(0).getElapsedNanos()
+                        + searches.get(1).getElapsedNanos()
+                        + searches.get(2).getElapsedNanos(),
+                totals.getElapsedNanos());
+    }
+
+    @Test
+    public void mustHaveNoRatesWithoutSearches() throws Exception {
+        // when
+        final SearchStats totals = new SearchCounters().getTotals();
+
+        // then
+        assertEquals(0, totals.getSearches());
+        assertEquals(0.0, totals.getFanOut(), 0);
+        assertEquals(0.0, totals.getHitRate(), 0);
+    }
+}
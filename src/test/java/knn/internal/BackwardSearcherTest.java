@@ -1,45 +1,58 @@
 package knn.internal;
 
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Optional;
 import java.util.Set;
-import java.util.TreeSet;
 import knn.api.KnowledgeNode;
+import knn.api.KnowledgeNodeClock;
+import knn.api.SearchListener;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
+import tags.Fact;
 import tags.Tag;
 
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anySet;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.testng.AssertJUnit.assertEquals;
 import static org.testng.AssertJUnit.assertTrue;
 
 public class BackwardSearcherTest {
     private BackwardSearcher backwardSearcher;
     private BackwardSearchMatcher backwardSearchMatcher;
-    private TreeSet<KnowledgeNode> ageSortedKNs;
+    private KnowledgeNodeIndex knowledgeNodeIndex;
 
     @BeforeMethod
     public void setUp() throws Exception {
         final Set<Tag> activeTags = new HashSet<>();
         backwardSearchMatcher = mock(BackwardSearchMatcher.class);
-        ageSortedKNs = new TreeSet<>();
+        knowledgeNodeIndex = TestKnowledgeNodeIndexes.create();
         final double partialMatchRatio = 0.5;
         final long ageLimit = Long.MAX_VALUE;
-        backwardSearcher = new BackwardSearcher(activeTags, ageSortedKNs, partialMatchRatio, ageLimit, backwardSearchMatcher);
+        backwardSearcher = new BackwardSearcher(activeTags, knowledgeNodeIndex, partialMatchRatio, ageLimit,
+                backwardSearchMatcher, SearchListener.NONE, KnowledgeNodeClock.SYSTEM);
     }
 
     @Test
     public void mustBackwardSearch() throws Exception {
+        final Tag t1 = mock(Tag.class);
         final Set<Tag> inputTags = new HashSet<>(Arrays.asList(
-                mock(Tag.class), mock(Tag.class), mock(Tag.class), mock(Tag.class)));
+                t1, mock(Tag.class), mock(Tag.class), mock(Tag.class)));
         final int ply = 5;
         final int numRequiredMatches = 2;
-        final KnowledgeNode kn = new KnowledgeNode("P(A); P(B)");
+        final KnowledgeNode kn =
+                new KnowledgeNode(mock(Tag.class), new HashSet<>(Arrays.asList(t1, mock(Tag.class))), 1);
         final Tag backwardSearchMatcherTag = mock(Tag.class);
 
         // given
-        ageSortedKNs.add(kn);
+        knowledgeNodeIndex.add(kn);
         when(backwardSearchMatcher.match(inputTags, kn, numRequiredMatches))
                 .thenReturn(Optional.of(backwardSearchMatcherTag));
 
@@ -49,4 +62,44 @@ public class BackwardSearcherTest {
         // then
         assertTrue(allActivatedTags.contains(backwardSearchMatcherTag));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void mustOnlyMatchKnsSharingAnInputTag() throws Exception {
+        final Set<Tag> inputTags = new HashSet<>(Arrays.asList(mock(Tag.class), mock(Tag.class)));
+        final KnowledgeNode kn =
+                new KnowledgeNode(mock(Tag.class), new HashSet<>(Arrays.asList(mock(Tag.class), mock(Tag.class))), 1);
+
+        // given
+        knowledgeNodeIndex.add(kn);
+
+        // when
+        final Set<Tag> allActivatedTags = backwardSearcher.searchInternal(inputTags, 1);
+
+        // then
+        assertTrue(allActivatedTags.isEmpty());
+        verify(backwardSearchMatcher, never()).match(anySet(), any(KnowledgeNode.class), anyInt());
+    }
+
+    @Test
+    public void mustBackwardSearchBatchInOrder() throws Exception {
+        final Tag a = new Fact("A(x)");
+        final Tag b = new Fact("B(x)");
+        final Tag c = new Fact("C(x)");
+        final BackwardSearcher searcher = new BackwardSearcher(new HashSet<>(), knowledgeNodeIndex, 1, Long.MAX_VALUE,
+                new BackwardSearchMatcher(), SearchListener.NONE, KnowledgeNodeClock.SYSTEM);
+
+        // given
+        knowledgeNodeIndex.add(new KnowledgeNode(a, Collections.singleton(b), 1));
+        knowledgeNodeIndex.add(new KnowledgeNode(b, Collections.singleton(c), 1));
+
+        // when
+        final List<Set<Tag>> activatedTags = searcher.searchBatch(
+                Arrays.asList(Collections.singleton(c), Collections.singleton(b), Collections.singleton(c)), 0);
+
+        // then
+        // The later queries do not activate the Tags already activated
+        assertEquals(new HashSet<>(Arrays.asList(a, b)), activatedTags.get(0));
+        assertEquals(Collections.emptySet(), activatedTags.get(1));
+        assertEquals(Collections.emptySet(), activatedTags.get(2));
+    }
+}
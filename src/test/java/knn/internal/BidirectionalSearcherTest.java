@@ -0,0 +1,172 @@
+package knn.internal;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import knn.api.BidirectionalSearchResult;
+import knn.api.KnowledgeNodeClock;
+import knn.api.SearchListener;
+import knn.api.SearchTrace;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import tags.Fact;
+import tags.Tag;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertFalse;
+import static org.testng.AssertJUnit.assertTrue;
+
+public class BidirectionalSearcherTest {
+    private final Tag a = new Fact("A(x)");
+    private final Tag b = new Fact("B(x)");
+    private final Tag c = new Fact("C(x)");
+    private final Tag d = new Fact("D(x)");
+    private final Tag e = new Fact("E(x)");
+    private final Tag w = new Fact("W(x)");
+    private Map<Tag, Set<Tag>> outputs;
+    private Set<Tag> activeTags;
+    private BidirectionalSearcher searcher;
+
+    private void link(final Tag input, final Tag... outputTags) {
+        outputs.put(input, new HashSet<>(Arrays.asList(outputTags)));
+    }
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        outputs = new HashMap<>();
+        activeTags = new HashSet<>();
+        // A -> B -> C -> D -> E, and A -> W
+        link(a, b, w);
+        link(b, c);
+        link(c, d);
+        link(d, e);
+        searcher = new BidirectionalSearcher() {
+            @Override
+            Set<Tag> searchForwardPly(final Set<Tag> plyInputTags, final SearchTrace trace, final long now) {
+                final Set<Tag> activatedTags = new HashSet<>();
+                for (Tag t : plyInputTags) {
+                    activatedTags.addAll(outputs.getOrDefault(t, Collections.emptySet()));
+                }
+                activeTags.addAll(activatedTags);
+                return activatedTags;
+            }
+
+            @Override
+            Set<Tag> searchBackwardPly(final Set<Tag> plyInputTags, final SearchTrace trace, final long now) {
+                final Set<Tag> activatedTags = new HashSet<>();
+                for (Map.Entry<Tag, Set<Tag>> entry : outputs.entrySet()) {
+                    if (entry.getValue().containsAll(plyInputTags)) {
+                        activatedTags.add(entry.getKey());
+                    }
+                }
+                return activatedTags;
+            }
+
+            @Override
+            SearchListener getSearchListener() {
+                return SearchListener.NONE;
+            }
+
+            @Override
+            KnowledgeNodeClock getClock() {
+                return KnowledgeNodeClock.SYSTEM;
+            }
+
+            @Override
+            void activate(final Set<Tag> tags) {
+                activeTags.addAll(tags);
+            }
+        };
+    }
+
+    @Test
+    public void mustMeetInTheMiddle() throws Exception {
+        // given
+        link(a, b);
+
+        // when
+        final BidirectionalSearchResult result =
+                searcher.search(Collections.singleton(a), Collections.singleton(e), 0, 0);
+
+        // then
+        assertTrue(result.isConnected());
+        assertEquals(Collections.singleton(c), result.getConnectingTags());
+        assertEquals(new HashSet<>(Arrays.asList(b, c)), result.getForwardTags());
+        assertEquals(new HashSet<>(Arrays.asList(c, d)), result.getBackwardTags());
+        assertEquals(4, result.getExploredTags());
+        assertEquals(new HashSet<>(Arrays.asList(b, c, d)), activeTags);
+    }
+
+    @Test
+    public void mustExpandSmallerFrontier() throws Exception {
+        // given
+        link(e, a);
+
+        // when
+        final BidirectionalSearchResult result =
+                searcher.search(Collections.singleton(a), Collections.singleton(d), 0, 0);
+
+        // then
+        assertEquals(Collections.singleton(b), result.getConnectingTags());
+        assertEquals(new HashSet<>(Arrays.asList(b, w)), result.getForwardTags());
+        assertEquals(new HashSet<>(Arrays.asList(b, c)), result.getBackwardTags());
+        assertEquals(3, result.getExploredTags());
+    }
+
+    @Test
+    public void mustConnectInputGoals() throws Exception {
+        // when
+        final BidirectionalSearchResult result =
+                searcher.search(Collections.singleton(a), new HashSet<>(Arrays.asList(a, e)), 0, 0);
+
+        // then
+        assertEquals(Collections.singleton(a), result.getConnectingTags());
+        assertEquals(0, result.getExploredTags());
+        assertTrue(activeTags.isEmpty());
+    }
+
+    @Test
+    public void mustStopWithinBudget() throws Exception {
+        // when
+        final BidirectionalSearchResult result =
+                searcher.search(Collections.singleton(a), Collections.singleton(e), 0, 2);
+
+        // then
+        assertFalse(result.isConnected());
+        assertEquals(2, result.getExploredTags());
+        assertEquals(Collections.singleton(d), result.getBackwardTags());
+    }
+
+    @Test
+    public void mustStopAfterPly() throws Exception {
+        // when
+        final BidirectionalSearchResult result =
+                searcher.search(Collections.singleton(a), Collections.singleton(e), 1, 0);
+
+        // then
+        assertFalse(result.isConnected());
+        assertEquals(1, result.getExploredTags());
+        assertEquals(new HashSet<>(Arrays.asList(b, w)), result.getForwardTags());
+        assertTrue(result.getBackwardTags().isEmpty());
+    }
+
+    @Test
+    public void mustStopAtQuiescence() throws Exception {
+        // when
+        final BidirectionalSearchResult result =
+                searcher.search(Collections.singleton(e), Collections.singleton(a), 0, 0);
+
+        // then
+        assertFalse(result.isConnected());
+        assertEquals(2, result.getExploredTags());
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void mustRejectNegativeBudget() throws Exception {
+        // when
+        searcher.search(Collections.singleton(a), Collections.singleton(e), 0, -1);
+    }
+}
@@ -0,0 +1,112 @@
+package knn.internal;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import knn.api.KnowledgeNode;
+import knn.api.KnowledgeNodeClock;
+import knn.api.SearchListener;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import tags.Fact;
+import tags.Tag;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertTrue;
+
+public class CompiledForwardSearcherTest {
+    private Map<Tag, KnowledgeNode> mapKN;
+    private Set<Tag> activeTags;
+    private KnowledgeNodeIndex knowledgeNodeIndex;
+    private CompiledForwardSearcher compiledForwardSearcher;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        mapKN = new HashMap<>();
+        activeTags = new HashSet<>();
+        knowledgeNodeIndex = TestKnowledgeNodeIndexes.create();
+        compiledForwardSearcher = new CompiledForwardSearcher(mapKN, activeTags, knowledgeNodeIndex,
+                SearchListener.NONE, KnowledgeNodeClock.SYSTEM);
+    }
+
+    private void addKnowledgeNode(final Tag inputTag, final Tag... outputTags) {
+        final KnowledgeNode kn = new KnowledgeNode(inputTag, new HashSet<>(Arrays.asList(outputTags)), 1);
+        mapKN.put(inputTag, kn);
+        knowledgeNodeIndex.add(kn);
+    }
+
+    @Test
+    public void mustDirectSearch() throws Exception {
+        final Tag a = new Fact("A(x)");
+        final Tag b = new Fact("B(x)");
+        final Tag c = new Fact("C(x)");
+
+        // given
+        addKnowledgeNode(a, b, c);
+
+        // when
+        final Set<Tag> activatedTags = compiledForwardSearcher.directSearch(a);
+
+        // then
+        assertEquals(new HashSet<>(Arrays.asList(b, c)), activatedTags);
+        assertEquals(new HashSet<>(Arrays.asList(a, b, c)), activeTags);
+    }
+
+    @Test
+    public void mustForwardSearchWithPly() throws Exception {
+        final Tag a = new Fact("A(x)");
+        final Tag b = new Fact("B(x)");
+        final Tag c = new Fact("C(x)");
+        final Tag d = new Fact("D(x)");
+        final Tag unknown = new Fact("U(x)");
+
+        // given
+        addKnowledgeNode(a, b);
+        addKnowledgeNode(b, c);
+        addKnowledgeNode(c, d);
+
+        // when
+        final Set<Tag> activatedTags = compiledForwardSearcher.search(new HashSet<>(Arrays.asList(a, unknown)), 2);
+
+        // then
+        assertEquals(new HashSet<>(Arrays.asList(b, c)), activatedTags);
+        assertEquals(new HashSet<>(Arrays.asList(a, b, c, unknown)), activeTags);
+    }
+
+    @Test
+    public void mustForwardSearchUntilQuiescence() throws Exception {
+        final Tag a = new Fact("A(x)");
+        final Tag b = new Fact("B(x)");
+        final Tag c = new Fact("C(x)");
+
+        // given
+        addKnowledgeNode(a, b);
+        addKnowledgeNode(b, c, a);
+
+        // when
+        final Set<Tag> activatedTags = compiledForwardSearcher.search(Collections.singleton(a), 0);
+
+        // then
+        assertEquals(new HashSet<>(Arrays.asList(a, b, c)), activatedTags);
+    }
+
+    @Test
+    public void mustRecompileAfterInvalidation() throws Exception {
+        final Tag a = new Fact("A(x)");
+        final Tag b = new Fact("B(x)");
+
+        // given
+        compiledForwardSearcher.directSearch(a);
+        addKnowledgeNode(a, b);
+        compiledForwardSearcher.invalidate();
+
+        // when
+        final Set<Tag> activatedTags = compiledForwardSearcher.directSearch(a);
+
+        // then
+        assertTrue(activatedTags.contains(b));
+    }
+}
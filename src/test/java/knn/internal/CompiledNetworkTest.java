@@ -0,0 +1,58 @@
+package knn.internal;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import knn.api.KnowledgeNode;
+import org.testng.annotations.Test;
+import tags.Fact;
+import tags.Tag;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertNull;
+import static org.testng.AssertJUnit.assertSame;
+
+public class CompiledNetworkTest {
+    @Test
+    public void mustCompileOutputsToCsr() throws Exception {
+        final Tag a = new Fact("A(x)");
+        final Tag b = new Fact("B(x)");
+        final Tag c = new Fact("C(x)");
+        final KnowledgeNode knA = new KnowledgeNode(a, new HashSet<>(Arrays.asList(b, c)), 1);
+        final KnowledgeNode knB = new KnowledgeNode(b, new HashSet<>(Arrays.asList(c)), 1);
+        final Map<Tag, KnowledgeNode> mapKN = new HashMap<>();
+        mapKN.put(a, knA);
+        mapKN.put(b, knB);
+
+        // when
+        final CompiledNetwork network = CompiledNetwork.compile(mapKN);
+
+        // then
+        assertEquals(3, network.size());
+        final int idA = network.getId(a);
+        assertSame(knA, network.getKnowledgeNode(idA));
+        assertNull(network.getKnowledgeNode(network.getId(c)));
+        final Set<Tag> outputs = new HashSet<>();
+        for (int i = network.getOutputStart(idA); i < network.getOutputEnd(idA); i++) {
+            outputs.add(network.getTag(network.getOutputId(i)));
+        }
+        assertEquals(knA.getOutputTags(), outputs);
+        assertEquals(TagDictionary.NO_ID, network.getId(new Fact("D(x)")));
+    }
+
+    @Test
+    public void mustRemoveKnowledgeNode() throws Exception {
+        final Tag a = new Fact("A(x)");
+        final Map<Tag, KnowledgeNode> mapKN = new HashMap<>();
+        mapKN.put(a, new KnowledgeNode(a, new HashSet<>(), 1));
+        final CompiledNetwork network = CompiledNetwork.compile(mapKN);
+
+        // when
+        network.removeKnowledgeNode(network.getId(a));
+
+        // then
+        assertNull(network.getKnowledgeNode(network.getId(a)));
+    }
+}
@@ -0,0 +1,127 @@
+package knn.internal;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import knn.api.KnowledgeNode;
+import knn.api.KnowledgeNodeClock;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import tags.Fact;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertFalse;
+import static org.testng.AssertJUnit.assertTrue;
+
+public class ConcurrentKnowledgeNodeIndexTest {
+    private static final long NOW = 1000;
+
+    private ConcurrentKnowledgeNodeIndex knowledgeNodeIndex;
+    private KnowledgeNode kn1;
+    private KnowledgeNode kn2;
+    private KnowledgeNode kn3;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        knowledgeNodeIndex = new ConcurrentKnowledgeNodeIndex(KnowledgeNodeClock.SYSTEM);
+        kn1 = knowledgeNode(new Fact("A(x)"), new Fact("B(x)"));
+        kn2 = knowledgeNode(new Fact("B(x)"), new Fact("C(x)"));
+        kn3 = knowledgeNode(new Fact("C(x)"), new Fact("D(x)"));
+    }
+
+    private static KnowledgeNode knowledgeNode(final Fact inputTag, final Fact outputTag) {
+        return new KnowledgeNode(inputTag, Collections.singleton(outputTag), 1, 0, 1, 0, 0, NOW, false);
+    }
+
+    @Test
+    public void mustIterateFromMostRecent() throws Exception {
+        // given
+        knowledgeNodeIndex.add(kn1);
+        knowledgeNodeIndex.add(kn2);
+        knowledgeNodeIndex.add(kn3);
+
+        // when
+        final boolean fired = knowledgeNodeIndex.excite(kn1, NOW);
+        knowledgeNodeIndex.add(kn2);
+
+        // then
+        assertTrue(fired);
+        assertEquals(Arrays.asList(kn2, kn1, kn3), new ArrayList<>(knowledgeNodeIndex.getKnowledgeNodes()));
+        assertEquals(3, knowledgeNodeIndex.getKnowledgeNodes().size());
+    }
+
+    @Test
+    public void mustReplaceKnowledgeNodeWithSameInputTag() throws Exception {
+        // given
+        final KnowledgeNode replacement = new KnowledgeNode(new Fact("A(x)"), new HashSet<>(Collections.singletonList(new Fact("D(x)"))), 1);
+        knowledgeNodeIndex.add(kn1);
+
+        // when
+        knowledgeNodeIndex.add(replacement);
+
+        // then
+        assertEquals(Collections.singletonList(replacement), new ArrayList<>(knowledgeNodeIndex.getKnowledgeNodes()));
+        assertFalse(knowledgeNodeIndex.getKnowledgeNodes().contains(kn1));
+        assertTrue(knowledgeNodeIndex.getCandidates(Collections.singleton(new Fact("B(x)"))).isEmpty());
+        assertEquals(Collections.singleton(replacement), knowledgeNodeIndex.getCandidates(Collections.singleton(new Fact("D(x)"))));
+    }
+
+    @Test
+    public void mustRemove() throws Exception {
+        // given
+        knowledgeNodeIndex.add(kn1);
+        knowledgeNodeIndex.add(kn2);
+
+        // when
+        knowledgeNodeIndex.remove(kn2);
+        knowledgeNodeIndex.remove(kn3);
+        knowledgeNodeIndex.excite(kn2, System.currentTimeMillis());
+
+        // then
+        assertEquals(Collections.singletonList(kn1), new ArrayList<>(knowledgeNodeIndex.getKnowledgeNodes()));
+        assertFalse(knowledgeNodeIndex.getKnowledgeNodes().contains(kn2));
+        assertFalse(knowledgeNodeIndex.getKnowledgeNodes().contains(new Fact("A(x)")));
+        assertTrue(knowledgeNodeIndex.getCandidates(Collections.singleton(new Fact("C(x)"))).isEmpty());
+        assertEquals(Collections.singleton(kn1), knowledgeNodeIndex.getCandidates(new HashSet<>(Arrays.asList(new Fact("B(x)"), new Fact("Z(x)")))));
+    }
+
+    @Test
+    public void mustClear() throws Exception {
+        // given
+        knowledgeNodeIndex.add(kn1);
+        knowledgeNodeIndex.add(kn2);
+
+        // when
+        knowledgeNodeIndex.clear();
+
+        // then
+        assertTrue(knowledgeNodeIndex.getKnowledgeNodes().isEmpty());
+        assertFalse(knowledgeNodeIndex.getKnowledgeNodes().iterator().hasNext());
+        assertTrue(knowledgeNodeIndex.getCandidates(Collections.singleton(new Fact("B(x)"))).isEmpty());
+    }
+
+    @Test
+    public void mustChangeVersionOnEveryChange() throws Exception {
+        // given
+        final long initial = knowledgeNodeIndex.getVersion();
+
+        // when
+        knowledgeNodeIndex.add(kn1);
+        final long added = knowledgeNodeIndex.getVersion();
+        knowledgeNodeIndex.excite(kn1, System.currentTimeMillis());
+        final long excited = knowledgeNodeIndex.getVersion();
+        knowledgeNodeIndex.remove(kn1);
+        final long removed = knowledgeNodeIndex.getVersion();
+        knowledgeNodeIndex.remove(kn1);
+        final long removedAgain = knowledgeNodeIndex.getVersion();
+        knowledgeNodeIndex.clear();
+
+        // then
+        assertTrue(initial < added);
+        assertTrue(added < excited);
+        assertTrue(excited < removed);
+        assertEquals(removed, removedAgain);
+        assertTrue(removed < knowledgeNodeIndex.getVersion());
+    }
+}
@@ -5,8 +5,9 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
-import java.util.TreeSet;
 import knn.api.KnowledgeNode;
+import knn.api.KnowledgeNodeClock;
+import knn.api.SearchListener;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 import tags.Tag;
@@ -19,14 +20,13 @@ public class DirectSearcherTest {
     private Map<Tag, KnowledgeNode> mapKN;
     private Set<Tag> activeTags;
     private DirectSearcher directSearcher;
-    private TreeSet<KnowledgeNode> ageSortedKNs;
 
     @BeforeMethod
     public void setUp() throws Exception {
         mapKN = new HashMap<>();
         activeTags = new HashSet<>();
-        ageSortedKNs = new TreeSet<>();
-        directSearcher = new DirectSearcher(mapKN, activeTags, ageSortedKNs);
+        directSearcher = new DirectSearcher(mapKN, activeTags, TestKnowledgeNodeIndexes.create(), SearchListener.NONE,
+                KnowledgeNodeClock.SYSTEM);
     }
 
     @Test
@@ -0,0 +1,139 @@
+package knn.internal;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import knn.api.KnowledgeNode;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import tags.Fact;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertTrue;
+
+public class ExpiryWheelTest {
+    private static final long TIME = 1_500_000_000_000L;
+    private ExpiryWheel expiryWheel;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        expiryWheel = new ExpiryWheel(TIME);
+    }
+
+    private static KnowledgeNode createKnowledgeNode(final int i, final long ageTimeStamp, final boolean expired) {
+        return new KnowledgeNode(new Fact("K(" + i + ")"), Collections.singleton(new Fact("L(x)")), 1, 0, 1, 0, 0,
+                ageTimeStamp, expired);
+    }
+
+    @Test
+    public void mustExpireAtDeadline() throws Exception {
+        // given
+        final KnowledgeNode kn = createKnowledgeNode(0, TIME, false);
+        expiryWheel.add(kn);
+
+        // when
+        final List<KnowledgeNode> beforeDeadline = expiryWheel.advance(TIME + KnowledgeNode.AGE_THRESHOLD);
+        final List<KnowledgeNode> atDeadline = expiryWheel.advance(TIME + KnowledgeNode.AGE_THRESHOLD + 1);
+
+        // then
+        assertTrue(beforeDeadline.isEmpty());
+        assertEquals(Collections.singletonList(kn), atDeadline);
+        assertEquals(0, expiryWheel.size());
+    }
+
+    @Test
+    public void mustExpireFlaggedAndOverdueKnowledgeNodesAtOnce() throws Exception {
+        // given
+        final KnowledgeNode flagged = createKnowledgeNode(0, TIME, true);
+        final KnowledgeNode overdue = createKnowledgeNode(1, TIME - KnowledgeNode.AGE_THRESHOLD - 1, false);
+        final KnowledgeNode fresh = createKnowledgeNode(2, TIME, false);
+        expiryWheel.add(flagged);
+        expiryWheel.add(overdue);
+        expiryWheel.add(fresh);
+
+        // when
+        final List<KnowledgeNode> expired = expiryWheel.advance(TIME);
+
+        // then
+        assertEquals(new HashSet<>(Arrays.asList(flagged, overdue)), new HashSet<>(expired));
+        assertEquals(1, expiryWheel.size());
+    }
+
+    @Test
+    public void mustRescheduleExcitedKnowledgeNode() throws Exception {
+        // given
+        final long now = System.currentTimeMillis();
+        expiryWheel = new ExpiryWheel(now);
+        final KnowledgeNode kn = createKnowledgeNode(0, now - KnowledgeNode.AGE_THRESHOLD / 2, false);
+        expiryWheel.add(kn);
+        kn.excite();
+
+        // when
+        final List<KnowledgeNode> expired = expiryWheel.advance(now + KnowledgeNode.AGE_THRESHOLD / 2 + 1);
+
+        // then
+        assertTrue(expired.isEmpty());
+        assertEquals(1, expiryWheel.size());
+        assertEquals(Collections.singletonList(kn),
+                expiryWheel.advance(ExpiryWheel.getDeadline(kn)));
+    }
+
+    @Test
+    public void mustNotExpireRemovedKnowledgeNodes() throws Exception {
+        // given
+        final KnowledgeNode removed = createKnowledgeNode(0, TIME, false);
+        final KnowledgeNode cleared = createKnowledgeNode(1, TIME, false);
+        expiryWheel.add(removed);
+        expiryWheel.remove(removed);
+        expiryWheel.add(cleared);
+        expiryWheel.clear();
+
+        // when
+        final List<KnowledgeNode> expired = expiryWheel.advance(TIME + TimeUnit.DAYS.toMillis(1));
+
+        // then
+        assertTrue(expired.isEmpty());
+        assertEquals(0, expiryWheel.size());
+    }
+
+    @Test
+    public void mustExpireEachKnowledgeNodeOnceAtItsDeadline() throws Exception {
+        // given
+        final Random random = new Random(0);
+        final List<KnowledgeNode> kns = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            final long ageTimeStamp = TIME - 2 * KnowledgeNode.AGE_THRESHOLD
+                    + (long) (random.nextDouble() * TimeUnit.DAYS.toMillis(300));
+            final KnowledgeNode kn = createKnowledgeNode(i, ageTimeStamp, false);
+            kns.add(kn);
+            expiryWheel.add(kn);
+        }
+
+        // when
+        long now = TIME;
+        final Set<KnowledgeNode> expired = new HashSet<>();
+        while (expired.size() < kns.size()) {
+            final long[] scales = {TimeUnit.SECONDS.toMillis(2), TimeUnit.MINUTES.toMillis(2),
+                    TimeUnit.HOURS.toMillis(2), TimeUnit.DAYS.toMillis(10)};
+            now += 1 + (long) (random.nextDouble() * scales[random.nextInt(scales.length)]);
+            final Set<KnowledgeNode> expectedExpired = new HashSet<>();
+            for (final KnowledgeNode kn : kns) {
+                if (ExpiryWheel.getDeadline(kn) <= now && !expired.contains(kn)) {
+                    expectedExpired.add(kn);
+                }
+            }
+            final List<KnowledgeNode> actualExpired = expiryWheel.advance(now);
+
+            // then
+            assertEquals(expectedExpired, new HashSet<>(actualExpired));
+            assertEquals(expectedExpired.size(), actualExpired.size());
+            expired.addAll(actualExpired);
+        }
+        assertEquals(0, expiryWheel.size());
+    }
+}
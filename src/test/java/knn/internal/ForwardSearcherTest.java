@@ -1,12 +1,20 @@
 package knn.internal;
 
+import knn.api.KnowledgeNode;
+import knn.api.KnowledgeNodeClock;
+import knn.api.SearchListener;
+import knn.api.SearchTrace;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
+import tags.Fact;
 import tags.Tag;
 
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import static org.mockito.ArgumentMatchers.any;
@@ -36,16 +44,47 @@ public class ForwardSearcherTest {
         Set<Tag> expectedAllActivatedTags = new HashSet<>(Arrays.asList(t3, t4));
 
         // given
-        when(directSearcher.search(t1)).thenReturn(directActivatedTags1);
-        when(directSearcher.search(t2)).thenReturn(directActivatedTags2);
-        when(directSearcher.search(t3)).thenReturn(Collections.emptySet());
-        when(directSearcher.search(t4)).thenReturn(Collections.emptySet());
+        when(directSearcher.getClock()).thenReturn(KnowledgeNodeClock.SYSTEM);
+        when(directSearcher.search(eq(t1), eq(SearchTrace.NONE), anyLong())).thenReturn(directActivatedTags1);
+        when(directSearcher.search(eq(t2), eq(SearchTrace.NONE), anyLong())).thenReturn(directActivatedTags2);
+        when(directSearcher.search(eq(t3), eq(SearchTrace.NONE), anyLong())).thenReturn(Collections.emptySet());
+        when(directSearcher.search(eq(t4), eq(SearchTrace.NONE), anyLong())).thenReturn(Collections.emptySet());
 
         // when
         Set<Tag> actualAllActivatedTags = forwardSearcher.searchInternal(inputTags, ply);
 
         // then
         assertEquals(expectedAllActivatedTags, actualAllActivatedTags);
-        verify(directSearcher, times(4)).search(any(Tag.class));
+        verify(directSearcher, times(4)).search(any(Tag.class), any(SearchTrace.class), anyLong());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void mustForwardSearchBatchInOrder() throws Exception {
+        final Tag a = new Fact("A(x)");
+        final Tag b = new Fact("B(x)");
+        final Tag c = new Fact("C(x)");
+        final Map<Tag, KnowledgeNode> mapKN = new HashMap<>();
+        final KnowledgeNodeIndex knowledgeNodeIndex = TestKnowledgeNodeIndexes.create();
+        final ForwardSearcher searcher = new ForwardSearcher(
+                new DirectSearcher(mapKN, new HashSet<>(), knowledgeNodeIndex, SearchListener.NONE,
+                        KnowledgeNodeClock.SYSTEM));
+
+        // given
+        for (KnowledgeNode kn : Arrays.asList(
+                new KnowledgeNode(a, Collections.singleton(b), 1),
+                new KnowledgeNode(b, Collections.singleton(c), 1))) {
+            mapKN.put(kn.getInputTag(), kn);
+            knowledgeNodeIndex.add(kn);
+        }
+
+        // when
+        final List<Set<Tag>> activatedTags = searcher.searchBatch(
+                Arrays.asList(Collections.singleton(a), Collections.singleton(b)), 0);
+
+        // then
+        // B fires for the first query, which reaches it in its second ply
+        assertEquals(new HashSet<>(Arrays.asList(b, c)), activatedTags.get(0));
+        assertEquals(Collections.emptySet(), activatedTags.get(1));
+        assertEquals(200.0, mapKN.get(b).getActivation(), 0);
+    }
+}
@@ -0,0 +1,66 @@
+package knn.internal;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertTrue;
+
+public class FrequencySketchTest {
+    private static final int CAPACITY = 64;
+    private FrequencySketch sketch;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        sketch = new FrequencySketch(CAPACITY);
+    }
+
+    @Test
+    public void mustCountKeys() throws Exception {
+        // given
+        final int key = "dog(x)".hashCode();
+        final int otherKey = "cat(x)".hashCode();
+
+        // when
+        for (int i = 0; i < 3; i++) {
+            sketch.increment(key);
+        }
+        sketch.increment(otherKey);
+
+        // then
+        assertEquals(3, sketch.frequency(key));
+        assertEquals(1, sketch.frequency(otherKey));
+        assertEquals(0, sketch.frequency("bird(x)".hashCode()));
+    }
+
+    @Test
+    public void mustSaturateCounters() throws Exception {
+        // given
+        final int key = "dog(x)".hashCode();
+
+        // when
+        for (int i = 0; i < 100; i++) {
+            sketch.increment(key);
+        }
+
+        // then
+        assertEquals(15, sketch.frequency(key));
+    }
+
+    @Test
+    public void mustAgeFrequencies() throws Exception {
+        // given
+        final int key = "dog(x)".hashCode();
+        for (int i = 0; i < 8; i++) {
+            sketch.increment(key);
+        }
+
+        // when: enough other keys are seen to halve the counters
+        for (int i = 0; i < 10 * CAPACITY; i++) {
+            sketch.increment(i);
+        }
+
+        // then
+        assertTrue(sketch.frequency(key) < 8);
+    }
+}
@@ -0,0 +1,273 @@
+package knn.internal;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import com.google.inject.Guice;
+import datagen.DegreeDistribution;
+import datagen.KnowledgeNodeDataGenerator;
+import datagen.TagMix;
+import knn.api.JournalSyncPolicy;
+import knn.api.KnowledgeNode;
+import knn.api.KnowledgeNodeNetwork;
+import knn.api.KnowledgeNodeNetworkEngine;
+import knn.api.KnowledgeNodeNetworkFactory;
+import knn.guice.KnowledgeNodeNetworkModule;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import tags.Fact;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+public class KnowledgeNodeJournalTest {
+    private File directory;
+    private String db;
+    private String journal;
+
+    private static KnowledgeNodeNetwork createKnn(final KnowledgeNodeNetworkEngine engine) {
+        return Guice.createInjector(new KnowledgeNodeNetworkModule(engine))
+                .getInstance(KnowledgeNodeNetworkFactory.class)
+                .create(new HashMap<>(), new HashSet<>(), 1, Long.MAX_VALUE);
+    }
+
+    private static void assertSameState(final KnowledgeNode actual, final KnowledgeNode expected) {
+        assertEquals(actual, expected);
+        assertEquals(actual.getActivation(), expected.getActivation());
+        assertEquals(actual.getAge(), expected.getAge());
+        assertEquals(actual.getAgeTimeStamp(), expected.getAgeTimeStamp());
+        assertEquals(actual.isExpired(), expected.isExpired());
+    }
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        directory = Files.createTempDirectory("knn").toFile();
+        directory.deleteOnExit();
+        db = new File(directory, "knn.db").getPath();
+        journal = new File(directory, "knn.journal").getPath();
+    }
+
+    @Test
+    public void mustRecoverJournaledNetwork() throws Exception {
+        final File data = File.createTempFile("knn", ".txt");
+        data.deleteOnExit();
+        new KnowledgeNodeDataGenerator(1000, DegreeDistribution.powerLaw(1, 20, 2.5), TagMix.DEFAULT, 0.05, 0)
+                .write(data.getPath());
+        for (KnowledgeNodeNetworkEngine engine : KnowledgeNodeNetworkEngine.values()) {
+            // given
+            setUp();
+            final KnowledgeNodeNetwork knn = createKnn(engine);
+            knn.openJournal(db, journal, JournalSyncPolicy.NONE, 10);
+            knn.loadData(data.getPath());
+            final KnowledgeNode first = knn.getKnowledgeNodes().iterator().next();
+            knn.addActiveTags(first.getInputTag(), new Fact("A(x)", 0.5));
+            knn.forwardThink(2);
+            knn.deleteKnowledgeNode(first.getInputTag());
+            knn.forwardThink(1);
+            final List<KnowledgeNode> expected = new ArrayList<>(knn.getKnowledgeNodes());
+            knn.closeJournal();
+            final KnowledgeNodeNetwork recovered = createKnn(engine);
+
+            // when
+            recovered.openJournal(db, journal, JournalSyncPolicy.COMMIT, 10);
+
+            // then
+            final List<KnowledgeNode> actual = new ArrayList<>(recovered.getKnowledgeNodes());
+            assertEquals(actual.size(), expected.size(), engine.name());
+            for (int i = 0; i < actual.size(); i++) {
+                assertSameState(actual.get(i), expected.get(i));
+            }
+            assertEquals(recovered.getActiveTags(), knn.getActiveTags());
+            assertEquals(recovered.forwardThink(2), knn.forwardThink(2));
+            recovered.closeJournal();
+        }
+    }
+
+    @Test
+    public void mustRecordConcurrentChangesInOrder() throws Exception {
+        // given
+        final KnowledgeNodeNetworkImpl knn =
+                (KnowledgeNodeNetworkImpl) createKnn(KnowledgeNodeNetworkEngine.CONCURRENT);
+        knn.openJournal(db, journal, JournalSyncPolicy.NONE, 1);
+        final List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            final int thread = t;
+            threads.add(new Thread(() -> {
+                final Random random = new Random(thread);
+                for (int i = 0; i < 5000; i++) {
+                    final Fact tag = new Fact("T" + random.nextInt(8) + "(x)");
+                    switch (random.nextInt(5)) {
+                        case 0:
+                            knn.addKnowledgeNode(new KnowledgeNode(tag, Collections.singleton(
+                                    new Fact("O" + thread + "(x)")), 2));
+                            break;
+                        case 1:
+                            knn.deleteKnowledgeNode(tag);
+                            break;
+                        case 2:
+                            knn.addActiveTag(tag);
+                            break;
+                        case 3:
+                            knn.removeActiveTag(tag);
+                            break;
+                        default:
+                            knn.directSearch(tag);
+                            break;
+                    }
+                }
+            }));
+        }
+
+        // when
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        knn.closeJournal();
+        final KnowledgeNodeNetwork recovered = createKnn(KnowledgeNodeNetworkEngine.CONCURRENT);
+        recovered.openJournal(db, journal, JournalSyncPolicy.NONE, 10);
+
+        // then
+        assertEquals(recovered.getKnowledgeNodes().size(), knn.getKnowledgeNodes().size());
+        for (KnowledgeNode kn : knn.getKnowledgeNodes()) {
+            final KnowledgeNode actual = recovered.getKnowledgeNode(kn.getInputTag());
+            assertNotNull(actual);
+            assertEquals(actual.getOutputTags(), kn.getOutputTags());
+            assertSameState(actual, kn);
+        }
+        assertEquals(recovered.getActiveTags(), knn.getActiveTags());
+        recovered.closeJournal();
+    }
+
+    @Test
+    public void mustRecordShardedChangesAroundClear() throws Exception {
+        // given
+        final KnowledgeNodeNetwork knn = createKnn(KnowledgeNodeNetworkEngine.SHARDED);
+        knn.openJournal(db, journal, JournalSyncPolicy.NONE, 1);
+        for (int i = 0; i < 100; i++) {
+            knn.addKnowledgeNode(new KnowledgeNode(new Fact("A" + i + "(x)"),
+                    Collections.singleton(new Fact("B" + i + "(x)")), 1));
+        }
+        knn.forwardThink(1);
+
+        // when
+        knn.resetEmpty();
+        knn.clearActiveTags();
+        for (int i = 0; i < 10; i++) {
+            knn.addKnowledgeNode(new KnowledgeNode(new Fact("C" + i + "(x)"),
+                    Collections.singleton(new Fact("D" + i + "(x)")), 1));
+            knn.addActiveTag(new Fact("C" + i + "(x)"));
+        }
+        knn.closeJournal();
+        final KnowledgeNodeNetwork recovered = createKnn(KnowledgeNodeNetworkEngine.SHARDED);
+        recovered.openJournal(db, journal, JournalSyncPolicy.NONE, 10);
+
+        // then
+        assertEquals(recovered.getKnowledgeNodes().size(), 10);
+        for (KnowledgeNode kn : knn.getKnowledgeNodes()) {
+            assertSameState(recovered.getKnowledgeNode(kn.getInputTag()), kn);
+        }
+        assertEquals(recovered.getActiveTags(), knn.getActiveTags());
+        recovered.closeJournal();
+    }
+
+    @Test
+    public void mustIgnoreTornBatch() throws Exception {
+        // given
+        final KnowledgeNode kn1 = new KnowledgeNode("A(x); B(x)");
+        final KnowledgeNode kn2 = new KnowledgeNode("B(x); C(x)");
+        final KnowledgeNodeJournal appender =
+                KnowledgeNodeJournal.open(journal, JournalSyncPolicy.COMMIT, Long.MAX_VALUE);
+        appender.add(kn1);
+        appender.addActiveTag(new Fact("A(x)"));
+        appender.commit();
+        appender.add(kn2);
+        appender.close();
+        final File segment = new File(journal + ".1");
+        try (RandomAccessFile file = new RandomAccessFile(segment, "rw")) {
+            file.setLength(file.length() - 1);
+        }
+        final KnowledgeNodeNetworkImpl knn =
+                (KnowledgeNodeNetworkImpl) createKnn(KnowledgeNodeNetworkEngine.DEFAULT);
+
+        // when
+        KnowledgeNodeJournal.replay(journal, knn);
+
+        // then
+        assertEquals(new ArrayList<>(knn.getKnowledgeNodes()), Collections.singletonList(kn1));
+        assertEquals(knn.getActiveTags(), Collections.singleton(new Fact("A(x)")));
+    }
+
+    @Test
+    public void mustDeleteCompactedSegments() throws Exception {
+        // given
+        final KnowledgeNodeNetwork knn = createKnn(KnowledgeNodeNetworkEngine.DEFAULT);
+        knn.openJournal(db, journal, JournalSyncPolicy.NONE, 10);
+        knn.addKnowledgeNode(new KnowledgeNode("A(x); B(x)"));
+
+        // when
+        knn.compactJournal();
+        knn.addKnowledgeNode(new KnowledgeNode("B(x); C(x)"));
+        knn.closeJournal();
+
+        // then
+        assertFalse(new File(journal + ".1").exists());
+        assertTrue(new File(journal + ".2").exists());
+        final KnowledgeNodeSnapshot snapshot = KnowledgeNodeSnapshot.read(db);
+        assertEquals(snapshot.getKnowledgeNodes(), Collections.singletonList(new KnowledgeNode("A(x); B(x)")));
+        final KnowledgeNodeNetwork recovered = createKnn(KnowledgeNodeNetworkEngine.DEFAULT);
+        recovered.openJournal(db, journal, JournalSyncPolicy.NONE, 10);
+        assertNotNull(recovered.getKnowledgeNode(new Fact("A(x)")));
+        assertNotNull(recovered.getKnowledgeNode(new Fact("B(x)")));
+        recovered.closeJournal();
+    }
+
+    @Test
+    public void mustOpenOneJournalAtATime() throws Exception {
+        // given
+        final KnowledgeNodeNetwork knn = createKnn(KnowledgeNodeNetworkEngine.DEFAULT);
+        knn.openJournal(db, journal, JournalSyncPolicy.NONE, 10);
+
+        // when
+        try {
+            knn.openJournal(db, journal, JournalSyncPolicy.NONE, 10);
+            fail();
+        } catch (final IllegalStateException e) {
+            // then
+            knn.closeJournal();
+        }
+
+        // when
+        knn.closeJournal();
+        knn.addKnowledgeNode(new KnowledgeNode("A(x); B(x)"));
+
+        // then
+        assertTrue(KnowledgeNodeSnapshot.read(db).getKnowledgeNodes().isEmpty());
+        try {
+            knn.compactJournal();
+            fail();
+        } catch (final IllegalStateException e) {
+            assertNull(recoveredKnowledgeNode());
+        }
+    }
+
+    private KnowledgeNode recoveredKnowledgeNode() {
+        final KnowledgeNodeNetwork recovered = createKnn(KnowledgeNodeNetworkEngine.DEFAULT);
+        recovered.openJournal(db, journal, JournalSyncPolicy.NONE, 10);
+        final KnowledgeNode kn = recovered.getKnowledgeNode(new Fact("A(x)"));
+        recovered.closeJournal();
+        return kn;
+    }
+}
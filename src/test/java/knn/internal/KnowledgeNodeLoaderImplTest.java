@@ -0,0 +1,168 @@
+package knn.internal;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import com.google.inject.Guice;
+import datagen.DegreeDistribution;
+import datagen.KnowledgeNodeDataGenerator;
+import datagen.TagMix;
+import knn.api.KnowledgeNode;
+import knn.api.KnowledgeNodeNetwork;
+import knn.api.KnowledgeNodeNetworkFactory;
+import knn.api.LoadProgress;
+import knn.api.LoadReport;
+import knn.guice.KnowledgeNodeNetworkModule;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import tags.Tag;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+public class KnowledgeNodeLoaderImplTest {
+    private static final String ANIMAL_DATA_PATH = "data/animalData.txt";
+    private ForkJoinPool forkJoinPool;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        forkJoinPool = new ForkJoinPool(4);
+    }
+
+    @AfterMethod
+    public void tearDown() throws Exception {
+        forkJoinPool.shutdownNow();
+    }
+
+    private static KnowledgeNodeNetwork createKnn() {
+        return Guice.createInjector(new KnowledgeNodeNetworkModule())
+                .getInstance(KnowledgeNodeNetworkFactory.class)
+                .create(new HashMap<>(), new HashSet<>(), 1, Long.MAX_VALUE);
+    }
+
+    private static Map<Tag, Set<Tag>> toMap(final KnowledgeNodeNetwork knn) {
+        final Map<Tag, Set<Tag>> map = new HashMap<>();
+        for (KnowledgeNode kn : knn.getKnowledgeNodes()) {
+            map.put(kn.getInputTag(), kn.getOutputTags());
+        }
+        return map;
+    }
+
+    private static File write(final String content) throws IOException {
+        final File file = File.createTempFile("knn", ".txt");
+        file.deleteOnExit();
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(content.getBytes(StandardCharsets.UTF_8));
+        }
+        return file;
+    }
+
+    private void assertLoadsLikeLoadData(final String filename, final int chunkSize) throws Exception {
+        // given
+        final KnowledgeNodeNetwork knn = createKnn();
+        final KnowledgeNodeNetwork expectedKnn = createKnn();
+        final LoadProgress progress = new LoadProgress();
+        for (String line : Files.readAllLines(Paths.get(filename), StandardCharsets.UTF_8)) {
+            expectedKnn.addKnowledgeNode(new KnowledgeNode(line));
+        }
+
+        // when
+        final LoadReport report = new KnowledgeNodeLoaderImpl(forkJoinPool, chunkSize).load(knn, filename, progress);
+
+        // then
+        assertEquals(toMap(knn), toMap(expectedKnn));
+        assertEquals(progress.getKnowledgeNodes(), expectedKnn.getKnowledgeNodes().size());
+        assertEquals(progress.getParsedBytes(), new File(filename).length());
+        assertEquals(progress.getTotalBytes(), new File(filename).length());
+        assertTrue(report.getMalformedLines().isEmpty());
+    }
+
+    @Test
+    public void mustLoadLikeLoadData() throws Exception {
+        for (int chunkSize : new int[]{1, 64, 1000, KnowledgeNodeLoaderImpl.DEFAULT_CHUNK_SIZE}) {
+            assertLoadsLikeLoadData(ANIMAL_DATA_PATH, chunkSize);
+        }
+    }
+
+    @Test
+    public void mustLoadGeneratedData() throws Exception {
+        final File file = File.createTempFile("knn", ".txt");
+        file.deleteOnExit();
+        new KnowledgeNodeDataGenerator(5000, DegreeDistribution.powerLaw(1, 50, 2.5), TagMix.DEFAULT, 0.05, 0)
+                .write(file.getPath());
+
+        assertLoadsLikeLoadData(file.getPath(), 4096);
+    }
+
+    @Test
+    public void mustReportMalformedLines() throws Exception {
+        // given
+        final File file = write("A(x); 1; B(x); 100\n"
+                + "\n"
+                + "not a tag; 1; B(x); 100\n"
+                + "B(x); 1; C(x); 100\r\n"
+                + "; \n"
+                + "C(x); 1; D(x); 100");
+        final KnowledgeNodeNetwork knn = createKnn();
+        final LoadProgress progress = new LoadProgress();
+
+        // when
+        final LoadReport report = new KnowledgeNodeLoaderImpl(forkJoinPool, 8).load(knn, file.getPath(), progress);
+
+        // then
+        assertEquals(report.getMalformedLines().size(), 2);
+        assertEquals(report.getMalformedLines().get(0).getLineNumber(), 3);
+        assertEquals(report.getMalformedLines().get(0).getLine(), "not a tag; 1; B(x); 100");
+        assertEquals(report.getMalformedLines().get(0).getMessage(), "Invalid input tag: not a tag.");
+        assertEquals(report.getMalformedLines().get(1).getLineNumber(), 5);
+        assertEquals(progress.getLines(), 6);
+        assertEquals(progress.getKnowledgeNodes(), 3);
+        assertEquals(progress.getMalformedLines(), 2);
+        assertEquals(knn.getKnowledgeNodes().size(), 3);
+        assertTrue(report.toString().contains("3 KNs, 2 malformed"));
+        assertTrue(progress.getElapsedMillis() >= 0);
+    }
+
+    @Test
+    public void mustLoadDataWithLoader() throws Exception {
+        // given
+        final File file = write("A(x); 1; B(x); 100\n"
+                + "not a tag; 1; B(x); 100\n"
+                + "B(x); 1; C(x); 100\n");
+        final KnowledgeNodeNetwork knn = createKnn();
+        knn.addKnowledgeNode(new KnowledgeNode("Z(x); 1; Y(x); 100"));
+
+        // when
+        final LoadReport report = knn.loadData(file.getPath());
+
+        // then
+        assertEquals(knn.getKnowledgeNodes().size(), 2);
+        assertEquals(report.getProgress().getKnowledgeNodes(), 2);
+        assertEquals(report.getMalformedLines().size(), 1);
+        assertEquals(report.getMalformedLines().get(0).getLineNumber(), 2);
+    }
+
+    @Test(expectedExceptions = UncheckedIOException.class)
+    public void mustThrowWhenDataFileIsMissing() throws Exception {
+        createKnn().loadData(new File("does/not/exist.txt").getPath());
+    }
+
+    @Test
+    public void mustSplitLikeRegularExpression() throws Exception {
+        for (String line : Arrays.asList("", "A(x)", "A(x); 1; B(x); 100", "A(x);  \t1;B(x); ", "; A(x)",
+                "A(x);\tB(x);", "A(x); ; B(x)")) {
+            assertEquals(KnowledgeNodeLoaderImpl.split(line), line.split(";\\s+"), line);
+        }
+    }
+}
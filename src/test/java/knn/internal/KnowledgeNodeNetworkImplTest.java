@@ -1,6 +1,7 @@
 package knn.internal;
 
 import knn.api.KnowledgeNode;
+import knn.api.KnowledgeNodeClock;
 import knn.api.KnowledgeNodeNetwork;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
@@ -18,7 +19,9 @@ public class KnowledgeNodeNetworkImplTest {
     private KnowledgeNodeNetwork knn;
     private Map<Tag, KnowledgeNode> mapKN;
     private Set<Tag> activeTags;
-    private TreeSet<KnowledgeNode> ageSortedKNs;
+    private RecencyIndex recencyIndex;
+    private OutputTagIndex outputTagIndex;
+    private KnowledgeNodeIndex knowledgeNodeIndex;
     private DirectSearcher directSearcher;
     private ForwardSearcher forwardSearcher;
     private BackwardSearcher backwardSearcher;
@@ -28,7 +31,9 @@ public class KnowledgeNodeNetworkImplTest {
     public void setUp() throws Exception {
         mapKN = new HashMap<>();
         activeTags = new HashSet<>();
-        ageSortedKNs = new TreeSet<>();
+        recencyIndex = new RecencyIndex();
+        outputTagIndex = new OutputTagIndex();
+        knowledgeNodeIndex = new KnowledgeNodeIndexImpl(recencyIndex, outputTagIndex, KnowledgeNodeClock.SYSTEM);
         directSearcher = mock(DirectSearcher.class);
         forwardSearcher = mock(ForwardSearcher.class);
         backwardSearcher = mock(BackwardSearcher.class);
@@ -37,18 +42,18 @@ public class KnowledgeNodeNetworkImplTest {
         ForwardSearcherFactory forwardSearcherFactory = mock(ForwardSearcherFactory.class);
         BackwardSearcherFactory backwardSearcherFactory = mock(BackwardSearcherFactory.class);
         LambdaSearcherFactory lambdaSearcherFactory = mock(LambdaSearcherFactory.class);
-        when(directSearcherFactory.create(mapKN, activeTags, ageSortedKNs)).thenReturn(directSearcher);
+        when(directSearcherFactory.create(mapKN, activeTags, knowledgeNodeIndex)).thenReturn(directSearcher);
         when(forwardSearcherFactory.create(directSearcher)).thenReturn(forwardSearcher);
         long ageLimit = Long.MAX_VALUE;
-        when(backwardSearcherFactory.create(activeTags, ageSortedKNs, BACKWARD_SEARCH_PARTIAL_MATCH_RATIO, ageLimit))
+        when(backwardSearcherFactory.create(activeTags, knowledgeNodeIndex, BACKWARD_SEARCH_PARTIAL_MATCH_RATIO, ageLimit))
                 .thenReturn(backwardSearcher);
         when(lambdaSearcherFactory.create(forwardSearcher, backwardSearcher)).thenReturn(lambdaSearcher);
         knn = new KnowledgeNodeNetworkImpl(
                 mapKN,
                 activeTags,
-                ageSortedKNs,
                 BACKWARD_SEARCH_PARTIAL_MATCH_RATIO,
                 ageLimit,
+                knowledgeNodeIndex,
                 directSearcherFactory,
                 forwardSearcherFactory,
                 backwardSearcherFactory,
@@ -163,4 +168,23 @@ public class KnowledgeNodeNetworkImplTest {
         assertEquals(outputTags, activatedTags);
     }
 
-}
\ No newline at end of file
+    @Test
+    public void mustKeepOutputTagIndexInSync() throws Exception {
+        Tag inputTag = mock(Tag.class);
+        Tag outputTag = mock(Tag.class);
+        KnowledgeNode kn = new KnowledgeNode(inputTag, new HashSet<>(Collections.singletonList(outputTag)), 1);
+
+        // when
+        knn.addKnowledgeNode(kn);
+
+        // then
+        assertEquals(outputTagIndex.get(outputTag), Collections.singleton(kn));
+
+        // when
+        knn.deleteKnowledgeNode(inputTag);
+
+        // then
+        assertEquals(outputTagIndex.get(outputTag), Collections.emptySet());
+        assertEquals(recencyIndex, Collections.emptySet());
+    }
+}
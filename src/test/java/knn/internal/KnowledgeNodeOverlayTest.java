@@ -0,0 +1,139 @@
+package knn.internal;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import knn.api.KnowledgeNode;
+import knn.api.KnowledgeNodeClock;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import tags.Fact;
+import tags.Tag;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertFalse;
+import static org.testng.AssertJUnit.assertNotSame;
+import static org.testng.AssertJUnit.assertNull;
+import static org.testng.AssertJUnit.assertSame;
+import static org.testng.AssertJUnit.assertTrue;
+
+public class KnowledgeNodeOverlayTest {
+    private KnowledgeNodeOverlay overlay;
+    private KnowledgeNode kn1;
+    private KnowledgeNode kn2;
+    private KnowledgeNode kn3;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        kn1 = new KnowledgeNode(new Fact("A(x)"), new HashSet<>(Collections.singletonList(new Fact("B(x)"))), 1);
+        kn2 = new KnowledgeNode(new Fact("B(x)"), new HashSet<>(Collections.singletonList(new Fact("C(x)"))), 1);
+        kn3 = new KnowledgeNode(new Fact("C(x)"), new HashSet<>(Collections.singletonList(new Fact("B(x)"))), 1);
+        final Map<Tag, KnowledgeNode> mapKN = new HashMap<>();
+        final KnowledgeNodeIndex knowledgeNodeIndex = new ConcurrentKnowledgeNodeIndex(KnowledgeNodeClock.SYSTEM);
+        for (KnowledgeNode kn : Arrays.asList(kn1, kn2, kn3)) {
+            mapKN.put(kn.getInputTag(), kn);
+            knowledgeNodeIndex.add(kn);
+        }
+        overlay = new KnowledgeNodeOverlay(mapKN, knowledgeNodeIndex);
+    }
+
+    @Test
+    public void mustExciteCopyOnly() throws Exception {
+        // given
+        final KnowledgeNode copy = overlay.getMap().get(kn1.getInputTag());
+
+        // when
+        final boolean fired = overlay.excite(copy, System.currentTimeMillis());
+
+        // then
+        assertTrue(fired);
+        assertNotSame(kn1, copy);
+        assertTrue(copy.isFired());
+        assertFalse(kn1.isFired());
+        assertSame(copy, overlay.getMap().get(kn1.getInputTag()));
+        assertSame(copy, overlay.peek(kn1.getInputTag()));
+        assertNotSame(kn2, overlay.peek(kn2.getInputTag()));
+        assertEquals(kn2, overlay.peek(kn2.getInputTag()));
+    }
+
+    @Test
+    public void mustIterateCopiesFirst() throws Exception {
+        // given
+        final KnowledgeNode copy = overlay.getMap().get(kn1.getInputTag());
+
+        // when
+        overlay.excite(copy, System.currentTimeMillis());
+
+        // then
+        assertEquals(Arrays.asList(copy, kn3, kn2), new ArrayList<>(overlay.getKnowledgeNodes()));
+        assertEquals(3, overlay.getKnowledgeNodes().size());
+    }
+
+    @Test
+    public void mustReplaceCandidatesWithCopies() throws Exception {
+        // given
+        final KnowledgeNode copy = overlay.getMap().get(kn1.getInputTag());
+
+        // when
+        overlay.excite(copy, System.currentTimeMillis());
+
+        // then
+        final Map<Tag, KnowledgeNode> candidates = new HashMap<>();
+        for (KnowledgeNode kn : overlay.getCandidates(Collections.singleton(new Fact("B(x)")))) {
+            candidates.put(kn.getInputTag(), kn);
+        }
+        assertEquals(2, candidates.size());
+        assertSame(copy, candidates.get(kn1.getInputTag()));
+        assertSame(kn3, candidates.get(kn3.getInputTag()));
+    }
+
+    @Test
+    public void mustHideRemovedKnowledgeNode() throws Exception {
+        // given
+        final KnowledgeNode copy = overlay.getMap().get(kn1.getInputTag());
+        overlay.excite(copy, System.currentTimeMillis());
+
+        // when
+        final boolean removed = overlay.getMap().remove(kn1.getInputTag(), copy);
+
+        // then
+        assertTrue(removed);
+        assertNull(overlay.getMap().get(kn1.getInputTag()));
+        assertFalse(overlay.getMap().containsKey(kn1.getInputTag()));
+        assertEquals(Arrays.asList(kn3, kn2), new ArrayList<>(overlay.getKnowledgeNodes()));
+        assertEquals(2, overlay.getKnowledgeNodes().size());
+        assertEquals(Collections.singleton(kn3), overlay.getCandidates(Collections.singleton(new Fact("B(x)"))));
+    }
+
+    @Test
+    public void mustShowSharedKnowledgeNodesAfterClear() throws Exception {
+        // given
+        final KnowledgeNode copy = overlay.getMap().get(kn1.getInputTag());
+        overlay.excite(copy, System.currentTimeMillis());
+        overlay.remove(overlay.getMap().get(kn2.getInputTag()));
+
+        // when
+        overlay.clear();
+
+        // then
+        assertEquals(kn1, overlay.peek(kn1.getInputTag()));
+        assertEquals(kn2, overlay.peek(kn2.getInputTag()));
+        assertEquals(Arrays.asList(kn3, kn2, kn1), new ArrayList<>(overlay.getKnowledgeNodes()));
+        assertEquals(3, overlay.getKnowledgeNodes().size());
+    }
+
+    @Test(expectedExceptions = UnsupportedOperationException.class)
+    public void mustNotAddKnowledgeNode() throws Exception {
+        // when
+        overlay.add(new KnowledgeNode(new Fact("D(x)"), new HashSet<>(), 1));
+    }
+
+    @Test(expectedExceptions = UnsupportedOperationException.class)
+    public void mustNotSetJournal() throws Exception {
+        // when
+        overlay.setJournal(null);
+    }
+}
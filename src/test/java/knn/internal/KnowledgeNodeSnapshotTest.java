@@ -0,0 +1,133 @@
+package knn.internal;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import com.google.inject.Guice;
+import datagen.DegreeDistribution;
+import datagen.KnowledgeNodeDataGenerator;
+import datagen.TagMix;
+import knn.api.KnowledgeNode;
+import knn.api.KnowledgeNodeNetwork;
+import knn.api.KnowledgeNodeNetworkEngine;
+import knn.api.KnowledgeNodeNetworkFactory;
+import knn.guice.KnowledgeNodeNetworkModule;
+import org.testng.annotations.Test;
+import tags.Fact;
+import tags.Rule;
+import tags.Tag;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+public class KnowledgeNodeSnapshotTest {
+
+    private static KnowledgeNodeNetwork createKnn(final KnowledgeNodeNetworkEngine engine) {
+        return Guice.createInjector(new KnowledgeNodeNetworkModule(engine))
+                .getInstance(KnowledgeNodeNetworkFactory.class)
+                .create(new HashMap<>(), new HashSet<>(), 1, Long.MAX_VALUE);
+    }
+
+    private static File createTempFile(final String suffix) throws IOException {
+        final File file = File.createTempFile("knn", suffix);
+        file.deleteOnExit();
+        return file;
+    }
+
+    private static void assertSameState(final KnowledgeNode actual, final KnowledgeNode expected) {
+        assertEquals(actual, expected);
+        assertEquals(actual.getAgeTimeStamp(), expected.getAgeTimeStamp());
+        assertEquals(actual.isExpired(), expected.isExpired());
+        assertEquals(actual.isFired(), expected.isFired());
+    }
+
+    @Test
+    public void mustRestoreSavedNetwork() throws Exception {
+        final File data = createTempFile(".txt");
+        final File snapshot = createTempFile(".knn");
+        new KnowledgeNodeDataGenerator(2000, DegreeDistribution.powerLaw(1, 20, 2.5), TagMix.DEFAULT, 0.05, 0)
+                .write(data.getPath());
+        for (KnowledgeNodeNetworkEngine engine : KnowledgeNodeNetworkEngine.values()) {
+            // given
+            final KnowledgeNodeNetwork knn = createKnn(engine);
+            knn.loadData(data.getPath());
+            knn.addActiveTags(knn.getKnowledgeNodes().iterator().next().getInputTag(), new Fact("A(x)", 0.5));
+            knn.forwardThink(2);
+            final List<KnowledgeNode> expected = new ArrayList<>(knn.getKnowledgeNodes());
+            final KnowledgeNodeNetwork restored = createKnn(engine);
+            restored.addKnowledgeNode(new KnowledgeNode("B(x); C(x)"));
+
+            // when
+            knn.save(snapshot.getPath());
+            restored.reset(snapshot.getPath());
+
+            // then
+            final List<KnowledgeNode> actual = new ArrayList<>(restored.getKnowledgeNodes());
+            assertEquals(actual.size(), expected.size(), engine.name());
+            for (int i = 0; i < actual.size(); i++) {
+                assertSameState(actual.get(i), expected.get(i));
+            }
+            assertEquals(restored.getActiveTags(), knn.getActiveTags());
+            assertEquals(restored.forwardThink(2), knn.forwardThink(2));
+        }
+    }
+
+    @Test
+    public void mustRestoreStateAndConfidence() throws Exception {
+        // given
+        final File snapshot = createTempFile(".knn");
+        final Fact output = new Fact("B(x)", 0.25);
+        final Rule rule = new Rule("A(x) -> @B(y)");
+        final KnowledgeNode kn1 = new KnowledgeNode(new Fact("A(x)"), Collections.singleton(output), 3, 0.5, 7,
+                200, 42, 1234, true);
+        final KnowledgeNode kn2 = new KnowledgeNode(rule, Collections.<Tag>singleton(new Fact("C(\u00e9t\u00e9)")), 1);
+        final KnowledgeNodeSnapshot expected = new KnowledgeNodeSnapshot(
+                Arrays.asList(kn1, kn2), Collections.<Tag>singleton(rule));
+
+        // when
+        expected.write(snapshot.getPath());
+        final KnowledgeNodeSnapshot actual = KnowledgeNodeSnapshot.read(snapshot.getPath());
+
+        // then
+        assertEquals(actual.getKnowledgeNodes().size(), 2);
+        final KnowledgeNode restored = actual.getKnowledgeNodes().get(0);
+        assertSameState(restored, kn1);
+        assertEquals(restored.getThreshold(), 3);
+        assertEquals(restored.getBelief(), 0.5);
+        assertEquals(restored.getStrength(), 7);
+        assertEquals(restored.getActivation(), 200.0);
+        assertEquals(restored.getAge(), 42);
+        assertEquals(restored.getOutputTags().iterator().next().getConfidence(), 0.25);
+        assertSameState(actual.getKnowledgeNodes().get(1), kn2);
+        assertEquals(actual.getActiveTags(), Collections.singleton(rule));
+    }
+
+    @Test
+    public void mustRejectInvalidSnapshots() throws Exception {
+        // given
+        final File file = createTempFile(".knn");
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write("A(x); B(x)\n".getBytes("UTF-8"));
+        }
+        final KnowledgeNodeNetwork knn = createKnn(KnowledgeNodeNetworkEngine.DEFAULT);
+        knn.addKnowledgeNode(new KnowledgeNode("B(x); C(x)"));
+
+        // when
+        try {
+            knn.reset(file.getPath());
+            fail();
+        } catch (final UncheckedIOException e) {
+            // then
+            assertTrue(e.getCause().getMessage().startsWith("Not a KNN snapshot"));
+            assertEquals(knn.getKnowledgeNodes().size(), 1);
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package knn.internal;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import knn.api.BackwardSearchApproximation;
+import knn.api.KnowledgeNode;
+import org.testng.annotations.Test;
+import tags.Fact;
+import tags.Tag;
+
+import static org.testng.AssertJUnit.assertFalse;
+import static org.testng.AssertJUnit.assertTrue;
+
+public class MinHashIndexTest {
+    private static final Set<Tag> OUTPUT_TAGS = new HashSet<>(Arrays.asList(
+            new Fact("A(x)"), new Fact("B(x)"), new Fact("C(x)"), new Fact("D(x)")));
+    private static final Set<Tag> OTHER_OUTPUT_TAGS = new HashSet<>(Arrays.asList(
+            new Fact("V(x)"), new Fact("W(x)"), new Fact("Y(x)"), new Fact("Z(x)")));
+
+    @Test
+    public void mustFindKnsWithSimilarOutputTags() throws Exception {
+        final MinHashIndex minHashIndex = new MinHashIndex(new BackwardSearchApproximation(8, 2, true));
+        final KnowledgeNode kn1 = new KnowledgeNode(new Fact("P(x)"), OUTPUT_TAGS, 1);
+        final KnowledgeNode kn2 = new KnowledgeNode(new Fact("Q(x)"), OTHER_OUTPUT_TAGS, 1);
+
+        // when
+        minHashIndex.add(kn1);
+        minHashIndex.add(kn2);
+
+        // then
+        final Set<KnowledgeNode> candidates = minHashIndex.getCandidates(OUTPUT_TAGS, OUTPUT_TAGS.size());
+        assertTrue(candidates.contains(kn1));
+        assertFalse(candidates.contains(kn2));
+    }
+
+    @Test
+    public void mustRemoveKn() throws Exception {
+        final MinHashIndex minHashIndex = new MinHashIndex(new BackwardSearchApproximation(8, 2, true));
+        final KnowledgeNode kn = new KnowledgeNode(new Fact("P(x)"), OUTPUT_TAGS, 1);
+
+        // given
+        minHashIndex.add(kn);
+
+        // when
+        minHashIndex.remove(kn);
+
+        // then
+        assertTrue(minHashIndex.getCandidates(OUTPUT_TAGS, 1).isEmpty());
+    }
+
+    @Test
+    public void mustKeepCandidatesEstimatedToMatchUnlessVerified() throws Exception {
+        final MinHashIndex minHashIndex = new MinHashIndex(new BackwardSearchApproximation(8, 2, false));
+        final KnowledgeNode kn = new KnowledgeNode(new Fact("P(x)"), OUTPUT_TAGS, 1);
+
+        // given
+        minHashIndex.add(kn);
+
+        // then
+        assertTrue(minHashIndex.getCandidates(OUTPUT_TAGS, OUTPUT_TAGS.size()).contains(kn));
+        assertTrue(minHashIndex.getCandidates(OUTPUT_TAGS, OUTPUT_TAGS.size() + 1).isEmpty());
+    }
+
+    @Test
+    public void mustIndexNothingIfExact() throws Exception {
+        final MinHashIndex minHashIndex = new MinHashIndex(BackwardSearchApproximation.EXACT);
+
+        // when
+        minHashIndex.add(new KnowledgeNode(new Fact("P(x)"), OUTPUT_TAGS, 1));
+
+        // then
+        assertTrue(minHashIndex.isExact());
+        assertTrue(minHashIndex.getCandidates(OUTPUT_TAGS, 1).isEmpty());
+    }
+}
@@ -0,0 +1,161 @@
+package knn.internal;
+
+import java.util.Collections;
+import knn.api.KnowledgeNode;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import tags.Fact;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+public class OffHeapKnowledgeNodeStoreTest {
+    private OffHeapKnowledgeNodeStore store;
+    private KnowledgeNode kn;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        store = new OffHeapKnowledgeNodeStore();
+        kn = new KnowledgeNode(new Fact("A(x)"), Collections.singleton(new Fact("B(x)")), 3, 0.5, 7,
+                200, 42, 1234, false);
+    }
+
+    @Test
+    public void mustStoreKnowledgeNodeState() throws Exception {
+        // when
+        store.put(5, kn, new int[]{1, 9}, true);
+
+        // then
+        assertTrue(store.contains(5));
+        assertFalse(store.contains(1));
+        assertFalse(store.contains(100_000));
+        assertEquals(store.getThreshold(5), 3);
+        assertEquals(store.getBelief(5), 0.5);
+        assertEquals(store.getStrength(5), 7);
+        assertEquals(store.getActivation(5), 200.0);
+        assertEquals(store.getAge(5), 42);
+        assertEquals(store.getAgeTimeStamp(5), 1234);
+        assertFalse(store.isExpired(5));
+        assertEquals(store.getOutputCount(5), 2);
+        assertEquals(store.getOutputId(5, 0), 1);
+        assertEquals(store.getOutputId(5, 1), 9);
+    }
+
+    @Test
+    public void mustOrderByTimeStamp() throws Exception {
+        // given
+        store.put(1, restore(300), new int[0], true);
+        store.put(2, restore(100), new int[0], true);
+        store.put(3, restore(200), new int[0], true);
+        store.put(4, restore(200), new int[0], false);
+
+        // then
+        assertEquals(store.getMostRecent(), 1);
+        assertEquals(store.getNext(1), 3);
+        assertEquals(store.getNext(3), 4);
+        assertEquals(store.getNext(4), 2);
+    }
+
+    private static KnowledgeNode restore(final long ageTimeStamp) {
+        return new KnowledgeNode(new Fact("A(x)"), Collections.emptySet(), 1, 0, 1, 0, 0, ageTimeStamp, false);
+    }
+
+    @Test
+    public void mustKeepRecencyOrder() throws Exception {
+        // given
+        store.put(1, kn, new int[0], true);
+        store.put(2, kn, new int[0], true);
+        store.put(3, kn, new int[0], false);
+
+        // when
+        store.excite(1, System.currentTimeMillis());
+        store.remove(2);
+
+        // then
+        assertEquals(store.size(), 2);
+        assertEquals(store.getMostRecent(), 1);
+        assertEquals(store.getNext(1), 3);
+        assertEquals(store.getNext(3), OffHeapKnowledgeNodeStore.NONE);
+    }
+
+    @Test
+    public void mustExciteLikeKnowledgeNode() throws Exception {
+        // given
+        final KnowledgeNode expected = new KnowledgeNode(new Fact("A(x)"), Collections.emptySet(), 150);
+        store.put(0, expected, new int[0], true);
+
+        // when
+        final boolean fired1 = store.excite(0, System.currentTimeMillis());
+        final boolean fired2 = store.excite(0, System.currentTimeMillis());
+
+        // then
+        assertFalse(fired1);
+        assertTrue(fired2);
+        assertFalse(store.excite(0, System.currentTimeMillis()));
+        assertEquals(store.getActivation(0), 300.0);
+    }
+
+    @Test
+    public void mustExpireOldKnowledgeNode() throws Exception {
+        // given
+        store.put(0, new KnowledgeNode(new Fact("A(x)"), Collections.emptySet(), 1, 0, 1,
+                0, KnowledgeNode.AGE_THRESHOLD + 1, 0, false), new int[0], true);
+
+        // when
+        final boolean fired = store.excite(0, System.currentTimeMillis());
+
+        // then
+        assertFalse(fired);
+        assertTrue(store.isExpired(0));
+        assertEquals(store.getActivation(0), 0.0);
+    }
+
+    @Test
+    public void mustIndexInputsOfOutputTags() throws Exception {
+        // given
+        store.put(1, kn, new int[]{3, 4}, true);
+        store.put(2, kn, new int[]{4}, true);
+        assertEquals(store.getInputCount(4), 2);
+
+        // when
+        store.remove(1);
+
+        // then
+        assertEquals(store.getInputCount(3), 0);
+        assertEquals(store.getInputCount(4), 1);
+        assertEquals(store.getInputId(4, 0), 2);
+        assertEquals(store.getInputCount(1_000_000), 0);
+    }
+
+    @Test
+    public void mustCompactReplacedOutputs() throws Exception {
+        // given
+        store.put(1, kn, new int[]{7}, true);
+
+        // when
+        for (int i = 0; i < 100_000; i++) {
+            store.put(0, kn, new int[]{i % 5, 5}, true);
+        }
+
+        // then
+        assertEquals(store.size(), 2);
+        assertEquals(store.getOutputId(0, 0), 99_999 % 5);
+        assertEquals(store.getOutputId(0, 1), 5);
+        assertEquals(store.getOutputId(1, 0), 7);
+    }
+
+    @Test
+    public void mustClear() throws Exception {
+        // given
+        store.put(1, kn, new int[]{3}, true);
+
+        // when
+        store.clear();
+
+        // then
+        assertEquals(store.size(), 0);
+        assertFalse(store.contains(1));
+        assertEquals(store.getMostRecent(), OffHeapKnowledgeNodeStore.NONE);
+    }
+}
@@ -0,0 +1,60 @@
+package knn.internal;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import knn.api.KnowledgeNode;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import tags.Fact;
+import tags.Tag;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertTrue;
+
+public class OutputTagIndexTest {
+    private OutputTagIndex outputTagIndex;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        outputTagIndex = new OutputTagIndex();
+    }
+
+    @Test
+    public void mustIndexOutputTags() throws Exception {
+        final Tag t1 = new Fact("A(x)");
+        final Tag t2 = new Fact("B(x)");
+        final Tag t3 = new Fact("C(x)");
+        final KnowledgeNode kn1 = new KnowledgeNode(new Fact("P(x)"), new HashSet<>(Arrays.asList(t1, t2)), 1);
+        final KnowledgeNode kn2 = new KnowledgeNode(new Fact("Q(x)"), new HashSet<>(Arrays.asList(t2, t3)), 1);
+
+        // when
+        outputTagIndex.add(kn1);
+        outputTagIndex.add(kn2);
+
+        // then
+        assertEquals(Collections.singleton(kn1), outputTagIndex.get(t1));
+        assertEquals(2, outputTagIndex.get(t2).size());
+        final Set<KnowledgeNode> candidates = outputTagIndex.getCandidates(new HashSet<>(Arrays.asList(t1, t3)));
+        assertEquals(2, candidates.size());
+        assertTrue(candidates.contains(kn1));
+        assertTrue(candidates.contains(kn2));
+    }
+
+    @Test
+    public void mustRemoveKn() throws Exception {
+        final Tag t1 = new Fact("A(x)");
+        final KnowledgeNode kn = new KnowledgeNode(new Fact("P(x)"), new HashSet<>(Collections.singletonList(t1)), 1);
+
+        // given
+        outputTagIndex.add(kn);
+
+        // when
+        outputTagIndex.remove(kn);
+
+        // then
+        assertTrue(outputTagIndex.get(t1).isEmpty());
+        assertTrue(outputTagIndex.getCandidates(Collections.singleton(t1)).isEmpty());
+    }
+}
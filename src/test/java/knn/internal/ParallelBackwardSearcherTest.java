@@ -0,0 +1,81 @@
+package knn.internal;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import knn.api.KnowledgeNode;
+import knn.api.KnowledgeNodeClock;
+import knn.api.SearchListener;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import tags.Fact;
+import tags.Tag;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertTrue;
+
+public class ParallelBackwardSearcherTest {
+    private static final int SIZE = 300;
+    private static final int SPLIT_THRESHOLD = 4;
+    private ForkJoinPool forkJoinPool;
+    private KnowledgeNodeIndex knowledgeNodeIndex;
+    private Set<Tag> inputTags;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        forkJoinPool = new ForkJoinPool(4);
+        knowledgeNodeIndex = TestKnowledgeNodeIndexes.create();
+        for (int i = 0; i < SIZE; i++) {
+            knowledgeNodeIndex.add(new KnowledgeNode(new Fact("K(" + i + ")"),
+                    new HashSet<>(Arrays.asList(new Fact("A(" + i % 3 + ")"), new Fact("B(x)"))), 1));
+        }
+        inputTags = new HashSet<>(Arrays.asList(new Fact("A(0)"), new Fact("B(x)")));
+    }
+
+    @AfterMethod
+    public void tearDown() throws Exception {
+        forkJoinPool.shutdownNow();
+    }
+
+    @Test
+    public void mustBackwardSearchLikeSerialSearcher() throws Exception {
+        for (double ratio : new double[]{0, 0.5, 1}) {
+            // given
+            final Set<Tag> activeTags = new HashSet<>();
+            final Set<Tag> parallelActiveTags = new HashSet<>();
+            final BackwardSearcher backwardSearcher = new BackwardSearcher(
+                    activeTags, knowledgeNodeIndex, ratio, Long.MAX_VALUE, new BackwardSearchMatcher(),
+                    SearchListener.NONE, KnowledgeNodeClock.SYSTEM);
+            final BackwardSearcher parallelBackwardSearcher = new ParallelBackwardSearcher(
+                    parallelActiveTags, knowledgeNodeIndex, ratio, Long.MAX_VALUE, new BackwardSearchMatcher(),
+                    SearchListener.NONE, KnowledgeNodeClock.SYSTEM, forkJoinPool, SPLIT_THRESHOLD);
+
+            // when
+            final Set<Tag> activatedTags = backwardSearcher.search(inputTags, 1);
+            final Set<Tag> parallelActivatedTags = parallelBackwardSearcher.search(inputTags, 1);
+
+            // then
+            assertEquals(ratio < 1 ? SIZE : SIZE / 3, activatedTags.size());
+            assertEquals(activatedTags, parallelActivatedTags);
+            assertEquals(activeTags, parallelActiveTags);
+        }
+    }
+
+    @Test
+    public void mustStopAtAgeLimit() throws Exception {
+        // given
+        final Set<Tag> activeTags = new HashSet<>();
+        final BackwardSearcher parallelBackwardSearcher = new ParallelBackwardSearcher(
+                activeTags, knowledgeNodeIndex, 0, -1, new BackwardSearchMatcher(), SearchListener.NONE,
+                KnowledgeNodeClock.SYSTEM, forkJoinPool, SPLIT_THRESHOLD);
+
+        // when
+        final Set<Tag> activatedTags = parallelBackwardSearcher.search(inputTags, 1);
+
+        // then
+        assertTrue(activatedTags.isEmpty());
+        assertTrue(activeTags.isEmpty());
+    }
+}
@@ -0,0 +1,95 @@
+package knn.internal;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import knn.api.KnowledgeNode;
+import knn.api.KnowledgeNodeClock;
+import knn.api.SearchListener;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import tags.Fact;
+import tags.Tag;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertTrue;
+
+public class ParallelForwardSearcherTest {
+    private static final int WIDTH = 200;
+    private static final int SPLIT_THRESHOLD = 4;
+    private ForkJoinPool forkJoinPool;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        forkJoinPool = new ForkJoinPool(4);
+    }
+
+    @AfterMethod
+    public void tearDown() throws Exception {
+        forkJoinPool.shutdownNow();
+    }
+
+    /**
+     * Creates a direct searcher over a KNN in which root(x) activates WIDTH Tags, each of which activates a leaf Tag.
+     * The leaf Tags of even KNs are shared.
+     */
+    private DirectSearcher createDirectSearcher(final Map<Tag, KnowledgeNode> mapKN) {
+        final ConcurrentKnowledgeNodeIndex knowledgeNodeIndex = new ConcurrentKnowledgeNodeIndex(KnowledgeNodeClock.SYSTEM);
+        final Set<Tag> rootOutputTags = new HashSet<>();
+        for (int i = 0; i < WIDTH; i++) {
+            final Fact tag = new Fact("T(" + i + ")");
+            final Fact leaf = new Fact("L(" + i % 2 * i + ")");
+            rootOutputTags.add(tag);
+            mapKN.put(tag, new KnowledgeNode(tag, Collections.singleton(leaf), 1));
+        }
+        mapKN.put(new Fact("root(x)"), new KnowledgeNode(new Fact("root(x)"), rootOutputTags, 1));
+        for (final KnowledgeNode kn : mapKN.values()) {
+            knowledgeNodeIndex.add(kn);
+        }
+        return new DirectSearcher(mapKN, ConcurrentHashMap.newKeySet(), knowledgeNodeIndex, SearchListener.NONE,
+                KnowledgeNodeClock.SYSTEM);
+    }
+
+    @Test
+    public void mustForwardSearchLikeSerialSearcher() throws Exception {
+        // given
+        final Map<Tag, KnowledgeNode> kns = new ConcurrentHashMap<>();
+        final Map<Tag, KnowledgeNode> parallelKns = new ConcurrentHashMap<>();
+        final ForwardSearcher forwardSearcher = new ForwardSearcher(createDirectSearcher(kns));
+        final ForwardSearcher parallelForwardSearcher =
+                new ParallelForwardSearcher(createDirectSearcher(parallelKns), forkJoinPool, SPLIT_THRESHOLD);
+        final Set<Tag> inputTags = Collections.singleton(new Fact("root(x)"));
+
+        // when
+        final Set<Tag> activatedTags = forwardSearcher.search(inputTags, 0);
+        final Set<Tag> parallelActivatedTags = parallelForwardSearcher.search(inputTags, 0);
+
+        // then
+        assertEquals(WIDTH + WIDTH / 2 + 1, activatedTags.size());
+        assertEquals(activatedTags, parallelActivatedTags);
+        for (final Map.Entry<Tag, KnowledgeNode> entry : kns.entrySet()) {
+            assertTrue(entry.getValue().isFired());
+            assertTrue(parallelKns.get(entry.getKey()).isFired());
+        }
+        assertEquals(kns.keySet(), parallelKns.keySet());
+    }
+
+    @Test
+    public void mustSearchSmallPlySerially() throws Exception {
+        // given
+        final ForwardSearcher parallelForwardSearcher =
+                new ParallelForwardSearcher(createDirectSearcher(new ConcurrentHashMap<>()), forkJoinPool, WIDTH);
+
+        // when
+        final Set<Tag> activatedTags = parallelForwardSearcher.search(Collections.singleton(new Fact("root(x)")), 2);
+
+        // then
+        assertEquals(WIDTH + WIDTH / 2 + 1, activatedTags.size());
+        assertTrue(activatedTags.contains(new Fact("L(0)")));
+        assertEquals(0, forkJoinPool.getStealCount() + forkJoinPool.getQueuedSubmissionCount());
+    }
+}
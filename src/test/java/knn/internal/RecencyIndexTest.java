@@ -0,0 +1,140 @@
+package knn.internal;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import knn.api.KnowledgeNode;
+import knn.api.KnowledgeNodeClock;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import tags.Fact;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertFalse;
+import static org.testng.AssertJUnit.assertTrue;
+
+public class RecencyIndexTest {
+    private RecencyIndex recencyIndex;
+    private KnowledgeNode kn1;
+    private KnowledgeNode kn2;
+    private KnowledgeNode kn3;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        recencyIndex = new RecencyIndex();
+        kn1 = new KnowledgeNode(new Fact("A(x)"), new HashSet<>(Collections.singletonList(new Fact("B(x)"))), 1);
+        kn2 = new KnowledgeNode(new Fact("B(x)"), new HashSet<>(Collections.singletonList(new Fact("C(x)"))), 1);
+        kn3 = new KnowledgeNode(new Fact("C(x)"), new HashSet<>(Collections.singletonList(new Fact("D(x)"))), 1);
+    }
+
+    @Test
+    public void mustIterateFromMostRecent() throws Exception {
+        // given
+        recencyIndex.add(kn1);
+        recencyIndex.add(kn2);
+        recencyIndex.add(kn3);
+
+        // when
+        final boolean fired = recencyIndex.excite(kn1, System.currentTimeMillis());
+
+        // then
+        assertTrue(fired);
+        assertEquals(Arrays.asList(kn1, kn3, kn2), new ArrayList<>(recencyIndex));
+    }
+
+    @Test
+    public void mustOrderByTimeStamp() throws Exception {
+        // given
+        final KnowledgeNode recent = restore(new Fact("R(x)"), 300);
+        final KnowledgeNode old = restore(new Fact("O(x)"), 100);
+        final KnowledgeNode middle = restore(new Fact("M(x)"), 200);
+
+        // when
+        recencyIndex.add(recent);
+        recencyIndex.add(old);
+        recencyIndex.add(middle);
+
+        // then
+        assertEquals(Arrays.asList(recent, middle, old), new ArrayList<>(recencyIndex));
+
+        // when
+        recencyIndex.excite(old, 400);
+
+        // then
+        assertEquals(Arrays.asList(old, recent, middle), new ArrayList<>(recencyIndex));
+    }
+
+    private static KnowledgeNode restore(final Fact inputTag, final long ageTimeStamp) {
+        return new KnowledgeNode(inputTag, Collections.emptySet(), 1, 0, 1, 0, 0, ageTimeStamp, false);
+    }
+
+    @Test
+    public void mustRemove() throws Exception {
+        // given
+        recencyIndex.add(kn1);
+        recencyIndex.add(kn2);
+        recencyIndex.add(kn3);
+
+        // when
+        assertTrue(recencyIndex.remove(kn2));
+        assertFalse(recencyIndex.remove(kn2));
+        recencyIndex.remove(kn3);
+
+        // then
+        assertEquals(Collections.singletonList(kn1), new ArrayList<>(recencyIndex));
+        assertEquals(1, recencyIndex.size());
+        assertFalse(recencyIndex.contains(kn3));
+    }
+
+    @Test
+    public void mustNotIndexTwice() throws Exception {
+        // given: KNs of the same age, which kn1 and kn2 may not be if the clock ticks between their creations
+        final KnowledgeNode first = restore(new Fact("A(x)"), 100);
+        final KnowledgeNode second = restore(new Fact("B(x)"), 100);
+        recencyIndex.add(first);
+        recencyIndex.add(second);
+
+        // when
+        final boolean added = recencyIndex.add(first);
+
+        // then
+        assertFalse(added);
+        assertEquals(Arrays.asList(first, second), new ArrayList<>(recencyIndex));
+    }
+
+    @Test
+    public void mustClear() throws Exception {
+        // given
+        recencyIndex.add(kn1);
+        recencyIndex.add(kn2);
+
+        // when
+        recencyIndex.clear();
+
+        // then
+        assertTrue(recencyIndex.isEmpty());
+        assertFalse(recencyIndex.iterator().hasNext());
+    }
+
+    @Test
+    public void mustKeepKnowledgeNodeIndexInSync() throws Exception {
+        final OutputTagIndex outputTagIndex = new OutputTagIndex();
+        final KnowledgeNodeIndex knowledgeNodeIndex = new KnowledgeNodeIndexImpl(recencyIndex, outputTagIndex, KnowledgeNodeClock.SYSTEM);
+
+        // when
+        knowledgeNodeIndex.add(kn1);
+        knowledgeNodeIndex.add(kn2);
+
+        // then
+        assertEquals(Collections.singleton(kn1), knowledgeNodeIndex.getCandidates(Collections.singleton(new Fact("B(x)"))));
+
+        // when
+        knowledgeNodeIndex.remove(kn1);
+
+        // then
+        assertTrue(outputTagIndex.get(new Fact("B(x)")).isEmpty());
+        assertEquals(Collections.singleton(kn2), knowledgeNodeIndex.getKnowledgeNodes());
+    }
+}
@@ -0,0 +1,121 @@
+package knn.internal;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import knn.api.KnowledgeNode;
+import org.testng.annotations.Test;
+import tags.Fact;
+import tags.Tag;
+
+import static org.testng.AssertJUnit.assertEquals;
+
+public class TagBeamTest {
+    private final Tag a = new Fact("A(x)");
+    private final Tag b = new Fact("B(x)");
+    private final Tag c = new Fact("C(x)");
+    private final Tag d = new Fact("D(x)");
+
+    @Test
+    public void mustKeepBestTags() throws Exception {
+        // given
+        final TagBeam beam = new TagBeam(2);
+
+        // when
+        beam.offer(a, 1);
+        beam.offer(b, 4);
+        beam.offer(c, 2);
+        beam.offer(d, 3);
+
+        // then
+        assertEquals(new HashSet<>(Arrays.asList(b, d)), beam.getTags());
+    }
+
+    @Test
+    public void mustKeepAllTagsWithinWidth() throws Exception {
+        // given
+        final TagBeam beam = new TagBeam(3);
+
+        // when
+        beam.offer(a, 1);
+        beam.offer(b, 2);
+
+        // then
+        assertEquals(new HashSet<>(Arrays.asList(a, b)), beam.getTags());
+    }
+
+    @Test
+    public void mustKeepBestScoreOfTag() throws Exception {
+        // given
+        final TagBeam beam = new TagBeam(1);
+
+        // when
+        beam.offer(a, 3);
+        beam.offer(b, 2);
+        beam.offer(a, 1);
+
+        // then
+        assertEquals(Collections.singleton(a), beam.getTags());
+    }
+
+    @Test
+    public void mustScoreOutputTagsOfKnowledgeNode() throws Exception {
+        // given
+        final KnowledgeNode weak = new KnowledgeNode(a, Collections.singleton(b), 1, 1, 1);
+        final KnowledgeNode strong = new KnowledgeNode(c, Collections.singleton(d), 1, 1, 2);
+        final TagBeam beam = new TagBeam(1);
+
+        // when
+        beam.offer(weak);
+        beam.offer(strong);
+
+        // then
+        assertEquals(Collections.singleton(d), beam.getTags());
+        assertEquals(3.0, TagBeam.score(1, 2, d));
+    }
+
+    @Test
+    public void mustNotDependOnOfferOrder() throws Exception {
+        // given
+        final TagBeam beam = new TagBeam(2);
+        final TagBeam reversed = new TagBeam(2);
+
+        // when
+        for (Tag t : Arrays.asList(a, b, c, d)) {
+            beam.offer(t, 1);
+        }
+        for (Tag t : Arrays.asList(d, c, b, a)) {
+            reversed.offer(t, 1);
+        }
+
+        // then
+        assertEquals(2, beam.getTags().size());
+        assertEquals(beam.getTags(), reversed.getTags());
+    }
+
+    @Test
+    public void mustMergeBeamsLikeOneBeam() throws Exception {
+        // given
+        final TagBeam first = new TagBeam(2);
+        final TagBeam second = new TagBeam(2);
+        final TagBeam merged = new TagBeam(2);
+        first.offer(a, 4);
+        first.offer(b, 3);
+        first.offer(c, 2);
+        second.offer(c, 5);
+        second.offer(d, 1);
+
+        // when
+        merged.offer(first);
+        merged.offer(second);
+
+        // then
+        assertEquals(new HashSet<>(Arrays.asList(a, c)), merged.getTags());
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void mustRejectNonPositiveWidth() throws Exception {
+        // when
+        new TagBeam(0);
+    }
+}
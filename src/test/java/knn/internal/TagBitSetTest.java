@@ -0,0 +1,175 @@
+package knn.internal;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import tags.Fact;
+import tags.Tag;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertFalse;
+import static org.testng.AssertJUnit.assertSame;
+import static org.testng.AssertJUnit.assertTrue;
+
+public class TagBitSetTest {
+    private TagDictionary dictionary;
+    private Tag a;
+    private Tag b;
+    private Tag c;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        dictionary = new TagDictionary();
+        a = new Fact("A(x)");
+        b = new Fact("B(x)");
+        c = new Fact("C(x)");
+    }
+
+    @Test
+    public void mustBehaveLikeSet() throws Exception {
+        // given
+        final Set<Tag> tags = new TagBitSet(dictionary);
+
+        // when
+        tags.add(a);
+        tags.add(b);
+        tags.add(new Fact("A(x)"));
+        tags.remove(b);
+        tags.remove(c);
+
+        // then
+        assertEquals(Collections.singleton(a), tags);
+        assertEquals(tags, Collections.singleton(a));
+        assertEquals(Collections.singleton(a).hashCode(), tags.hashCode());
+        assertTrue(tags.contains(new Fact("A(x)")));
+        assertFalse(tags.contains(b));
+        assertFalse(tags.contains(c));
+        assertFalse(tags.contains("A(x)"));
+        assertEquals(1, tags.size());
+    }
+
+    @Test
+    public void mustCombineSetsWithSameDictionary() throws Exception {
+        // given
+        final Set<Tag> tags = new TagBitSet(dictionary, Arrays.asList(a, b));
+        final Set<Tag> others = new TagBitSet(dictionary, Arrays.asList(b, c));
+        final JournaledTagSet journaled = new JournaledTagSet(new TagBitSet(dictionary, Collections.singleton(a)));
+
+        // when
+        final boolean added = tags.addAll(others);
+        final boolean addedAgain = tags.addAll(others);
+        final boolean removed = tags.removeAll(journaled);
+
+        // then
+        assertTrue(added);
+        assertFalse(addedAgain);
+        assertTrue(removed);
+        assertEquals(new HashSet<>(Arrays.asList(b, c)), tags);
+    }
+
+    @Test
+    public void mustCombineSetsWithOtherStorage() throws Exception {
+        // given
+        final Set<Tag> tags = new TagBitSet(dictionary, Arrays.asList(a, b));
+        final Set<Tag> others = new TagBitSet(new TagDictionary(), Arrays.asList(b, c));
+
+        // when
+        tags.addAll(new HashSet<>(Collections.singleton(c)));
+        tags.removeAll(others);
+
+        // then
+        assertEquals(Collections.singleton(a), tags);
+    }
+
+    @Test
+    public void mustRemoveWhileIterating() throws Exception {
+        // given
+        final Set<Tag> tags = new TagBitSet(dictionary, Arrays.asList(a, b, c));
+
+        // when
+        final Iterator<Tag> iterator = tags.iterator();
+        while (iterator.hasNext()) {
+            if (!iterator.next().equals(b)) {
+                iterator.remove();
+            }
+        }
+
+        // then
+        assertEquals(Collections.singleton(b), tags);
+    }
+
+    @Test
+    public void mustCreateSetsLikeGivenOne() throws Exception {
+        // given
+        final Set<Tag> tags = new JournaledTagSet(new TagBitSet(dictionary, Collections.singleton(a)));
+
+        // when
+        final Set<Tag> like = TagBitSet.newSetLike(tags);
+        like.add(b);
+        final Set<Tag> hashed = TagBitSet.newSetLike(new HashSet<>());
+
+        // then
+        assertTrue(like instanceof TagBitSet);
+        assertEquals(Collections.singleton(b), like);
+        assertTrue(tags.addAll(like));
+        assertEquals(new HashSet<>(Arrays.asList(a, b)), tags);
+        assertTrue(hashed instanceof HashSet);
+    }
+
+    @Test
+    public void mustKeepAddedInstances() throws Exception {
+        // given
+        final Set<Tag> known = new TagBitSet(dictionary, Collections.singleton(new Fact("A(x)", 0.2)));
+        final Tag confident = new Fact("A(x)", 0.9);
+        final Set<Tag> tags = new TagBitSet(dictionary);
+        final Set<Tag> merged = new TagBitSet(dictionary);
+
+        // when
+        tags.add(confident);
+        tags.add(new Fact("A(x)", 0.5));
+        merged.addAll(tags);
+
+        // then
+        assertSame(confident, tags.iterator().next());
+        assertSame(confident, merged.iterator().next());
+        assertEquals(0.2, known.iterator().next().getConfidence(), 0);
+    }
+
+    @Test
+    public void mustForgetRemovedInstances() throws Exception {
+        // given
+        new TagBitSet(dictionary, Collections.singleton(a));
+        final Set<Tag> tags = new TagBitSet(dictionary, Collections.singleton(new Fact("A(x)", 0.5)));
+        final Set<Tag> removed = new TagBitSet(dictionary, Collections.singleton(a));
+
+        // when
+        tags.removeAll(removed);
+        tags.add(a);
+
+        // then
+        assertSame(a, tags.iterator().next());
+    }
+
+    @Test
+    public void mustDropDictionaryWhenCleared() throws Exception {
+        // given
+        final Set<Tag> tags = new TagBitSet(dictionary, Arrays.asList(a, b));
+        final Set<Tag> results = TagBitSet.newSetLike(tags);
+        results.add(b);
+
+        // when
+        tags.clear();
+        tags.add(c);
+        tags.addAll(results);
+
+        // then
+        assertEquals(TagDictionary.NO_ID, dictionary.getId(c));
+        assertEquals(2, dictionary.size());
+        assertEquals(Collections.singleton(b), results);
+        assertEquals(new HashSet<>(Arrays.asList(b, c)), tags);
+    }
+}
@@ -0,0 +1,168 @@
+package knn.internal;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertFalse;
+import static org.testng.AssertJUnit.assertTrue;
+
+public class TagBitmapTest {
+    private TagBitmap bitmap;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        bitmap = new TagBitmap();
+    }
+
+    private static List<Integer> toList(final TagBitmap bitmap) {
+        final List<Integer> values = new ArrayList<>();
+        for (int i = bitmap.next(0); i >= 0; i = bitmap.next(i + 1)) {
+            values.add(i);
+        }
+        return values;
+    }
+
+    @Test
+    public void mustAddAndRemove() throws Exception {
+        // when
+        final boolean added = bitmap.add(70000);
+        final boolean addedAgain = bitmap.add(70000);
+        bitmap.add(3);
+        final boolean removed = bitmap.remove(3);
+        final boolean removedAgain = bitmap.remove(3);
+
+        // then
+        assertTrue(added);
+        assertFalse(addedAgain);
+        assertTrue(removed);
+        assertFalse(removedAgain);
+        assertTrue(bitmap.contains(70000));
+        assertFalse(bitmap.contains(3));
+        assertFalse(bitmap.contains(4464));
+        assertEquals(1, bitmap.cardinality());
+    }
+
+    @Test
+    public void mustIterateInOrderAcrossContainers() throws Exception {
+        // given
+        bitmap.add(1 << 17);
+        bitmap.add(5);
+        bitmap.add(65536);
+        bitmap.add(65535);
+
+        // when
+        final List<Integer> values = toList(bitmap);
+
+        // then
+        assertEquals(Arrays.asList(5, 65535, 65536, 1 << 17), values);
+        assertEquals(65536, bitmap.next(6 + 65530));
+        assertEquals(-1, bitmap.next((1 << 17) + 1));
+    }
+
+    @Test
+    public void mustSwitchBetweenArrayAndBitmapContainers() throws Exception {
+        // given
+        for (int i = 0; i < TagBitmap.ARRAY_MAX; i++) {
+            bitmap.add(2 * i);
+        }
+        final boolean bitmapBefore = bitmap.isBitmapContainer(0);
+
+        // when
+        bitmap.add(1);
+        final boolean bitmapAfterAdd = bitmap.isBitmapContainer(0);
+        bitmap.remove(1);
+
+        // then
+        assertFalse(bitmapBefore);
+        assertTrue(bitmapAfterAdd);
+        assertFalse(bitmap.isBitmapContainer(0));
+        assertEquals(TagBitmap.ARRAY_MAX, bitmap.cardinality());
+        assertTrue(bitmap.contains(2 * (TagBitmap.ARRAY_MAX - 1)));
+        assertFalse(bitmap.contains(1));
+    }
+
+    @Test
+    public void mustCombineLikeSortedSets() throws Exception {
+        // given
+        final Random random = new Random(42);
+        for (int round = 0; round < 20; round++) {
+            final TagBitmap left = new TagBitmap();
+            final TagBitmap right = new TagBitmap();
+            final TreeSet<Integer> expectedLeft = new TreeSet<>();
+            final TreeSet<Integer> expectedRight = new TreeSet<>();
+            final int range = 1 << (12 + random.nextInt(8));
+            final int count = random.nextInt(3 * TagBitmap.ARRAY_MAX);
+            for (int i = 0; i < count; i++) {
+                final int l = random.nextInt(range);
+                final int r = random.nextInt(range);
+                left.add(l);
+                expectedLeft.add(l);
+                right.add(r);
+                expectedRight.add(r);
+            }
+
+            final TreeSet<Integer> expectedUnion = new TreeSet<>(expectedLeft);
+            expectedUnion.addAll(expectedRight);
+            final TreeSet<Integer> expectedDifference = new TreeSet<>(expectedUnion);
+            expectedDifference.removeAll(expectedRight);
+
+            // when
+            final boolean changedByOr = left.or(right);
+            final List<Integer> union = toList(left);
+            final int unionCardinality = left.cardinality();
+            final boolean changedByAndNot = left.andNot(right);
+
+            // then
+            assertEquals(expectedUnion.size() != expectedLeft.size(), changedByOr);
+            assertEquals(new ArrayList<>(expectedUnion), union);
+            assertEquals(expectedUnion.size(), unionCardinality);
+            assertEquals(!expectedRight.isEmpty(), changedByAndNot);
+            assertEquals(new ArrayList<>(expectedDifference), toList(left));
+            assertEquals(expectedDifference.size(), left.cardinality());
+            assertEquals(new ArrayList<>(expectedRight), toList(right));
+        }
+    }
+
+    @Test
+    public void mustAccumulateSmallBitmaps() throws Exception {
+        // given
+        final Random random = new Random(42);
+        final TreeSet<Integer> expected = new TreeSet<>();
+
+        // when
+        for (int round = 0; round < 2 * TagBitmap.ARRAY_MAX / 8; round++) {
+            final TagBitmap small = new TagBitmap();
+            for (int i = 0; i < 8; i++) {
+                final int value = random.nextInt(1 << 16);
+                small.add(value);
+                expected.add(value);
+            }
+            bitmap.or(small);
+        }
+
+        // then
+        assertEquals(new ArrayList<>(expected), toList(bitmap));
+        assertEquals(expected.size(), bitmap.cardinality());
+    }
+
+    @Test
+    public void mustClear() throws Exception {
+        // given
+        bitmap.add(1);
+        bitmap.add(1 << 20);
+
+        // when
+        bitmap.clear();
+
+        // then
+        assertEquals(0, bitmap.cardinality());
+        assertEquals(-1, bitmap.next(0));
+        assertTrue(bitmap.add(1));
+    }
+}
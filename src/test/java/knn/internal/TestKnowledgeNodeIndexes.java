@@ -0,0 +1,18 @@
+package knn.internal;
+
+import knn.api.KnowledgeNodeClock;
+
+/**
+ * Creates the KN indexes of the searcher tests.
+ */
+final class TestKnowledgeNodeIndexes {
+    private TestKnowledgeNodeIndexes() {
+    }
+
+    /**
+     * @return empty KN indexes, aging the KNs with the system clock
+     */
+    static KnowledgeNodeIndex create() {
+        return new KnowledgeNodeIndexImpl(new RecencyIndex(), new OutputTagIndex(), KnowledgeNodeClock.SYSTEM);
+    }
+}
@@ -0,0 +1,62 @@
+package tags;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Collections;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertSame;
+
+public class TagCodecTest {
+
+    private static Tag roundTrip(final Tag tag) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        TagCodec.write(tag, new DataOutputStream(bytes));
+        return TagCodec.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+    }
+
+    @Test
+    public void mustReadCanonicalTags() throws Exception {
+        for (Tag tag : new Tag[]{new Fact("P(a,!b,c=d,e!=f,1,g>2,h!<-3,?,*,&x,i=?)"), new Recommendation("@R()"),
+                new Rule("P(a) Q(b=1) -> R(&x) @S(c)")}) {
+            // when
+            final Tag read = roundTrip(tag);
+
+            // then
+            assertEquals(read, tag);
+            assertEquals(read.getConfidence(), 1.0);
+            assertEquals(read.toDataString(), tag.toDataString());
+        }
+        assertSame(roundTrip(new Fact("P(a)")), TagPool.fact("P(a)"));
+        assertSame(roundTrip(new Recommendation("@R(a)")), TagPool.recommendation("@R(a)"));
+        assertSame(roundTrip(new Rule("P(a) -> @R(a)")), TagPool.rule("P(a) -> @R(a)"));
+    }
+
+    @Test
+    public void mustKeepConfidence() throws Exception {
+        for (Tag tag : new Tag[]{new Fact("P(a)", 0.5), new Recommendation("@R(b)", 0.25),
+                new Rule(Collections.singleton(new Fact("P(a)")), Collections.<Predicate>singleton(new Fact("Q(a)")),
+                        0.5)}) {
+            // when
+            final Tag read = roundTrip(tag);
+
+            // then
+            assertEquals(read, tag);
+            assertEquals(read.getConfidence(), tag.getConfidence());
+        }
+        final Fact canonical = TagPool.fact("P(z)");
+        final Fact read = (Fact) roundTrip(new Fact("P(z)", 0.5));
+        assertNotSame(read, canonical);
+        assertSame(read.getArguments(), canonical.getArguments());
+    }
+
+    @Test(expectedExceptions = IOException.class)
+    public void mustRejectInvalidTags() throws Exception {
+        TagCodec.read(new DataInputStream(new ByteArrayInputStream(new byte[]{7, 0, 0, 0, 0, 0, 0, 0, 0})));
+    }
+}
@@ -0,0 +1,64 @@
+package tags;
+
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+
+public class TagDataStringTest {
+
+    @Test
+    public void mustParseBackToEqualFacts() throws Exception {
+        for (String data : new String[]{"P()", "P(a)", "P(a,!b,c=d,e!=f)", "P(1,!2,-3,a=4,b!=5,c>6,d!<7,e<-8,f!9)",
+                "P(?,*,&x,a)"}) {
+            // given
+            final Fact fact = new Fact(data, 0.5);
+
+            // when
+            final String dataString = fact.toDataString();
+
+            // then
+            assertEquals(dataString, data);
+            assertEquals(TagPool.fact(dataString), fact);
+        }
+    }
+
+    @Test
+    public void mustParseBackToEqualRecommendations() throws Exception {
+        // given
+        final Recommendation recommendation = new Recommendation("@R(a,b>1,&x)");
+
+        // when
+        final String dataString = recommendation.toDataString();
+
+        // then
+        assertEquals(dataString, "@R(a,b>1,&x)");
+        assertEquals(TagPool.recommendation(dataString), recommendation);
+    }
+
+    @Test
+    public void mustParseBackToEqualRules() throws Exception {
+        for (String data : new String[]{"P(a) Q(b=1,?) -> R(&x) @S(c)", "P(a) ->", "-> @S(c)"}) {
+            // given
+            final Rule rule = new Rule(data);
+
+            // when
+            final String dataString = rule.toDataString();
+
+            // then
+            assertEquals(TagPool.rule(dataString), rule, dataString);
+        }
+    }
+
+    @Test
+    public void mustParseBackNamedVariableArguments() throws Exception {
+        // given
+        final Fact fact = new Fact("P(a=?)");
+
+        // when
+        final String dataString = fact.toDataString();
+
+        // then
+        assertEquals(dataString, "P(a=?)");
+        assertEquals(new Fact(dataString).getArguments(), fact.getArguments());
+    }
+}
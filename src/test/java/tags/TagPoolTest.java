@@ -0,0 +1,107 @@
+package tags;
+
+import java.lang.ref.WeakReference;
+import java.util.Collections;
+import java.util.Map;
+import knn.api.KnowledgeNode;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+public class TagPoolTest {
+    @Test
+    public void mustReturnCanonicalTags() {
+        // when
+        final Fact fact = TagPool.fact("P(a,b=1)");
+        final Recommendation recommendation = TagPool.recommendation("@R(x)");
+        final Rule rule = TagPool.rule("P(a,b=1) -> @R(x)");
+
+        // then
+        assertSame(TagPool.fact("P(a,b=1)"), fact);
+        assertSame(TagPool.recommendation("@R(x)"), recommendation);
+        assertSame(TagPool.rule("P(a,b=1) -> @R(x)"), rule);
+        assertTrue(rule.getInputFacts().iterator().next() == fact);
+        assertTrue(rule.getOutputPredicates().iterator().next()
+                == recommendation);
+        assertTrue(rule.isCanonical());
+        assertEquals(rule.hashCode(), new Rule("P(a,b=1) -> @R(x)").hashCode());
+    }
+
+    @Test
+    public void mustNotKeepUnreferencedTags() throws Exception {
+        // given
+        final WeakReference<Fact> fact = new WeakReference<>(TagPool.fact("Unreferenced(a)"));
+        final WeakReference<Rule> rule = new WeakReference<>(TagPool.rule("Unreferenced(b) -> @R(c)"));
+
+        // when
+        for (int i = 0; i < 10 && (fact.get() != null || rule.get() != null); i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+
+        // then
+        assertNull(fact.get());
+        assertNull(rule.get());
+        assertEquals(TagPool.fact("Unreferenced(a)"), new Fact("Unreferenced(a)"));
+    }
+
+    @Test
+    public void mustShareStructureWithParsedTags() throws Exception {
+        // given
+        final Fact canonical = TagPool.fact("Q(a,?)");
+
+        // when
+        final Fact fact = new Fact("Q(a,?)", 0.5);
+        final KnowledgeNode kn = new KnowledgeNode("Q(a,?); R(b)");
+
+        // then
+        assertNotSame(fact, canonical);
+        assertEquals(fact, canonical);
+        assertEquals(fact.hashCode(), canonical.hashCode());
+        assertSame(fact.getArguments(), canonical.getArguments());
+        assertEquals(fact.getConfidence(), 0.5);
+        assertEquals(canonical.getConfidence(), 1.0);
+        assertSame(kn.getInputTag(), canonical);
+        assertEquals(new Rule("Q(a,?) -> R(b)"), TagPool.rule("Q(a,?) -> R(b)"));
+    }
+
+    @Test
+    public void mustNotModifyCanonicalTags() {
+        // given
+        final Fact canonical = TagPool.fact("S(&x)");
+        final Rule rule = new Rule(new Fact[]{new Fact("T(y)", 0.5)},
+                new Predicate[]{canonical});
+        final Map<String, Argument> pairs = Collections.singletonMap(
+                "&x", Fact.makeArgument("z"));
+
+        // when
+        final Predicate replaced = canonical.replaceVariableArguments(pairs);
+
+        // then
+        assertEquals(replaced, new Fact("S(z)"));
+        assertEquals(canonical, new Fact("S(&x)"));
+        assertEquals(canonical.getConfidence(), 1.0);
+        assertEquals(rule.getOutputPredicates().iterator().next()
+                .getConfidence(), 0.5);
+    }
+
+    @Test
+    public void mustCacheArgumentHashCodes() {
+        // given
+        final StringArgument argument = new StringArgument("a", new String[]{"a"});
+        final int hashCode = argument.hashCode();
+
+        // when
+        argument.setValue("b");
+
+        // then
+        assertFalse(argument.hashCode() == hashCode);
+        assertEquals(argument.hashCode(),
+                new StringArgument("b", new String[]{"b"}).hashCode());
+    }
+}